@@ -45,6 +45,7 @@ import nom.tam.util.ByteFormatter;
 import nom.tam.util.ByteParser;
 import nom.tam.util.Cursor;
 import nom.tam.util.FormatException;
+import nom.tam.util.RandomAccess;
 
 import static nom.tam.fits.header.Standard.NAXIS1;
 import static nom.tam.fits.header.Standard.NAXIS2;
@@ -608,10 +609,8 @@ public class AsciiTable extends AbstractTableData {
 
     @Override
     protected void loadData(ArrayDataInput in) throws IOException, FitsException {
-        currInput = in;
-
         if (buffer == null) {
-            getBuffer((long) nRows * rowLen, 0);
+            getBuffer(in, (long) nRows * rowLen, 0);
         }
 
         data = new Object[nFields];
@@ -717,9 +716,9 @@ public class AsciiTable extends AbstractTableData {
     /**
      * Read some data into the buffer.
      */
-    private void getBuffer(long size, long offset) throws IOException, FitsException {
+    private void getBuffer(ArrayDataInput in, long size, long offset) throws IOException, FitsException {
 
-        if (currInput == null) {
+        if (in == null) {
             throw new IOException("No stream open to read");
         }
 
@@ -728,10 +727,15 @@ public class AsciiTable extends AbstractTableData {
         }
 
         buffer = new byte[(int) size];
-        if (offset != 0) {
-            FitsUtil.reposition(currInput, offset);
+        if (offset != 0 && in instanceof RandomAccess) {
+            // Positional read, without moving the file pointer of the (possibly shared) input
+            ((RandomAccess) in).readFullyAt(offset, buffer, 0, buffer.length);
+        } else {
+            if (offset != 0) {
+                FitsUtil.reposition(in, offset);
+            }
+            in.readFully(buffer);
         }
-        currInput.readFully(buffer);
         bp = new ByteParser(buffer);
     }
 
@@ -833,7 +837,7 @@ public class AsciiTable extends AbstractTableData {
 
         Object[] res = new Object[1];
         try {
-            getBuffer(lengths[col], getFileOffset() + (long) row * (long) rowLen + offsets[col]);
+            getBuffer(currInput, lengths[col], getFileOffset() + (long) row * (long) rowLen + offsets[col]);
         } catch (IOException e) {
             buffer = null;
             throw new FitsException("Unable to read element", e);
@@ -856,7 +860,7 @@ public class AsciiTable extends AbstractTableData {
         Object[] res = new Object[nFields];
 
         try {
-            getBuffer(rowLen, getFileOffset() + (long) row * (long) rowLen);
+            getBuffer(currInput, rowLen, getFileOffset() + (long) row * (long) rowLen);
         } catch (IOException e) {
             throw new FitsException("Unable to read row", e);
         }
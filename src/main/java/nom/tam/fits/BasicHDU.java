@@ -919,9 +919,8 @@ public abstract class BasicHDU<DataClass extends Data> implements FitsElement {
             throw new FitsException("Invalid attempt to rewrite HDU");
         }
         myHeader.rewrite();
-        if (!myData.isDeferred()) {
-            myData.rewrite();
-        }
+        // Deferred data may still have parts (e.g. a table's heap) modified in memory, which it will write as needed
+        myData.rewrite();
     }
 
     @Override
@@ -977,7 +976,7 @@ public abstract class BasicHDU<DataClass extends Data> implements FitsElement {
 
         myHeader.write(stream);
 
-        if (myData != null) {
+        if (myData != null && !myData.writePassthrough(stream)) {
             myData.write(stream);
         }
         try {
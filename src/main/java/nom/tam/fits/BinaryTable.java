@@ -31,6 +31,7 @@ package nom.tam.fits;
  * #L%
  */
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.lang.reflect.Array;
 import java.math.BigDecimal;
@@ -41,6 +42,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.StringTokenizer;
+import java.util.concurrent.ExecutorService;
 import java.util.logging.Logger;
 
 import nom.tam.fits.header.Bitpix;
@@ -50,11 +52,14 @@ import nom.tam.util.ArrayDataInput;
 import nom.tam.util.ArrayDataOutput;
 import nom.tam.util.ArrayFuncs;
 import nom.tam.util.AsciiFuncs;
+import nom.tam.util.ByteArrayIO;
 import nom.tam.util.ColumnTable;
 import nom.tam.util.ComplexValue;
 import nom.tam.util.Cursor;
+import nom.tam.util.FitsDecoder;
 import nom.tam.util.FitsEncoder;
 import nom.tam.util.FitsIO;
+import nom.tam.util.FitsInputStream;
 import nom.tam.util.Quantizer;
 import nom.tam.util.RandomAccess;
 import nom.tam.util.ReadWriteAccess;
@@ -1004,9 +1009,27 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
          * @return     the number of bytes an element occupies in the FITS binary table data representation
          */
         public int rowLen() {
+            return getEntryBytes();
+        }
+
+        /**
+         * Returns the number of bytes that the entries of this column occupy in a table row.
+         * 
+         * @return (bytes) the size of the column's entries in the FITS binary table data representation.
+         */
+        final int getEntryBytes() {
             return getTableBaseCount() * ElementType.forClass(getTableBase()).size();
         }
 
+        /**
+         * Returns the byte offset of this column's entries within a table row.
+         * 
+         * @return (bytes) the offset of the column's entries from the start of a table row.
+         */
+        final int getOffset() {
+            return offset;
+        }
+
         /**
          * Checks if this column used 64-bit heap pointers.
          * 
@@ -1315,6 +1338,12 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
      */
     private static final Logger LOG = Logger.getLogger(BinaryTable.class.getName());
 
+    /**
+     * (bytes) The largest block of the table or heap that is read in one go when reading entire columns, unless a
+     * single row or heap entry is larger.
+     */
+    static final int READ_BLOCK_SIZE = 0x100000;
+
     /**
      * This is the area in which variable length column data lives.
      */
@@ -1333,13 +1362,28 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
     /**
      * The original heap size (from the header)
      */
-    private int heapFileSize;
+    private long heapFileSize;
 
     /**
      * A list describing each of the columns in the table
      */
     private List<ColumnDesc> columns;
 
+    /**
+     * The ranges of rows modified in memory since the table was read or was last re-written
+     */
+    private ModifiedRanges modifiedRows = new ModifiedRanges();
+
+    /**
+     * Whether the heap was modified since the table was read or was last re-written
+     */
+    private boolean isHeapModified;
+
+    /**
+     * Whether rows or columns were added, removed, or moved since the table was read or was last re-written.
+     */
+    private boolean isLayoutModified;
+
     /**
      * The number of rows in the table.
      */
@@ -1357,6 +1401,15 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
 
     private FitsEncoder encoder;
 
+    /** Reusable buffer for individual table elements that are read from a deferred input */
+    private ByteArrayIO elementBuffer;
+
+    /** Decoder for individual table elements that are read from a deferred input */
+    private FitsDecoder elementDecoder;
+
+    /** Loads the table data in parallel from random-accessible inputs, or <code>null</code> to load sequentially */
+    private ParallelTableLoader parallelLoader;
+
     /**
      * Creates an empty binary table, which can be populated with columns / rows as desired.
      */
@@ -1446,16 +1499,14 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
         if (heapSizeL < 0) {
             throw new FitsException("Inconsistent THEAP and PCOUNT");
         }
-        if (heapSizeL > Integer.MAX_VALUE) {
-            throw new FitsException("Heap size > 2 GB");
-        }
         if (heapSizeL == 0L) {
             // There is no heap. Forget the offset
             heapAddress = 0;
         }
 
-        heapAddress = (int) heapOffsetL;
-        heapFileSize = (int) heapSizeL;
+        // Heaps over 2 GB are accessed in the file directly, and so are supported for random-accessible inputs.
+        heapAddress = heapOffsetL;
+        heapFileSize = heapSizeL;
 
         int nCol = header.getIntValue(Standard.TFIELDS);
         rowLen = 0;
@@ -1464,6 +1515,11 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
             rowLen += processCol(header, col, rowLen);
         }
 
+        if (heapSizeL > Integer.MAX_VALUE && !hasLongPointerColumn()) {
+            // 32-bit descriptors cannot address heaps that large
+            throw new FitsException("Heap size > 2 GB requires 64-bit (Q-type) descriptors");
+        }
+
         HeaderCard card = header.getCard(Standard.NAXIS1);
         card.setValue(rowLen);
     }
@@ -1565,7 +1621,13 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
     @Override
     protected BinaryTable clone() {
         try {
-            return (BinaryTable) super.clone();
+            BinaryTable clone = (BinaryTable) super.clone();
+            // The element decoder is not to be shared between copies
+            clone.elementBuffer = null;
+            clone.elementDecoder = null;
+            clone.modifiedRows = modifiedRows.copy();
+            clone.resetPins();
+            return clone;
         } catch (CloneNotSupportedException e) {
             return null;
         }
@@ -1997,7 +2059,9 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
         c.offset = rowLen;
         rowLen += c.rowLen();
 
-        // Load any deferred data (we will not be able to do that once we alter the column structure)
+        // Load any deferred data (we will not be able to do that once we alter the column structure). Mark the layout
+        // modified first, so that the loaded data is not discarded from memory before we are done.
+        isLayoutModified = true;
         ensureData();
 
         // Set the default column name
@@ -2177,8 +2241,6 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
      */
     @Override
     public int addRow(Object[] o) throws FitsException {
-        ensureData();
-
         if (columns.isEmpty()) {
             for (Object element : o) {
 
@@ -2197,6 +2259,9 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
                 ColumnDesc c = columns.get(i);
                 flatRow[i] = c.isVariableSize() ? putOnHeap(c, o[i], null) : javaToFits1D(c, ArrayFuncs.flatten(o[i]));
             }
+            // Marked modified before loading, so the loaded table cannot be discarded from memory before we add to it
+            isLayoutModified = true;
+            ensureData();
             table.addRow(flatRow);
             nRow++;
         }
@@ -2206,8 +2271,9 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
 
     @Override
     public void deleteColumns(int start, int len) throws FitsException {
+        // Marked modified before loading, so the loaded table cannot be discarded from memory before we change it
+        isLayoutModified = true;
         ensureData();
-
         table.deleteColumns(start, len);
 
         ArrayList<ColumnDesc> remain = new ArrayList<>(columns.size() - len);
@@ -2225,6 +2291,8 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
 
     @Override
     public void deleteRows(int row, int len) throws FitsException {
+        // Marked modified before loading, so the loaded table cannot be discarded from memory before we change it
+        isLayoutModified = true;
         ensureData();
         table.deleteRows(row, len);
         nRow -= len;
@@ -2249,6 +2317,218 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
         return table.getBases();
     }
 
+    /**
+     * Reads a range of rows for a selection of columns. It is the same as calling {@link #getColumn(int)} for each of
+     * the selected columns, but for the specified range of rows only, and without loading the entire table into
+     * memory if it is in deferred mode. Deferred tables are read sequentially from the file, in large blocks of rows,
+     * from which only the selected columns are picked out. Entries of variable-length columns are then read in one
+     * pass over the heap, in the order in which they are stored there. Thus, reading just a few columns from a wide
+     * table in a file is much faster than calling {@link #getElement(int, int)} for each row and column.
+     * 
+     * @param  cols           the zero-based indices of the columns to read. The same column may appear more than
+     *                            once.
+     * @param  fromRow        the zero-based index of the first row to read
+     * @param  toRow          the zero-based index of the row after the last one to read (exclusive)
+     * 
+     * @return                an array with the data for each of the requested columns, in the same order, and in
+     *                            the same format as returned by {@link #getColumn(int)}. Variable-length columns
+     *                            have a <code>null</code> entry if the row range is empty.
+     * 
+     * @throws TableException if any of the column indices, or the row range, are invalid for this table.
+     * @throws FitsException  if the data could not be read from the file.
+     * 
+     * @see                   #getColumn(int)
+     * 
+     * @since                 1.21
+     */
+    public Object[] readColumns(int[] cols, int fromRow, int toRow) throws TableException, FitsException {
+        for (int col : cols) {
+            if (!validColumn(col)) {
+                throw new TableException("Invalid column index " + col + " in table of " + getNCols() + " columns");
+            }
+        }
+
+        if (fromRow < 0 || toRow > nRow || fromRow > toRow) {
+            throw new TableException("Invalid row range " + fromRow + ":" + toRow + " in table of " + nRow + " rows");
+        }
+
+        // The distinct columns we need, in the order in which they appear in a row
+        int[] distinct = Arrays.stream(cols).distinct().toArray();
+        Arrays.sort(distinct);
+
+        int rows = toRow - fromRow;
+        Object[] data = new Object[distinct.length];
+        int[] sizes = new int[distinct.length];
+
+        ColumnTable<?> sub = null;
+
+        synchronized (this) {
+            if (table == null && getRandomAccessInput() == null) {
+                // We cannot read selectively from a stream
+                ensureData();
+            }
+
+            for (int k = 0; k < distinct.length; k++) {
+                ColumnDesc c = columns.get(distinct[k]);
+                sizes[k] = c.getTableBaseCount();
+                data[k] = c.newInstance(rows);
+                if (table != null) {
+                    System.arraycopy(table.getColumn(distinct[k]), fromRow * sizes[k], data[k], 0, rows * sizes[k]);
+                }
+            }
+
+            sub = new ColumnTable<>(data, sizes);
+
+            if (table == null) {
+                try {
+                    readColumns(sub, distinct, fromRow, toRow);
+                } catch (IOException e) {
+                    throw new FitsException("Error reading from input: " + e.getMessage(), e);
+                }
+            }
+        }
+
+        Object[] result = new Object[cols.length];
+
+        for (int k = 0; k < distinct.length; k++) {
+            Object column = toJavaColumn(sub, k, columns.get(distinct[k]));
+            for (int i = 0; i < cols.length; i++) {
+                if (cols[i] == distinct[k]) {
+                    result[i] = column;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns a new cursor for scanning the rows of this table, and for reading scalar values from them without
+     * allocating memory for each value. The cursor is positioned before the first row, so you must call
+     * {@link RowCursor#advance()} before accessing the first row.
+     * 
+     * @return               a new row cursor for this table.
+     * 
+     * @throws FitsException if the table data could not be loaded from a non random-accessible input.
+     * 
+     * @see                  #readColumns(int[], int, int)
+     * 
+     * @since                1.21
+     */
+    public RowCursor rowCursor() throws FitsException {
+        return new RowCursor(this);
+    }
+
+    /**
+     * Returns the wrapped column data of the table in memory, for direct access by a {@link RowCursor}. Tables in
+     * deferred mode are not loaded, unless they cannot be accessed in a random-accessible input.
+     * 
+     * @return               the wrapped column data of the table in memory, or <code>null</code> if the table is in
+     *                           deferred mode.
+     * 
+     * @throws FitsException if the table could not be loaded from a non random-accessible input.
+     */
+    synchronized Object[] getWrappedColumns() throws FitsException {
+        if (table == null && getRandomAccessInput() == null) {
+            ensureData();
+        }
+
+        if (table == null) {
+            return null;
+        }
+
+        Object[] data = new Object[columns.size()];
+        for (int col = 0; col < data.length; col++) {
+            data[col] = table.getWrappedColumn(col);
+        }
+        return data;
+    }
+
+    /**
+     * Reads a range of rows for the specified columns from the table in the file, in large sequential blocks of rows,
+     * picking out only the selected columns.
+     * 
+     * @param  sub         the table to populate, with the selected columns in the same order as listed.
+     * @param  cols        the zero-based indices of the selected columns in this table, in ascending order and without
+     *                         repetitions.
+     * @param  fromRow     the zero-based index of the first row to read
+     * @param  toRow       the zero-based index of the row after the last one to read (exclusive)
+     * 
+     * @throws IOException if there was an error reading from the file
+     */
+    private void readColumns(ColumnTable<?> sub, int[] cols, int fromRow, int toRow) throws IOException {
+        @SuppressWarnings("resource")
+        RandomAccess in = getRandomAccessInput();
+
+        int blockRows = Math.max(1, READ_BLOCK_SIZE / Math.max(1, rowLen));
+        byte[] block = new byte[Math.min(blockRows, toRow - fromRow) * rowLen];
+
+        for (int row = fromRow; row < toRow; row += blockRows) {
+            int n = Math.min(blockRows, toRow - row);
+
+            // Use a positional read, so we don't disturb the file pointer of the input, which may be shared with other
+            // threads...
+            in.readFullyAt(getFileOffset() + (long) row * rowLen, block, 0, n * rowLen);
+
+            try (FitsInputStream bin = new FitsInputStream(new ByteArrayInputStream(block, 0, n * rowLen))) {
+                for (int i = row - fromRow; i < row - fromRow + n; i++) {
+                    int pos = 0;
+                    for (int k = 0; k < cols.length; k++) {
+                        ColumnDesc c = columns.get(cols[k]);
+                        bin.skipAllBytes(c.offset - pos);
+                        sub.read(bin, i, i + 1, k);
+                        pos = c.offset + c.rowLen();
+                    }
+                    bin.skipAllBytes(rowLen - pos);
+                }
+            }
+        }
+    }
+
+    /**
+     * Converts column data, from a table in FITS storage format, to the same representation that is returned by
+     * {@link #getColumn(int)}.
+     * 
+     * @param  tab           a table containing column data in FITS storage format
+     * @param  col           the zero-based column index in the table argument
+     * @param  c             the descriptor of the column in this table
+     * 
+     * @return               the column data as it would be returned by {@link #getColumn(int)}.
+     * 
+     * @throws FitsException if the heap could not be accessed for variable-length columns.
+     */
+    private Object toJavaColumn(ColumnTable<?> tab, int col, ColumnDesc c) throws FitsException {
+        if (c.isVariableSize()) {
+            return getFromHeap(c, tab.getColumn(col));
+        }
+
+        int rows = tab.getNRows();
+
+        if (c.fitsDimension() == 0 && !c.isComplex()) {
+            if (c.isBits()) {
+                boolean[] bits = new boolean[rows * c.fitsCount];
+                for (int i = 0; i < rows; i++) {
+                    boolean[] seg = (boolean[]) fitsToJava1D(c, tab.getElement(i, col), c.fitsCount, false);
+                    System.arraycopy(seg, 0, bits, i * c.fitsCount, c.fitsCount);
+                }
+                return bits;
+            }
+            return fitsToJava1D(c, tab.getColumn(col), 0, false);
+        }
+
+        Object[] data = null;
+
+        for (int i = 0; i < rows; i++) {
+            Object e = fitsToJavaElement(c, tab.getElement(i, col), false);
+            if (data == null) {
+                data = (Object[]) Array.newInstance(e.getClass(), rows);
+            }
+            data[i] = e;
+        }
+
+        return data;
+    }
+
     /**
      * <p>
      * Returns the data for a particular column in as an array of elements. See {@link #addColumn(Object)} for more
@@ -2274,7 +2554,11 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
             return getFlattenedColumn(col);
         }
 
-        ensureData();
+        ColumnTable<?> tab = (ColumnTable<?>) getData();
+
+        if (c.isVariableSize()) {
+            return nRow == 0 ? null : getFromHeap(c, tab.getColumn(col));
+        }
 
         Object[] data = null;
 
@@ -2317,6 +2601,15 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
         return table;
     }
 
+    /**
+     * {@inheritDoc} For binary tables, it also requires that the heap was not modified, since heap content may be
+     * modified in memory even in deferred mode (e.g. when setting variable-length array elements).
+     */
+    @Override
+    protected synchronized boolean isPassthrough() {
+        return super.isPassthrough() && !isHeapModified && !isLayoutModified;
+    }
+
     @Override
     public ColumnTable<?> getData() throws FitsException {
         return (ColumnTable<?>) super.getData();
@@ -2350,8 +2643,7 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
      * @throws     FitsException if the reading of the data failed.
      */
     public Object[] getFlatColumns() throws FitsException {
-        ensureData();
-        return table.getColumns();
+        return ((ColumnTable<?>) getData()).getColumns();
     }
 
     /**
@@ -2375,18 +2667,18 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
             throw new TableException("Cannot flatten variable-sized column data");
         }
 
-        ensureData();
+        ColumnTable<?> tab = (ColumnTable<?>) getData();
 
         if (c.isBits()) {
             boolean[] bits = new boolean[nRow * c.fitsCount];
             for (int i = 0; i < nRow; i++) {
-                boolean[] seg = (boolean[]) fitsToJava1D(c, table.getElement(i, col), c.fitsCount, false);
+                boolean[] seg = (boolean[]) fitsToJava1D(c, tab.getElement(i, col), c.fitsCount, false);
                 System.arraycopy(seg, 0, bits, i * c.fitsCount, c.fitsCount);
             }
             return bits;
         }
 
-        return fitsToJava1D(c, table.getColumn(col), 0, false);
+        return fitsToJava1D(c, tab.getColumn(col), 0, false);
     }
 
     /**
@@ -2465,10 +2757,9 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
      * @see    #compact()
      * @see    #reserveHeapSpace(int)
      */
-    private int getHeapSize() {
-
-        if (heap != null && heap.size() + heapReserve > heapFileSize) {
-            return heap.size() + heapReserve;
+    private long getHeapSize() {
+        if (heap != null && heap.getSize() + heapReserve > heapFileSize) {
+            return heap.getSize() + heapReserve;
         }
         return heapFileSize;
     }
@@ -2530,12 +2821,22 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
         @SuppressWarnings("resource")
         RandomAccess in = getRandomAccessInput();
 
-        in.position(getFileOffset() + row * (long) rowLen + c.offset);
+        if (elementDecoder == null) {
+            elementBuffer = new ByteArrayIO(Math.max(1, c.rowLen()));
+            elementDecoder = new FitsDecoder(elementBuffer);
+        }
+
+        // Use a positional read, so we don't disturb the file pointer of the input, which may be shared with other
+        // threads...
+        int size = c.rowLen();
+        elementBuffer.setLength(size);
+        in.readFullyAt(getFileOffset() + row * (long) rowLen + c.offset, elementBuffer.getBuffer(), 0, size);
+        elementBuffer.position(0);
 
         if (c.isLogical()) {
-            in.readArrayFully(o);
+            elementDecoder.readArrayFully(o);
         } else {
-            in.readImage(o);
+            elementDecoder.readImage(o);
         }
     }
 
@@ -2570,8 +2871,7 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
             }
         }
 
-        ensureData();
-        return table.getElement(row, col);
+        return ((ColumnTable<?>) getData()).getElement(row, col);
     }
 
     /**
@@ -2617,6 +2917,22 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
             return getFromHeap(c, o, isEnhanced);
         }
 
+        return fitsToJavaElement(c, o, isEnhanced);
+    }
+
+    /**
+     * Converts a regular (non-heap) table entry from its FITS storage format to the Java representation that is
+     * returned to users, with the shape of the entry.
+     * 
+     * @param  c          the column descriptor
+     * @param  o          the table entry in FITS storage format
+     * @param  isEnhanced Whether logicals should be returned as {@link Boolean} (rather than <code>boolean</code>)
+     *                        and complex values as {@link ComplexValue} (rather than <code>float[2]</code> or
+     *                        <code>double[2]</code>), or arrays thereof.
+     * 
+     * @return            the Java representation of the entry.
+     */
+    private Object fitsToJavaElement(ColumnDesc c, Object o, boolean isEnhanced) {
         o = fitsToJava1D(c, o, c.isBits() ? c.fitsCount : 0, isEnhanced);
 
         if (c.legacyShape.length > 1) {
@@ -3083,6 +3399,8 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
                 throw new FitsException(e.getMessage(), e);
             }
         } else {
+            // Marked modified before loading, so the loaded table cannot be discarded from memory before we change it
+            modifiedRows.add(row, row + 1L);
             ensureData();
             table.setElement(row, col, o);
         }
@@ -3398,19 +3716,26 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
      * @throws     FitsException Thrown if the type of length of the replacement data differs from the original.
      */
     public void setFlattenedColumn(int col, Object data) throws FitsException {
-        ensureData();
-
-        Object oldCol = table.getColumn(col);
+        Object oldCol = ((ColumnTable<?>) getData()).getColumn(col);
         if (data.getClass() != oldCol.getClass() || Array.getLength(data) != Array.getLength(oldCol)) {
             throw new TableException("Replacement column mismatch at column:" + col);
         }
+        // Marked modified before loading, so the loaded table cannot be discarded from memory before we change it
+        modifiedRows.add(0, nRow);
+        ensureData();
         table.setColumn(col, javaToFits1D(columns.get(col), data));
     }
 
+    /**
+     * Sets all elements of a table row. If the table is in deferred mode, the new elements are written directly into
+     * the file (with the exception of variable-length data, which are kept on the heap in memory until the table is
+     * re-written). Otherwise, the row is updated in memory, and marked as modified, so that a subsequent call to
+     * {@link #rewriteModified()} will write back only the modified rows to the file.
+     *
+     * @see #rewriteModified()
+     */
     @Override
     public void setRow(int row, Object[] data) throws FitsException {
-        ensureData();
-
         if (data.length != getNCols()) {
             throw new TableException("Mismatched number of columns: " + data.length + ", expected " + getNCols());
         }
@@ -3420,6 +3745,130 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
         }
     }
 
+    /**
+     * Re-writes the table to its original location in the file. If the table is in deferred mode, its entries were
+     * already updated in the file directly, so only the heap is written back, if it was modified.
+     *
+     * @throws FitsException if the table is not associated to a file, if its heap no longer fits in its original space
+     *                           in the file (in deferred mode), or if there was an error writing to the file.
+     *
+     * @see                  #rewriteModified()
+     */
+    @SuppressWarnings("resource")
+    @Override
+    public synchronized void rewrite() throws FitsException {
+        if (!isDeferred()) {
+            super.rewrite();
+        } else if (isHeapModified) {
+            if (!isSameSizeAsInFile()) {
+                throw new FitsException("Heap no longer fits into its space in the file");
+            }
+            try {
+                rewriteHeap();
+                ((ArrayDataOutput) getRandomAccessInput()).flush();
+            } catch (IOException e) {
+                throw new FitsException("Error rewriting heap: " + e.getMessage(), e);
+            }
+        }
+
+        modifiedRows.clear();
+        isHeapModified = false;
+        isLayoutModified = false;
+    }
+
+    @Override
+    synchronized boolean unload() {
+        if (table == null || isPinned() || getRandomAccessInput() == null || isLayoutModified || isHeapModified
+                || !modifiedRows.isEmpty() || !isSameSizeAsInFile()) {
+            return false;
+        }
+        table = null;
+        heap = null;
+        setCacheEntry(null);
+        return true;
+    }
+
+    @Override
+    synchronized void moveFileOffset(long delta) {
+        super.moveFileOffset(delta);
+        if (heap != null) {
+            // A heap accessed in the file must follow the table to its new location
+            heap.moveFileOffset(getRandomAccessInput(), delta);
+        }
+    }
+
+    /**
+     * Writes back to the file only the table rows that were modified via the table's own methods, such as
+     * {@link #set(int, int, Object)}, {@link #setElement(int, int, Object)} or {@link #setRow(int, Object[])}, since the
+     * table was read or was last re-written, together with the heap, if it was modified also. Contiguous ranges of
+     * modified rows are written in one go, to their original location in the file. (In deferred mode, the regular
+     * table entries are modified in the file directly, so only the heap may need to be written.) If rows or columns
+     * were added or removed, or the heap was defragmented, or the table's size has changed otherwise, then the whole
+     * table is re-written, the same way as by {@link #rewrite()}. Note, that changes made by other means, such as by
+     * modifying the column arrays returned by {@link #getColumn(int)} directly, are not tracked, so you should call
+     * {@link #rewrite()} after such changes instead.
+     *
+     * @return               the number of bytes written to the file
+     *
+     * @throws FitsException if the table is not associated to a file, or if there was an error writing to it.
+     *
+     * @see                  #rewrite()
+     * @see                  #setRow(int, Object[])
+     *
+     * @since                1.21
+     */
+    @SuppressWarnings("resource")
+    @Override
+    public synchronized long rewriteModified() throws FitsException {
+        if (!rewriteable()) {
+            throw new FitsException("Illegal attempt to rewrite data");
+        }
+
+        if (isLayoutModified || !isSameSizeAsInFile()) {
+            // Rows may have moved, so we must write everything.
+            rewrite();
+            return getTrueSize();
+        }
+
+        ArrayDataOutput out = (ArrayDataOutput) getRandomAccessInput();
+        long written = 0;
+
+        try {
+            if (table != null) {
+                for (long[] range : modifiedRows.getRanges()) {
+                    getRandomAccessInput().position(getFileOffset() + range[0] * rowLen);
+                    table.write(out, (int) range[0], (int) range[1]);
+                    written += (range[1] - range[0]) * rowLen;
+                }
+            }
+
+            if (isHeapModified) {
+                written += rewriteHeap();
+            }
+
+            out.flush();
+        } catch (IOException e) {
+            throw new FitsException("Error rewriting modified table data: " + e.getMessage(), e);
+        }
+
+        modifiedRows.clear();
+        isHeapModified = false;
+        return written;
+    }
+
+    /**
+     * Writes the heap back to its original location in the file.
+     *
+     * @return               the number of bytes written
+     *
+     * @throws FitsException if there was an error writing the heap
+     */
+    @SuppressWarnings("resource")
+    private long rewriteHeap() throws FitsException {
+        // A heap accessed in the file writes only its modified parts.
+        return getHeap().writeAt(getRandomAccessInput(), getFileOffset() + getHeapAddress());
+    }
+
     /**
      * @deprecated It is not entirely foolproof for keeping the header in sync -- it is better to (re)wrap tables in a
      *                 new HDU after column deletions, and then edit the new header as necessary to incorporate custom
@@ -3446,23 +3895,32 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
                 ((RandomAccess) os).skipAllBytes(getRegularTableSize());
             } else {
                 // otherwise make sure we loaded all data before writing to the output
-                ensureData();
+                ColumnTable<?> tab = (ColumnTable<?>) getData();
 
                 // Write the regular table (if any)
                 if (getRegularTableSize() > 0) {
-                    table.write(os);
+                    tab.write(os);
                 }
             }
 
             // Now check if we need to write the heap
             if (getParameterSize() > 0) {
-                for (long rem = getHeapOffset(); rem > 0;) {
-                    byte[] b = new byte[(int) Math.min(getHeapOffset(), 1 << Short.SIZE)];
-                    os.write(b);
-                    rem -= b.length;
-                }
+                FitsHeap h = getHeap();
 
-                getHeap().write(os);
+                if (h.isFileBacked() && os == getRandomAccessInput()) {
+                    // In-place rewrite of a heap accessed in the file: write only what was modified.
+                    long at = getFileOffset() + getHeapAddress();
+                    h.writeAt((RandomAccess) os, at);
+                    ((RandomAccess) os).position(at + h.getSize());
+                } else {
+                    for (long rem = getHeapOffset(); rem > 0;) {
+                        byte[] b = new byte[(int) Math.min(getHeapOffset(), 1 << Short.SIZE)];
+                        os.write(b);
+                        rem -= b.length;
+                    }
+
+                    h.write(os);
+                }
 
                 if (heapReserve > 0) {
                     byte[] b = new byte[heapReserve];
@@ -3476,6 +3934,106 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
         }
     }
 
+    /**
+     * Reads the entries of a variable-length column from the heap for a set of heap pointers. Rather than reading the
+     * entries one by one, in row order, the heap is read sequentially, in large blocks, after sorting the heap pointers
+     * by offset. Entries that overlap, or which are shared by several rows, are read only once. Thus, reading entire
+     * variable-length columns scales with the size of the data, even when the heap is accessed in a file.
+     * 
+     * @param  c             the descriptor of a variable-length column
+     * @param  pointers      the flattened heap pointers for consecutive rows, either as an <code>int[]</code> or
+     *                           else a <code>long[]</code> array, with two elements (count and offset) per row.
+     * 
+     * @return               the array of entries for all rows, or <code>null</code> if there are no pointers.
+     * 
+     * @throws FitsException if the heap could not be read.
+     * 
+     * @see                  #getFromHeap(ColumnDesc, Object, boolean)
+     */
+    private Object[] getFromHeap(ColumnDesc c, Object pointers) throws FitsException {
+        int rows = Array.getLength(pointers) >>> 1;
+
+        if (rows == 0) {
+            return null;
+        }
+
+        long[] off = new long[rows];
+        int[] len = new int[rows];
+        int elementSize = ElementType.forClass(c.getFitsBase()).size();
+
+        for (int i = 0; i < rows; i++) {
+            int k = i << 1;
+            long n = (pointers instanceof long[]) ? ((long[]) pointers)[k] : ((int[]) pointers)[k];
+            off[i] = (pointers instanceof long[]) ? ((long[]) pointers)[k + 1] : ((int[]) pointers)[k + 1];
+
+            if (n > Integer.MAX_VALUE) {
+                throw new FitsException("Heap data too large for a Java array: off=" + off[i] + ", len=" + n);
+            }
+            len[i] = (int) n;
+        }
+
+        // Sort by heap location, such that identical pointers end up next to one another.
+        int[] order = FitsHeap.sortByOffset(off);
+
+        Object[] data = null;
+
+        for (int from = 0; from < rows;) {
+            long start = off[order[from]];
+            long end = start;
+
+            // Collect the entries that fit in the same block
+            int to = from;
+            for (; to < rows; to++) {
+                int i = order[to];
+                long e = off[i] + (long) c.getFitsBaseCount(len[i]) * elementSize;
+                if (e > end) {
+                    if (to > from && e - start > READ_BLOCK_SIZE) {
+                        break;
+                    }
+                    end = e;
+                }
+            }
+
+            byte[] block = new byte[(int) (end - start)];
+            readHeap(start, block);
+
+            ByteArrayIO buf = new ByteArrayIO(block);
+            buf.setLength(block.length);
+            FitsDecoder decoder = new FitsDecoder(buf);
+
+            for (int k = from; k < to; k++) {
+                int i = order[k];
+                int prev = (k > from) ? order[k - 1] : -1;
+                Object e;
+
+                if (prev >= 0 && off[i] == off[prev] && len[i] == len[prev]) {
+                    // Shared entry, which we already decoded and converted
+                    e = data[prev].getClass().isArray() ? ArrayFuncs.deepClone(data[prev]) : data[prev];
+                } else {
+                    Object fits = c.isComplex() ? Array.newInstance(c.getFitsBase(), len[i], 2) :
+                            Array.newInstance(c.getFitsBase(), c.getFitsBaseCount(len[i]));
+                    try {
+                        buf.position(off[i] - start);
+                        decoder.readArrayFully(fits);
+                    } catch (IOException ex) {
+                        throw new FitsException("Error decoding heap area at offset=" + off[i] + ", len=" + len[i]
+                                + ": " + ex.getMessage(), ex);
+                    }
+                    e = fitsToJava1D(c, fits, len[i], false);
+                }
+
+                if (data == null) {
+                    data = (Object[]) Array.newInstance(e.getClass(), rows);
+                }
+                data[i] = e;
+            }
+
+            from = to;
+        }
+
+        return data;
+    }
+
     /**
      * Returns the heap offset component from a pointer.
      * 
@@ -3514,6 +4072,7 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
      */
     @SuppressFBWarnings(value = "RR_NOT_CHECKED", justification = "not propagated or used locally")
     private Object putOnHeap(ColumnDesc c, Object o, Object oldPointer) throws FitsException {
+        isHeapModified = true;
         return putOnHeap(getHeap(), c, o, oldPointer);
     }
 
@@ -3538,7 +4097,7 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
         o = ArrayFuncs.flatten(o);
 
         // By default put data at the end of the heap;
-        int off = h.size();
+        long off = h.getSize();
 
         // The number of Java elements is the same as the number of FITS elements, except for strings and complex
         // numbers
@@ -3560,13 +4119,17 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
         if (oldPointer != null) {
             if (len <= getPointerCount(oldPointer)) {
                 // Write data back at the old heap location
-                off = (int) getPointerOffset(oldPointer);
+                off = getPointerOffset(oldPointer);
             }
         }
 
+        if (!c.hasLongPointers() && off > Integer.MAX_VALUE) {
+            throw new FitsException("Heap offset " + off + " is beyond the 32-bit range of P descriptors (use Q instead)");
+        }
+
         h.putData(o, off);
 
-        return c.hasLongPointers() ? new long[] {len, off} : new int[] {len, off};
+        return c.hasLongPointers() ? new long[] {len, off} : new int[] {len, (int) off};
     }
 
     /**
@@ -3587,8 +4150,8 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
         long len = getPointerCount(p);
         long off = getPointerOffset(p);
 
-        if (off > Integer.MAX_VALUE || len > Integer.MAX_VALUE) {
-            throw new FitsException("Data located beyond 32-bit accessible heap limit: off=" + off + ", len=" + len);
+        if (len > Integer.MAX_VALUE) {
+            throw new FitsException("Heap data too large for a Java array: off=" + off + ", len=" + len);
         }
 
         Object e = null;
@@ -3615,7 +4178,7 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
      * 
      * @throws FitsException if the operation failed
      */
-    private Object javaToFits1D(ColumnDesc c, Object o) throws FitsException {
+    Object javaToFits1D(ColumnDesc c, Object o) throws FitsException {
 
         if (c.isBits()) {
             return FitsUtil.bitsToBytes((boolean[]) o);
@@ -3806,11 +4369,40 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
         super.read(in);
     }
 
+    @SuppressWarnings("resource")
     @Override
     protected void loadData(ArrayDataInput in) throws IOException, FitsException {
-        setInput(in);
         createTable(nRow);
-        readTrueData(in);
+
+        RandomAccess file = getRandomAccessInput();
+        if (parallelLoader == null || file == null) {
+            readTrueData(in);
+            return;
+        }
+
+        FitsHeap h = (heap == null && !isHeapInFile()) ? new FitsHeap(getMemoryHeapSize()) : null;
+        parallelLoader.load(table, file, getFileOffset(), rowLen, h, getFileOffset() + getHeapAddress());
+        if (h != null) {
+            heap = h;
+        }
+    }
+
+    /**
+     * Sets the number of workers that load the data of this table in parallel from a random-accessible input, when it
+     * is first accessed in deferred mode. The rows are divided into ranges, which are read and decoded concurrently,
+     * while the heap is loaded alongside. Tables read from streams are always loaded sequentially.
+     *
+     * @param  workers                  the maximum number of parallel workers, or 1 to load sequentially (default).
+     * @param  executor                 the executor that runs the workers, or <code>null</code> to use
+     *                                      {@link FitsFactory#threadPool()}.
+     *
+     * @throws IllegalArgumentException if the number of workers is less than 1.
+     *
+     * @since                           1.21
+     */
+    public synchronized void setParallelLoad(int workers, ExecutorService executor) throws IllegalArgumentException {
+        ParallelTableLoader loader = new ParallelTableLoader(workers, executor);
+        parallelLoader = workers > 1 ? loader : null;
     }
 
     /**
@@ -3943,11 +4535,60 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
     @SuppressWarnings("resource")
     private synchronized FitsHeap getHeap() throws FitsException {
         if (heap == null) {
-            readHeap(getRandomAccessInput());
+            RandomAccess in = getRandomAccessInput();
+
+            if (in != null && heapFileSize > FitsHeap.getMaxMemorySize()) {
+                // Large heaps are accessed in the file directly...
+                heap = new FitsHeap(in, getFileOffset() + getHeapAddress(), heapFileSize);
+            } else {
+                FitsHeap h = new FitsHeap(getMemoryHeapSize());
+                if (in != null) {
+                    // Positional read, without moving the file pointer of the (possibly shared) input...
+                    h.readAt(in, getFileOffset() + getHeapAddress());
+                }
+                heap = h;
+            }
         }
         return heap;
     }
 
+    /**
+     * Returns the size of the heap in the file, for loading it into memory.
+     *
+     * @return               (bytes) the size of the heap in the file.
+     *
+     * @throws FitsException if the heap is too large to load into memory.
+     */
+    private int getMemoryHeapSize() throws FitsException {
+        if (heapFileSize > Integer.MAX_VALUE) {
+            throw new FitsException("Heap size > 2 GB (can be accessed from random-accessible files only)");
+        }
+        return (int) heapFileSize;
+    }
+
+    /**
+     * Checks if any of the columns use 64-bit (Q-type) heap descriptors.
+     *
+     * @return <code>true</code> if at least one column has 64-bit heap pointers, otherwise <code>false</code>.
+     */
+    private boolean hasLongPointerColumn() {
+        for (ColumnDesc c : columns) {
+            if (c.hasLongPointers()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the heap should be accessed in the file directly rather than loaded into memory.
+     *
+     * @return <code>true</code> if the heap is to be accessed from the file, otherwise <code>false</code>.
+     */
+    private boolean isHeapInFile() {
+        return getRandomAccessInput() != null && heapFileSize > FitsHeap.getMaxMemorySize();
+    }
+
     /**
      * Reads an array from the heap. Subclasses may override this, for example to provide read-only access to a related
      * table's heap area.
@@ -3958,7 +4599,7 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
      * @throws FitsException if there was an issue accessing the heap
      */
     protected void readHeap(long offset, Object array) throws FitsException {
-        getHeap().getData((int) offset, array);
+        getHeap().getData(offset, array);
     }
 
     /**
@@ -3976,7 +4617,7 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
         if (input instanceof RandomAccess) {
             FitsUtil.reposition(input, getFileOffset() + getHeapAddress());
         }
-        heap = new FitsHeap(heapFileSize);
+        heap = new FitsHeap(getMemoryHeapSize());
         if (input != null) {
             heap.read(input);
         }
@@ -3993,7 +4634,8 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
         try {
             table.read(i);
             i.skipAllBytes(getHeapOffset());
-            if (heap == null) {
+            // Large heaps in files are accessed in the file as needed, rather than loaded
+            if (heap == null && !isHeapInFile()) {
                 readHeap(i);
             }
         } catch (IOException e) {
@@ -4294,7 +4936,7 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
         }
 
         FitsHeap hp = getHeap();
-        long oldSize = hp.size();
+        long oldSize = hp.getSize();
         FitsHeap compact = new FitsHeap(0);
 
         for (int i = 0; i < nRow; i++) {
@@ -4306,13 +4948,13 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
                     int len = (int) getPointerCount(p);
 
                     // Copy to new heap...
-                    int pos = compact.copyFrom(hp, (int) getPointerOffset(p), c.getFitsBaseCount(len) * eSize[j]);
+                    long pos = compact.copyFrom(hp, getPointerOffset(p), c.getFitsBaseCount(len) * eSize[j]);
 
                     // Same length as before...
                     if (p instanceof long[]) {
                         ((long[]) p)[1] = pos;
                     } else {
-                        ((int[]) p)[1] = pos;
+                        ((int[]) p)[1] = (int) pos;
                     }
 
                     // Update pointers in table
@@ -4322,7 +4964,8 @@ public class BinaryTable extends AbstractTableData implements Cloneable {
         }
 
         heap = compact;
-        return oldSize - compact.size();
+        isLayoutModified = true;
+        return oldSize - compact.getSize();
     }
 
     /**
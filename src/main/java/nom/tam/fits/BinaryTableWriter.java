@@ -0,0 +1,444 @@
+package nom.tam.fits;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Array;
+
+import nom.tam.fits.BinaryTable.ColumnDesc;
+import nom.tam.fits.header.Standard;
+import nom.tam.util.ArrayDataOutput;
+import nom.tam.util.ArrayFuncs;
+import nom.tam.util.FitsEncoder;
+import nom.tam.util.FitsOutputStream;
+import nom.tam.util.RandomAccess;
+import nom.tam.util.TableException;
+
+/**
+ * <p>
+ * Writes a binary table HDU row by row, as the rows are produced, without holding the table in memory. Rows are
+ * encoded directly to the output, while the data of variable-length columns is spilled to a temporary heap file, which
+ * is appended after the last row when the writer is closed. Thus, memory use remains bounded regardless of the number
+ * of rows written.
+ * </p>
+ * <p>
+ * When writing to a random-accessible output, such as a {@link nom.tam.util.FitsFile}, the header is written before
+ * the first row, and the <code>NAXIS2</code>, <code>PCOUNT</code>, and <code>THEAP</code> keywords are updated in
+ * place when the writer is closed. For other outputs, such as streams, the rows are spilled to a temporary file also,
+ * and the complete HDU is assembled sequentially on the output when the writer is closed.
+ * </p>
+ * <p>
+ * The table HDU is written at the current position of the output. Since binary tables may not be the primary HDU in
+ * a FITS file, you should write a primary HDU (such as {@link BasicHDU#getDummyHDU()}) to the output before.
+ * </p>
+ * For example:
+ *
+ * <pre>
+ *   try (FitsFile out = new FitsFile("table.fits", "rw")) {
+ *       BasicHDU.getDummyHDU().write(out);
+ *
+ *       try (BinaryTableWriter w = new BinaryTableWriter(out, ColumnDesc.createForScalars(int.class),
+ *               ColumnDesc.createForVariableSize(double.class))) {
+ *           for (int i = 0; i &lt; n; i++) {
+ *               w.addRow(i, new double[i % 10]);
+ *           }
+ *       }
+ *   }
+ * </pre>
+ *
+ * @author Attila Kovacs
+ *
+ * @since  1.21
+ *
+ * @see    BinaryTable#addRow(Object[])
+ */
+public final class BinaryTableWriter implements Closeable {
+
+    /** (bytes) The size of the buffer used for copying spilled data to the output */
+    private static final int COPY_BUFFER_SIZE = 0x10000;
+
+    /** The output to which the table HDU is written */
+    private final ArrayDataOutput out;
+
+    /** An empty table with the column layout, which converts row entries to their FITS representation */
+    private final BinaryTable layout = new BinaryTable();
+
+    /** The header of the table HDU */
+    private final Header header = new Header();
+
+    /** (bytes) The size of the header when it was first written to a random-accessible output */
+    private long headerSize;
+
+    /** The output for the rows, either the target output itself or a temporary spill file */
+    private ArrayDataOutput rowOut;
+
+    /** The temporary file to which rows are spilled, if the target output is not random-accessible */
+    private File rowFile;
+
+    /** The output to the temporary heap file, or <code>null</code> if nothing was written to the heap yet */
+    private ArrayDataOutput heapOut;
+
+    /** The temporary file holding the heap */
+    private File heapFile;
+
+    /** The number of rows written so far */
+    private long nRows;
+
+    /** (bytes) The size of the heap written so far */
+    private long heapSize;
+
+    /** Whether this writer has been closed */
+    private boolean isClosed;
+
+    /**
+     * Creates a new writer for a binary table HDU with the specified columns, which will be written at the current
+     * position of the specified output.
+     *
+     * @param  out           the output to which to write the table HDU, such as a {@link nom.tam.util.FitsFile} or
+     *                           a {@link FitsOutputStream}.
+     * @param  columns       the descriptors of the table columns, in the order they appear in a row.
+     *
+     * @throws FitsException if there are no columns, or the header could not be created.
+     */
+    public BinaryTableWriter(ArrayDataOutput out, ColumnDesc... columns) throws FitsException {
+        if (columns.length == 0) {
+            throw new TableException("No columns specified");
+        }
+
+        this.out = out;
+
+        for (ColumnDesc c : columns) {
+            layout.addColumn(c);
+        }
+
+        layout.fillHeader(header, true);
+        if (hasHeap()) {
+            header.addValue(Standard.THEAP, 0L);
+        }
+    }
+
+    /**
+     * Returns the header that is written for the table HDU. You may add further keywords to it, before the first row
+     * is added, or else before the writer is closed if not writing to a random-accessible output. The essential table
+     * keywords are managed by this writer and should not be modified.
+     *
+     * @return the header of the table HDU
+     */
+    public Header getHeader() {
+        return header;
+    }
+
+    /**
+     * Returns the number of rows written so far.
+     *
+     * @return the number of rows added to the table
+     */
+    public long getNRows() {
+        return nRows;
+    }
+
+    /**
+     * Adds a row to the table. The row entries are the same as for {@link BinaryTable#addRow(Object[])}, that is boxed
+     * scalars or arrays of the appropriate type and size for fixed-size columns, and arrays of any size for
+     * variable-length columns.
+     *
+     * @param  row           the entries of the new row, one for each column
+     *
+     * @throws FitsException if the writer was closed, if the row does not match the table layout, or if it could not
+     *                           be written to the output.
+     */
+    public void addRow(Object... row) throws FitsException {
+        if (isClosed) {
+            throw new FitsException("Writer is already closed");
+        }
+
+        if (row.length != layout.getNCols()) {
+            throw new TableException("Mismatched row size: " + row.length + ", expected " + layout.getNCols());
+        }
+
+        // Convert and check all entries before writing anything, so we never write partial rows.
+        Object[] fits = new Object[row.length];
+        for (int col = 0; col < row.length; col++) {
+            fits[col] = toFits(layout.getDescriptor(col), row[col], col);
+        }
+
+        try {
+            if (rowOut == null) {
+                openRowOutput();
+            }
+
+            for (int col = 0; col < fits.length; col++) {
+                ColumnDesc c = layout.getDescriptor(col);
+                rowOut.writeArray(c.isVariableSize() ? putOnHeap(c, fits[col], row[col]) : fits[col]);
+            }
+        } catch (IOException e) {
+            throw new FitsException("Error writing table row: " + e.getMessage(), e);
+        }
+
+        nRows++;
+    }
+
+    /**
+     * Adds a batch of rows to the table.
+     *
+     * @param  rows          the rows to add, each containing one entry per column.
+     *
+     * @throws FitsException if the writer was closed, if a row does not match the table layout, or if it could not
+     *                           be written to the output.
+     *
+     * @see                  #addRow(Object...)
+     */
+    public void addRows(Object[][] rows) throws FitsException {
+        for (Object[] row : rows) {
+            addRow(row);
+        }
+    }
+
+    /**
+     * Completes the table HDU on the output, by appending the heap (if any) and padding after the last row, and by
+     * writing or updating the header with the final table size. It does not close the output itself.
+     *
+     * @throws IOException if the table HDU could not be completed on the output.
+     */
+    @Override
+    public void close() throws IOException {
+        if (isClosed) {
+            return;
+        }
+        isClosed = true;
+
+        try {
+            if (rowOut == null) {
+                openRowOutput();
+            }
+
+            long rowBytes = nRows * layout.getRowBytes();
+
+            header.addValue(Standard.NAXIS2, nRows);
+            header.addValue(Standard.PCOUNT, heapSize);
+            if (hasHeap()) {
+                header.addValue(Standard.THEAP, rowBytes);
+            }
+            for (int col = 0; col < layout.getNCols(); col++) {
+                // Delimited string arrays may have updated their format while writing
+                header.addValue(Standard.TFORMn.n(col + 1), layout.getDescriptor(col).getTFORM());
+            }
+
+            if (rowFile != null) {
+                // Sequential assembly: header, rows, heap.
+                rowOut.close();
+                header.write(out);
+                copy(rowFile, out);
+            }
+
+            if (heapOut != null) {
+                heapOut.close();
+                copy(heapFile, out);
+            }
+
+            out.write(new byte[FitsUtil.padding(rowBytes + heapSize)]);
+            out.flush();
+
+            if (rowFile == null) {
+                updateHeader();
+            }
+        } catch (FitsException e) {
+            throw new IOException("Error completing binary table: " + e.getMessage(), e);
+        } finally {
+            closeSpillFiles();
+        }
+    }
+
+    /**
+     * Checks if the table has variable-length columns, which store their data on the heap.
+     *
+     * @return <code>true</code> if any of the columns are variable-length, otherwise <code>false</code>.
+     */
+    private boolean hasHeap() {
+        for (int col = 0; col < layout.getNCols(); col++) {
+            if (layout.getDescriptor(col).isVariableSize()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Opens the output for the rows. For random-accessible outputs, the header is written and the rows follow it
+     * directly. Otherwise, the rows are spilled to a temporary file until the header can be written.
+     *
+     * @throws IOException   if the temporary file could not be created
+     * @throws FitsException if the header could not be written
+     */
+    private void openRowOutput() throws IOException, FitsException {
+        if (out instanceof RandomAccess) {
+            header.write(out);
+            headerSize = header.getSize();
+            rowOut = out;
+        } else {
+            rowFile = File.createTempFile("fits-rows-", ".tmp");
+            rowOut = new FitsOutputStream(new FileOutputStream(rowFile));
+        }
+    }
+
+    /**
+     * Rewrites the header in place, in a random-accessible output, with the final table size, then returns to the end
+     * of the table HDU.
+     *
+     * @throws FitsException if the header can no longer be written in the space that was originally allocated for it.
+     * @throws IOException   if there was an IO error.
+     */
+    private void updateHeader() throws FitsException, IOException {
+        header.validate(false);
+
+        if (header.getSize() != headerSize) {
+            throw new FitsException("Header size changed from " + headerSize + " to " + header.getSize()
+                    + " bytes after rows were written");
+        }
+
+        RandomAccess file = (RandomAccess) out;
+        long end = file.getFilePointer();
+
+        file.position(header.getFileOffset());
+        header.write(out);
+        file.position(end);
+        out.flush();
+    }
+
+    /**
+     * Converts a row entry to its FITS representation, and checks that it matches the column layout.
+     *
+     * @param  c             the column descriptor
+     * @param  o             the row entry in Java form
+     * @param  col           the zero-based column index
+     *
+     * @return               the FITS representation of the entry as a one-dimensional array
+     *
+     * @throws FitsException if the entry does not match the column.
+     */
+    private Object toFits(ColumnDesc c, Object o, int col) throws FitsException {
+        if (o == null && !c.isString()) {
+            throw new TableException("Null entry in column " + col);
+        }
+
+        Object fits = layout.javaToFits1D(c, o == null ? null : ArrayFuncs.flatten(o));
+
+        if (!c.isVariableSize() && FitsEncoder.computeSize(fits) != c.getEntryBytes()) {
+            throw new TableException("Mismatched entry size in column " + col + ": " + FitsEncoder.computeSize(fits)
+                    + " bytes, expected " + c.getEntryBytes());
+        }
+
+        return fits;
+    }
+
+    /**
+     * Writes variable-length data to the heap file, and returns the heap descriptor that points to it.
+     *
+     * @param  c             the column descriptor
+     * @param  fits          the FITS representation of the entry
+     * @param  o             the entry in its original Java form
+     *
+     * @return               the heap descriptor, either an <code>int[2]</code> or else a <code>long[2]</code> array.
+     *
+     * @throws FitsException if the heap is beyond the range of 32-bit descriptors.
+     * @throws IOException   if the data could not be written to the heap file.
+     */
+    private Object putOnHeap(ColumnDesc c, Object fits, Object o) throws FitsException, IOException {
+        // The number of Java elements is the same as the number of FITS elements, except for strings and complex
+        // numbers
+        long len = Array.getLength(fits);
+        if (c.isComplex() && fits.getClass().getComponentType().isPrimitive()) {
+            len >>>= 1;
+        } else if (!c.isComplex() && !c.isString()) {
+            len = Array.getLength(ArrayFuncs.flatten(o));
+        }
+
+        if (!c.hasLongPointers() && heapSize > Integer.MAX_VALUE) {
+            throw new FitsException(
+                    "Heap offset " + heapSize + " is beyond the 32-bit range of P descriptors (use Q instead)");
+        }
+
+        if (heapOut == null) {
+            heapFile = File.createTempFile("fits-heap-", ".tmp");
+            heapOut = new FitsOutputStream(new FileOutputStream(heapFile));
+        }
+
+        long off = heapSize;
+        heapOut.writeArray(fits);
+        heapSize += FitsEncoder.computeSize(fits);
+
+        return c.hasLongPointers() ? new long[] {len, off} : new int[] {(int) len, (int) off};
+    }
+
+    /**
+     * Copies the contents of a temporary spill file to the output.
+     *
+     * @param  f           the spill file
+     * @param  to          the output
+     *
+     * @throws IOException if the copying failed.
+     */
+    private static void copy(File f, ArrayDataOutput to) throws IOException {
+        byte[] buf = new byte[COPY_BUFFER_SIZE];
+        try (InputStream in = new FileInputStream(f)) {
+            for (int n = in.read(buf); n >= 0; n = in.read(buf)) {
+                to.write(buf, 0, n);
+            }
+        }
+    }
+
+    /**
+     * Closes and deletes the temporary spill files, if any.
+     *
+     * @throws IOException if a spill file could not be closed.
+     */
+    private void closeSpillFiles() throws IOException {
+        try {
+            for (ArrayDataOutput o : new ArrayDataOutput[] {rowFile == null ? null : rowOut, heapOut}) {
+                if (o != null) {
+                    o.close();
+                }
+            }
+        } finally {
+            for (File f : new File[] {rowFile, heapFile}) {
+                if (f != null && !f.delete()) {
+                    f.deleteOnExit();
+                }
+            }
+        }
+    }
+}
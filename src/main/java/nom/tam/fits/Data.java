@@ -34,6 +34,7 @@ import java.io.EOFException;
  */
 
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -87,6 +88,12 @@ public abstract class Data implements FitsElement {
     /** The data checksum calculated from the input stream */
     private long streamSum = 0L;
 
+    /** The entry of this data in the memory budget that tracks it, if any */
+    private volatile DataCache.Entry cacheEntry;
+
+    /** The number of accesses in progress that need the data to stay in memory once loaded */
+    private AtomicInteger pins = new AtomicInteger();
+
     /**
      * Returns the random accessible input from which this data can be read, if any.
      * 
@@ -186,8 +193,13 @@ public abstract class Data implements FitsElement {
      * @see                  #ensureData()
      */
     public Object getData() throws FitsException {
-        ensureData();
-        return getCurrentData();
+        pin();
+        try {
+            ensureData();
+            return getCurrentData();
+        } finally {
+            unpin();
+        }
     }
 
     /**
@@ -281,19 +293,144 @@ public abstract class Data implements FitsElement {
      * @since                1.18
      */
     protected void ensureData() throws FitsException {
+        DataCache cache = FitsFactory.getDataCache();
+
+        // Pinned, so that other threads that are evicting data while we evict theirs will not wait for us.
+        pin();
+        try {
+            if (!loadDeferred()) {
+                if (cache != null) {
+                    cache.accessed(this);
+                }
+            } else if (cache != null) {
+                // Outside of our lock, since the cache may need to lock other data to evict it.
+                cache.loaded(this);
+            }
+        } finally {
+            unpin();
+        }
+    }
+
+    /**
+     * Loads deferred data into memory, if it has not been loaded already.
+     *
+     * @return               <code>true</code> if the data was loaded now, or <code>false</code> if it was not in
+     *                           deferred mode.
+     *
+     * @throws FitsException if the deferred data could not be loaded.
+     */
+    @SuppressWarnings("resource")
+    private synchronized boolean loadDeferred() throws FitsException {
         if (!isDeferred()) {
-            return;
+            return false;
         }
 
         try {
-            long pos = input.getFilePointer();
-            input.seek(getFileOffset());
-            loadData(input);
-            input.seek(pos);
+            if (getFileOffset() + getTrueSize() > input.length()) {
+                throw new EOFException("Deferred data extends beyond the end of file");
+            }
+
+            // Use an independent positional input, so we don't move the file pointer of the shared input, and
+            // different HDUs from the same file may be loaded in parallel...
+            try (ArrayDataInput in = input.inputAt(getFileOffset())) {
+                loadData(in);
+            }
         } catch (IOException e) {
             throw new FitsException("error reading deferred data: " + e, e);
         }
 
+        return true;
+    }
+
+    /**
+     * Returns the entry of this data in the memory budget that tracks it, if any.
+     *
+     * @return the cache entry for this data, or <code>null</code> if it is not tracked.
+     *
+     * @see    FitsFactory#setDataCache(DataCache)
+     *
+     * @since  1.21
+     */
+    final DataCache.Entry getCacheEntry() {
+        return cacheEntry;
+    }
+
+    /**
+     * Sets the entry of this data in the memory budget that tracks it.
+     *
+     * @param e the cache entry for this data, or <code>null</code> if it is no longer tracked.
+     *
+     * @since   1.21
+     */
+    final void setCacheEntry(DataCache.Entry e) {
+        cacheEntry = e;
+    }
+
+    /**
+     * Pins the data while it is being accessed, so that a {@link DataCache} will not discard it from memory until it is
+     * unpinned again. Every call must be matched by a call to {@link #unpin()}, normally in a <code>finally</code>
+     * block. Pinning does not load deferred data by itself, but data that is loaded while pinned (e.g. via
+     * {@link #ensureData()}) stays in memory at least until it is unpinned.
+     *
+     * @see   #unpin()
+     * @see   #isPinned()
+     *
+     * @since 1.21
+     */
+    final void pin() {
+        pins.incrementAndGet();
+    }
+
+    /**
+     * Releases a pin that was obtained via {@link #pin()}.
+     *
+     * @see   #pin()
+     *
+     * @since 1.21
+     */
+    final void unpin() {
+        pins.decrementAndGet();
+    }
+
+    /**
+     * Checks if the data is currently pinned, that is if it is being accessed, and thus it may not be discarded from
+     * memory.
+     *
+     * @return <code>true</code> if the data is pinned, otherwise <code>false</code>.
+     *
+     * @see    #pin()
+     *
+     * @since  1.21
+     */
+    final boolean isPinned() {
+        return pins.get() > 0;
+    }
+
+    /**
+     * Starts counting pins afresh, e.g. for a copy of this data, so that it does not share the pins of the original.
+     *
+     * @since 1.21
+     */
+    final void resetPins() {
+        pins = new AtomicInteger();
+    }
+
+    /**
+     * Discards the data loaded from a random-accessible input, reverting to deferred mode, so it may be reloaded from
+     * the input when needed again. Data that was modified in memory (as far as we can tell), or that is currently
+     * pinned, is never discarded. This default implementation never discards data. Subclasses that can tell if their
+     * data was modified should override it as appropriate, and must check {@link #isPinned()} while holding the lock on
+     * the data.
+     *
+     * @return <code>true</code> if the data was discarded from memory, otherwise <code>false</code>.
+     *
+     * @see    DataCache
+     * @see    #isPinned()
+     *
+     * @since  1.21
+     */
+    boolean unload() {
+        return false;
     }
 
     /**
@@ -394,6 +531,30 @@ public abstract class Data implements FitsElement {
                 / FitsFactory.FITS_BLOCK_SIZE == (getTrueSize() + FITS_BLOCK_SIZE_MINUS_ONE) / FitsFactory.FITS_BLOCK_SIZE;
     }
 
+    /**
+     * Writes back to the file only those parts of the data that were modified since it was read (or last re-written),
+     * at their original locations in the file. Subclasses that keep track of what was modified, such as
+     * {@link ImageData} and {@link BinaryTable}, write only the affected byte ranges, which can be much faster than a
+     * full {@link #rewrite()} when only a small part of a large data segment was changed. This default implementation
+     * simply rewrites the data in full, unless it is in deferred mode, and so could not have been modified in memory.
+     *
+     * @return               the number of bytes that were written to the file.
+     *
+     * @throws FitsException if the data is not associated to a file, or if there was an error writing to it.
+     *
+     * @see                  #rewrite()
+     * @see                  #isDeferred()
+     *
+     * @since                1.21
+     */
+    public long rewriteModified() throws FitsException {
+        if (isDeferred()) {
+            return 0L;
+        }
+        rewrite();
+        return getTrueSize();
+    }
+
     /**
      * Detaches this data object from the input (if any), such as a file or stream, but not before loading data from the
      * previously assigned input into memory.
@@ -407,6 +568,11 @@ public abstract class Data implements FitsElement {
     public void detach() throws FitsException {
         ensureData();
         clearInput();
+
+        DataCache.Entry e = cacheEntry;
+        if (e != null) {
+            e.getCache().release(this);
+        }
     }
 
     private void clearInput() {
@@ -415,6 +581,61 @@ public abstract class Data implements FitsElement {
         dataSize = 0L;
     }
 
+    /**
+     * Returns the number of bytes, including padding, that this data occupies in the random-accessible input from which
+     * it was last read or at which it was last placed.
+     *
+     * @return the padded byte size of the data in the file, or 0 if the data is not associated to a file.
+     *
+     * @since  1.21
+     */
+    long getFileSize() {
+        return input == null ? 0L : FitsUtil.addPadding(dataSize);
+    }
+
+    /**
+     * Checks if the data still has the same size as it had in the file when it was last read or placed there, such that
+     * it may be rewritten in place without changing the layout of the file.
+     *
+     * @return <code>true</code> if the data is associated to a file, and its size did not change since, otherwise
+     *             <code>false</code>.
+     *
+     * @since  1.21
+     */
+    boolean isSameSizeAsInFile() {
+        return input != null && dataSize == getTrueSize();
+    }
+
+    /**
+     * Updates the location of this data in its file after the content of the file was moved, e.g. by editing the file
+     * in place. It has no effect if the data is not associated to a file.
+     *
+     * @param delta the number of bytes by which the data was moved towards the end of the file (or towards the
+     *                  beginning if negative).
+     *
+     * @since       1.21
+     */
+    void moveFileOffset(long delta) {
+        if (input != null) {
+            fileOffset += delta;
+        }
+    }
+
+    /**
+     * Associates this data with the location in a file to which it was just written, e.g. when it is inserted into a
+     * file in place, so it can be re-written later.
+     *
+     * @param in     the file to which the data was written
+     * @param offset the file offset at which the data was written.
+     *
+     * @since        1.21
+     */
+    void setFileLocation(RandomAccess in, long offset) {
+        input = in;
+        fileOffset = offset;
+        dataSize = getTrueSize();
+    }
+
     /**
      * Record the information necessary for eading the data content at a later time (deferred reading).
      *
@@ -432,6 +653,58 @@ public abstract class Data implements FitsElement {
         }
     }
 
+    /**
+     * Checks if the data can be written by copying its raw bytes verbatim from the input, rather than by serializing it
+     * from memory. This is the case for data in deferred mode, which has not been loaded, and hence could not have
+     * been modified, in memory. Subclasses that may hold modified content in memory even in deferred mode should
+     * override this as appropriate.
+     *
+     * @return <code>true</code> if the data segment can be copied as is from the input, otherwise
+     *             <code>false</code>.
+     *
+     * @see    #isDeferred()
+     *
+     * @since  1.21
+     */
+    protected boolean isPassthrough() {
+        return isDeferred();
+    }
+
+    /**
+     * Writes the data segment to an output by copying its raw bytes from the input, if possible, without loading the
+     * data into memory. Between files, the bytes are copied by zero-copy channel transfers when supported. The copy is
+     * followed by the standard padding to complete the last FITS block, just like {@link #write(ArrayDataOutput)}.
+     *
+     * @param  out           the output to which to write the data segment.
+     *
+     * @return               <code>true</code> if the data was copied, or else <code>false</code> if it has to be
+     *                           written by {@link #write(ArrayDataOutput)} instead (because it is not deferred, or is
+     *                           to be written to its own input).
+     *
+     * @throws FitsException if there was an error copying the data.
+     *
+     * @see                  #isPassthrough()
+     *
+     * @since                1.21
+     */
+    @SuppressWarnings("resource")
+    synchronized boolean writePassthrough(ArrayDataOutput out) throws FitsException {
+        RandomAccess in = getRandomAccessInput();
+
+        if (out == in || !isPassthrough()) {
+            return false;
+        }
+
+        try {
+            FitsUtil.copy(in, getFileOffset(), getTrueSize(), out);
+        } catch (IOException e) {
+            throw new FitsException("Error copying deferred data: " + e, e);
+        }
+
+        FitsUtil.pad(out, getTrueSize());
+        return true;
+    }
+
     @Override
     public abstract void write(ArrayDataOutput o) throws FitsException;
 
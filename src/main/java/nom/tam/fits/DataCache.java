@@ -0,0 +1,317 @@
+package nom.tam.fits;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * <p>
+ * A memory budget for data that is loaded into memory on demand from random-accessible files (that is data that was
+ * read in deferred mode). Without a budget, deferred data remains in memory once it was accessed, for as long as the
+ * HDU that contains it is referenced. So, a long-lived application that keeps many {@link Fits} objects open will
+ * eventually hold every data segment it has ever touched. With a cache set via
+ * {@link FitsFactory#setDataCache(DataCache)}, the total size of the loaded deferred data is tracked, and once it
+ * exceeds the budget, the least recently used data is discarded from memory, reverting it to the deferred state. It
+ * will be reloaded from the file, transparently, when it is accessed next. For example:
+ * </p>
+ *
+ * <pre>
+ *   DataCache cache = new DataCache(1L &lt;&lt; 30); // 1 GB budget
+ *   FitsFactory.setDataCache(cache);
+ *   ...
+ *   System.err.println("hits: " + cache.getHits() + ", misses: " + cache.getMisses() + ", evictions: "
+ *           + cache.getEvictions());
+ * </pre>
+ * <p>
+ * Only data that is unmodified, as far as we can tell, is ever evicted. Images and binary tables that were modified via
+ * methods that track changes (such as {@link ImageData#setTile(int[], int[], Object)} or
+ * {@link BinaryTable#set(int, int, Object)}) are retained until they are written back to their file, e.g. via
+ * {@link Data#rewriteModified()}. Changes made directly to the arrays returned by {@link Data#getData()} cannot be
+ * tracked however, and will be lost if the data is evicted. So, you should call {@link Data#detach()} on data you
+ * intend to modify that way, which also exempts it from eviction. Data that is being accessed by another thread at
+ * the time is not evicted either, so it is safe to access cached data from multiple threads concurrently.
+ * </p>
+ * <p>
+ * The data is referenced weakly by the cache, so data that is no longer used elsewhere can be garbage collected as
+ * usual, at which point it no longer counts against the budget.
+ * </p>
+ *
+ * @author Attila Kovacs
+ *
+ * @since  1.21
+ *
+ * @see    FitsFactory#setDataCache(DataCache)
+ * @see    Data#isDeferred()
+ */
+public final class DataCache {
+
+    /** The initial capacity of the map of cached entries */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** The load factor of the map of cached entries */
+    private static final float LOAD_FACTOR = 0.75F;
+
+    /** The maximum number of bytes of deferred data that may be kept in memory */
+    private final long budget;
+
+    /** The cached data, in the order of least to most recently used */
+    private final LinkedHashMap<Entry, Entry> entries = new LinkedHashMap<>(INITIAL_CAPACITY, LOAD_FACTOR, true);
+
+    /** The queue of entries whose data was garbage collected */
+    private final ReferenceQueue<Data> collected = new ReferenceQueue<>();
+
+    /** The current total size of the cached data */
+    private long bytes;
+
+    /** The number of accesses to data that was already in memory */
+    private long hits;
+
+    /** The number of times deferred data was loaded into memory */
+    private long misses;
+
+    /** The number of times data was discarded from memory to stay within budget */
+    private long evictions;
+
+    /**
+     * A cached data object, with its size in memory at the time it was loaded.
+     */
+    static final class Entry extends WeakReference<Data> {
+
+        /** The cache to which this entry belongs */
+        private final DataCache cache;
+
+        /** The size of the data in bytes */
+        private final long size;
+
+        private Entry(DataCache cache, Data data, ReferenceQueue<Data> queue) {
+            super(data, queue);
+            this.cache = cache;
+            size = data.getTrueSize();
+        }
+
+        /**
+         * Returns the cache to which this entry belongs.
+         *
+         * @return the cache that tracks the data of this entry.
+         */
+        DataCache getCache() {
+            return cache;
+        }
+    }
+
+    /**
+     * Creates a new memory budget for data loaded from random-accessible files.
+     *
+     * @param  budget                   (bytes) the maximum size of the loaded deferred data to retain in memory. The
+     *                                      most recently used data is always retained, even if it is larger than the
+     *                                      budget by itself.
+     *
+     * @throws IllegalArgumentException if the budget is negative
+     */
+    public DataCache(long budget) throws IllegalArgumentException {
+        if (budget < 0) {
+            throw new IllegalArgumentException("Negative memory budget: " + budget);
+        }
+        this.budget = budget;
+    }
+
+    /**
+     * Returns the maximum size of the loaded deferred data that is retained in memory.
+     *
+     * @return (bytes) the memory budget.
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Returns the total size of the loaded deferred data currently retained in memory.
+     *
+     * @return (bytes) the memory currently used by the cached data.
+     */
+    public synchronized long getLoadedBytes() {
+        purge();
+        return bytes;
+    }
+
+    /**
+     * Returns the number of times loaded deferred data was accessed while in memory.
+     *
+     * @return the number of cache hits.
+     *
+     * @see    #getMisses()
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of times deferred data had to be loaded (or reloaded) from its file.
+     *
+     * @return the number of cache misses.
+     *
+     * @see    #getHits()
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of times loaded data was discarded from memory to stay within the budget.
+     *
+     * @return the number of evictions.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Resets the hit, miss, and eviction counters to zero.
+     */
+    public synchronized void resetStatistics() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    /**
+     * Records an access to data that was already loaded into memory, making it the most recently used.
+     *
+     * @param data the data that was accessed
+     */
+    void accessed(Data data) {
+        Entry e = data.getCacheEntry();
+        if (e == null || e.cache != this) {
+            // Loaded before this cache was set, so we are not tracking it.
+            return;
+        }
+        synchronized (this) {
+            if (entries.get(e) != null) {
+                hits++;
+            }
+        }
+    }
+
+    /**
+     * Records that deferred data was loaded into memory, and evicts the least recently used data as necessary to stay
+     * within budget.
+     *
+     * @param data the data that was just loaded from its file
+     */
+    void loaded(Data data) {
+        Entry added = new Entry(this, data, collected);
+        data.setCacheEntry(added);
+
+        List<Entry> victims = new ArrayList<>();
+
+        synchronized (this) {
+            purge();
+            entries.put(added, added);
+            bytes += added.size;
+            misses++;
+
+            long excess = bytes - budget;
+            for (Entry e : entries.keySet()) {
+                if (excess <= 0) {
+                    break;
+                }
+                if (e != added) {
+                    victims.add(e);
+                    excess -= e.size;
+                }
+            }
+        }
+
+        // Unload outside of our lock, since unloading requires a lock on the data itself.
+        for (Entry e : victims) {
+            evict(e);
+        }
+    }
+
+    /**
+     * Stops tracking data, for example because it was detached from its file, and so it can no longer be discarded.
+     *
+     * @param data the data that should no longer count against the budget.
+     */
+    void release(Data data) {
+        Entry e = data.getCacheEntry();
+        if (e == null || e.cache != this) {
+            return;
+        }
+
+        data.setCacheEntry(null);
+
+        synchronized (this) {
+            if (entries.remove(e) != null) {
+                bytes -= e.size;
+            }
+        }
+    }
+
+    /**
+     * Discards the data of an entry from memory, unless it was modified or is in use, in which case it is kept.
+     *
+     * @param e the entry to evict
+     */
+    private void evict(Entry e) {
+        Data data = e.get();
+
+        // Skip data in use without waiting for its lock. (unload() checks again, under the lock.)
+        if (data != null && (data.isPinned() || !data.unload())) {
+            return;
+        }
+
+        synchronized (this) {
+            if (entries.remove(e) != null) {
+                bytes -= e.size;
+                if (data != null) {
+                    evictions++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the entries whose data was garbage collected.
+     */
+    private synchronized void purge() {
+        for (Entry e = (Entry) collected.poll(); e != null; e = (Entry) collected.poll()) {
+            if (entries.remove(e) != null) {
+                bytes -= e.size;
+            }
+        }
+    }
+}
@@ -34,6 +34,7 @@ package nom.tam.fits;
 import java.io.Closeable;
 import java.io.DataOutput;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -41,11 +42,19 @@ import java.io.InputStream;
 import java.net.URL;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Properties;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import nom.tam.fits.compress.CompressionManager;
 import nom.tam.fits.header.Standard;
@@ -56,6 +65,8 @@ import nom.tam.util.FitsFile;
 import nom.tam.util.FitsIO;
 import nom.tam.util.FitsInputStream;
 import nom.tam.util.FitsOutputStream;
+import nom.tam.util.ParallelTasks;
+import nom.tam.util.ProgressListener;
 import nom.tam.util.RandomAccess;
 import nom.tam.util.RandomAccessFileIO;
 import nom.tam.util.SafeClose;
@@ -132,6 +143,18 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
  *   BasucHDU&lt;?&gt; hdu = f.getHDU(2);
  * </pre>
  * <p>
+ * Finally, very long inputs, such as multi-terabyte streams with countless HDUs, may be processed HDU by HDU via
+ * {@link #hduIterator(boolean)} or {@link #hduStream(boolean)}, which do not retain the HDUs they return, so memory
+ * use remains constant regardless of the length of the input, e.g.:
+ * </p>
+ *
+ * <pre>
+ *   try (Fits f = new Fits(System.in)) {
+ *       // Iterate over the headers only, skipping the data...
+ *       f.hduStream(true).forEach(hdu -&gt; System.out.println(hdu.getHeader().getStringValue("EXTNAME")));
+ *   }
+ * </pre>
+ * <p>
  * When building <code>Fits</code> from local Java data objects, it's best to use {@link #makeHDU(Object)} to create
  * HDUs, which will chose the most appropriate type of HDU for the given data object (taking into some of the static
  * preferences set in <code>FitsFactory</code> prior). {@link #makeHDU(Object)} will return one of the following HDU
@@ -185,6 +208,35 @@ public class Fits implements Closeable {
      */
     private long lastFileOffset = -1;
 
+    /**
+     * The table of contents of the random-accessible input, if any.
+     */
+    private HDUIndex toc;
+
+    /**
+     * HDUs that were read directly via the table of contents, ahead of the sequential reading, by their index in the
+     * input.
+     */
+    private final Map<Integer, BasicHDU<?>> indexedHDUs = new HashMap<>();
+
+    /**
+     * Lookup of the first HDU in {@link #hduList} by extension name and version, or by name only (with
+     * <code>null</code> version).
+     */
+    private final Map<NameKey, Integer> nameLookup = new HashMap<>();
+
+    /**
+     * The number of HDUs from the beginning of {@link #hduList} that have been added to the name lookup.
+     */
+    private int namesIndexed;
+
+    /**
+     * The modification counts of the HDU names of the HDUs in the name lookup, when they were indexed.
+     *
+     * @see Header#getNameModCount()
+     */
+    private final List<Long> nameModCounts = new ArrayList<>();
+
     /**
      * Creates an empty Fits object which is not associated with an input stream.
      */
@@ -655,6 +707,7 @@ public class Fits implements Closeable {
             throw new FitsException("Attempt to delete non-existent HDU:" + n);
         }
         hduList.remove(n);
+        clearNameLookup();
         if (n == 0 && size > 1) {
             BasicHDU<?> newFirst = hduList.get(0);
             if (newFirst.canBePrimary()) {
@@ -706,6 +759,13 @@ public class Fits implements Closeable {
      * @see                              #getHDU(String, int)
      */
     public BasicHDU<?> getHDU(int n) throws FitsException, IOException, IndexOutOfBoundsException {
+        if (n >= getNumberOfHDUs()) {
+            int next = nextIndexed();
+            if (next >= 0) {
+                return getIndexedHDU(next + n - getNumberOfHDUs());
+            }
+        }
+
         for (int i = getNumberOfHDUs(); i <= n; i++) {
             BasicHDU<?> hdu = readHDU();
             if (hdu == null) {
@@ -908,6 +968,72 @@ public class Fits implements Closeable {
         return h.getIntValue(EXTVER) == version;
     }
 
+    /**
+     * Checks if the specified HDU matches the specified name and optional version.
+     *
+     * @param  hdu     The HDU whose EXTNAME and EXTVER to check
+     * @param  name    The expected name
+     * @param  version The expected extension version, or <code>null</code> to match the name only.
+     *
+     * @return         <code>true</code> if the HDU is a match, otherwise <code>false</code>
+     */
+    private boolean isMatch(BasicHDU<?> hdu, String name, Integer version) {
+        return version == null ? isNameMatch(hdu, name) : isNameVersionMatch(hdu, name, version);
+    }
+
+    /**
+     * Discards the name lookup of HDUs, e.g. after HDUs were inserted or removed, so that it is rebuilt when next
+     * needed.
+     */
+    private void clearNameLookup() {
+        nameLookup.clear();
+        nameModCounts.clear();
+        namesIndexed = 0;
+    }
+
+    /**
+     * Adds the HDUs that were read or added since the last call to the name lookup. Only the first HDU with a given
+     * name, and the first HDU with a given name and version, is recorded. If the EXTNAME or EXTVER keywords of an
+     * indexed HDU were changed since it was indexed, the lookup is rebuilt from scratch.
+     */
+    private void updateNameLookup() {
+        for (int i = 0; i < namesIndexed; i++) {
+            if (hduList.get(i).getHeader().getNameModCount() != nameModCounts.get(i)) {
+                clearNameLookup();
+                break;
+            }
+        }
+
+        for (; namesIndexed < hduList.size(); namesIndexed++) {
+            Header h = hduList.get(namesIndexed).getHeader();
+            nameModCounts.add(h.getNameModCount());
+            if (!h.containsKey(EXTNAME)) {
+                continue;
+            }
+            String name = h.getStringValue(EXTNAME);
+            nameLookup.putIfAbsent(new NameKey(name, null), namesIndexed);
+            if (h.containsKey(EXTVER)) {
+                nameLookup.putIfAbsent(new NameKey(name, h.getIntValue(EXTVER)), namesIndexed);
+            }
+        }
+    }
+
+    /**
+     * Returns the first HDU with the specified name and optional version among the HDUs that were already read or
+     * added. Matches are found via a hashed lookup, which is updated incrementally as HDUs are read or added, and which
+     * is rebuilt whenever the EXTNAME or EXTVER keywords of an HDU were modified after it was indexed.
+     *
+     * @param  name    The extension name (EXTNAME)
+     * @param  version The extension version (EXTVER), or <code>null</code> to match the name only.
+     *
+     * @return         The first matching HDU that is already in this <code>Fits</code>, or <code>null</code> if none.
+     */
+    private BasicHDU<?> findLoadedHDU(String name, Integer version) {
+        updateNameLookup();
+        Integer i = nameLookup.get(new NameKey(name, version));
+        return i == null ? null : hduList.get(i);
+    }
+
     /**
      * Returns the HDU by the given extension name (defined by <code>EXTNAME</code> header keyword). This method checks
      * only for EXTNAME but will ignore the version (defined by <code>EXTVER</code>). If multiple HDUs have the same
@@ -928,10 +1054,14 @@ public class Fits implements Closeable {
      */
     public BasicHDU<?> getHDU(String name) throws FitsException, IOException {
         // Check HDUs we already read...
-        for (BasicHDU<?> hdu : hduList) {
-            if (isNameMatch(hdu, name)) {
-                return hdu;
-            }
+        BasicHDU<?> found = findLoadedHDU(name, null);
+        if (found != null) {
+            return found;
+        }
+
+        int next = nextIndexed();
+        if (next >= 0) {
+            return findIndexedHDU(name, null, next);
         }
 
         // Read additional HDUs as necessary...
@@ -966,10 +1096,14 @@ public class Fits implements Closeable {
      */
     public BasicHDU<?> getHDU(String name, int version) throws FitsException, IOException {
         // Check HDUs we already read...
-        for (BasicHDU<?> hdu : hduList) {
-            if (isNameVersionMatch(hdu, name, version)) {
-                return hdu;
-            }
+        BasicHDU<?> found = findLoadedHDU(name, version);
+        if (found != null) {
+            return found;
+        }
+
+        int next = nextIndexed();
+        if (next >= 0) {
+            return findIndexedHDU(name, version, next);
         }
 
         // Read additional HDUs as necessary...
@@ -983,6 +1117,156 @@ public class Fits implements Closeable {
         return null;
     }
 
+    /**
+     * <p>
+     * Sets a table of contents to use for locating HDUs in the random-accessible input of this <code>Fits</code>.
+     * With an index, {@link #getHDU(int)}, {@link #getHDU(String)} and {@link #getHDU(String, int)} will jump straight
+     * to the requested HDU in the input, and read only its header in full, rather than reading all headers before it
+     * in sequence. HDUs accessed this way are not added to the HDU list of this <code>Fits</code> until they are
+     * reached by sequential reading (e.g. via {@link #readHDU()} or {@link #read()}), and so they are not reflected by
+     * {@link #getNumberOfHDUs()} until then. The same HDU objects are returned also by the sequential reads later.
+     * </p>
+     *
+     * @param  index         the table of contents for the input, or <code>null</code> to stop using an index.
+     *
+     * @throws FitsException if this <code>Fits</code> is not associated with a random-accessible input, or if the
+     *                           index is not for an input of the same length.
+     * @throws IOException   if the length of the input could not be determined.
+     *
+     * @see                  #indexHDUs()
+     * @see                  #getHDUIndex()
+     * @see                  HDUIndex#forFile(File, boolean)
+     *
+     * @since                1.21
+     */
+    public void setHDUIndex(HDUIndex index) throws FitsException, IOException {
+        if (index != null) {
+            if (!(dataStr instanceof RandomAccess)) {
+                throw new FitsException("HDU index requires random-accessible input");
+            }
+            if (index.getFileLength() != ((RandomAccess) dataStr).length()) {
+                throw new FitsException("HDU index is for a different input (length " + index.getFileLength() + ")");
+            }
+        }
+        toc = index;
+        indexedHDUs.clear();
+    }
+
+    /**
+     * Returns the table of contents used for locating HDUs in the input, if any.
+     *
+     * @return the table of contents in use, or <code>null</code> if HDUs are located by reading the input
+     *             sequentially.
+     *
+     * @see    #setHDUIndex(HDUIndex)
+     * @see    #indexHDUs()
+     *
+     * @since  1.21
+     */
+    public HDUIndex getHDUIndex() {
+        return toc;
+    }
+
+    /**
+     * Scans the random-accessible input of this <code>Fits</code> to build a table of contents (unless we already
+     * have one), which will be used to locate HDUs thereafter.
+     *
+     * @return               the table of contents for the input.
+     *
+     * @throws FitsException if this <code>Fits</code> is not associated with a random-accessible input or if the input
+     *                           is not a FITS file.
+     * @throws IOException   if there was an IO error while scanning the input.
+     *
+     * @see                  #setHDUIndex(HDUIndex)
+     * @see                  HDUIndex#scan(RandomAccess)
+     *
+     * @since                1.21
+     */
+    public HDUIndex indexHDUs() throws FitsException, IOException {
+        if (toc == null) {
+            if (!(dataStr instanceof RandomAccess)) {
+                throw new FitsException("HDU index requires random-accessible input");
+            }
+            setHDUIndex(HDUIndex.scan((RandomAccess) dataStr));
+        }
+        return toc;
+    }
+
+    /**
+     * Returns the index (in the input) of the HDU that the next call to {@link #readHDU()} will read, if we can
+     * locate HDUs via the table of contents.
+     *
+     * @return the index of the next HDU in the input, or -1 if we do not use a table of contents, or if the next read
+     *             position does not match the start of an HDU in it.
+     */
+    private int nextIndexed() {
+        if (toc == null) {
+            return -1;
+        }
+        if (atEOF) {
+            return toc.size();
+        }
+        return toc.indexAt(lastFileOffset > 0 ? lastFileOffset : ((RandomAccess) dataStr).getFilePointer());
+    }
+
+    /**
+     * Returns an HDU by its index in the input, reading it directly from its location in the table of contents if
+     * necessary.
+     *
+     * @param  i             the index of the HDU in the input
+     *
+     * @return               the HDU, or <code>null</code> if the input has no HDU by that index.
+     *
+     * @throws FitsException if the header could not be read
+     * @throws IOException   if the underlying buffer threw an error
+     */
+    private BasicHDU<?> getIndexedHDU(int i) throws FitsException, IOException {
+        if (i >= toc.size()) {
+            return null;
+        }
+
+        BasicHDU<?> hdu = indexedHDUs.get(i);
+        if (hdu == null) {
+            RandomAccess in = (RandomAccess) dataStr;
+            long pos = in.getFilePointer();
+            try {
+                FitsUtil.reposition(dataStr, toc.get(i).getHeaderOffset());
+                hdu = readNextHDU();
+            } finally {
+                FitsUtil.reposition(dataStr, pos);
+            }
+            if (hdu != null) {
+                indexedHDUs.put(i, hdu);
+            }
+        }
+        return hdu;
+    }
+
+    /**
+     * Returns the first HDU, at or after the specified index in the input, that matches the specified name, and
+     * version (if not <code>null</code>), as listed in the table of contents.
+     *
+     * @param  name          The name of the HDU as defined by <code>EXTNAME</code> (case sensitive)
+     * @param  version       The extension version as defined by <code>EXTVER</code>, or <code>null</code> to match any
+     *                           version.
+     * @param  from          the index in the input from which to search
+     *
+     * @return               The first HDU that matches, or <code>null</code> if there is no matching HDU.
+     *
+     * @throws FitsException if the header could not be read
+     * @throws IOException   if the underlying buffer threw an error
+     */
+    private BasicHDU<?> findIndexedHDU(String name, Integer version, int from) throws FitsException, IOException {
+        for (int i = toc.find(name, version, from); i >= 0; i = toc.find(name, version, i + 1)) {
+            BasicHDU<?> hdu = getIndexedHDU(i);
+            // Double check with the fully parsed header...
+            if (hdu != null && isMatch(hdu, name, version)) {
+                return hdu;
+            }
+        }
+        return null;
+    }
+
     /**
      * Get the number of HDUs currently available in memory. For FITS objects associated with an input this method
      * returns only the number of HDUs that have already been read / scanned, e.g. via {@link #readHDU()} or
@@ -1027,6 +1311,10 @@ public class Fits implements Closeable {
         if (myHDU instanceof RandomGroupsHDU && position != 0) {
             throw new FitsException("Random groups HDUs must be the first (primary) HDU. Requested pos: " + position);
         }
+        if (position < namesIndexed) {
+            // HDUs after the insertion point are shifted. (Appended HDUs are added to the lookup when needed.)
+            clearNameLookup();
+        }
 
         try {
             if (position == 0) {
@@ -1157,6 +1445,25 @@ public class Fits implements Closeable {
      * @see                  #addHDU(BasicHDU)
      */
     public BasicHDU<?> readHDU() throws FitsException, IOException {
+        BasicHDU<?> hdu = nextHDU(false);
+        if (hdu != null) {
+            hduList.add(hdu);
+        }
+        return hdu;
+    }
+
+    /**
+     * Reads the next HDU from the input, without adding it to this <code>Fits</code>.
+     *
+     * @param  skipData      whether to skip over the data in streams, rather than loading it into memory. (Data in
+     *                           random-accessible inputs is not loaded until accessed regardless.)
+     *
+     * @return               The HDU read, or null if an EOF was detected at the beginning of reading the HDU.
+     *
+     * @throws FitsException if the header could not be read
+     * @throws IOException   if the underlying buffer threw an error
+     */
+    private BasicHDU<?> nextHDU(boolean skipData) throws FitsException, IOException {
         if (dataStr == null || atEOF) {
             if (dataStr == null) {
                 LOG.warning("trying to read a hdu, without an input source!");
@@ -1168,9 +1475,35 @@ public class Fits implements Closeable {
             FitsUtil.reposition(dataStr, lastFileOffset);
         }
 
+        int next = nextIndexed();
+        if (next >= 0 && indexedHDUs.containsKey(next)) {
+            // We already read this one via the table of contents.
+            BasicHDU<?> hdu = indexedHDUs.remove(next);
+            lastFileOffset = toc.get(next).getEndOffset();
+            return hdu;
+        }
+
+        BasicHDU<?> hdu = skipData ? skipNextHDU() : readNextHDU();
+        if (hdu == null) {
+            atEOF = true;
+            return null;
+        }
+
+        lastFileOffset = FitsUtil.findOffset(dataStr);
+        return hdu;
+    }
+
+    /**
+     * Reads an HDU from the current position of the input.
+     *
+     * @return               The HDU read, or null if an EOF was detected at the beginning of reading the HDU.
+     *
+     * @throws FitsException if the header could not be read
+     * @throws IOException   if the underlying buffer threw an error
+     */
+    private BasicHDU<?> readNextHDU() throws FitsException, IOException {
         Header hdr = Header.readHeader(dataStr);
         if (hdr == null) {
-            atEOF = true;
             return null;
         }
 
@@ -1187,12 +1520,92 @@ public class Fits implements Closeable {
             LOG.warning(e.getMessage());
         }
 
-        lastFileOffset = FitsUtil.findOffset(dataStr);
-        BasicHDU<Data> hdu = FitsFactory.hduFactory(hdr, data);
+        return FitsFactory.hduFactory(hdr, data);
+    }
+
+    /**
+     * Reads the header of the HDU at the current position of the input, and skips over its data. For
+     * random-accessible inputs the data is skipped as usual, and so remains available for deferred loading. For
+     * streams, the data bytes are skipped without loading, and thus the data of the returned HDU is empty.
+     *
+     * @return               The HDU with its header, or null if an EOF was detected at the beginning of reading the
+     *                           HDU.
+     *
+     * @throws FitsException if the header could not be read
+     * @throws IOException   if the underlying buffer threw an error
+     */
+    private BasicHDU<?> skipNextHDU() throws FitsException, IOException {
+        if (dataStr instanceof RandomAccess) {
+            return readNextHDU();
+        }
 
-        hduList.add(hdu);
+        Header hdr = Header.readHeader(dataStr);
+        if (hdr == null) {
+            return null;
+        }
 
-        return hdu;
+        try {
+            dataStr.skipAllBytes(hdr.getDataSize());
+        } catch (EOFException e) {
+            LOG.warning("Missing data or padding after header: " + e.getMessage());
+        }
+
+        return FitsFactory.hduFactory(hdr, FitsFactory.dataFactory(hdr));
+    }
+
+    /**
+     * <p>
+     * Returns an iterator over the remaining HDUs in the input, starting from the current position. Unlike
+     * {@link #readHDU()}, the HDUs returned by the iterator are not added to this <code>Fits</code>, so they may be
+     * garbage collected as soon as the caller is done with them. This way arbitrarily long inputs (such as multi-TB
+     * streams, or tape dumps) may be processed with constant memory. At most one HDU is read ahead of the caller (by
+     * {@link Iterator#hasNext()}).
+     * </p>
+     * <p>
+     * In skip-data mode, the iterator reads only the headers from streams, skipping over the data (in the same way as
+     * {@link #skipHDU()}) without loading it into memory. The HDUs returned will then have empty data. For
+     * random-accessible inputs (files), data is never loaded until it is accessed, so the data of the HDUs returned
+     * remains available via deferred loading in either mode.
+     * </p>
+     * <p>
+     * The iteration shares the input with this <code>Fits</code>, and so you should not read or skip HDUs by other
+     * means while iterating. Since the HDUs returned are not retained, subsequent calls to {@link #getHDU(int)},
+     * {@link #getNumberOfHDUs()}, or {@link #read()} will not include them. I/O errors during iteration are thrown as
+     * {@link FitsException}s.
+     * </p>
+     *
+     * @param  skipData <code>true</code> to skip over the data segments in streams rather than loading them into
+     *                      memory, or <code>false</code> to read HDUs in full, as with {@link #readHDU()}.
+     *
+     * @return          an iterator over the remaining HDUs in the input.
+     *
+     * @see             #hduStream(boolean)
+     * @see             #readHDU()
+     * @see             #skipHDU()
+     *
+     * @since           1.21
+     */
+    public Iterator<BasicHDU<?>> hduIterator(boolean skipData) {
+        return new HDUIterator(skipData);
+    }
+
+    /**
+     * Returns a sequential stream of the remaining HDUs in the input, starting from the current position. The HDUs
+     * are not retained by this <code>Fits</code> so arbitrarily long inputs may be processed with constant memory.
+     * See {@link #hduIterator(boolean)} for details.
+     *
+     * @param  skipData <code>true</code> to skip over the data segments in streams rather than loading them into
+     *                      memory, or <code>false</code> to read HDUs in full, as with {@link #readHDU()}.
+     *
+     * @return          a sequential stream of the remaining HDUs in the input.
+     *
+     * @see             #hduIterator(boolean)
+     *
+     * @since           1.21
+     */
+    public Stream<BasicHDU<?>> hduStream(boolean skipData) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(hduIterator(skipData),
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
     }
 
     /**
@@ -1345,6 +1758,10 @@ public class Fits implements Closeable {
 
     /**
      * Checks the integrity of all HDUs. HDUs that do not specify either CHECKSUM or DATASUM keyword will be ignored.
+     * As of 1.21, the HDUs are verified in parallel (by {@link FitsFactory#threadPool()}), since they are independent
+     * of one another, each as soon as it has been read. The reading itself is sequential, and failures are reported in
+     * the same order as in a sequential check: an integrity failure of an HDU is reported before an error reading a
+     * later HDU.
      * 
      * @throws FitsIntegrityException if the FITS is corrupted, the message will inform about which HDU failed the
      *                                    integrity test first.
@@ -1357,14 +1774,40 @@ public class Fits implements Closeable {
      * @since                         1.18.1
      */
     public void verifyIntegrity() throws FitsIntegrityException, FitsException, IOException {
-        for (int i = 0;; i++) {
-            BasicHDU<?> hdu = readHDU();
-            if (hdu == null) {
-                break;
+        ParallelTasks<Boolean> tasks = new ParallelTasks<>(FitsFactory.threadPool(), "verifying HDUs");
+
+        // Read the HDUs sequentially, since that uses the file pointer, while the ones already read are verified in
+        // parallel, since checksumming uses positional reads only.
+        try {
+            for (BasicHDU<?> hdu = readHDU(); hdu != null; hdu = readHDU()) {
+                tasks.add(FitsFactory.withCurrentSettings(hdu::verifyIntegrity));
             }
+        } catch (FitsException | IOException e) {
+            // A sequential check would have reported a failure in the HDUs before the one we could not read.
+            checkVerified(tasks);
+            throw e;
+        }
 
+        checkVerified(tasks);
+    }
+
+    /**
+     * Waits for the integrity checks of HDUs to complete, and reports the first failure in order, so it is the same
+     * failure as in a sequential check.
+     *
+     * @param  tasks                  the integrity checks of the HDUs, in the order of the HDUs
+     *
+     * @throws FitsIntegrityException if an HDU failed its integrity check.
+     * @throws FitsException          if the HDU is invalid or garbled.
+     * @throws IOException            if there was an I/O error accessing the input.
+     *
+     * @see                           #verifyIntegrity()
+     */
+    private static void checkVerified(ParallelTasks<Boolean> tasks) throws FitsIntegrityException, FitsException,
+            IOException {
+        for (int i = 0; i < tasks.size(); i++) {
             try {
-                hdu.verifyIntegrity();
+                tasks.get(i);
             } catch (FitsIntegrityException e) {
                 throw new FitsIntegrityException(i, e);
             }
@@ -1387,6 +1830,8 @@ public class Fits implements Closeable {
         dataStr = stream;
         atEOF = false;
         lastFileOffset = -1;
+        toc = null;
+        indexedHDUs.clear();
     }
 
     /**
@@ -1426,9 +1871,17 @@ public class Fits implements Closeable {
             return;
         }
 
+        int next = nextIndexed();
+        if (next >= 0 && next < toc.size()) {
+            // Jump right past it using the table of contents
+            indexedHDUs.remove(next);
+            lastFileOffset = toc.get(next).getEndOffset();
+            FitsUtil.reposition(dataStr, lastFileOffset);
+            return;
+        }
+
         Header hdr = new Header(dataStr);
-        int dataSize = (int) hdr.getDataSize();
-        dataStr.skipAllBytes(dataSize);
+        dataStr.skipAllBytes(hdr.getDataSize());
         if (dataStr instanceof RandomAccess) {
             lastFileOffset = ((RandomAccess) dataStr).getFilePointer();
         }
@@ -1466,7 +1919,9 @@ public class Fits implements Closeable {
 
     /**
      * Writes the contents to a designated FITS file. It is up to the caller to close the file as appropriate after
-     * writing to it.
+     * writing to it. As of 1.21, the data of HDUs that are still in deferred mode (not loaded, and hence unmodified) are
+     * copied verbatim from the input, by zero-copy channel transfers when possible, without loading them into memory.
+     * Thus, rewriting a large file after editing some header keywords costs a sequential copy only.
      *
      * @param  file          a file that support FITS encoding
      *
@@ -1545,6 +2000,279 @@ public class Fits implements Closeable {
         }
     }
 
+    /**
+     * Returns the file associated to this <code>Fits</code> for editing in place, after making sure that all HDUs have
+     * been read from it, and that they are all stored contiguously in the file.
+     *
+     * @return               the file to edit in place
+     *
+     * @throws FitsException if this <code>Fits</code> is not backed by a {@link FitsFile}, or if it contains HDUs that
+     *                           are not stored in that file as they are listed.
+     * @throws IOException   if there was an IO error reading the HDUs from the file.
+     */
+    @SuppressWarnings({"resource", "deprecation"})
+    private FitsFile getEditableFile() throws FitsException, IOException {
+        if (!(dataStr instanceof FitsFile)) {
+            throw new FitsException("In-place editing requires a Fits backed by a FitsFile");
+        }
+
+        while (!atEOF) {
+            readHDU();
+        }
+
+        long pos = 0;
+        for (int i = 0; i < hduList.size(); i++) {
+            BasicHDU<?> hdu = hduList.get(i);
+            Header h = hdu.getHeader();
+            Data d = hdu.getData();
+            if (h.getFileOffset() != pos || h.getOriginalSize() == 0 || d == null
+                    || d.getFileOffset() != pos + h.getOriginalSize()) {
+                throw new FitsException("HDU[" + i + "] is not stored in the file as listed. Cannot edit in place.");
+            }
+            pos = d.getFileOffset() + d.getFileSize();
+        }
+
+        return (FitsFile) dataStr;
+    }
+
+    /**
+     * Updates the recorded file locations of HDUs, after they were moved within the file, and resets the state of
+     * navigating the file, which no longer matches its content.
+     *
+     * @param from  the index of the first HDU that was moved
+     * @param delta the number of bytes by which the HDUs were moved towards the end of the file.
+     */
+    @SuppressWarnings("deprecation")
+    private void moveHDUs(int from, long delta) {
+        for (int i = from; i < hduList.size(); i++) {
+            BasicHDU<?> hdu = hduList.get(i);
+            Header h = hdu.getHeader();
+            h.setFileLocation(dataStr, h.getFileOffset() + delta, h.getOriginalSize());
+            hdu.getData().moveFileOffset(delta);
+        }
+
+        lastFileOffset += delta;
+        toc = null;
+        indexedHDUs.clear();
+        clearNameLookup();
+    }
+
+    /**
+     * <p>
+     * Inserts a HDU into the file in place, without rewriting the whole file. The bytes following the insertion
+     * point are moved towards the end of the file by the size of the new HDU, in large blocks, and then the HDU is
+     * written into the gap. The HDU is also added to this <code>Fits</code>, and is associated to its location in the
+     * file, so it may be re-written in place later (see {@link BasicHDU#rewrite()}).
+     * </p>
+     * <p>
+     * The <code>Fits</code> must be backed by a {@link FitsFile} opened in "rw" mode. All remaining HDUs are read from
+     * the file first, and all HDUs must be stored in the file as listed, that is without HDUs added or deleted only
+     * in memory.
+     * </p>
+     *
+     * @param  hdu           the HDU to insert.
+     * @param  n             the index at which to insert the HDU. It may be 0 only for an empty file, or else it must be
+     *                           between 1 and {@link #getNumberOfHDUs()}, the latter to append the HDU at the end.
+     * @param  progress      listener to notify of the progress of moving bytes within the file, or <code>null</code>
+     *
+     * @return               the total number of bytes written to the file, including both the bytes moved and those
+     *                           of the new HDU.
+     *
+     * @throws FitsException if this <code>Fits</code> cannot be edited in place, if the index is invalid, or if the HDU
+     *                           could not be written.
+     * @throws IOException   if there was an IO error accessing the file.
+     *
+     * @see                  #appendHDUInPlace(BasicHDU, ProgressListener)
+     * @see                  #deleteHDUInPlace(int, ProgressListener)
+     * @see                  #rewriteHeaderInPlace(int, ProgressListener)
+     *
+     * @since                1.21
+     */
+    @SuppressWarnings("resource")
+    public long insertHDUInPlace(BasicHDU<?> hdu, int n, ProgressListener progress) throws FitsException, IOException {
+        FitsFile f = getEditableFile();
+        int size = getNumberOfHDUs();
+
+        if (n < 0 || n > size) {
+            throw new FitsException("Invalid HDU index for insertion: " + n);
+        }
+        if (n == 0 && (size > 0 || !hdu.canBePrimary())) {
+            throw new FitsException("Cannot insert a new primary HDU in place");
+        }
+
+        Data data = hdu.getData();
+        if (data != null && data.getRandomAccessInput() == f) {
+            // The data in this very file may be moved under us, so load it first.
+            data.detach();
+        }
+
+        hdu.setPrimaryHDU(n == 0);
+
+        long at = size == 0 ? 0L : lastFileOffset;
+        if (n < size) {
+            at = hduList.get(n).getHeader().getFileOffset();
+        }
+
+        long headerSize = hdu.getHeader().validatedSize();
+        long hduSize = headerSize + (data == null ? 0L : data.getSize());
+
+        long cost = FitsUtil.move(f, at, at + hduSize, f.length() - at, progress);
+
+        f.seek(at);
+        hdu.write(f);
+
+        if (f.getFilePointer() != at + hduSize) {
+            throw new FitsException("HDU size changed while writing it in place. The file may be corrupted.");
+        }
+
+        moveHDUs(n, hduSize);
+        hduList.add(n, hdu);
+
+        hdu.getHeader().setFileLocation(f, at, headerSize);
+        if (data != null) {
+            data.setFileLocation(f, at + headerSize);
+        }
+
+        if (size == 0) {
+            lastFileOffset = hduSize;
+        }
+
+        return cost + hduSize;
+    }
+
+    /**
+     * Appends a HDU to the end of the file in place, without rewriting the file. It is the same as calling
+     * {@link #insertHDUInPlace(BasicHDU, int, ProgressListener)} with the index set to the current number of HDUs,
+     * except that no bytes need moving.
+     *
+     * @param  hdu           the HDU to append.
+     * @param  progress      listener to notify of progress, or <code>null</code>
+     *
+     * @return               the number of bytes written to the file.
+     *
+     * @throws FitsException if this <code>Fits</code> cannot be edited in place, or if the HDU could not be written.
+     * @throws IOException   if there was an IO error accessing the file.
+     *
+     * @see                  #insertHDUInPlace(BasicHDU, int, ProgressListener)
+     *
+     * @since                1.21
+     */
+    public long appendHDUInPlace(BasicHDU<?> hdu, ProgressListener progress) throws FitsException, IOException {
+        getEditableFile();
+        return insertHDUInPlace(hdu, getNumberOfHDUs(), progress);
+    }
+
+    /**
+     * <p>
+     * Deletes a HDU from the file in place, without rewriting the whole file. The bytes following the HDU are moved
+     * towards the beginning of the file, in large blocks, to close the gap, and then the file is truncated. The HDU is
+     * also removed from this <code>Fits</code>. Since the deleted HDU is no longer in the file, its data should not be
+     * accessed after the call, unless it was already loaded into memory before.
+     * </p>
+     * <p>
+     * The <code>Fits</code> must be backed by a {@link FitsFile} opened in "rw" mode. All remaining HDUs are read from
+     * the file first, and all HDUs must be stored in the file as listed.
+     * </p>
+     *
+     * @param  n             the index of the HDU to delete. The primary HDU (index 0) cannot be deleted in place.
+     * @param  progress      listener to notify of the progress of moving bytes within the file, or <code>null</code>
+     *
+     * @return               the number of bytes moved within the file.
+     *
+     * @throws FitsException if this <code>Fits</code> cannot be edited in place, or if the index is invalid.
+     * @throws IOException   if there was an IO error accessing the file.
+     *
+     * @see                  #insertHDUInPlace(BasicHDU, int, ProgressListener)
+     *
+     * @since                1.21
+     */
+    @SuppressWarnings("resource")
+    public long deleteHDUInPlace(int n, ProgressListener progress) throws FitsException, IOException {
+        FitsFile f = getEditableFile();
+
+        if (n <= 0 || n >= getNumberOfHDUs()) {
+            throw new FitsException("Invalid HDU index for deletion in place: " + n);
+        }
+
+        BasicHDU<?> hdu = hduList.get(n);
+        long start = hdu.getHeader().getFileOffset();
+        long end = hdu.getData().getFileOffset() + hdu.getData().getFileSize();
+        long length = f.length();
+
+        long cost = FitsUtil.move(f, end, start, length - end, progress);
+        f.setLength(length - (end - start));
+
+        hduList.remove(n);
+        moveHDUs(n, start - end);
+
+        return cost;
+    }
+
+    /**
+     * <p>
+     * Re-writes the header of a HDU in place, growing the file as necessary. If the header no longer fits into the
+     * space it occupied originally, only the bytes following the header (its data and the HDUs after it) are moved
+     * towards the end of the file, in large blocks, to make room for it. Otherwise, it is the same as
+     * {@link Header#rewrite()}.
+     * </p>
+     * <p>
+     * The <code>Fits</code> must be backed by a {@link FitsFile} opened in "rw" mode. All remaining HDUs are read from
+     * the file first, and all HDUs must be stored in the file as listed.
+     * </p>
+     *
+     * @param  n             the index of the HDU whose header to re-write
+     * @param  progress      listener to notify of the progress of moving bytes within the file, or <code>null</code>
+     *
+     * @return               the total number of bytes written to the file, including the bytes moved and the header
+     *                           itself.
+     *
+     * @throws FitsException if this <code>Fits</code> cannot be edited in place, if the index is invalid, or if the
+     *                           header could not be written.
+     * @throws IOException   if there was an IO error accessing the file.
+     *
+     * @see                  Header#rewrite()
+     * @see                  #insertHDUInPlace(BasicHDU, int, ProgressListener)
+     *
+     * @since                1.21
+     */
+    @SuppressWarnings({"resource", "deprecation"})
+    public long rewriteHeaderInPlace(int n, ProgressListener progress) throws FitsException, IOException {
+        FitsFile f = getEditableFile();
+
+        if (n < 0 || n >= getNumberOfHDUs()) {
+            throw new FitsException("Invalid HDU index: " + n);
+        }
+
+        BasicHDU<?> hdu = hduList.get(n);
+        Header h = hdu.getHeader();
+        long at = h.getFileOffset();
+        long oldSize = h.getOriginalSize();
+        long newSize = h.validatedSize();
+        long delta = newSize - oldSize;
+
+        long cost = 0L;
+
+        if (delta > 0) {
+            cost = FitsUtil.move(f, at + oldSize, at + newSize, f.length() - at - oldSize, progress);
+        }
+
+        f.seek(at);
+        h.write(f);
+        f.flush();
+
+        if (f.getFilePointer() != at + Math.max(newSize, oldSize)) {
+            throw new FitsException("Header size changed while writing it in place. The file may be corrupted.");
+        }
+
+        if (delta > 0) {
+            hdu.getData().moveFileOffset(delta);
+            moveHDUs(n + 1, delta);
+            h.setFileLocation(f, at, newSize);
+        }
+
+        return cost + newSize;
+    }
+
     /**
      * Writes the contents to the specified file. It simply wraps {@link #write(File)} for convenience.
      *
@@ -1701,4 +2429,72 @@ public class Fits implements Closeable {
         }
         return false;
     }
+
+    /**
+     * Iterator over the remaining HDUs in the input, which does not retain the HDUs it returns.
+     *
+     * @see Fits#hduIterator(boolean)
+     */
+    private final class HDUIterator implements Iterator<BasicHDU<?>> {
+
+        /** Whether to skip over data in streams */
+        private final boolean skipData;
+
+        /** The HDU that was read ahead, but not yet returned */
+        private BasicHDU<?> pending;
+
+        private HDUIterator(boolean skipData) {
+            this.skipData = skipData;
+        }
+
+        @Override
+        public boolean hasNext() throws FitsException {
+            if (pending == null) {
+                try {
+                    pending = nextHDU(skipData);
+                } catch (IOException e) {
+                    throw new FitsException("Corrupted FITS file: " + e, e);
+                }
+            }
+            return pending != null;
+        }
+
+        @Override
+        public BasicHDU<?> next() throws FitsException, NoSuchElementException {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No more HDUs in input");
+            }
+            BasicHDU<?> hdu = pending;
+            pending = null;
+            return hdu;
+        }
+    }
+
+    /**
+     * Key for looking up HDUs by extension name and version.
+     */
+    private static final class NameKey {
+        private final String name;
+
+        private final Integer version;
+
+        private NameKey(String name, Integer version) {
+            this.name = name;
+            this.version = version;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, version);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof NameKey)) {
+                return false;
+            }
+            NameKey k = (NameKey) o;
+            return Objects.equals(name, k.name) && Objects.equals(version, k.version);
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package nom.tam.fits;
 
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
@@ -69,6 +70,10 @@ public final class FitsFactory {
 
     private static final boolean DEFAULT_CASE_SENSITIVE_HIERARCH = false;
 
+    private static final boolean DEFAULT_LAZY_HEADER_CARDS = false;
+
+    private static final int DEFAULT_PARALLEL_HEADER_READ_THRESHOLD = 0;
+
     /**
      * AK: true is the legacy behavior TODO If and when it is changed to false, the corresponding Logger warnings in
      * BinaryTable should also be removed.
@@ -100,6 +105,10 @@ public final class FitsFactory {
 
         private boolean useUnicodeChars;
 
+        private boolean lazyHeaderCards;
+
+        private int parallelHeaderReadThreshold;
+
         @Deprecated
         private boolean skipBlankAfterAssign;
 
@@ -115,6 +124,8 @@ public final class FitsFactory {
             allowHeaderRepairs = DEFAULT_ALLOW_HEADER_REPAIRS;
             longStringsEnabled = DEFAULT_LONG_STRINGS_ENABLED;
             skipBlankAfterAssign = DEFAULT_SKIP_BLANK_AFTER_ASSIGN;
+            lazyHeaderCards = DEFAULT_LAZY_HEADER_CARDS;
+            parallelHeaderReadThreshold = DEFAULT_PARALLEL_HEADER_READ_THRESHOLD;
             hierarchKeyFormatter = DEFAULT_HIERARCH_FORMATTER;
             hierarchKeyFormatter.setCaseSensitive(DEFAULT_CASE_SENSITIVE_HIERARCH);
         }
@@ -257,6 +268,31 @@ public final class FitsFactory {
             return allowHeaderRepairs;
         }
 
+        /**
+         * Checks if header cards read from FITS files keep their raw 80-byte records, and parse their values and
+         * comments only when these are first accessed.
+         * 
+         * @return <code>true</code> if header cards are parsed lazily, or <code>false</code> if they are fully parsed
+         *             when read.
+         * 
+         * @since  1.21
+         */
+        protected boolean isLazyHeaderCards() {
+            return lazyHeaderCards;
+        }
+
+        /**
+         * Returns the minimum size of headers (in 80-character records) for which the header cards are parsed in
+         * parallel when reading headers.
+         * 
+         * @return the minimum number of header records for parsing in parallel, or 0 if parallel parsing is disabled.
+         * 
+         * @since  1.21
+         */
+        protected int getParallelHeaderReadThreshold() {
+            return parallelHeaderReadThreshold;
+        }
+
     }
 
     private static final FitsSettings GLOBAL_SETTINGS = new FitsSettings();
@@ -265,6 +301,8 @@ public final class FitsFactory {
 
     private static ExecutorService threadPool;
 
+    private static volatile DataCache dataCache;
+
     /**
      * the size of a FITS block in bytes.
      */
@@ -330,6 +368,34 @@ public final class FitsFactory {
         return current().isUseExponentD();
     }
 
+    /**
+     * Whether header cards read from FITS files are parsed lazily. See more explanation in
+     * {@link #setLazyHeaderCards(boolean)}.
+     * 
+     * @return <code>true</code> if header cards read from FITS files are parsed lazily, otherwise <code>false</code>.
+     * 
+     * @since  1.21
+     * 
+     * @see    #setLazyHeaderCards(boolean)
+     */
+    public static boolean isLazyHeaderCards() {
+        return current().isLazyHeaderCards();
+    }
+
+    /**
+     * Returns the minimum size of headers (in 80-character records) for which the header cards are parsed in parallel
+     * when reading headers. See more explanation in {@link #setParallelHeaderReadThreshold(int)}.
+     * 
+     * @return the minimum number of header records for parsing in parallel, or 0 if parallel parsing is disabled.
+     * 
+     * @since  1.21
+     * 
+     * @see    #setParallelHeaderReadThreshold(int)
+     */
+    public static int getParallelHeaderReadThreshold() {
+        return current().getParallelHeaderReadThreshold();
+    }
+
     /**
      * Whether <code>char[]</code> arrays are written as 16-bit integers (<code>short[]</code>) int binary tables as
      * opposed as FITS character arrays (<code>byte[]</code> with column type 'A'). See more explanation in
@@ -598,6 +664,8 @@ public final class FitsFactory {
         s.useAsciiTables = DEFAULT_USE_ASCII_TABLES;
         s.useHierarch = DEFAULT_USE_HIERARCH;
         s.useUnicodeChars = DEFAULT_USE_UNICODE_CHARS;
+        s.lazyHeaderCards = DEFAULT_LAZY_HEADER_CARDS;
+        s.parallelHeaderReadThreshold = DEFAULT_PARALLEL_HEADER_READ_THRESHOLD;
         s.hierarchKeyFormatter = DEFAULT_HIERARCH_FORMATTER;
         s.hierarchKeyFormatter.setCaseSensitive(DEFAULT_CASE_SENSITIVE_HIERARCH);
     }
@@ -733,6 +801,87 @@ public final class FitsFactory {
         current().useUnicodeChars = value;
     }
 
+    /**
+     * <p>
+     * Enable/Disable lazy parsing of header cards read from FITS files. When enabled, header cards read from a file
+     * keep their raw 80-byte record, and only the keyword is extracted when reading. The value and comment are parsed
+     * only if and when they are accessed first. This can save a lot of time when reading large headers, e.g. when one
+     * needs only a few keywords from them. Unmodified lazy cards are written back byte-for-byte as they were read.
+     * </p>
+     * <p>
+     * Note, that with lazy parsing, a malformed value (such as a string with a missing closing quote when header repairs
+     * are not allowed) is detected only when the card's value or comment is first accessed, rather than when the header
+     * is read. HIERARCH-style cards, and cards that may be continued in long-string <code>CONTINUE</code> records, are
+     * always parsed fully when read.
+     * </p>
+     *
+     * @param value <code>true</code> to parse header card values and comments lazily, or else <code>false</code>
+     *                  (default) to fully parse all header cards when read.
+     *
+     * @since       1.21
+     *
+     * @see         #isLazyHeaderCards()
+     * @see         HeaderCard#getValue()
+     */
+    public static void setLazyHeaderCards(boolean value) {
+        current().lazyHeaderCards = value;
+    }
+
+    /**
+     * Sets the minimum size of headers (in 80-character records) for which the header cards are parsed in parallel by
+     * the worker threads of {@link #threadPool()} when reading headers. Parallel parsing may speed up the reading of
+     * very large headers (e.g. with tens of thousands of records), but has no benefit for headers of ordinary size. The
+     * parsing uses the same settings as the thread that reads the header, and produces the same header as parsing
+     * sequentially. Parallel parsing is disabled by default.
+     *
+     * @param  records                  the minimum number of header records for parsing in parallel, or 0 to disable
+     *                                      parallel parsing (default).
+     *
+     * @throws IllegalArgumentException if the argument is negative.
+     *
+     * @since                           1.21
+     *
+     * @see                             #getParallelHeaderReadThreshold()
+     * @see                             Header#read(nom.tam.util.ArrayDataInput)
+     */
+    public static void setParallelHeaderReadThreshold(int records) throws IllegalArgumentException {
+        if (records < 0) {
+            throw new IllegalArgumentException("Negative threshold: " + records);
+        }
+        current().parallelHeaderReadThreshold = records;
+    }
+
+    /**
+     * Sets a memory budget for data loaded on demand from random-accessible files (i.e. data read in deferred mode). Once
+     * the loaded deferred data exceeds the budget, the least recently used (unmodified) data is discarded from memory,
+     * to be reloaded from its file when it is accessed next. Note, that this is a global setting, which applies to all
+     * threads, regardless of {@link #useThreadLocalSettings(boolean)}.
+     *
+     * @param cache the memory budget to use for data loaded from here on, or <code>null</code> to retain all loaded
+     *                  data in memory (default).
+     *
+     * @see         #getDataCache()
+     * @see         DataCache
+     *
+     * @since       1.21
+     */
+    public static void setDataCache(DataCache cache) {
+        dataCache = cache;
+    }
+
+    /**
+     * Returns the memory budget for data loaded on demand from random-accessible files, if any.
+     *
+     * @return the memory budget currently in use, or <code>null</code> if all loaded data is retained in memory.
+     *
+     * @see    #setDataCache(DataCache)
+     *
+     * @since  1.21
+     */
+    public static DataCache getDataCache() {
+        return dataCache;
+    }
+
     /**
      * Returns the common thread pool that we use for processing FITS files.
      * 
@@ -777,6 +926,36 @@ public final class FitsFactory {
         }
     }
 
+    /**
+     * Wraps a task, such that it runs with (a copy of) the current settings of the calling thread, in whichever thread
+     * it is executed (such as a worker thread of {@link #threadPool()}). The thread's own settings are restored after
+     * the task completes.
+     *
+     * @param  task the task to run with the current settings
+     * @param  <T>  the generic type of the task's result
+     *
+     * @return      the task wrapped to run with the current settings of the calling thread.
+     *
+     * @since       1.21
+     */
+    static <T> Callable<T> withCurrentSettings(Callable<T> task) {
+        final FitsSettings settings = current().copy();
+
+        return () -> {
+            FitsSettings prior = LOCAL_SETTINGS.get();
+            LOCAL_SETTINGS.set(settings);
+            try {
+                return task.call();
+            } finally {
+                if (prior == null) {
+                    LOCAL_SETTINGS.remove();
+                } else {
+                    LOCAL_SETTINGS.set(prior);
+                }
+            }
+        };
+    }
+
     /**
      * Returns the current settings that guide how we read or produce FITS files.
      * 
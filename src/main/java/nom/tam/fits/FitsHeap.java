@@ -31,32 +31,48 @@ package nom.tam.fits;
  * #L%
  */
 
+import java.io.EOFException;
 import java.io.IOException;
+import java.util.Arrays;
 
 import nom.tam.util.ArrayDataInput;
 import nom.tam.util.ArrayDataOutput;
 import nom.tam.util.ByteArrayIO;
 import nom.tam.util.FitsDecoder;
 import nom.tam.util.FitsEncoder;
+import nom.tam.util.RandomAccess;
+import nom.tam.util.ReadWriteAccess;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 /**
  * Heap for storing variable-length entries in binary tables. FITS binary tables store variable length arrays on a heap,
  * following the regular array data. The newer implementation of the heap now provides proper random access to the byte
- * buffer as of version 1.16.
+ * buffer as of version 1.16. As of version 1.21, the heap storage may be either an in-memory buffer (for new tables,
+ * and for moderate sized heaps read from an input), or else a view of the heap region in a random-accessible file,
+ * which supports heaps over 2 GB without loading them into memory. The file region is not modified until the heap is
+ * written; instead, modified parts are copied into memory on write.
  */
 public class FitsHeap implements FitsElement {
 
     /** The minimum stoprage size to allocate for the heap, from which it can grow as necessary */
     private static final int MIN_HEAP_CAPACITY = 16384;
 
-    // TODO
-    // AK: In principle we could use ReadWriteAccess interface as the storage, which can be either an in-memory
-    // array or a buffered file region. The latter could support heaps over 2G, and could reduce memory overhead
-    // for heap access in some future release...
-    /** The underlying storage space of the heap */
-    private ByteArrayIO store;
+    /**
+     * (bytes) The default size of the largest heap that is loaded into memory from a random-accessible input.
+     *
+     * @since 1.21
+     */
+    static final long DEFAULT_MAX_MEMORY_SIZE = 0x2000000;
+
+    /**
+     * (bytes) The largest heap that we load into memory from a random-accessible input. Larger heaps (including heaps
+     * over 2 GB) are accessed in the file directly, and only modified parts are copied into memory.
+     */
+    private static long maxMemorySize = DEFAULT_MAX_MEMORY_SIZE;
+
+    /** The underlying storage space of the heap, which is either a {@link ByteArrayIO} or a {@link HeapFileRegion} */
+    private ReadWriteAccess store;
 
     /** conversion from Java arrays to FITS binary representation */
     private FitsEncoder encoder;
@@ -85,8 +101,48 @@ public class FitsHeap implements FitsElement {
         ByteArrayIO data = new ByteArrayIO(Math.max(size, MIN_HEAP_CAPACITY));
         data.setLength(Math.max(0, size));
         setData(data);
-        encoder = new FitsEncoder(store);
-        decoder = new FitsDecoder(store);
+    }
+
+    /**
+     * Creates a heap that is a view of the heap region of a binary table in a random-accessible file, without loading
+     * it into memory.
+     *
+     * @param file  the file that contains the heap
+     * @param start the file position at which the heap begins
+     * @param size  (bytes) the size of the heap in the file. It may exceed 2 GB.
+     *
+     * @since       1.21
+     */
+    FitsHeap(RandomAccess file, long start, long size) {
+        setStore(new HeapFileRegion(file, start, size));
+    }
+
+    /**
+     * Returns the size of the largest heap that is loaded into memory from a random-accessible input. Larger heaps are
+     * accessed in the file directly.
+     *
+     * @return (bytes) the largest heap that is loaded into memory from a random-accessible input.
+     *
+     * @see    #setMaxMemorySize(long)
+     *
+     * @since  1.21
+     */
+    static long getMaxMemorySize() {
+        return maxMemorySize;
+    }
+
+    /**
+     * Sets the size of the largest heap that is loaded into memory from a random-accessible input, e.g. for testing
+     * the access of heaps in files with small tables.
+     *
+     * @param bytes (bytes) the largest heap that is loaded into memory from a random-accessible input.
+     *
+     * @see         #getMaxMemorySize()
+     *
+     * @since       1.21
+     */
+    static void setMaxMemorySize(long bytes) {
+        maxMemorySize = bytes;
     }
 
     /**
@@ -95,7 +151,46 @@ public class FitsHeap implements FitsElement {
      * @param data the new underlying storage object for this heap instance.
      */
     protected synchronized void setData(ByteArrayIO data) {
-        store = data;
+        setStore(data);
+    }
+
+    /**
+     * Sets the underlying storage for this heap, with the associated encoder and decoder.
+     *
+     * @param s the new underlying storage, which is either a {@link ByteArrayIO} or a {@link HeapFileRegion}.
+     */
+    private synchronized void setStore(ReadWriteAccess s) {
+        store = s;
+        encoder = new FitsEncoder(store);
+        decoder = new FitsDecoder(store);
+    }
+
+    /**
+     * Checks if this heap is a view of a file region, rather than stored in memory.
+     *
+     * @return <code>true</code> if the heap is accessed in the file, or <code>false</code> if it is stored in memory.
+     *
+     * @since  1.21
+     */
+    synchronized boolean isFileBacked() {
+        return store instanceof HeapFileRegion;
+    }
+
+    /**
+     * Updates the location of a heap that is accessed in a file, after the content of the file was moved, e.g. by
+     * editing the file in place. Modifications of the heap that were not yet written are retained. It has no effect if
+     * the heap is stored in memory, or if it is accessed in another file.
+     *
+     * @param f     the file whose content was moved
+     * @param delta the number of bytes by which the content was moved towards the end of the file (or towards the
+     *                  beginning if negative).
+     *
+     * @since       1.21
+     */
+    synchronized void moveFileOffset(RandomAccess f, long delta) {
+        if (isFileBacked()) {
+            ((HeapFileRegion) store).moveFileOffset(f, delta);
+        }
     }
 
     /**
@@ -104,11 +199,7 @@ public class FitsHeap implements FitsElement {
      */
     synchronized FitsHeap copy() {
         FitsHeap copy = new FitsHeap();
-        synchronized (copy) {
-            copy.setData(store.copy());
-            copy.encoder = new FitsEncoder(copy.store);
-            copy.decoder = new FitsDecoder(copy.store);
-        }
+        copy.setStore(isFileBacked() ? ((HeapFileRegion) store).copy() : ((ByteArrayIO) store).copy());
         return copy;
     }
 
@@ -119,14 +210,31 @@ public class FitsHeap implements FitsElement {
      * @param  array         The array of primitives to be extracted.
      *
      * @throws FitsException if the operation failed
+     *
+     * @see                  #getData(long, Object)
+     */
+    public void getData(int offset, Object array) throws FitsException {
+        getData((long) offset, array);
+    }
+
+    /**
+     * Gets data for a Java array from the heap, at a 64-bit heap offset, which may be beyond 2 GB in a file-backed heap.
+     * The array may be a multi-dimensional array of arrays.
+     *
+     * @param  offset        the heap byte offset at which the data begins.
+     * @param  array         The array of primitives to be extracted.
+     *
+     * @throws FitsException if the operation failed
+     *
+     * @since                1.21
      */
-    public synchronized void getData(int offset, Object array) throws FitsException {
+    public synchronized void getData(long offset, Object array) throws FitsException {
         try {
             store.position(offset);
             decoder.readArrayFully(array);
         } catch (Exception e) {
             throw new FitsException("Error decoding heap area at offset=" + offset + ", size="
-                    + FitsEncoder.computeSize(array) + " (heap size " + size() + "): " + e.getMessage(), e);
+                    + FitsEncoder.computeSize(array) + " (heap size " + getSize() + "): " + e.getMessage(), e);
         }
     }
 
@@ -135,9 +243,21 @@ public class FitsHeap implements FitsElement {
         throw new IllegalStateException("FitsHeap should only be reset from inside its parent, never alone");
     }
 
+    /**
+     * Returns the current heap size, which may exceed 2 GB for heaps that are accessed in a file.
+     *
+     * @return the size of the heap in bytes
+     *
+     * @see    #size()
+     */
     @Override
     public synchronized long getSize() {
-        return size();
+        try {
+            return store.length();
+        } catch (IOException e) {
+            // Our stores do not actually throw...
+            throw new FitsException("Cannot determine heap size: " + e.getMessage(), e);
+        }
     }
 
     /**
@@ -151,7 +271,7 @@ public class FitsHeap implements FitsElement {
      * @see         #getData(int, Object)
      */
     synchronized long putData(Object data) throws FitsException {
-        return putData(data, store.length());
+        return putData(data, getSize());
     }
 
     /**
@@ -167,34 +287,58 @@ public class FitsHeap implements FitsElement {
      */
     synchronized long putData(Object data, long pos) throws FitsException {
         long lsize = pos + FitsEncoder.computeSize(data);
-        if (lsize > Integer.MAX_VALUE) {
+        if (!isFileBacked() && lsize > Integer.MAX_VALUE) {
             throw new FitsException("FITS Heap > 2 G");
         }
 
         try {
             store.position(pos);
             encoder.writeArray(data);
+            return store.position() - pos;
         } catch (Exception e) {
             throw new FitsException("Unable to write variable column length data: " + e.getMessage(), e);
         }
-
-        return store.position() - pos;
     }
 
     /**
      * Copies a segment of data from another heap to the end of this heap
      * 
-     * @param  src    the heap to source data from
-     * @param  offset the byte offset of the data in the source heap
-     * @param  len    the number of bytes to copy
+     * @param  src           the heap to source data from
+     * @param  offset        the byte offset of the data in the source heap
+     * @param  len           the number of bytes to copy
      * 
-     * @return        the position of the copied data in this heap.
+     * @return               the position of the copied data in this heap.
+     *
+     * @throws FitsException if the data could not be read from the source heap, or if it would grow this in-memory
+     *                           heap beyond 2 GB.
      */
-    synchronized int copyFrom(FitsHeap src, int offset, int len) {
-        int pos = (int) store.length();
-        store.setLength(pos + len);
+    synchronized long copyFrom(FitsHeap src, long offset, int len) throws FitsException {
+        if (isFileBacked()) {
+            throw new FitsException("Cannot copy to a file-backed heap");
+        }
+
+        ByteArrayIO dst = (ByteArrayIO) store;
+        long pos = dst.length();
+
+        if (pos + len > Integer.MAX_VALUE) {
+            throw new FitsException("FITS Heap > 2 G");
+        }
+
+        dst.setLength((int) pos + len);
+
         synchronized (src) {
-            System.arraycopy(src.store.getBuffer(), offset, store.getBuffer(), pos, len);
+            try {
+                src.store.position(offset);
+                for (int got = 0; got < len;) {
+                    int n = src.store.read(dst.getBuffer(), (int) pos + got, len - got);
+                    if (n < 0) {
+                        throw new EOFException("Heap data ends before offset " + (offset + len));
+                    }
+                    got += n;
+                }
+            } catch (IOException e) {
+                throw new FitsException("Error copying heap data: " + e.getMessage(), e);
+            }
         }
         return pos;
     }
@@ -202,17 +346,58 @@ public class FitsHeap implements FitsElement {
     @SuppressFBWarnings(value = "RR_NOT_CHECKED", justification = "this read will never return less than the requested length")
     @Override
     public synchronized void read(ArrayDataInput str) throws FitsException {
-        if (store.length() == 0) {
+        ByteArrayIO data = getMemoryStore();
+
+        if (data.length() == 0) {
+            return;
+        }
+
+        try {
+            str.readFully(data.getBuffer(), 0, (int) data.length());
+        } catch (IOException e) {
+            throw new FitsException("Error reading heap " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads the heap content from the specified position of a random accessible input, using a positional read, which
+     * does not change the file pointer of the input.
+     *
+     * @param  in            the random accessible input
+     * @param  pos           the file position of the heap's beginning in the input
+     *
+     * @throws FitsException if the heap could not be read.
+     *
+     * @since                1.21
+     */
+    synchronized void readAt(RandomAccess in, long pos) throws FitsException {
+        ByteArrayIO data = getMemoryStore();
+
+        if (data.length() == 0) {
             return;
         }
 
         try {
-            str.readFully(store.getBuffer(), 0, (int) store.length());
+            in.readFullyAt(pos, data.getBuffer(), 0, (int) data.length());
         } catch (IOException e) {
             throw new FitsException("Error reading heap " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Returns the in-memory storage of this heap.
+     *
+     * @return               the in-memory storage
+     *
+     * @throws FitsException if the heap is a view of a file region, rather than stored in memory.
+     */
+    private ByteArrayIO getMemoryStore() throws FitsException {
+        if (isFileBacked()) {
+            throw new FitsException("Cannot read into a file-backed heap");
+        }
+        return (ByteArrayIO) store;
+    }
+
     @Override
     public boolean reset() {
         throw new IllegalStateException("FitsHeap should only be reset from inside its parent, never alone");
@@ -231,19 +416,89 @@ public class FitsHeap implements FitsElement {
     /**
      * Returns the current heap size.
      *
-     * @return the size of the heap in bytes
+     * @return the size of the heap in bytes, or {@link Integer#MAX_VALUE} if the heap is larger than can be represented
+     *             by an <code>int</code>.
+     *
+     * @see    #getSize()
      */
     public synchronized int size() {
-        return (int) store.length();
+        return (int) Math.min(Integer.MAX_VALUE, getSize());
     }
 
     @Override
     public synchronized void write(ArrayDataOutput str) throws FitsException {
         try {
-            str.write(store.getBuffer(), 0, (int) store.length());
+            if (isFileBacked()) {
+                ((HeapFileRegion) store).writeTo(str);
+            } else {
+                ByteArrayIO data = (ByteArrayIO) store;
+                str.write(data.getBuffer(), 0, (int) data.length());
+            }
         } catch (IOException e) {
             throw new FitsException("Error writing heap:" + e.getMessage(), e);
         }
     }
 
+    /**
+     * Writes the heap at the specified position of a random-accessible file. If the heap is a view of the same region
+     * in that file, then only its modified parts are written.
+     *
+     * @param  f             the file to write to
+     * @param  pos           the file position at which the heap begins
+     *
+     * @return               the number of bytes written
+     *
+     * @throws FitsException if there was an error writing the heap
+     *
+     * @since                1.21
+     */
+    @SuppressWarnings("resource")
+    synchronized long writeAt(RandomAccess f, long pos) throws FitsException {
+        try {
+            if (isFileBacked()) {
+                return ((HeapFileRegion) store).writeAt(f, pos);
+            }
+            f.position(pos);
+            write((ArrayDataOutput) f);
+            return getSize();
+        } catch (IOException e) {
+            throw new FitsException("Error writing heap:" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns the indices of heap entries in the order in which they are stored in the heap. It uses primitive arrays
+     * only, so it scales to tables with very large numbers of rows.
+     *
+     * @param  offsets the heap offsets of the entries
+     *
+     * @return         the indices of the entries, sorted by heap offset, and by index for the same offset.
+     *
+     * @since          1.21
+     */
+    static int[] sortByOffset(long[] offsets) {
+        // The distinct offsets, in ascending order
+        long[] key = offsets.clone();
+        Arrays.sort(key);
+        int n = 0;
+        for (long off : key) {
+            if (n == 0 || off != key[n - 1]) {
+                key[n++] = off;
+            }
+        }
+        long[] distinct = Arrays.copyOf(key, n);
+
+        // Sort keys that pack the rank of the offset with the index
+        for (int i = 0; i < offsets.length; i++) {
+            key[i] = ((long) Arrays.binarySearch(distinct, offsets[i]) << Integer.SIZE) | i;
+        }
+        Arrays.sort(key);
+
+        int[] order = new int[key.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = (int) key[i];
+        }
+        return order;
+    }
+
 }
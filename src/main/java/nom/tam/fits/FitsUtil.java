@@ -39,6 +39,7 @@ import java.net.HttpURLConnection;
 import java.net.ProtocolException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.channels.FileChannel;
 import java.text.ParsePosition;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -49,7 +50,9 @@ import nom.tam.util.ArrayDataOutput;
 import nom.tam.util.AsciiFuncs;
 import nom.tam.util.FitsDecoder;
 import nom.tam.util.FitsEncoder;
+import nom.tam.util.FitsFile;
 import nom.tam.util.FitsIO;
+import nom.tam.util.ProgressListener;
 import nom.tam.util.RandomAccess;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -71,6 +74,12 @@ public final class FitsUtil {
     /** Highest ASCII value that can be in FITS strings */
     static final byte ASCII_NULL = 0x00;
 
+    /** The size of the buffer used for copying raw bytes from an input to an output */
+    private static final int COPY_BUFFER_SIZE = 0x100000;
+
+    /** The size of the buffer used for moving blocks of bytes within a file */
+    private static final int MOVE_BUFFER_SIZE = 0x800000;
+
     /**
      * the logger to log to.
      */
@@ -575,6 +584,91 @@ public final class FitsUtil {
         return min < 0 ? 0 : min;
     }
 
+    /**
+     * Copies raw bytes from a region of a random accessible input to an output, starting at the output's current
+     * position. Between files that support it, the bytes are copied by a zero-copy channel-to-channel transfer.
+     * Otherwise they are copied in moderately sized chunks, via positional reads that leave the input's file pointer
+     * unchanged. Either way, the heap usage is bounded regardless of the number of bytes copied.
+     *
+     * @param  in          the input from which to copy bytes
+     * @param  from        the position in the input of the first byte to copy
+     * @param  len         the number of bytes to copy
+     * @param  out         the output to which to copy the bytes
+     *
+     * @throws IOException if there was an IO error reading the input or writing the output, including if the input
+     *                         ended before the requested number of bytes could be copied.
+     *
+     * @since              1.21
+     */
+    @SuppressWarnings("resource")
+    static void copy(RandomAccess in, long from, long len, ArrayDataOutput out) throws IOException {
+        if (in instanceof FitsFile && out instanceof FitsFile) {
+            FitsFile src = (FitsFile) in;
+            FileChannel channel = src.getChannel();
+            if (channel != null) {
+                // Make sure any pending modifications are in the file itself
+                src.flush();
+                if (((FitsFile) out).transferFrom(channel, from, len)) {
+                    return;
+                }
+            }
+        }
+
+        byte[] buf = new byte[(int) Math.min(COPY_BUFFER_SIZE, len)];
+
+        while (len > 0) {
+            int n = (int) Math.min(buf.length, len);
+            in.readFullyAt(from, buf, 0, n);
+            out.write(buf, 0, n);
+            from += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Moves a block of bytes within a file, in large chunks. The source and destination regions may overlap, in which
+     * case the chunks are moved in the appropriate order, so that no byte is overwritten before it is moved.
+     *
+     * @param  f           the file
+     * @param  from        the current position of the first byte to move
+     * @param  to          the new position of the first byte
+     * @param  len         the number of bytes to move
+     * @param  progress    the listener to notify of progress after each chunk moved, or <code>null</code>
+     *
+     * @return             the number of bytes moved, that is <code>len</code>.
+     *
+     * @throws IOException if there was an IO error reading or writing the file, including if the file ended before
+     *                         the requested number of bytes could be moved.
+     *
+     * @since              1.21
+     */
+    static long move(FitsFile f, long from, long to, long len, ProgressListener progress) throws IOException {
+        if (from == to || len <= 0) {
+            return 0L;
+        }
+
+        byte[] buf = new byte[(int) Math.min(MOVE_BUFFER_SIZE, len)];
+        boolean backwards = to > from;
+
+        for (long done = 0; done < len;) {
+            int n = (int) Math.min(buf.length, len - done);
+            // Moving forward, we must start with the chunk at the end, and vice versa...
+            long offset = backwards ? len - done - n : done;
+
+            f.readFullyAt(from + offset, buf, 0, n);
+            f.seek(to + offset);
+            f.write(buf, 0, n);
+
+            done += n;
+            if (progress != null) {
+                progress.progress(done, len);
+            }
+        }
+
+        f.flush();
+        return len;
+    }
+
     /**
      * Adds the necessary amount of padding needed to complete the last FITS block.
      *
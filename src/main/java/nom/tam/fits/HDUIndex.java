@@ -0,0 +1,713 @@
+package nom.tam.fits;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import nom.tam.util.AsciiFuncs;
+import nom.tam.util.FitsFile;
+import nom.tam.util.FitsIO;
+import nom.tam.util.RandomAccess;
+
+import static nom.tam.fits.header.Standard.BITPIX;
+import static nom.tam.fits.header.Standard.END;
+import static nom.tam.fits.header.Standard.EXTNAME;
+import static nom.tam.fits.header.Standard.EXTVER;
+import static nom.tam.fits.header.Standard.GCOUNT;
+import static nom.tam.fits.header.Standard.GROUPS;
+import static nom.tam.fits.header.Standard.NAXIS;
+import static nom.tam.fits.header.Standard.PCOUNT;
+import static nom.tam.fits.header.Standard.SIMPLE;
+import static nom.tam.fits.header.Standard.XTENSION;
+
+/**
+ * <p>
+ * A table of contents for a FITS file, with the locations, sizes, and names of all HDUs it contains. The index is built
+ * by a fast scan of the file, which parses only the few header keywords that are needed to locate and identify HDUs
+ * (<code>SIMPLE</code>, <code>XTENSION</code>, <code>BITPIX</code>, <code>NAXIS</code><i>n</i>, <code>PCOUNT</code>,
+ * <code>GCOUNT</code>, <code>GROUPS</code>, <code>EXTNAME</code>, and <code>EXTVER</code>), and skips over the data
+ * segments entirely. It is thus a lot faster to build than reading all headers in full, especially for files with
+ * many extensions.
+ * </p>
+ * <p>
+ * Once built, an index may be saved to a sidecar file next to the FITS file (see {@link #getSidecar(File)}), from
+ * which it can be loaded quickly the next time around, as long as the FITS file has not changed since (as judged by
+ * its length and modification time). For example:
+ * </p>
+ *
+ * <pre>
+ *   File file = new File("many-extensions.fits");
+ *   Fits fits = new Fits(file);
+ *
+ *   // Load the index from the sidecar file, or else scan the FITS and save the index for next time
+ *   fits.setHDUIndex(HDUIndex.forFile(file, true));
+ *
+ *   // Only the header of the HDU we want is read in full.
+ *   BasicHDU&lt;?&gt; hdu = fits.getHDU("SCI", 42);
+ * </pre>
+ *
+ * @author Attila Kovacs
+ *
+ * @since  1.21
+ *
+ * @see    Fits#setHDUIndex(HDUIndex)
+ * @see    Fits#indexHDUs()
+ */
+public final class HDUIndex implements Iterable<HDUIndex.Entry> {
+
+    private static final Logger LOG = Logger.getLogger(HDUIndex.class.getName());
+
+    /** The file extension appended to the FITS file name to form the name of the sidecar index file */
+    public static final String SIDECAR_EXTENSION = ".hdx";
+
+    /** The identifier at the start of sidecar files */
+    private static final String MAGIC = "nom.tam.fits.HDUIndex";
+
+    /** The version of the sidecar file format */
+    private static final int FORMAT_VERSION = 1;
+
+    /** The column of the value indicator in header records */
+    private static final int VALUE_INDICATOR = 8;
+
+    /** The length of the NAXIS keyword stem */
+    private static final int NAXIS_LENGTH = NAXIS.key().length();
+
+    /** The length of the file that was indexed */
+    private final long fileLength;
+
+    /** The modification time of the file that was indexed, or 0 if not known */
+    private final long lastModified;
+
+    /** The entries for each HDU in the file, in order */
+    private final List<Entry> entries;
+
+    /**
+     * The location, size, and identification of a single HDU in a FITS file.
+     *
+     * @author Attila Kovacs
+     *
+     * @since  1.21
+     */
+    public static final class Entry {
+
+        private final int index;
+
+        private final long headerOffset;
+
+        private final long dataOffset;
+
+        private final long dataSize;
+
+        private final String xtension;
+
+        private final String extName;
+
+        private final int extVer;
+
+        private Entry(int index, long headerOffset, long dataOffset, long dataSize, String xtension, String extName,
+                int extVer) {
+            this.index = index;
+            this.headerOffset = headerOffset;
+            this.dataOffset = dataOffset;
+            this.dataSize = dataSize;
+            this.xtension = xtension;
+            this.extName = extName;
+            this.extVer = extVer;
+        }
+
+        /**
+         * Returns the index of this HDU in the file.
+         *
+         * @return the zero-based HDU index, with 0 being the primary HDU.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Returns the file offset at which the header of this HDU starts.
+         *
+         * @return the byte offset of the header from the start of file.
+         */
+        public long getHeaderOffset() {
+            return headerOffset;
+        }
+
+        /**
+         * Returns the size of the header, including padding.
+         *
+         * @return the number of bytes occupied by the header in the file.
+         */
+        public long getHeaderSize() {
+            return dataOffset - headerOffset;
+        }
+
+        /**
+         * Returns the file offset at which the data of this HDU starts.
+         *
+         * @return the byte offset of the data segment from the start of file.
+         */
+        public long getDataOffset() {
+            return dataOffset;
+        }
+
+        /**
+         * Returns the size of the data segment, excluding padding.
+         *
+         * @return the number of data bytes, as defined by the header (without the padding to a full FITS block).
+         */
+        public long getDataSize() {
+            return dataSize;
+        }
+
+        /**
+         * Returns the file offset immediately following this HDU, including the padding after its data, that is where
+         * the next HDU, if any, is expected to start.
+         *
+         * @return the byte offset of the end of this HDU from the start of file.
+         */
+        public long getEndOffset() {
+            return FitsUtil.addPadding(dataOffset + dataSize);
+        }
+
+        /**
+         * Returns the extension type of this HDU.
+         *
+         * @return the value of the <code>XTENSION</code> keyword, or <code>null</code> for the primary HDU.
+         */
+        public String getXtension() {
+            return xtension;
+        }
+
+        /**
+         * Returns the extension name of this HDU.
+         *
+         * @return the value of the <code>EXTNAME</code> keyword, or <code>null</code> if the header does not
+         *             define it.
+         */
+        public String getExtName() {
+            return extName;
+        }
+
+        /**
+         * Returns the extension version of this HDU.
+         *
+         * @return the value of the <code>EXTVER</code> keyword, or 0 if the header does not define it.
+         */
+        public int getExtVer() {
+            return extVer;
+        }
+
+        private boolean isNameMatch(String name, Integer version) {
+            if (!name.equals(extName)) {
+                return false;
+            }
+            return version == null || version == extVer;
+        }
+    }
+
+    private HDUIndex(long fileLength, long lastModified, List<Entry> entries) {
+        this.fileLength = fileLength;
+        this.lastModified = lastModified;
+        this.entries = entries;
+    }
+
+    /**
+     * Builds an index by scanning the specified random-accessible FITS input. The scan uses positional reads, and so
+     * it does not change the read position of the input.
+     *
+     * @param  in            the random-accessible FITS input
+     *
+     * @return               a new index of the HDUs contained in the input.
+     *
+     * @throws FitsException if the input does not start with a FITS primary header.
+     * @throws IOException   if there was an IO error while accessing the input.
+     *
+     * @see                  #scan(File)
+     */
+    public static HDUIndex scan(RandomAccess in) throws FitsException, IOException {
+        return scan(in, 0L);
+    }
+
+    /**
+     * Builds an index by scanning the specified FITS file.
+     *
+     * @param  file          the FITS file
+     *
+     * @return               a new index of the HDUs contained in the file.
+     *
+     * @throws FitsException if the file does not start with a FITS primary header.
+     * @throws IOException   if there was an IO error while accessing the file.
+     *
+     * @see                  #scan(RandomAccess)
+     * @see                  #forFile(File, boolean)
+     */
+    public static HDUIndex scan(File file) throws FitsException, IOException {
+        long modified = file.lastModified();
+        try (FitsFile in = new FitsFile(file, "r")) {
+            return scan(in, modified);
+        }
+    }
+
+    private static HDUIndex scan(RandomAccess in, long modified) throws FitsException, IOException {
+        long length = in.length();
+        List<Entry> list = new ArrayList<>();
+        byte[] block = new byte[FitsFactory.FITS_BLOCK_SIZE];
+
+        for (long pos = 0; pos < length;) {
+            Entry e = scanHeader(in, pos, length, list.size(), block);
+            if (e == null) {
+                break;
+            }
+            list.add(e);
+            pos = e.getEndOffset();
+        }
+
+        return new HDUIndex(length, modified, list);
+    }
+
+    /**
+     * Parses the sizing and identification keywords from the header starting at the specified file offset.
+     *
+     * @return the index entry for the HDU, or <code>null</code> if there is no valid extension header at the offset.
+     */
+    private static Entry scanHeader(RandomAccess in, long offset, long length, int index, byte[] block)
+            throws FitsException, IOException {
+        Map<Integer, Long> axes = new HashMap<>();
+        String xtension = null;
+        String extName = null;
+        int extVer = 0;
+        int bitpix = 0;
+        int naxis = 0;
+        long pcount = 0;
+        long gcount = 1;
+        boolean isGroups = false;
+
+        for (long pos = offset;; pos += block.length) {
+            if (pos + block.length > length) {
+                if (pos > offset) {
+                    LOG.warning("Truncated header for HDU " + index + " at file offset " + offset);
+                }
+                return null;
+            }
+
+            in.readFullyAt(pos, block, 0, block.length);
+
+            for (int i = 0; i < block.length; i += HeaderCard.FITS_HEADER_CARD_SIZE) {
+                String card = AsciiFuncs.asciiString(block, i, HeaderCard.FITS_HEADER_CARD_SIZE);
+                String key = card.substring(0, VALUE_INDICATOR).trim();
+
+                if (pos == offset && i == 0) {
+                    if (index == 0 && !SIMPLE.key().equals(key)) {
+                        throw new FitsException("Not a FITS file (no SIMPLE keyword at start)");
+                    }
+                    if (index > 0 && !XTENSION.key().equals(key)) {
+                        LOG.warning("Ignoring " + (length - offset) + " bytes of non-FITS data at file offset " + offset);
+                        return null;
+                    }
+                }
+
+                if (END.key().equals(key)) {
+                    long dataOffset = pos + block.length;
+                    long size = dataSize(bitpix, naxis, axes, pcount, gcount, isGroups);
+                    return new Entry(index, offset, dataOffset, size, xtension, extName, extVer);
+                }
+
+                if (card.charAt(VALUE_INDICATOR) != '=') {
+                    continue;
+                }
+
+                String value = card.substring(VALUE_INDICATOR + 1);
+
+                if (key.startsWith(NAXIS.key()) && key.length() > NAXIS_LENGTH) {
+                    try {
+                        axes.put(Integer.parseInt(key.substring(NAXIS_LENGTH)), parseLong(value));
+                    } catch (NumberFormatException e) {
+                        // Not an NAXISn keyword after all...
+                    }
+                } else if (NAXIS.key().equals(key)) {
+                    naxis = (int) parseLong(value);
+                } else if (BITPIX.key().equals(key)) {
+                    bitpix = (int) parseLong(value);
+                } else if (PCOUNT.key().equals(key)) {
+                    pcount = parseLong(value);
+                } else if (GCOUNT.key().equals(key)) {
+                    gcount = parseLong(value);
+                } else if (GROUPS.key().equals(key)) {
+                    isGroups = "T".equals(stripComment(value));
+                } else if (XTENSION.key().equals(key)) {
+                    xtension = parseString(value);
+                } else if (EXTNAME.key().equals(key)) {
+                    extName = parseString(value);
+                } else if (EXTVER.key().equals(key)) {
+                    extVer = (int) parseLong(value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Calculates the size of a data segment from its sizing keywords, the same way as {@link Header#getDataSize()}
+     * does, but without the padding.
+     */
+    private static long dataSize(int bitpix, int naxis, Map<Integer, Long> axes, long pcount, long gcount,
+            boolean isGroups) {
+        if (naxis <= 0) {
+            return 0L;
+        }
+
+        int startAxis = 1;
+        if (isGroups && naxis > 1 && axes.getOrDefault(1, 0L) == 0L) {
+            startAxis = 2;
+        }
+
+        long size = 1;
+        for (int i = startAxis; i <= naxis; i++) {
+            size *= axes.getOrDefault(i, 0L);
+        }
+
+        return (size + pcount) * gcount * (Math.abs(bitpix) / FitsIO.BITS_OF_1_BYTE);
+    }
+
+    private static String stripComment(String value) {
+        int i = value.indexOf('/');
+        return (i < 0 ? value : value.substring(0, i)).trim();
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return Long.parseLong(stripComment(value));
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+    private static String parseString(String value) {
+        int start = value.indexOf('\'');
+        if (start < 0) {
+            return stripComment(value);
+        }
+
+        StringBuilder s = new StringBuilder();
+        for (int i = start + 1; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\'') {
+                if (i + 1 < value.length() && value.charAt(i + 1) == '\'') {
+                    // An escaped single quote
+                    i++;
+                } else {
+                    break;
+                }
+            }
+            s.append(c);
+        }
+
+        // Trailing spaces are not significant in FITS strings
+        int end = s.length();
+        while (end > 0 && s.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return s.substring(0, end);
+    }
+
+    /**
+     * Returns the index for a FITS file, loading it from a sidecar file if possible, or else by scanning the FITS
+     * file.
+     *
+     * @param  file          the FITS file
+     * @param  useSidecar    whether to use a sidecar index file next to the FITS file. If <code>true</code>, the index
+     *                           is loaded from the sidecar file if it exists and is up to date with the FITS file.
+     *                           Otherwise, the FITS file is scanned, and the new index is saved to the sidecar file
+     *                           (if possible) for future use.
+     *
+     * @return               the index of the HDUs in the FITS file.
+     *
+     * @throws FitsException if the file does not start with a FITS primary header.
+     * @throws IOException   if there was an IO error while accessing the FITS file.
+     *
+     * @see                  #getSidecar(File)
+     * @see                  #load(File, File)
+     * @see                  #scan(File)
+     */
+    public static HDUIndex forFile(File file, boolean useSidecar) throws FitsException, IOException {
+        if (!useSidecar) {
+            return scan(file);
+        }
+
+        File sidecar = getSidecar(file);
+        HDUIndex index = load(sidecar, file);
+        if (index != null) {
+            return index;
+        }
+
+        index = scan(file);
+        try {
+            index.save(sidecar);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Could not save HDU index to " + sidecar + ": " + e.getMessage(), e);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the default sidecar index file for a FITS file, which resides in the same directory as the FITS file,
+     * and whose name is that of the FITS file with {@link #SIDECAR_EXTENSION} appended.
+     *
+     * @param  file the FITS file
+     *
+     * @return      the default sidecar index file for it.
+     */
+    public static File getSidecar(File file) {
+        return new File(file.getPath() + SIDECAR_EXTENSION);
+    }
+
+    /**
+     * Loads a previously saved index from a sidecar file, provided that it is up to date with the specified FITS file.
+     *
+     * @param  sidecar     the sidecar index file
+     * @param  file        the FITS file that the index should describe.
+     *
+     * @return             the index loaded from the sidecar file, or <code>null</code> if the sidecar file does not
+     *                         exist, is not a valid index, or if it does not match the current length and
+     *                         modification time of the FITS file.
+     *
+     * @throws IOException if there was an IO error reading the sidecar file.
+     *
+     * @see                #save(File)
+     * @see                #isValidFor(File)
+     */
+    public static HDUIndex load(File sidecar, File file) throws IOException {
+        if (!sidecar.exists()) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(sidecar)))) {
+            if (!MAGIC.equals(in.readUTF()) || in.readInt() != FORMAT_VERSION) {
+                LOG.warning("Not a valid HDU index: " + sidecar);
+                return null;
+            }
+
+            long length = in.readLong();
+            long modified = in.readLong();
+            int n = in.readInt();
+
+            List<Entry> list = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                long headerOffset = in.readLong();
+                long dataOffset = in.readLong();
+                long dataSize = in.readLong();
+                String xtension = in.readBoolean() ? in.readUTF() : null;
+                String extName = in.readBoolean() ? in.readUTF() : null;
+                list.add(new Entry(i, headerOffset, dataOffset, dataSize, xtension, extName, in.readInt()));
+            }
+
+            HDUIndex index = new HDUIndex(length, modified, list);
+            return index.isValidFor(file) ? index : null;
+        }
+    }
+
+    /**
+     * Saves this index to a sidecar file, from which it may be loaded later via {@link #load(File, File)}.
+     *
+     * @param  sidecar     the sidecar index file
+     *
+     * @throws IOException if there was an IO error writing the sidecar file.
+     *
+     * @see                #load(File, File)
+     * @see                #getSidecar(File)
+     */
+    public void save(File sidecar) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(sidecar)))) {
+            out.writeUTF(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(fileLength);
+            out.writeLong(lastModified);
+            out.writeInt(entries.size());
+
+            for (Entry e : entries) {
+                out.writeLong(e.headerOffset);
+                out.writeLong(e.dataOffset);
+                out.writeLong(e.dataSize);
+                writeOptional(out, e.xtension);
+                writeOptional(out, e.extName);
+                out.writeInt(e.extVer);
+            }
+        }
+    }
+
+    private static void writeOptional(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    /**
+     * Checks if this index is up to date with the specified FITS file, that is if the file has the same length and
+     * modification time as when it was indexed.
+     *
+     * @param  file the FITS file
+     *
+     * @return      <code>true</code> if the index describes the current state of the file, otherwise
+     *                  <code>false</code>.
+     */
+    public boolean isValidFor(File file) {
+        return file.length() == fileLength && file.lastModified() == lastModified;
+    }
+
+    /**
+     * Returns the length of the file at the time it was indexed.
+     *
+     * @return the file length in bytes.
+     */
+    public long getFileLength() {
+        return fileLength;
+    }
+
+    /**
+     * Returns the modification time of the file at the time it was indexed.
+     *
+     * @return the modification time (in milliseconds since 1 Jan 1970), or 0 if the index was built from an input
+     *             other than a file.
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Returns the number of HDUs in the index.
+     *
+     * @return the number of HDUs found in the file.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the index entry of an HDU.
+     *
+     * @param  n                         the zero-based HDU index
+     *
+     * @return                           the index entry for the HDU
+     *
+     * @throws IndexOutOfBoundsException if the index does not contain an HDU by the specified index.
+     */
+    public Entry get(int n) throws IndexOutOfBoundsException {
+        return entries.get(n);
+    }
+
+    @Override
+    public Iterator<Entry> iterator() {
+        return Collections.unmodifiableList(entries).iterator();
+    }
+
+    /**
+     * Returns the index of the HDU whose header starts at the specified file offset.
+     *
+     * @param  offset the file offset
+     *
+     * @return        the zero-based index of the HDU that starts at the offset, or -1 if no HDU starts there.
+     */
+    public int indexAt(long offset) {
+        int from = 0;
+        int to = entries.size() - 1;
+
+        while (from <= to) {
+            int mid = (from + to) >>> 1;
+            long o = entries.get(mid).headerOffset;
+            if (o < offset) {
+                from = mid + 1;
+            } else if (o > offset) {
+                to = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns the index of the first HDU by the specified extension name.
+     *
+     * @param  name the extension name, as defined by the <code>EXTNAME</code> keyword (case sensitive).
+     *
+     * @return      the zero-based index of the first HDU by that name, or -1 if there is no such HDU.
+     *
+     * @see         #indexOf(String, int)
+     */
+    public int indexOf(String name) {
+        return find(name, null, 0);
+    }
+
+    /**
+     * Returns the index of the first HDU by the specified extension name and version.
+     *
+     * @param  name    the extension name, as defined by the <code>EXTNAME</code> keyword (case sensitive).
+     * @param  version the extension version, as defined by the <code>EXTVER</code> keyword.
+     *
+     * @return         the zero-based index of the first HDU by that name and version, or -1 if there is no such HDU.
+     *
+     * @see            #indexOf(String)
+     */
+    public int indexOf(String name, int version) {
+        return find(name, version, 0);
+    }
+
+    /**
+     * Returns the index of the first HDU at or after the specified index that matches the specified extension name,
+     * and version (if not <code>null</code>).
+     */
+    int find(String name, Integer version, int from) {
+        for (int i = Math.max(0, from); i < entries.size(); i++) {
+            if (entries.get(i).isNameMatch(name, version)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -66,6 +66,8 @@ import static nom.tam.fits.header.Standard.BLANKS;
 import static nom.tam.fits.header.Standard.COMMENT;
 import static nom.tam.fits.header.Standard.END;
 import static nom.tam.fits.header.Standard.EXTEND;
+import static nom.tam.fits.header.Standard.EXTNAME;
+import static nom.tam.fits.header.Standard.EXTVER;
 import static nom.tam.fits.header.Standard.GCOUNT;
 import static nom.tam.fits.header.Standard.GROUPS;
 import static nom.tam.fits.header.Standard.HISTORY;
@@ -167,6 +169,21 @@ public class Header implements FitsElement {
      */
     private final HashedList<HeaderCard> cards;
 
+    /** The number of changes seen so far to the HDU name (EXTNAME and EXTVER) of this header. */
+    private long nameModCount;
+
+    /** The EXTNAME card, when the HDU name was last checked for changes. */
+    private HeaderCard nameCard;
+
+    /** The modification count of the EXTNAME card, when the HDU name was last checked for changes. */
+    private int nameCardMods;
+
+    /** The EXTVER card, when the HDU name was last checked for changes. */
+    private HeaderCard versionCard;
+
+    /** The modification count of the EXTVER card, when the HDU name was last checked for changes. */
+    private int versionCardMods;
+
     /** Offset of this Header in the FITS file */
     private long fileOffset;
 
@@ -2007,48 +2024,24 @@ public class Header implements FitsElement {
         }
         streamSum = -1L;
 
-        int trailingBlanks = 0;
         minCards = 0;
 
-        HeaderCardCountingArrayDataInput cardCountingArray = new HeaderCardCountingArrayDataInput(dis);
+        HeaderBlockReader records = new HeaderBlockReader(dis);
         try {
-            for (;;) {
-                HeaderCard fcard = new HeaderCard(cardCountingArray);
-                minCards += fcard.cardSize();
-
-                // AK: Note, 'key' can never be null, as per contract of getKey(). So no need to check...
-                String key = fcard.getKey();
-
-                if (isEmpty()) {
-                    checkFirstCard(key);
-                } else if (fcard.isBlank()) {
-                    // AK: We don't add the trailing blank cards, but keep count of them.
-                    // (esp. in case the aren't trailing...)
-                    trailingBlanks++;
-                    continue;
-                } else if (END.key().equals(key)) {
-                    addLine(fcard);
-                    break; // Out of reading the header.
-                } else if (LONGSTRN.key().equals(key)) {
-                    // We don't check the value here. If the user
-                    // wants to be sure that long strings are disabled,
-                    // they can call setLongStringsEnabled(false) after
-                    // reading the header.
-                    FitsFactory.setLongStringsEnabled(true);
-                }
-
-                // AK: The preceding blank spaces were internal, not trailing
-                // so add them back in now...
-                for (int i = 0; i < trailingBlanks; i++) {
-                    insertBlankCard();
+            // The first card tells us if it's a header at all...
+            int trailingBlanks = addReadCard(new HeaderCard(records), 0);
+
+            if (isParallelRead(records)) {
+                for (HeaderCard fcard : records.parseParallel(Runtime.getRuntime().availableProcessors())) {
+                    trailingBlanks = addReadCard(fcard, trailingBlanks);
+                    if (trailingBlanks < 0) {
+                        break;
+                    }
                 }
-                trailingBlanks = 0;
-
-                if (cards.containsKey(key)) {
-                    addDuplicate(cards.get(key));
+            } else {
+                while (trailingBlanks >= 0) {
+                    trailingBlanks = addReadCard(new HeaderCard(records), trailingBlanks);
                 }
-
-                addLine(fcard);
             }
         } catch (EOFException e) {
             // Normal end-of-file before END key...
@@ -2072,17 +2065,14 @@ public class Header implements FitsElement {
             input = dis;
         }
 
-        ensureCardSpace(cardCountingArray.getPhysicalCardsRead());
+        ensureCardSpace(records.getRecordsRead());
         readSize = FitsUtil.addPadding((long) minCards * HeaderCard.FITS_HEADER_CARD_SIZE);
 
-        // Read to the end of the current FITS block.
-        //
-        try {
-            dis.skipAllBytes(FitsUtil.padding(minCards * HeaderCard.FITS_HEADER_CARD_SIZE));
-        } catch (EOFException e) {
+        // The header was read in full blocks, i.e. to the end of the current FITS block...
+        if (!records.isPadded()) {
             // No biggy. We got a complete header just fine, it's only that there was no
             // padding before EOF. We'll just log that, but otherwise keep going.
-            LOG.log(Level.WARNING, "Premature end-of-file: no padding after header.", e);
+            LOG.warning("Premature end-of-file: no padding after header.");
         }
 
         if (dis instanceof FitsInputStream) {
@@ -2100,6 +2090,79 @@ public class Header implements FitsElement {
         seekTail();
     }
 
+    /**
+     * Adds a card that was just read from the input to this header, keeping track of the blank cards, which are added
+     * only if followed by other non-blank cards before the <code>END</code> card.
+     *
+     * @param  fcard          the card that was read
+     * @param  trailingBlanks the number of blank cards read since the last non-blank card.
+     *
+     * @return                the updated number of blank cards since the last non-blank card, or -1 if the card was
+     *                            the <code>END</code> card, i.e. the last card of the header.
+     *
+     * @throws FitsException  if the first card of the header is not a valid first card for a FITS header.
+     */
+    private int addReadCard(HeaderCard fcard, int trailingBlanks) throws FitsException {
+        minCards += fcard.cardSize();
+
+        // AK: Note, 'key' can never be null, as per contract of getKey(). So no need to check...
+        String key = fcard.getKey();
+
+        if (isEmpty()) {
+            checkFirstCard(key);
+        } else if (fcard.isBlank()) {
+            // AK: We don't add the trailing blank cards, but keep count of them.
+            // (esp. in case the aren't trailing...)
+            return trailingBlanks + 1;
+        } else if (END.key().equals(key)) {
+            addLine(fcard);
+            return -1; // Out of reading the header.
+        } else if (LONGSTRN.key().equals(key)) {
+            // We don't check the value here. If the user
+            // wants to be sure that long strings are disabled,
+            // they can call setLongStringsEnabled(false) after
+            // reading the header.
+            FitsFactory.setLongStringsEnabled(true);
+        }
+
+        // AK: The preceding blank spaces were internal, not trailing
+        // so add them back in now...
+        for (int i = 0; i < trailingBlanks; i++) {
+            insertBlankCard();
+        }
+
+        if (cards.containsKey(key)) {
+            addDuplicate(cards.get(key));
+        }
+
+        addLine(fcard);
+        return 0;
+    }
+
+    /**
+     * Checks whether the remaining cards of the header being read should be parsed in parallel. This is the case if
+     * parallel parsing is enabled, and the rest of the header (which is read fully into memory for the check) contains
+     * at least the threshold number of records. (Headers that would enable long strings midway via a
+     * <code>LONGSTRN</code> keyword are parsed sequentially, since the cards after it must be parsed differently from
+     * the ones before.)
+     *
+     * @param  records     the records of the header being read
+     *
+     * @return             <code>true</code> if the remaining cards should be parsed in parallel, otherwise
+     *                         <code>false</code>.
+     *
+     * @throws IOException if there was an IO error reading the rest of the header.
+     *
+     * @see                FitsFactory#setParallelHeaderReadThreshold(int)
+     */
+    private static boolean isParallelRead(HeaderBlockReader records) throws IOException {
+        int threshold = FitsFactory.getParallelHeaderReadThreshold();
+        if (threshold <= 0 || !records.readAll() || records.getRemainingRecords() < threshold) {
+            return false;
+        }
+        return FitsFactory.isLongStringsEnabled() || !records.containsKey(LONGSTRN.key());
+    }
+
     /**
      * Returns the random-accessible input from which this header was read, or <code>null</code> if the header is not
      * associated with an input, or the input is not random accessible.
@@ -2114,6 +2177,36 @@ public class Header implements FitsElement {
         return (input instanceof RandomAccess) ? (RandomAccess) input : null;
     }
 
+    /**
+     * Validates the header, and returns the number of bytes it will occupy when written.
+     *
+     * @return               the byte size of the validated header, including padding.
+     *
+     * @throws FitsException if the header could not be brought into proper form.
+     *
+     * @since                1.21
+     */
+    long validatedSize() throws FitsException {
+        validate();
+        return getSize();
+    }
+
+    /**
+     * Associates this header with the location in a file at which it is now stored, e.g. after it was moved or
+     * re-written by editing the file in place, so it can be re-written in place later.
+     *
+     * @param in     the file containing the header
+     * @param offset the file offset at which the header begins
+     * @param size   the byte size of the header in the file, including padding.
+     *
+     * @since        1.21
+     */
+    void setFileLocation(ArrayDataInput in, long offset, long size) {
+        input = in;
+        fileOffset = offset;
+        readSize = size;
+    }
+
     /**
      * Returns the checksum value calculated duting reading from a stream. It is only populated when reading from
      * {@link FitsInputStream} imputs, and never from other types of inputs. Valid values are greater or equal to zero.
@@ -2545,7 +2638,10 @@ public class Header implements FitsElement {
 
             while (writeIterator.hasNext()) {
                 HeaderCard card = writeIterator.next();
-                byte[] b = AsciiFuncs.getBytes(card.toString(settings));
+                byte[] b = card.getRawImage();
+                if (b == null) {
+                    b = AsciiFuncs.getBytes(card.toString(settings));
+                }
                 size += b.length;
 
                 if (END.key().equals(card.getKey()) && minCards * HeaderCard.FITS_HEADER_CARD_SIZE > size) {
@@ -2920,6 +3016,33 @@ public class Header implements FitsElement {
         return !HeaderCardParser.getLogger().getLevel().equals(Level.SEVERE);
     }
 
+    /**
+     * Returns the number of changes to the HDU name (EXTNAME and EXTVER) of this header, which were seen so far. The
+     * count increases whenever the EXTNAME or EXTVER cards were added, removed, replaced, or modified since the last
+     * call, so a lookup of HDUs by name that was built when the count had a different value is no longer reliable for
+     * this header.
+     *
+     * @return the number of changes to the EXTNAME or EXTVER keywords in this header seen so far.
+     *
+     * @since  1.21
+     */
+    long getNameModCount() {
+        HeaderCard name = cards.get(EXTNAME.key());
+        int nameMods = name == null ? 0 : name.getModCount();
+        HeaderCard version = cards.get(EXTVER.key());
+        int versionMods = version == null ? 0 : version.getModCount();
+
+        if (name != nameCard || nameMods != nameCardMods || version != versionCard || versionMods != versionCardMods) {
+            nameCard = name;
+            nameCardMods = nameMods;
+            versionCard = version;
+            versionCardMods = versionMods;
+            nameModCount++;
+        }
+
+        return nameModCount;
+    }
+
     /**
      * Returns the current preferred alignment character position of inline header comments. This is the position at
      * which the '/' is placed for the inline comment. #deprecated
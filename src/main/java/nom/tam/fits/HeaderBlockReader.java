@@ -0,0 +1,367 @@
+package nom.tam.fits;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import nom.tam.util.ArrayDataInput;
+import nom.tam.util.AsciiFuncs;
+import nom.tam.util.ParallelTasks;
+
+import static nom.tam.fits.header.Standard.CONTINUE;
+import static nom.tam.fits.header.Standard.END;
+
+/**
+ * Reads FITS headers from an input in whole 2880-byte blocks, rather than one 80-character record at a time, and
+ * serves the buffered header records for parsing into header cards. Blocks are read only as needed, until the block
+ * that contains the <code>END</code> record, which is located by scanning the raw bytes of the records as they arrive.
+ * Once the entire header is buffered, the cards can also be parsed concurrently by multiple threads (see
+ * {@link #parseParallel(int)}).
+ *
+ * @author Attila Kovacs
+ *
+ * @since  1.21
+ *
+ * @see    Header#read(ArrayDataInput)
+ */
+final class HeaderBlockReader implements HeaderCard.RecordSource {
+
+    /** The size of a header record in bytes */
+    private static final int RECORD_SIZE = HeaderCard.FITS_HEADER_CARD_SIZE;
+
+    /** The minimum number of records parsed by one thread, when parsing in parallel */
+    private static final int MIN_RECORDS_PER_THREAD = 256;
+
+    /** The input from which to read blocks, or <code>null</code> if this is a view of another reader's buffer. */
+    private final ArrayDataInput in;
+
+    /** The buffer holding the header blocks read so far */
+    private byte[] buf;
+
+    /** The number of bytes buffered */
+    private int size;
+
+    /** The index of the <code>END</code> record, or -1 if not yet found */
+    private int endIndex = -1;
+
+    /** Whether we have reached the end of the input */
+    private boolean atEOF;
+
+    /** The index of the next record to serve */
+    private int next;
+
+    /**
+     * Instantiates a new block reader for a header from an input.
+     *
+     * @param in the input, positioned at the start of the header.
+     */
+    HeaderBlockReader(ArrayDataInput in) {
+        this.in = in;
+        buf = new byte[FitsFactory.FITS_BLOCK_SIZE];
+    }
+
+    /**
+     * Instantiates a new reader that serves records from the fully buffered header of another reader, starting from
+     * the specified record.
+     *
+     * @param parent the reader, which has already buffered the entire header.
+     * @param from   the index of the first record to serve.
+     */
+    private HeaderBlockReader(HeaderBlockReader parent, int from) {
+        in = null;
+        buf = parent.buf;
+        size = parent.size;
+        endIndex = parent.endIndex;
+        atEOF = true;
+        next = from;
+    }
+
+    /**
+     * Returns the number of header records consumed so far.
+     *
+     * @return the number of 80-byte records that were returned by {@link #nextRecord()} (and not pushed back).
+     */
+    int getRecordsRead() {
+        return next;
+    }
+
+    /**
+     * Checks if the block containing the <code>END</code> record was complete, that is whether the header was properly
+     * padded to the end of the FITS block.
+     *
+     * @return <code>true</code> if the header was padded to a full FITS block, or <code>false</code> if the input ended
+     *             before.
+     */
+    boolean isPadded() {
+        return size % FitsFactory.FITS_BLOCK_SIZE == 0;
+    }
+
+    /**
+     * Reads the next block of the header into the buffer, or what is left of it before the end of the input. It also
+     * checks the newly read records for the <code>END</code> record.
+     *
+     * @throws IOException if there was an IO error reading the input.
+     */
+    private void readBlock() throws IOException {
+        if (size + FitsFactory.FITS_BLOCK_SIZE > buf.length) {
+            buf = Arrays.copyOf(buf, buf.length << 1);
+        }
+
+        int from = size;
+        int end = from + FitsFactory.FITS_BLOCK_SIZE;
+
+        try {
+            // Read as long as there is more available, even if it comes in a trickle...
+            while (size < end) {
+                int n = in.read(buf, size, end - size);
+                if (n < 0) {
+                    atEOF = true;
+                    break;
+                }
+                size += n;
+            }
+        } catch (EOFException e) {
+            // Just in case read throws EOFException instead of returning -1 by contract.
+            atEOF = true;
+        }
+
+        for (int i = from / RECORD_SIZE; (i + 1) * RECORD_SIZE <= size; i++) {
+            if (isKey(i, END.key())) {
+                endIndex = i;
+                break;
+            }
+        }
+    }
+
+    /**
+     * Reads the remainder of the header into the buffer, that is until (and including) the block that contains the
+     * <code>END</code> record, or until the end of the input, whichever comes first.
+     *
+     * @return             <code>true</code> if the <code>END</code> record was found, otherwise <code>false</code>.
+     *
+     * @throws IOException if there was an IO error reading the input.
+     */
+    boolean readAll() throws IOException {
+        while (endIndex < 0 && !atEOF) {
+            readBlock();
+        }
+        return endIndex >= 0;
+    }
+
+    /**
+     * Returns the number of records that remain to be served until and including the <code>END</code> record, which
+     * must have been read already.
+     *
+     * @return the number of records left to serve.
+     */
+    int getRemainingRecords() {
+        return endIndex + 1 - next;
+    }
+
+    /**
+     * Checks if a byte is one that is removed by {@link String#trim()}, i.e. a space or a control character.
+     *
+     * @param  b the byte
+     *
+     * @return   <code>true</code> if the byte is trimmed from the ends of keywords, otherwise <code>false</code>.
+     */
+    private static boolean isTrimmed(byte b) {
+        return b >= 0 && b <= ' ';
+    }
+
+    /**
+     * Checks if the keyword of the specified header record is a specific standard (non-HIERARCH) keyword, in the same
+     * way as the header card parser would interpret it, i.e. ignoring spaces and case, and taking only the characters
+     * before an '=' if it occurs within the first 8 characters.
+     *
+     * @param  i   the index of the header record
+     * @param  key the standard keyword (upper case, up to 8 characters)
+     *
+     * @return     <code>true</code> if the record has the specified keyword, otherwise <code>false</code>.
+     */
+    private boolean isKey(int i, String key) {
+        int from = i * RECORD_SIZE;
+        int to = from + HeaderCard.MAX_KEYWORD_LENGTH;
+
+        for (int k = from; k < to; k++) {
+            if (buf[k] == '=') {
+                to = k;
+                break;
+            }
+        }
+
+        // Trim the same way as String.trim() does
+        while (from < to && isTrimmed(buf[from])) {
+            from++;
+        }
+        while (to > from && isTrimmed(buf[to - 1])) {
+            to--;
+        }
+
+        if (to - from != key.length()) {
+            return false;
+        }
+
+        for (int k = 0; k < key.length(); k++) {
+            if (Character.toUpperCase((char) buf[from + k]) != key.charAt(k)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks if any of the remaining records, up to the <code>END</code> record, has the specified keyword. The header
+     * must have been read already.
+     *
+     * @param  key the standard keyword (upper case, up to 8 characters)
+     *
+     * @return     <code>true</code> if any of the remaining header records has the specified keyword.
+     *
+     * @see        #readAll()
+     */
+    boolean containsKey(String key) {
+        for (int i = next; i < endIndex; i++) {
+            if (isKey(i, key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String nextRecord() throws IOException, TruncatedFileException {
+        int end = (next + 1) * RECORD_SIZE;
+
+        while (size < end && !atEOF && (endIndex < 0 || next <= endIndex)) {
+            readBlock();
+        }
+
+        if (size < end) {
+            if (size <= next * RECORD_SIZE) {
+                // Nothing left to read.
+                throw new EOFException();
+            }
+            // Got an incomplete header card...
+            throw new TruncatedFileException("Got only " + (size - next * RECORD_SIZE) + " of " + RECORD_SIZE
+                    + " bytes expected for a header card");
+        }
+
+        return AsciiFuncs.asciiString(buf, next++ * RECORD_SIZE, RECORD_SIZE);
+    }
+
+    @Override
+    public byte[] lastRawRecord() {
+        int from = (next - 1) * RECORD_SIZE;
+        return Arrays.copyOfRange(buf, from, from + RECORD_SIZE);
+    }
+
+    @Override
+    public void pushBack() {
+        next--;
+    }
+
+    /**
+     * Parses header cards from the records of this reader, starting at its current position, until the parse position
+     * reaches the specified record index.
+     *
+     * @param  to                     the record index before which to stop parsing new cards. The last card parsed
+     *                                    may extend beyond it, if it continues in <code>CONTINUE</code> records.
+     *
+     * @return                        the cards parsed.
+     *
+     * @throws TruncatedFileException if the header is truncated
+     * @throws IOException            if there was an error parsing the records.
+     */
+    private List<HeaderCard> parseTo(int to) throws TruncatedFileException, IOException {
+        ArrayList<HeaderCard> cards = new ArrayList<>();
+        while (next < to) {
+            cards.add(new HeaderCard(this));
+        }
+        return cards;
+    }
+
+    /**
+     * Parses all remaining header cards, including the <code>END</code> card, using up to the specified number of
+     * threads. The header must have been read fully before calling this method. The records are split into contiguous
+     * ranges, which start with records other than <code>CONTINUE</code>, so that no card spans more than one range.
+     * The ranges are then parsed in the worker threads of {@link FitsFactory#threadPool()}, using the current
+     * {@link FitsFactory} settings of the calling thread. The calling thread also parses any ranges that the workers did
+     * not get around to yet, so this call does not depend on the availability of worker threads.
+     *
+     * @param  threads                the maximum number of threads to use.
+     *
+     * @return                        the header cards parsed, in the order they appear in the header.
+     *
+     * @throws TruncatedFileException if the header is truncated
+     * @throws IOException            if there was an error parsing the records.
+     *
+     * @see                           #readAll()
+     */
+    List<HeaderCard> parseParallel(int threads) throws TruncatedFileException, IOException {
+        int from = next;
+        int to = endIndex + 1;
+        int n = Math.max(1, Math.min(threads, (to - from) / MIN_RECORDS_PER_THREAD));
+
+        ParallelTasks<List<HeaderCard>> tasks = new ParallelTasks<>(FitsFactory.threadPool(), "parsing header");
+
+        for (int k = 1; k <= n; k++) {
+            int end = (k == n) ? to : from + (int) ((long) (to - from) * k / n);
+
+            // Do not split cards that are continued into CONTINUE records
+            while (end < to && isKey(end, CONTINUE.key())) {
+                end++;
+            }
+
+            if (end > from) {
+                final HeaderBlockReader range = new HeaderBlockReader(this, from);
+                final int stop = end;
+                tasks.add(FitsFactory.withCurrentSettings(() -> range.parseTo(stop)));
+                from = end;
+            }
+        }
+
+        ArrayList<HeaderCard> cards = new ArrayList<>(to - next);
+
+        for (int k = 0; k < tasks.size(); k++) {
+            cards.addAll(tasks.get(k));
+        }
+
+        next = to;
+        return cards;
+    }
+}
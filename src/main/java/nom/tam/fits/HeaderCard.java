@@ -116,6 +116,36 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
 
     private IFitsHeader standardKey;
 
+    /**
+     * The raw 80-byte header record from which this card was read lazily, as long as the card is unmodified, or else
+     * <code>null</code>.
+     *
+     * @since 1.21
+     */
+    private byte[] rawImage;
+
+    /**
+     * Whether the value and comment of the card are yet to be parsed from the {@link #rawImage}.
+     *
+     * @since 1.21
+     */
+    private boolean deferred;
+
+    /**
+     * Whether header repairs were allowed at the time the card was read lazily, which we will apply when parsing the
+     * value and comment.
+     *
+     * @since 1.21
+     */
+    private boolean allowRepairs;
+
+    /**
+     * The number of times the card was modified.
+     *
+     * @since 1.21
+     */
+    private int modCount;
+
     /**
      * The Java class associated to the value
      *
@@ -148,6 +178,89 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
 
     private static ValueCheck valueCheck = DEFAULT_VALUE_CHECK_POLICY;
 
+    /**
+     * A sequential source of 80-character header records, from which header cards are parsed.
+     *
+     * @author Attila Kovacs
+     *
+     * @since  1.21
+     */
+    interface RecordSource {
+
+        /**
+         * Returns the next header record.
+         *
+         * @return                        the next 80-character header record.
+         *
+         * @throws EOFException           if there are no more records.
+         * @throws TruncatedFileException if there was not a complete record available in the input.
+         * @throws IOException            if there was an IO error.
+         */
+        String nextRecord() throws IOException, TruncatedFileException;
+
+        /**
+         * Returns the raw bytes of the header record that was last returned by {@link #nextRecord()}.
+         *
+         * @return the 80-byte header record, which the caller may keep.
+         */
+        byte[] lastRawRecord();
+
+        /**
+         * Checks if records may be pushed back, so that the last record read is returned again by the next call to
+         * {@link #nextRecord()}.
+         *
+         * @return <code>true</code> if {@link #pushBack()} is supported, otherwise <code>false</code>.
+         */
+        default boolean markSupported() {
+            return true;
+        }
+
+        /**
+         * Pushes back the last record read, so that it is returned again by the next call to {@link #nextRecord()}.
+         *
+         * @throws IOException if the record could not be pushed back.
+         */
+        void pushBack() throws IOException;
+    }
+
+    /**
+     * Header records read one at a time from an input stream.
+     */
+    @SuppressWarnings("deprecation")
+    private static final class StreamRecords implements RecordSource {
+        private final HeaderCardCountingArrayDataInput dis;
+
+        private byte[] last;
+
+        private StreamRecords(HeaderCardCountingArrayDataInput dis) {
+            this.dis = dis;
+        }
+
+        @Override
+        public String nextRecord() throws IOException, TruncatedFileException {
+            if (dis.markSupported()) {
+                dis.mark();
+            }
+            last = readOneRawHeaderLine(dis);
+            return AsciiFuncs.asciiString(last);
+        }
+
+        @Override
+        public byte[] lastRawRecord() {
+            return last;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return dis.markSupported();
+        }
+
+        @Override
+        public void pushBack() throws IOException {
+            dis.reset();
+        }
+    }
+
     /** Private constructor for an empty card, used by other constructors. */
     private HeaderCard() {
     }
@@ -195,13 +308,35 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
     @Deprecated
     public HeaderCard(HeaderCardCountingArrayDataInput dis)
             throws UnclosedQuoteException, TruncatedFileException, IOException {
+        this(new StreamRecords(dis));
+    }
+
+    /**
+     * Creates a new header card from the next one or more header records of a source. If long string support is not
+     * enabled, then a new card is created from the next record. When long string support is enabled, cunsecutive
+     * records starting with [<code>CONTINUE </code>] after the first line will be aggregated into a single new card.
+     *
+     * @param  in                     the source of header records
+     *
+     * @throws UnclosedQuoteException if the line contained an unclosed single quote.
+     * @throws TruncatedFileException if we reached the end of file unexpectedly before fully parsing an 80-character
+     *                                    line.
+     * @throws IOException            if there was some IO issue.
+     *
+     * @since                         1.21
+     */
+    HeaderCard(RecordSource in) throws UnclosedQuoteException, TruncatedFileException, IOException {
         this();
         key = null;
         value = null;
         comment = null;
         type = null;
 
-        String card = readOneHeaderLine(dis);
+        String card = in.nextRecord();
+
+        if (FitsFactory.isLazyHeaderCards() && setLazy(card, in)) {
+            return;
+        }
 
         HeaderCardParser parsed = new HeaderCardParser(card);
 
@@ -211,7 +346,7 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
 
         if (FitsFactory.isLongStringsEnabled() && parsed.isString() && parsed.getValue().endsWith("&")) {
             // Potentially a multi-record long string card...
-            parseLongStringCard(dis, parsed);
+            parseLongStringCard(in, parsed);
         } else {
             value = parsed.getValue();
             type = parsed.getInferredType();
@@ -596,6 +731,89 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
         value = aValue;
     }
 
+    /**
+     * Sets up this card for lazy parsing from the specified raw header record, if possible. Only the keyword is parsed
+     * here, while the value and comment are parsed when first needed. HIERARCH-style cards and cards that may be
+     * continued by long string <code>CONTINUE</code> records cannot be lazy, because their parsing depends on the
+     * current settings or the records that follow.
+     *
+     * @param  card the header record as a string
+     * @param  in   the source from which the record was just read, and which provides the raw bytes of the record.
+     *
+     * @return      <code>true</code> if the card was set up for lazy parsing, or <code>false</code> if it needs to be
+     *                  parsed fully.
+     *
+     * @see         FitsFactory#setLazyHeaderCards(boolean)
+     */
+    private boolean setLazy(String card, RecordSource in) {
+        if (card.startsWith(NonStandard.HIERARCH.key())) {
+            return false;
+        }
+        if (FitsFactory.isLongStringsEnabled() && card.indexOf('&') >= 0) {
+            return false;
+        }
+
+        allowRepairs = FitsFactory.isAllowHeaderRepairs();
+        key = new HeaderCardParser(card, true, allowRepairs).getKey();
+        rawImage = in.lastRawRecord();
+        deferred = true;
+        return true;
+    }
+
+    /**
+     * Parses the value and comment of a lazily read card, if it has not been done yet.
+     *
+     * @throws UnclosedQuoteException if the record has a string value with a missing end quote, and header repairs
+     *                                    were not allowed when the card was read.
+     */
+    private synchronized void parseDeferred() throws UnclosedQuoteException {
+        if (!deferred) {
+            return;
+        }
+        HeaderCardParser parsed = new HeaderCardParser(AsciiFuncs.asciiString(rawImage), false, allowRepairs);
+        value = parsed.getValue();
+        type = parsed.getInferredType();
+        comment = parsed.getTrimmedComment();
+        deferred = false;
+    }
+
+    /**
+     * Prepares for modifying the card, by parsing its deferred components (if any) and discarding its raw header
+     * record, which no longer represents the card after the modification.
+     */
+    private synchronized void prepareModify() {
+        parseDeferred();
+        rawImage = null;
+        modCount++;
+    }
+
+    /**
+     * Returns the number of times this card was modified, e.g. to detect whether the card has changed since it was
+     * last inspected.
+     *
+     * @return the number of modifications to this card so far.
+     *
+     * @since  1.21
+     */
+    synchronized int getModCount() {
+        return modCount;
+    }
+
+    /**
+     * Returns the raw header record from which this card was read lazily, provided the card has not been modified
+     * since.
+     *
+     * @return the 80-byte header record as it was read, or <code>null</code> if the card was not read lazily, or if it
+     *             was modified since it was read. The returned array must not be modified.
+     *
+     * @since  1.21
+     *
+     * @see    FitsFactory#setLazyHeaderCards(boolean)
+     */
+    synchronized byte[] getRawImage() {
+        return rawImage;
+    }
+
     @Override
     protected HeaderCard clone() {
         try {
@@ -612,6 +830,9 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
      *             return more than one, provided support for long string is enabled.
      */
     public synchronized int cardSize() {
+        if (rawImage != null) {
+            return rawImage.length / FITS_HEADER_CARD_SIZE;
+        }
         if (FitsFactory.isLongStringsEnabled() && isStringValue() && value != null) {
             // this is very bad for performance but it is to difficult to
             // keep the cardSize and the toString compatible at all times
@@ -655,6 +876,7 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
      * @see    #getComment()
      */
     public final synchronized String getValue() {
+        parseDeferred();
         return value;
     }
 
@@ -667,6 +889,7 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
      * @see    #getValue()
      */
     public final synchronized String getComment() {
+        parseDeferred();
         return comment;
     }
 
@@ -682,6 +905,7 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
      */
     @Deprecated
     public final synchronized long getHexValue() throws NumberFormatException {
+        parseDeferred();
         if (value == null) {
             throw new NumberFormatException("Card has a null value");
         }
@@ -710,7 +934,7 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
      * @throws IllegalArgumentException if the specified Java type of not one that is supported for use in FITS headers.
      */
     public synchronized <T> T getValue(Class<T> asType, T defaultValue) throws IllegalArgumentException {
-
+        parseDeferred();
         if (value == null) {
             return defaultValue;
         }
@@ -770,6 +994,7 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
      * @see    #isCommentStyleCard()
      */
     public synchronized boolean isKeyValuePair() {
+        parseDeferred();
         return !isCommentStyleCard() && !(key.isEmpty() || value == null);
     }
 
@@ -783,6 +1008,7 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
      * @see    #valueType()
      */
     public synchronized boolean isStringValue() {
+        parseDeferred();
         if (type == null) {
             return false;
         }
@@ -802,6 +1028,7 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
      * @since  1.16
      */
     public synchronized boolean isDecimalType() {
+        parseDeferred();
         if (type == null) {
             return false;
         }
@@ -821,6 +1048,7 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
      * @since  1.16
      */
     public synchronized boolean isIntegerType() {
+        parseDeferred();
         if (type == null) {
             return false;
         }
@@ -839,6 +1067,7 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
      * @since  1.16
      */
     public final synchronized boolean isCommentStyleCard() {
+        parseDeferred();
         return (type == null);
     }
 
@@ -861,6 +1090,7 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
      * @param comment the new comment text.
      */
     public synchronized void setComment(String comment) {
+        prepareModify();
         this.comment = sanitize(comment);
     }
 
@@ -899,7 +1129,7 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
      * @see                          #setValue(Number)
      */
     public synchronized HeaderCard setValue(Number update, int decimals) throws NumberFormatException, LongValueException {
-
+        prepareModify();
         if (update instanceof Float || update instanceof Double || update instanceof BigDecimal
                 || update instanceof BigInteger) {
             checkValueType(IFitsHeader.VALUE.REAL);
@@ -967,6 +1197,7 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
      * @return                    the card itself
      */
     public synchronized HeaderCard setValue(Boolean update) throws LongValueException, ValueTypeException {
+        prepareModify();
         checkValueType(IFitsHeader.VALUE.LOGICAL);
 
         if (update == null) {
@@ -1020,6 +1251,7 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
      * @since                        1.16
      */
     public synchronized HeaderCard setValue(ComplexValue update, int decimals) throws LongValueException {
+        prepareModify();
         checkValueType(IFitsHeader.VALUE.COMPLEX);
 
         if (update == null) {
@@ -1064,6 +1296,7 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
      */
     @Deprecated
     public synchronized HeaderCard setHexValue(long update) throws LongValueException {
+        prepareModify();
         setUnquotedValue(Long.toHexString(update));
         type = (update == (int) update) ? Integer.class : Long.class;
         return this;
@@ -1085,6 +1318,7 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
      * @see                                   #validateChars(String)
      */
     public synchronized HeaderCard setValue(String update) throws IllegalArgumentException, LongStringsNotEnabledException {
+        prepareModify();
         checkValueType(IFitsHeader.VALUE.STRING);
 
         if (update == null) {
@@ -1143,6 +1377,9 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
      */
     protected synchronized String toString(final FitsSettings settings)
             throws LongValueException, LongStringsNotEnabledException, HierarchNotEnabledException {
+        if (rawImage != null) {
+            return AsciiFuncs.asciiString(rawImage);
+        }
         return new HeaderCardFormatter(settings).toString(this);
     }
 
@@ -1157,6 +1394,7 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
      * @see    #isDecimalType()
      */
     public synchronized Class<?> valueType() {
+        parseDeferred();
         return type;
     }
 
@@ -1181,14 +1419,13 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
      * Parses a continued long string value and comment for this card, which may occupy one or more consecutive
      * 80-character header records.
      *
-     * @param  dis                    the input stream from which to parse the value and comment fields of this card.
+     * @param  in                     the source from which to parse the value and comment fields of this card.
      * @param  next                   the parser to use for each 80-character record.
      *
      * @throws IOException            if there was an IO error reading the stream.
      * @throws TruncatedFileException if the stream endedc ubnexpectedly in the middle of an 80-character record.
      */
-    @SuppressWarnings("deprecation")
-    private synchronized void parseLongStringCard(HeaderCardCountingArrayDataInput dis, HeaderCardParser next)
+    private synchronized void parseLongStringCard(RecordSource in, HeaderCardParser next)
             throws IOException, TruncatedFileException {
 
         StringBuilder longValue = new StringBuilder();
@@ -1213,22 +1450,19 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
             // must end with '&' and the next card must be a CONTINUE card.
             // If so, remove the '&' from the value part, and parse in the next
             // card for the next iteration...
-            if (!dis.markSupported()) {
+            if (!in.markSupported()) {
                 throw new IOException("InputStream does not support mark/reset");
             }
 
-            // Peek at the next card.
-            dis.mark();
-
             try {
-                // Check if we should continue parsing this card...
-                next = new HeaderCardParser(readOneHeaderLine(dis));
+                // Peek at the next card, and check if we should continue parsing this card...
+                next = new HeaderCardParser(in.nextRecord());
                 if (valuePart.endsWith("&") && CONTINUE.key().equals(next.getKey())) {
                     // Remove '& from the value part...
                     valueEnd--;
                 } else {
                     // ok move the input stream one card back.
-                    dis.reset();
+                    in.pushBack();
                     // Clear the parser also.
                     next = null;
                 }
@@ -1286,6 +1520,7 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
      * @see    #spaceForValue()
      */
     private synchronized int getHeaderValueSize() {
+        parseDeferred();
         if (isStringValue() && FitsFactory.isLongStringsEnabled()) {
             return Integer.MAX_VALUE;
         }
@@ -1338,6 +1573,7 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
             LongStringsNotEnabledException, IllegalArgumentException {
 
         validateKey(newKey);
+        prepareModify();
         if (getHeaderValueSize() > spaceForValue(newKey)) {
             if (!isStringValue()) {
                 throw new LongValueException(spaceForValue(newKey), newKey + "= " + value);
@@ -1356,7 +1592,7 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
      * @return <code>true</code> if the card contains nothing but blank spaces.
      */
     public synchronized boolean isBlank() {
-        if (!isCommentStyleCard() || !key.isEmpty()) {
+        if (!key.isEmpty() || !isCommentStyleCard()) {
             return false;
         }
         if (comment == null) {
@@ -1743,12 +1979,12 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
      *
      * @param  in                     The input to read from
      *
-     * @return                        The raw, undigested header record as a string.
+     * @return                        The raw, undigested header record.
      *
      * @throws IOException            if already at the end of file.
      * @throws TruncatedFileException if there was not a complete record available in the input.
      */
-    private static String readRecord(InputReader in) throws IOException, TruncatedFileException {
+    private static byte[] readRawRecord(InputReader in) throws IOException, TruncatedFileException {
         byte[] buffer = new byte[FITS_HEADER_CARD_SIZE];
 
         int got = 0;
@@ -1777,27 +2013,26 @@ public class HeaderCard implements CursorValue<String>, Cloneable {
                     "Got only " + got + " of " + buffer.length + " bytes expected for a header card");
         }
 
-        return AsciiFuncs.asciiString(buffer);
+        return buffer;
     }
 
     /**
-     * Read exactly one complete fits header line from the input.
+     * Read exactly one complete fits header record from the input, as raw bytes.
      *
      * @param  dis                    the data input stream to read the line
      *
-     * @return                        a string of exactly 80 characters
-     *
-     * @throwa                        EOFException if already at the end of file.
+     * @return                        an array of exactly 80 bytes
      *
+     * @throws EOFException           if already at the end of file.
      * @throws TruncatedFileException if there was not a complete line available in the input.
      * @throws IOException            if the input stream could not be read
      */
     @SuppressWarnings({"resource", "deprecation"})
-    private static String readOneHeaderLine(HeaderCardCountingArrayDataInput dis)
+    private static byte[] readOneRawHeaderLine(HeaderCardCountingArrayDataInput dis)
             throws IOException, TruncatedFileException {
-        String s = readRecord(dis.in());
+        byte[] b = readRawRecord(dis.in());
         dis.cardRead();
-        return s;
+        return b;
     }
 
     /**
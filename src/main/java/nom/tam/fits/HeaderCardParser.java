@@ -109,6 +109,11 @@ class HeaderCardParser {
      */
     private int parsePos = 0;
 
+    /**
+     * Whether to repair missing end quotes, rather than throwing an exception.
+     */
+    private boolean allowRepairs;
+
     /**
      * Instantiates a new parser for a FITS header line.
      *
@@ -126,14 +131,39 @@ class HeaderCardParser {
      * @see                             FitsFactory#setAllowHeaderRepairs(boolean)
      */
     HeaderCardParser(String line) throws UnclosedQuoteException, IllegalArgumentException {
+        this(line, false, FitsFactory.isAllowHeaderRepairs());
+    }
+
+    /**
+     * Instantiates a new parser for a FITS header line, which parses either the keyword only, or the entire line.
+     *
+     * @param  line                     a line in the FITS header, normally exactly 80-characters wide (but need not
+     *                                      be).
+     * @param  keyOnly                  if <code>true</code> only the keyword is parsed, and the value and comment
+     *                                      will be <code>null</code>.
+     * @param  allowRepairs             whether to repair missing end quotes, rather than throwing an exception.
+     *
+     * @throws UnclosedQuoteException   if there is a missing end-quote and header repairs aren't allowed.
+     * @throws IllegalArgumentException if the record contained neither a key or a value.
+     *
+     * @see                             #HeaderCardParser(String)
+     * @see                             FitsFactory#setLazyHeaderCards(boolean)
+     *
+     * @since                           1.21
+     */
+    HeaderCardParser(String line, boolean keyOnly, boolean allowRepairs)
+            throws UnclosedQuoteException, IllegalArgumentException {
         this.line = line;
+        this.allowRepairs = allowRepairs;
         // TODO HeaderCard never calls this with a null argument, so the check below is dead code here...
         // if (line == null) {
         // throw new IllegalArgumentException("Cannot parse null string");
         // }
         parseKey();
-        parseValue();
-        parseComment();
+        if (!keyOnly) {
+            parseValue();
+            parseComment();
+        }
     }
 
     /**
@@ -499,7 +529,7 @@ class HeaderCardParser {
         }
 
         // String with missing end quote
-        if (!FitsFactory.isAllowHeaderRepairs()) {
+        if (!allowRepairs) {
             throw new UnclosedQuoteException(line);
         }
         LOG.warning("[" + sanitize(key) + "] Ignored missing end quote (value parsed to end of record).");
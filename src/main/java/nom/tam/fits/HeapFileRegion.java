@@ -0,0 +1,360 @@
+package nom.tam.fits;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import nom.tam.util.ArrayDataOutput;
+import nom.tam.util.ByteArrayIO;
+import nom.tam.util.FitsIO;
+import nom.tam.util.RandomAccess;
+import nom.tam.util.ReadWriteAccess;
+
+/**
+ * Heap storage that is a view of the heap region of a binary table in a random-accessible file, for accessing heaps
+ * that are too large to load into memory (including heaps over 2 GB). The file region is accessed via positional reads
+ * through a moving window, and is never modified directly. Instead, modifications are copy-on-write: the affected pages
+ * of the region are copied into memory when first modified, and data added beyond the end of the region is kept in
+ * memory also, until the heap is written out.
+ *
+ * @author Attila Kovacs
+ *
+ * @since  1.21
+ *
+ * @see    FitsHeap
+ */
+final class HeapFileRegion implements ReadWriteAccess {
+
+    /** (bytes) The size of the pages that are copied into memory when modified */
+    static final int PAGE_SIZE = 0x10000;
+
+    /** (bytes) The size of the window through which we read the file region */
+    private static final int WINDOW_SIZE = 0x100000;
+
+    /** The file that contains the heap */
+    private final RandomAccess file;
+
+    /** The file position at which the heap begins */
+    private long start;
+
+    /** (bytes) The size of the heap region in the file */
+    private final long regionSize;
+
+    /** The pages of the region that were modified, by page index */
+    private final Map<Long, byte[]> pages = new HashMap<>();
+
+    /** Data added beyond the end of the file region */
+    private final ByteArrayIO tail = new ByteArrayIO(PAGE_SIZE);
+
+    /** The read window buffer */
+    private byte[] window;
+
+    /** The heap offset of the read window */
+    private long windowStart = -1;
+
+    /** The number of valid bytes in the read window */
+    private int windowLength;
+
+    /** The current read/write position in the heap */
+    private long pos;
+
+    /**
+     * Creates a new view of a heap region in a file.
+     *
+     * @param file  the file that contains the heap
+     * @param start the file position at which the heap begins
+     * @param size  (bytes) the size of the heap region in the file.
+     */
+    HeapFileRegion(RandomAccess file, long start, long size) {
+        this.file = file;
+        this.start = start;
+        regionSize = size;
+    }
+
+    /**
+     * Returns an independent copy of this heap. The copy is a view of the same file region, with its own copy of the
+     * modifications made so far.
+     *
+     * @return a new view of the same region with the same modifications.
+     */
+    HeapFileRegion copy() {
+        HeapFileRegion copy = new HeapFileRegion(file, start, regionSize);
+        for (Map.Entry<Long, byte[]> e : pages.entrySet()) {
+            copy.pages.put(e.getKey(), e.getValue().clone());
+        }
+        copy.tail.setLength((int) tail.length());
+        System.arraycopy(tail.getBuffer(), 0, copy.tail.getBuffer(), 0, (int) tail.length());
+        return copy;
+    }
+
+    /**
+     * Updates the location of the heap region after the content of the file was moved, e.g. by editing the file in
+     * place. The modified pages, and the data added beyond the end of the region, are retained.
+     *
+     * @param f     the file whose content was moved. It has no effect if it is not the file of this region.
+     * @param delta the number of bytes by which the content was moved towards the end of the file (or towards the
+     *                  beginning if negative).
+     */
+    void moveFileOffset(RandomAccess f, long delta) {
+        if (f == file) {
+            start += delta;
+            windowStart = -1;
+        }
+    }
+
+    /**
+     * Checks if the heap was modified since it was created.
+     *
+     * @return <code>true</code> if parts of the file region were modified or data was added beyond its end, otherwise
+     *             <code>false</code>.
+     */
+    boolean isModified() {
+        return !pages.isEmpty() || tail.length() > 0;
+    }
+
+    @Override
+    public long position() {
+        return pos;
+    }
+
+    @Override
+    public void position(long n) throws IOException {
+        if (n < 0) {
+            throw new EOFException("Negative heap position: " + n);
+        }
+        pos = n;
+    }
+
+    @Override
+    public long length() {
+        return regionSize + tail.length();
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) < 0 ? -1 : b[0] & FitsIO.BYTE_MASK;
+    }
+
+    @Override
+    public int read(byte[] b, int from, int len) throws IOException {
+        if (len <= 0) {
+            return 0;
+        }
+        if (pos >= length()) {
+            return -1;
+        }
+
+        int got = 0;
+
+        while (got < len && pos < regionSize) {
+            long page = pos / PAGE_SIZE;
+            int off = (int) (pos % PAGE_SIZE);
+            int n = (int) Math.min(len - got, Math.min(PAGE_SIZE - off, regionSize - pos));
+
+            byte[] p = pages.get(page);
+            if (p != null) {
+                System.arraycopy(p, off, b, from + got, n);
+            } else {
+                n = readWindow(b, from + got, n);
+            }
+
+            pos += n;
+            got += n;
+        }
+
+        if (got < len && pos >= regionSize) {
+            tail.position(pos - regionSize);
+            int n = tail.read(b, from + got, len - got);
+            if (n > 0) {
+                pos += n;
+                got += n;
+            }
+        }
+
+        return got;
+    }
+
+    /**
+     * Reads bytes from the file region at the current position (without advancing it), through the read window.
+     *
+     * @param  b           the destination buffer
+     * @param  from        the index of the first byte to read into
+     * @param  len         the maximum number of bytes to read
+     *
+     * @return             the number of bytes read, which may be fewer than requested if the window ends before.
+     *
+     * @throws IOException if the file could not be read.
+     */
+    private int readWindow(byte[] b, int from, int len) throws IOException {
+        if (windowStart < 0 || pos < windowStart || pos >= windowStart + windowLength) {
+            if (window == null) {
+                window = new byte[WINDOW_SIZE];
+            }
+            windowStart = pos - pos % WINDOW_SIZE;
+            windowLength = (int) Math.min(WINDOW_SIZE, regionSize - windowStart);
+            try {
+                file.readFullyAt(start + windowStart, window, 0, windowLength);
+            } catch (IOException e) {
+                windowStart = -1;
+                throw e;
+            }
+        }
+
+        int off = (int) (pos - windowStart);
+        int n = Math.min(len, windowLength - off);
+        System.arraycopy(window, off, b, from, n);
+        return n;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int from, int len) throws IOException {
+        while (len > 0 && pos < regionSize) {
+            long page = pos / PAGE_SIZE;
+            int off = (int) (pos % PAGE_SIZE);
+            int n = (int) Math.min(len, Math.min(PAGE_SIZE - off, regionSize - pos));
+
+            System.arraycopy(b, from, getPage(page), off, n);
+
+            pos += n;
+            from += n;
+            len -= n;
+        }
+
+        if (len > 0) {
+            if (pos - regionSize + len > Integer.MAX_VALUE) {
+                throw new IOException("Heap additions exceed 2 GB");
+            }
+            tail.position(pos - regionSize);
+            tail.write(b, from, len);
+            pos += len;
+        }
+    }
+
+    /**
+     * Returns the in-memory copy of a page of the file region, copying it from the file first, as necessary.
+     *
+     * @param  page        the page index
+     *
+     * @return             the in-memory copy of the page
+     *
+     * @throws IOException if the page could not be read from the file.
+     */
+    private byte[] getPage(long page) throws IOException {
+        byte[] p = pages.get(page);
+        if (p == null) {
+            long from = page * PAGE_SIZE;
+            p = new byte[(int) Math.min(PAGE_SIZE, regionSize - from)];
+            file.readFullyAt(start + from, p, 0, p.length);
+            pages.put(page, p);
+        }
+        return p;
+    }
+
+    /**
+     * Writes the entire heap to an output.
+     *
+     * @param  out         the output
+     *
+     * @throws IOException if there was an error reading the file region, or writing to the output.
+     */
+    void writeTo(ArrayDataOutput out) throws IOException {
+        byte[] buf = new byte[PAGE_SIZE];
+
+        for (long from = 0; from < regionSize; from += PAGE_SIZE) {
+            int n = (int) Math.min(PAGE_SIZE, regionSize - from);
+            byte[] p = pages.get(from / PAGE_SIZE);
+            if (p == null) {
+                file.readFullyAt(start + from, buf, 0, n);
+                p = buf;
+            }
+            out.write(p, 0, n);
+        }
+
+        out.write(tail.getBuffer(), 0, (int) tail.length());
+    }
+
+    /**
+     * Writes the heap to a position in a file. If it is the same file region that this heap is a view of, then only the
+     * modified pages, and the data added beyond the end of the region, are written, after which the modified pages are
+     * discarded from memory. Otherwise the entire heap is written.
+     *
+     * @param  f           the file to write to
+     * @param  at          the file position at which the heap should begin
+     *
+     * @return             the number of bytes written
+     *
+     * @throws IOException if there was an error reading the file region, or writing to the file.
+     */
+    @SuppressWarnings("resource")
+    long writeAt(RandomAccess f, long at) throws IOException {
+        ArrayDataOutput out = (ArrayDataOutput) f;
+
+        if (f != file || at != start) {
+            f.position(at);
+            writeTo(out);
+            return length();
+        }
+
+        long written = 0;
+
+        // Write modified pages in file order, so we write sequentially.
+        for (Map.Entry<Long, byte[]> e : new TreeMap<>(pages).entrySet()) {
+            f.position(start + e.getKey() * PAGE_SIZE);
+            out.write(e.getValue());
+            written += e.getValue().length;
+        }
+
+        if (tail.length() > 0) {
+            f.position(start + regionSize);
+            out.write(tail.getBuffer(), 0, (int) tail.length());
+            written += tail.length();
+        }
+
+        out.flush();
+
+        // The file region is now up to date, so we no longer need the modified pages (but the window may be stale).
+        pages.clear();
+        windowStart = -1;
+
+        return written;
+    }
+}
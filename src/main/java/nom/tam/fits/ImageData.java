@@ -32,6 +32,7 @@ package nom.tam.fits;
  */
 
 import java.io.IOException;
+import java.lang.reflect.Array;
 import java.nio.Buffer;
 import java.util.Arrays;
 
@@ -126,6 +127,9 @@ public class ImageData extends Data {
     /** The image tiler associated with this image. */
     private StandardImageTiler tiler;
 
+    /** The (flattened) pixel ranges modified in memory since the image was read or was last re-written */
+    private final ModifiedRanges modifiedPixels = new ModifiedRanges();
+
     /**
      * Create the equivalent of a null data element.
      */
@@ -188,6 +192,27 @@ public class ImageData extends Data {
         return dataArray;
     }
 
+    @Override
+    void moveFileOffset(long delta) {
+        super.moveFileOffset(delta);
+        if (tiler != null && isDeferred()) {
+            // The tiler reads from a fixed file offset, so we need a new one
+            tiler = new ImageDataTiler(getRandomAccessInput(), getFileOffset(), dataDescription);
+        }
+    }
+
+    @Override
+    synchronized boolean unload() {
+        if (dataArray == null || isPinned() || getRandomAccessInput() == null || !modifiedPixels.isEmpty()) {
+            return false;
+        }
+        dataArray = null;
+        // The tiler will read from the file again, which may have moved since the image was loaded
+        tiler = new ImageDataTiler(getRandomAccessInput(), getFileOffset(), dataDescription);
+        setCacheEntry(null);
+        return true;
+    }
+
     /**
      * Returns the class that can be used to divide this image into tiles that may be processed separately (and in
      * parallel).
@@ -213,6 +238,7 @@ public class ImageData extends Data {
             array = iterator.next();
         }
         tiler = new ImageDataTiler(null, 0, dataDescription);
+        modifiedPixels.add(0, byteSize / ElementType.forClass(getType()).size());
     }
 
     @SuppressWarnings({"resource", "deprecation"})
@@ -223,12 +249,11 @@ public class ImageData extends Data {
             return;
         }
 
-        if (o != getRandomAccessInput()) {
-            ensureData();
-        }
+        // A local reference, which remains valid even if the image is discarded from memory meanwhile
+        Object data = (o == getRandomAccessInput()) ? dataArray : getData();
 
         try {
-            o.writeArray(dataArray);
+            o.writeArray(data);
         } catch (IOException e) {
             throw new FitsException("IO Error on image write" + e);
         }
@@ -236,6 +261,273 @@ public class ImageData extends Data {
         FitsUtil.pad(o, getTrueSize());
     }
 
+    @Override
+    public void rewrite() throws FitsException {
+        super.rewrite();
+        modifiedPixels.clear();
+    }
+
+    /**
+     * Writes back to the file only the pixels that were modified in memory via {@link #setTile(int[], int[], Object)}
+     * or were explicitly marked as modified via {@link #markModified(int[], int[])}, since the image was read or was
+     * last re-written. Each contiguous run of modified pixels is written to its original location in the file, and
+     * nothing else is touched. Note, that changes made by other means, such as by editing the array returned by
+     * {@link #getData()} directly, are not tracked, unless they are marked via {@link #markModified(int[], int[])}.
+     *
+     * @return               the number of bytes written to the file
+     *
+     * @throws FitsException if the image is not associated to a file, or if there was an error writing to it.
+     *
+     * @see                  #setTile(int[], int[], Object)
+     * @see                  #markModified(int[], int[])
+     * @see                  #rewrite()
+     *
+     * @since                1.21
+     */
+    @SuppressWarnings("resource")
+    @Override
+    public synchronized long rewriteModified() throws FitsException {
+        if (isDeferred()) {
+            // Tiles were written to the file directly, so there is nothing to do...
+            modifiedPixels.clear();
+            return 0L;
+        }
+
+        if (!rewriteable()) {
+            throw new FitsException("Illegal attempt to rewrite data");
+        }
+
+        if (!getType().isPrimitive()) {
+            return super.rewriteModified();
+        }
+
+        ArrayDataOutput out = (ArrayDataOutput) getRandomAccessInput();
+        int rowLen = dataDescription.dims[dataDescription.dims.length - 1];
+        int size = ElementType.forClass(getType()).size();
+        long written = 0;
+
+        try {
+            for (long[] range : modifiedPixels.getRanges()) {
+                getRandomAccessInput().position(getFileOffset() + range[0] * size);
+                for (long i = range[0]; i < range[1];) {
+                    int col = (int) (i % rowLen);
+                    int len = (int) Math.min(range[1] - i, rowLen - col);
+                    writeSegment(out, getRowArray(i / rowLen), col, len);
+                    i += len;
+                }
+                written += (range[1] - range[0]) * size;
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new FitsException("Error rewriting modified image data: " + e.getMessage(), e);
+        }
+
+        modifiedPixels.clear();
+        return written;
+    }
+
+    /**
+     * Sets the pixels in a rectangular region of the image. If the image is in deferred mode, the tile is written
+     * directly into the file, at the locations of the affected pixels, without loading the image into memory.
+     * Otherwise, the image is updated in memory, and the region is marked as modified, so that a subsequent call to
+     * {@link #rewriteModified()} will write back only the modified pixels to the file.
+     *
+     * @param  corners                  the indices of the first pixel of the region, in Java index order.
+     * @param  lengths                  the size of the region along each dimension, in Java index order.
+     * @param  tile                     a 1D array of the image's storage type (see {@link #getType()}), containing the
+     *                                      pixels of the region in row-major order, i.e. in the same layout as
+     *                                      returned by {@link ImageTiler#getTile(int[], int[])}.
+     *
+     * @throws IllegalArgumentException if the region is not inside the image, or if the tile is not an array of the
+     *                                      image's storage type with the number of elements in the region.
+     * @throws FitsException            if the image data is not available, or if there was an error writing the
+     *                                      tile to the file in deferred mode.
+     *
+     * @see                             #markModified(int[], int[])
+     * @see                             #rewriteModified()
+     * @see                             ImageTiler#getTile(int[], int[])
+     *
+     * @since                           1.21
+     */
+    @SuppressWarnings("resource")
+    public synchronized void setTile(int[] corners, int[] lengths, Object tile)
+            throws IllegalArgumentException, FitsException {
+        long n = checkRegion(corners, lengths);
+
+        if (tile == null || tile.getClass().getComponentType() != getType()) {
+            throw new IllegalArgumentException("Tile must be a " + getType().getName() + "[] array");
+        }
+        if (Array.getLength(tile) != n) {
+            throw new IllegalArgumentException("Tile size mismatch: " + Array.getLength(tile) + ", expected " + n);
+        }
+
+        boolean isDeferred = isDeferred();
+        if (!isDeferred && dataArray == null) {
+            throw new FitsException("No image data to modify");
+        }
+
+        int[] dims = dataDescription.dims;
+        int last = dims.length - 1;
+        int len = lengths[last];
+        int size = ElementType.forClass(getType()).size();
+        int[] pos = Arrays.copyOf(corners, corners.length);
+
+        try {
+            for (int from = 0; from < n; from += len) {
+                long at = StandardImageTiler.getOffset(dims, pos);
+                if (isDeferred) {
+                    getRandomAccessInput().position(getFileOffset() + at * size);
+                    writeSegment((ArrayDataOutput) getRandomAccessInput(), tile, from, len);
+                } else {
+                    System.arraycopy(tile, from, getRowArray(pos), pos[last], len);
+                    modifiedPixels.add(at, at + len);
+                }
+                nextRow(pos, corners, lengths);
+            }
+
+            if (isDeferred) {
+                ((ArrayDataOutput) getRandomAccessInput()).flush();
+            }
+        } catch (IOException e) {
+            throw new FitsException("Error writing image tile: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Marks a rectangular region of the image as modified, so that its pixels will be written back to the file by the
+     * next call to {@link #rewriteModified()}. You should call this after modifying the pixels of an image in memory
+     * directly (e.g. by editing the array returned by {@link #getData()}), if you want to write back only the modified
+     * parts of the image.
+     *
+     * @param  corners                  the indices of the first pixel of the region, in Java index order.
+     * @param  lengths                  the size of the region along each dimension, in Java index order.
+     *
+     * @throws IllegalArgumentException if the region is not inside the image
+     *
+     * @see                             #setTile(int[], int[], Object)
+     * @see                             #rewriteModified()
+     *
+     * @since                           1.21
+     */
+    public synchronized void markModified(int[] corners, int[] lengths) throws IllegalArgumentException {
+        long n = checkRegion(corners, lengths);
+
+        int[] dims = dataDescription.dims;
+        int len = lengths[dims.length - 1];
+        int[] pos = Arrays.copyOf(corners, corners.length);
+
+        for (long from = 0; from < n; from += len) {
+            long at = StandardImageTiler.getOffset(dims, pos);
+            modifiedPixels.add(at, at + len);
+            nextRow(pos, corners, lengths);
+        }
+    }
+
+    /**
+     * Checks that a rectangular region is inside the image.
+     *
+     * @param  corners                  the indices of the first pixel of the region, in Java index order.
+     * @param  lengths                  the size of the region along each dimension, in Java index order.
+     *
+     * @return                          the number of pixels in the region
+     *
+     * @throws IllegalArgumentException if the region is not inside the image
+     */
+    private long checkRegion(int[] corners, int[] lengths) throws IllegalArgumentException {
+        int[] dims = dataDescription.dims;
+
+        if (dims.length == 0) {
+            throw new IllegalArgumentException("Image has no pixels");
+        }
+        if (corners.length != dims.length || lengths.length != dims.length) {
+            throw new IllegalArgumentException("Region dimension mismatch: expected " + dims.length);
+        }
+
+        long n = 1;
+        for (int i = 0; i < dims.length; i++) {
+            if (corners[i] < 0 || lengths[i] < 0 || corners[i] + (long) lengths[i] > dims[i]) {
+                throw new IllegalArgumentException("Region outside of image along dimension " + i);
+            }
+            n *= lengths[i];
+        }
+        return n;
+    }
+
+    /**
+     * Advances a position to the start of the next row within a rectangular region of the image, in row-major order.
+     * The last (fastest) index is not changed, since rows are processed in whole.
+     *
+     * @param pos     the current position, which is updated in place
+     * @param corners the indices of the first pixel of the region
+     * @param lengths the size of the region along each dimension
+     */
+    private static void nextRow(int[] pos, int[] corners, int[] lengths) {
+        for (int i = pos.length - 2; i >= 0; i--) {
+            if (++pos[i] < corners[i] + lengths[i]) {
+                return;
+            }
+            pos[i] = corners[i];
+        }
+    }
+
+    /**
+     * Returns the 1D primitive array in memory that holds the image row containing the specified pixel position.
+     *
+     * @param  pos the pixel position (only the leading indices are used)
+     *
+     * @return     the primitive array containing the image row.
+     */
+    private Object getRowArray(int[] pos) {
+        Object a = dataArray;
+        for (int i = 0; i < pos.length - 1; i++) {
+            a = ((Object[]) a)[pos[i]];
+        }
+        return a;
+    }
+
+    /**
+     * Returns the 1D primitive array in memory that holds the image row with the specified flattened index.
+     *
+     * @param  row the flattened index of the row, that is the flattened pixel index divided by the row length.
+     *
+     * @return     the primitive array containing the image row.
+     */
+    private Object getRowArray(long row) {
+        int[] dims = dataDescription.dims;
+        int[] pos = new int[dims.length];
+        for (int i = dims.length - 2; i >= 0; i--) {
+            pos[i] = (int) (row % dims[i]);
+            row /= dims[i];
+        }
+        return getRowArray(pos);
+    }
+
+    /**
+     * Writes a contiguous segment of a 1D primitive array to an output.
+     *
+     * @param  out         the output
+     * @param  array       the 1D primitive array
+     * @param  from        the index of the first element to write
+     * @param  len         the number of elements to write
+     *
+     * @throws IOException if there was an error writing to the output
+     */
+    private static void writeSegment(ArrayDataOutput out, Object array, int from, int len) throws IOException {
+        if (array instanceof byte[]) {
+            out.write((byte[]) array, from, len);
+        } else if (array instanceof short[]) {
+            out.write((short[]) array, from, len);
+        } else if (array instanceof int[]) {
+            out.write((int[]) array, from, len);
+        } else if (array instanceof long[]) {
+            out.write((long[]) array, from, len);
+        } else if (array instanceof float[]) {
+            out.write((float[]) array, from, len);
+        } else {
+            out.write((double[]) array, from, len);
+        }
+    }
+
     @SuppressWarnings("deprecation")
     @Override
     protected void fillHeader(Header head) throws FitsException {
@@ -555,8 +847,7 @@ public class ImageData extends Data {
             return this;
         }
 
-        ensureData();
-
+        Object data = getData();
         ImageData typed = null;
 
         boolean toComplex = ComplexValue.class.isAssignableFrom(type) && !ComplexValue.class.isAssignableFrom(getType());
@@ -566,7 +857,7 @@ public class ImageData extends Data {
 
             // 1. Convert to intermediate floating-point class as necessary (with quantization if any)
             Class<?> numType = ComplexValue.Float.class.isAssignableFrom(type) ? float.class : double.class;
-            Object[] t = (Object[]) ArrayFuncs.convertArray(dataArray, numType, getQuantizer());
+            Object[] t = (Object[]) ArrayFuncs.convertArray(data, numType, getQuantizer());
             ImageData f = new ImageData(ArrayFuncs.decimalsToComplex(t[0], t[1]));
             f.dataDescription.quant = getQuantizer();
 
@@ -574,7 +865,7 @@ public class ImageData extends Data {
             return f.convertTo(type);
         }
 
-        typed = new ImageData(ArrayFuncs.convertArray(dataArray, type, getQuantizer()));
+        typed = new ImageData(ArrayFuncs.convertArray(data, type, getQuantizer()));
         typed.dataDescription.quant = getQuantizer();
         return typed;
     }
@@ -0,0 +1,124 @@
+package nom.tam.fits;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps track of the parts of a data object that were modified in memory, as a set of disjoint ranges of element
+ * indices (such as table rows, or the flattened indices of image pixels). Overlapping or adjacent ranges are merged as
+ * they are added, so that the modified content can be written back to the file in as few contiguous blocks as
+ * possible.
+ *
+ * @author Attila Kovacs
+ *
+ * @since  1.21
+ *
+ * @see    Data#rewriteModified()
+ */
+final class ModifiedRanges {
+
+    /** The disjoint ranges recorded, as a map from their first index to their exclusive end index */
+    private final TreeMap<Long, Long> ranges = new TreeMap<>();
+
+    /**
+     * Marks a range of element indices as modified.
+     *
+     * @param from the index of the first modified element
+     * @param to   the exclusive end index of the modified range. Nothing is marked if it is not above
+     *                 <code>from</code>.
+     */
+    synchronized void add(long from, long to) {
+        if (to <= from) {
+            return;
+        }
+
+        Map.Entry<Long, Long> prior = ranges.floorEntry(from);
+        if (prior != null && prior.getValue() >= from) {
+            from = prior.getKey();
+            to = Math.max(to, prior.getValue());
+        }
+
+        for (Iterator<Long> i = ranges.subMap(from, true, to, true).values().iterator(); i.hasNext();) {
+            to = Math.max(to, i.next());
+            i.remove();
+        }
+
+        ranges.put(from, to);
+    }
+
+    /**
+     * Checks if no modifications were recorded.
+     *
+     * @return <code>true</code> if no range was marked as modified since creation or the last {@link #clear()},
+     *             otherwise <code>false</code>.
+     */
+    synchronized boolean isEmpty() {
+        return ranges.isEmpty();
+    }
+
+    /**
+     * Discards all recorded modifications, e.g. after the modified content was written back to the file.
+     */
+    synchronized void clear() {
+        ranges.clear();
+    }
+
+    /**
+     * Returns the disjoint modified ranges, in ascending order.
+     *
+     * @return a new list of <code>{ from, to }</code> pairs, each containing the first index and the exclusive end
+     *             index of a modified range.
+     */
+    synchronized List<long[]> getRanges() {
+        ArrayList<long[]> list = new ArrayList<>(ranges.size());
+        for (Map.Entry<Long, Long> e : ranges.entrySet()) {
+            list.add(new long[] {e.getKey(), e.getValue()});
+        }
+        return list;
+    }
+
+    /**
+     * Returns an independent copy of the modifications recorded so far.
+     *
+     * @return a new instance with the same modified ranges as this one.
+     */
+    synchronized ModifiedRanges copy() {
+        ModifiedRanges copy = new ModifiedRanges();
+        copy.ranges.putAll(ranges);
+        return copy;
+    }
+}
@@ -0,0 +1,129 @@
+package nom.tam.fits;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+
+import nom.tam.util.ArrayDataInput;
+import nom.tam.util.ColumnTable;
+import nom.tam.util.ParallelTasks;
+import nom.tam.util.RandomAccess;
+
+/**
+ * Loads the data of binary tables from random-accessible inputs in parallel. The rows of the table are divided into
+ * contiguous ranges, and each range is read by a separate worker via positional reads, decoding the column data
+ * directly into the shared column arrays of the table at the appropriate row offsets. The heap is loaded concurrently
+ * with the rows.
+ *
+ * @author Attila Kovacs
+ *
+ * @since  1.21
+ *
+ * @see    BinaryTable#setParallelLoad(int, ExecutorService)
+ */
+final class ParallelTableLoader {
+
+    /** (bytes) The minimum size of row ranges that we assign to individual workers */
+    static final int MIN_RANGE_SIZE = 0x10000;
+
+    /** The maximum number of workers to use */
+    private final int workers;
+
+    /** The executor that runs the workers, or <code>null</code> to use {@link FitsFactory#threadPool()} */
+    private final ExecutorService executor;
+
+    /**
+     * Instantiates a new parallel loader for binary tables.
+     *
+     * @param  workers                  the maximum number of parallel workers to use.
+     * @param  executor                 the executor that runs the workers, or <code>null</code> to use
+     *                                      {@link FitsFactory#threadPool()}.
+     *
+     * @throws IllegalArgumentException if the number of workers is less than 1.
+     */
+    ParallelTableLoader(int workers, ExecutorService executor) throws IllegalArgumentException {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Invalid number of workers: " + workers);
+        }
+        this.workers = workers;
+        this.executor = executor;
+    }
+
+    /**
+     * Loads the rows of a table, and optionally its heap, from a random-accessible file.
+     *
+     * @param  table         the table to populate, already sized for the rows to read
+     * @param  file          the file containing the table data
+     * @param  offset        the file position at which the table data (its first row) begins
+     * @param  rowLen        (bytes) the size of a table row in the file
+     * @param  heap          the heap to populate, or <code>null</code> if the heap need not be loaded.
+     * @param  heapOffset    the file position at which the heap begins
+     *
+     * @throws IOException   if there was an error reading from the file
+     * @throws FitsException if the heap could not be loaded
+     */
+    void load(ColumnTable<?> table, RandomAccess file, long offset, int rowLen, FitsHeap heap, long heapOffset)
+            throws IOException, FitsException {
+        ParallelTasks<Void> tasks = new ParallelTasks<>(executor == null ? FitsFactory.threadPool() : executor,
+                "loading table data");
+        int nRows = table.getNRows();
+
+        if (nRows > 0 && rowLen > 0) {
+            long size = (long) nRows * rowLen;
+            int n = (int) Math.max(1, Math.min(Math.min(workers, nRows), size / MIN_RANGE_SIZE));
+            int chunk = (nRows + n - 1) / n;
+
+            for (int from = 0; from < nRows; from += chunk) {
+                final int start = from;
+                final int end = Math.min(nRows, from + chunk);
+                tasks.add(FitsFactory.withCurrentSettings(() -> {
+                    try (ArrayDataInput in = file.inputAt(offset + (long) start * rowLen)) {
+                        table.read(in, start, end);
+                    }
+                    return null;
+                }));
+            }
+        }
+
+        if (heap != null) {
+            tasks.add(FitsFactory.withCurrentSettings(() -> {
+                heap.readAt(file, heapOffset);
+                return null;
+            }));
+        }
+
+        for (int k = 0; k < tasks.size(); k++) {
+            tasks.get(k);
+        }
+    }
+}
@@ -0,0 +1,438 @@
+package nom.tam.fits;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import nom.tam.fits.BinaryTable.ColumnDesc;
+import nom.tam.util.Quantizer;
+import nom.tam.util.RandomAccess;
+
+/**
+ * <p>
+ * A reusable cursor for scanning the rows of a binary table, without allocating memory for the values it returns.
+ * Unlike {@link BinaryTable#getDouble(int, int)} and similar methods, which box or wrap every value they return, the
+ * cursor reads values directly from the table in memory, or else from the file in blocks of rows if the table is in
+ * deferred mode. It is thus suitable for scanning very large tables for scalar values, e.g.:
+ * </p>
+ *
+ * <pre>
+ *   RowCursor cursor = table.rowCursor();
+ *   while (cursor.advance()) {
+ *       double flux = cursor.getDouble(fluxCol);
+ *       ...
+ *   }
+ * </pre>
+ * <p>
+ * Numerical values are converted the same way as by {@link BinaryTable#getDouble(int, int)} and
+ * {@link BinaryTable#getLong(int, int)}, including the quantization of the column (<code>TSCAL</code><i>n</i> and
+ * <code>TZERO</code><i>n</i>), if any. Cursors are not thread-safe, and they reflect the state of the table at the
+ * time they were created. You should create a new cursor after adding or removing rows or columns, or after a deferred
+ * table was loaded or modified.
+ * </p>
+ *
+ * @author Attila Kovacs
+ *
+ * @since  1.21
+ *
+ * @see    BinaryTable#rowCursor()
+ */
+public final class RowCursor {
+
+    /** The table we are scanning */
+    private final BinaryTable tab;
+
+    /** (bytes) The size of a table row in the file */
+    private final int rowLen;
+
+    /** The number of rows in the table */
+    private final int nRow;
+
+    /** The current row index */
+    private int row = -1;
+
+    /** The column data in the table in memory, or <code>null</code> if reading from the file */
+    private final Object[] data;
+
+    /** Buffer for blocks of rows read from the file, or <code>null</code> if the table is in memory */
+    private final byte[] block;
+
+    /** Big-endian view of the row buffer */
+    private final ByteBuffer buf;
+
+    /** The index of the first row in the row buffer */
+    private int blockStart;
+
+    /** The number of rows in the row buffer */
+    private int blockRows;
+
+    /**
+     * Creates a new cursor, positioned before the first row of the table.
+     *
+     * @param  tab           the table to scan
+     *
+     * @throws FitsException if the table data could not be loaded from a non random-accessible input.
+     */
+    RowCursor(BinaryTable tab) throws FitsException {
+        this.tab = tab;
+        rowLen = tab.getRowBytes();
+        nRow = tab.getNRows();
+        data = tab.getWrappedColumns();
+
+        if (data == null) {
+            int n = rowLen > 0 ? Math.max(1, BinaryTable.READ_BLOCK_SIZE / rowLen) : 0;
+            block = new byte[Math.min(n, nRow) * rowLen];
+            buf = ByteBuffer.wrap(block);
+        } else {
+            block = null;
+            buf = null;
+        }
+    }
+
+    /**
+     * Moves the cursor to the next row in the table.
+     *
+     * @return               <code>true</code> if the cursor is now on a valid row, or <code>false</code> if there are
+     *                           no more rows in the table.
+     *
+     * @throws FitsException if the next block of rows could not be read from the file.
+     */
+    public boolean advance() throws FitsException {
+        if (row + 1 >= nRow) {
+            row = nRow;
+            return false;
+        }
+
+        row++;
+
+        if (block != null && row >= blockStart + blockRows) {
+            readBlock();
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the zero-based index of the row the cursor is currently on.
+     *
+     * @return the current row index, which is -1 before the first call to {@link #advance()}, or the number of rows in
+     *             the table after the last row.
+     */
+    public int getRow() {
+        return row;
+    }
+
+    /**
+     * Reads the next block of rows, starting from the current row, from the file.
+     *
+     * @throws FitsException if there was an error reading from the file.
+     */
+    @SuppressWarnings("resource")
+    private void readBlock() throws FitsException {
+        blockStart = row;
+        blockRows = rowLen > 0 ? Math.min(block.length / rowLen, nRow - row) : nRow - row;
+
+        RandomAccess in = tab.getRandomAccessInput();
+
+        try {
+            in.readFullyAt(tab.getFileOffset() + (long) row * rowLen, block, 0, blockRows * rowLen);
+        } catch (IOException e) {
+            throw new FitsException("Error reading from input: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns the descriptor of a scalar numerical or logical column.
+     *
+     * @param  col                   the zero-based column index
+     *
+     * @return                       the column descriptor
+     *
+     * @throws IllegalStateException if the cursor is not on a valid row.
+     * @throws ClassCastException    if the column is not a scalar numerical or logical column.
+     */
+    private ColumnDesc getScalarColumn(int col) throws IllegalStateException, ClassCastException {
+        if (row < 0 || row >= nRow) {
+            throw new IllegalStateException("Cursor is not on a table row");
+        }
+
+        ColumnDesc c = tab.getDescriptor(col);
+        if (c.isVariableSize() || c.isString() || c.isComplex() || c.getTableBaseCount() != 1) {
+            throw new ClassCastException("Not a scalar numerical or logical column: " + col);
+        }
+        return c;
+    }
+
+    /**
+     * Returns the byte position of a column entry in the current row in the row buffer.
+     *
+     * @param  c the column descriptor
+     *
+     * @return   the position of the entry in the row buffer.
+     */
+    private int position(ColumnDesc c) {
+        return (row - blockStart) * rowLen + c.getOffset();
+    }
+
+    /**
+     * Returns the stored value of a logical or bit column as a number.
+     *
+     * @param  c   the column descriptor
+     * @param  col the zero-based column index
+     *
+     * @return     1 if <code>true</code>, 0 if <code>false</code>, or -1 if undefined.
+     */
+    private int getLogicalValue(ColumnDesc c, int col) {
+        byte b = data == null ? block[position(c)] : ((byte[]) data[col])[row];
+
+        if (c.isBits()) {
+            // The first bit is the sign bit of the byte.
+            return b < 0 ? 1 : 0;
+        }
+        if (b == 'T') {
+            return 1;
+        }
+        if (b == 'F') {
+            return 0;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the stored value in an integer column.
+     *
+     * @param  c   the column descriptor
+     * @param  col the zero-based column index
+     *
+     * @return     the stored integer value.
+     */
+    private long getIntegerValue(ColumnDesc c, int col) {
+        Class<?> base = c.getFitsBase();
+
+        if (data == null) {
+            int pos = position(c);
+            if (base == byte.class) {
+                return block[pos];
+            }
+            if (base == short.class) {
+                return buf.getShort(pos);
+            }
+            if (base == int.class) {
+                return buf.getInt(pos);
+            }
+            return buf.getLong(pos);
+        }
+
+        if (base == byte.class) {
+            return ((byte[]) data[col])[row];
+        }
+        if (base == short.class) {
+            return ((short[]) data[col])[row];
+        }
+        if (base == int.class) {
+            return ((int[]) data[col])[row];
+        }
+        return ((long[]) data[col])[row];
+    }
+
+    /**
+     * Returns the stored value in a floating-point column.
+     *
+     * @param  c   the column descriptor
+     * @param  col the zero-based column index
+     *
+     * @return     the stored floating-point value.
+     */
+    private double getDecimalValue(ColumnDesc c, int col) {
+        if (data == null) {
+            return c.getFitsBase() == float.class ? buf.getFloat(position(c)) : buf.getDouble(position(c));
+        }
+        return c.getFitsBase() == float.class ? ((float[]) data[col])[row] : ((double[]) data[col])[row];
+    }
+
+    /**
+     * Checks if a column stores floating-point values.
+     *
+     * @param  c the column descriptor
+     *
+     * @return   <code>true</code> if the column stores <code>float</code> or <code>double</code> values, otherwise
+     *               <code>false</code>.
+     */
+    private boolean isDecimal(ColumnDesc c) {
+        return c.getFitsBase() == float.class || c.getFitsBase() == double.class;
+    }
+
+    /**
+     * Returns the decimal value of a scalar entry in the current row. Integer entries are converted via the column's
+     * quantizer, if any, while logical entries return 1.0 for <code>true</code>, 0.0 for <code>false</code>, or NaN
+     * if undefined.
+     *
+     * @param  col                   the zero-based column index
+     *
+     * @return                       the decimal value of the entry
+     *
+     * @throws IllegalStateException if the cursor is not on a valid row.
+     * @throws ClassCastException    if the column is not a scalar numerical or logical column.
+     *
+     * @see                          BinaryTable#getDouble(int, int)
+     */
+    public double getDouble(int col) throws IllegalStateException, ClassCastException {
+        ColumnDesc c = getScalarColumn(col);
+
+        if (c.isLogical() || c.isBits()) {
+            int l = getLogicalValue(c, col);
+            return l < 0 ? Double.NaN : l;
+        }
+
+        if (isDecimal(c)) {
+            return getDecimalValue(c, col);
+        }
+
+        long l = getIntegerValue(c, col);
+        Quantizer q = c.getQuantizer();
+        return q == null ? l : q.toDouble(l);
+    }
+
+    /**
+     * Returns the single-precision decimal value of a scalar entry in the current row. It is the same as
+     * {@link #getDouble(int)}, cast to a <code>float</code>.
+     *
+     * @param  col                   the zero-based column index
+     *
+     * @return                       the decimal value of the entry
+     *
+     * @throws IllegalStateException if the cursor is not on a valid row.
+     * @throws ClassCastException    if the column is not a scalar numerical or logical column.
+     */
+    public float getFloat(int col) throws IllegalStateException, ClassCastException {
+        return (float) getDouble(col);
+    }
+
+    /**
+     * Returns the 64-bit integer value of a scalar entry in the current row. Floating-point entries are converted via
+     * the column's quantizer, if any, while logical entries return 1 for <code>true</code>, or 0 for
+     * <code>false</code>.
+     *
+     * @param  col                   the zero-based column index
+     *
+     * @return                       the integer value of the entry
+     *
+     * @throws IllegalStateException if the cursor is not on a valid row, or if the entry is undefined, such as a NaN
+     *                                   value without a quantizer, or an undefined logical value.
+     * @throws ClassCastException    if the column is not a scalar numerical or logical column.
+     *
+     * @see                          BinaryTable#getLong(int, int)
+     */
+    public long getLong(int col) throws IllegalStateException, ClassCastException {
+        ColumnDesc c = getScalarColumn(col);
+
+        if (c.isLogical() || c.isBits()) {
+            int l = getLogicalValue(c, col);
+            if (l < 0) {
+                throw new IllegalStateException("Undefined logical value");
+            }
+            return l;
+        }
+
+        if (!isDecimal(c)) {
+            return getIntegerValue(c, col);
+        }
+
+        double d = getDecimalValue(c, col);
+        Quantizer q = c.getQuantizer();
+        if (q != null) {
+            return q.toLong(d);
+        }
+        if (Double.isNaN(d)) {
+            throw new IllegalStateException("Cannot convert NaN to long without Quantizer");
+        }
+        return (long) d;
+    }
+
+    /**
+     * Returns the integer value of a scalar entry in the current row. It is the same as {@link #getLong(int)}, cast to
+     * an <code>int</code>.
+     *
+     * @param  col                   the zero-based column index
+     *
+     * @return                       the integer value of the entry
+     *
+     * @throws IllegalStateException if the cursor is not on a valid row, or if the entry is undefined.
+     * @throws ClassCastException    if the column is not a scalar numerical or logical column.
+     */
+    public int getInt(int col) throws IllegalStateException, ClassCastException {
+        return (int) getLong(col);
+    }
+
+    /**
+     * Copies the bytes of a fixed-width string (or byte) entry in the current row into the supplied buffer, up to the
+     * buffer's capacity. The number of bytes returned excludes trailing spaces and null characters, such that the
+     * string value is contained in the first bytes of the buffer up to the returned length.
+     *
+     * @param  col                   the zero-based column index
+     * @param  dst                   the buffer to copy the entry's bytes into.
+     *
+     * @return                       the number of meaningful bytes copied into the buffer.
+     *
+     * @throws IllegalStateException if the cursor is not on a valid row.
+     * @throws ClassCastException    if the column does not contain fixed-width strings or bytes.
+     */
+    public int getBytes(int col, byte[] dst) throws IllegalStateException, ClassCastException {
+        if (row < 0 || row >= nRow) {
+            throw new IllegalStateException("Cursor is not on a table row");
+        }
+
+        ColumnDesc c = tab.getDescriptor(col);
+        if (c.isVariableSize() || c.getFitsBase() != byte.class || c.isLogical() || c.isBits()) {
+            throw new ClassCastException("Not a fixed-width string or byte column: " + col);
+        }
+
+        int n = Math.min(c.getEntryBytes(), dst.length);
+
+        if (data == null) {
+            System.arraycopy(block, position(c), dst, 0, n);
+        } else if (c.getTableBaseCount() == 1) {
+            if (n > 0) {
+                dst[0] = ((byte[]) data[col])[row];
+            }
+        } else {
+            System.arraycopy(((byte[][]) data[col])[row], 0, dst, 0, n);
+        }
+
+        while (n > 0 && (dst[n - 1] == ' ' || dst[n - 1] == 0)) {
+            n--;
+        }
+
+        return n;
+    }
+}
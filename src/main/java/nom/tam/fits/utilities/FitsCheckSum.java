@@ -31,15 +31,10 @@ package nom.tam.fits.utilities;
  * #L%
  */
 
-import java.io.DataInputStream;
-import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.nio.IntBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 
@@ -47,10 +42,12 @@ import nom.tam.fits.BasicHDU;
 import nom.tam.fits.Data;
 import nom.tam.fits.FitsElement;
 import nom.tam.fits.FitsException;
+import nom.tam.fits.FitsFactory;
 import nom.tam.fits.Header;
 import nom.tam.fits.HeaderCard;
 import nom.tam.util.FitsIO;
 import nom.tam.util.FitsOutputStream;
+import nom.tam.util.ParallelTasks;
 import nom.tam.util.RandomAccess;
 
 import static nom.tam.fits.header.Checksum.CHECKSUM;
@@ -89,12 +86,17 @@ public final class FitsCheckSum {
     private static final int CHECKSUM_BLOCK_MASK = CHECKSUM_BLOCK_SIZE - 1;
     private static final int CHECKSUM_STRING_SIZE = 16;
     private static final int SHIFT_2_BYTES = 16;
+    private static final int SHIFT_4_BYTES = 32;
+    private static final int SHIFT_6_BYTES = 48;
     private static final int MASK_2_BYTES = 0xffff;
     private static final int MASK_4_BYTES = 0xffffffff;
     private static final int MASK_BYTE = 0xff;
     private static final int ASCII_ZERO = '0';
     private static final int BUFFER_SIZE = 0x8000; // 32 kB
 
+    /** The minimum size of file regions checksummed by one thread, when checksumming in parallel */
+    private static final long MIN_PARALLEL_CHUNK = 0x400000; // 4 MB
+
     private static final int[] SELECT_BYTE = {24, 16, 8, 0};
     private static final String EXCLUDE = ":;<=>?@[\\]^_`";
     private static final String CHECKSUM_DEFAULT = "0000000000000000";
@@ -106,24 +108,151 @@ public final class FitsCheckSum {
     }
 
     /**
-     * Internal class for accumulating FITS checksums.
+     * Accumulates a FITS checksum incrementally, from data that is supplied in arbitrary pieces. The data is summed as
+     * a sequence of 32-bit big-endian words, which need not be aligned to the pieces supplied, that is, a word may be
+     * split between consecutive calls to {@link #update(byte[], int, int)}. A trailing incomplete word is summed as if
+     * padded with zeroes, consistent with the zero padding of FITS data segments.
+     *
+     * @since 1.21
      */
-    private static class Checksum {
+    public static final class Checksum {
         private long h, l;
 
-        Checksum(long prior) {
+        /** Bytes of an incomplete word, in the most significant position */
+        private int partial;
+
+        /** The number of bytes in the incomplete word */
+        private int partialBytes;
+
+        /**
+         * Instantiates a new checksum accumulator starting from zero.
+         */
+        public Checksum() {
+            this(0);
+        }
+
+        /**
+         * Instantiates a new checksum accumulator, which continues from a prior checksum value.
+         *
+         * @param prior the prior checksum value, as a 32-bit unsigned value, such as returned by
+         *                  {@link #getChecksum()}.
+         */
+        public Checksum(long prior) {
             h = (prior >>> SHIFT_2_BYTES) & MASK_2_BYTES;
             l = prior & MASK_2_BYTES;
         }
 
-        void add(int i) {
+        private void add(int i) {
             h += i >>> SHIFT_2_BYTES;
             l += i & MASK_2_BYTES;
         }
 
-        long getChecksum() {
-            long hi = h & MASK_4_BYTES; // as unsigned 32-bit integer
-            long lo = l & MASK_4_BYTES;
+        /**
+         * Adds a sequence of bytes to the checksum.
+         *
+         * @param b    the array containing the bytes
+         * @param from the index of the first byte to add
+         * @param len  the number of bytes to add.
+         */
+        public void update(byte[] b, int from, int len) {
+            // Complete a prior partial word first...
+            for (; partialBytes != 0 && len > 0; len--) {
+                addPartial(b[from++]);
+            }
+
+            int words = len & ~CHECKSUM_BLOCK_MASK;
+            if (words > 0) {
+                addWords(ByteBuffer.wrap(b, from, words));
+                from += words;
+                len -= words;
+            }
+
+            for (; len > 0; len--) {
+                addPartial(b[from++]);
+            }
+        }
+
+        /**
+         * Adds the remaining bytes of a buffer to the checksum. The buffer's position is advanced to its limit. Heap,
+         * direct and memory-mapped buffers are all summed in place, without copying, regardless of the buffer's byte
+         * order.
+         *
+         * @param buf the buffer containing the bytes to add.
+         */
+        public void update(ByteBuffer buf) {
+            // Complete a prior partial word first...
+            while (partialBytes != 0 && buf.hasRemaining()) {
+                addPartial(buf.get());
+            }
+
+            int words = buf.remaining() & ~CHECKSUM_BLOCK_MASK;
+            if (words > 0) {
+                ByteBuffer b = buf.duplicate();
+                b.limit(b.position() + words);
+                addWords(b);
+                buf.position(b.position());
+            }
+
+            while (buf.hasRemaining()) {
+                addPartial(buf.get());
+            }
+        }
+
+        /**
+         * The word-at-a-time kernel. It adds the whole 32-bit words between the buffer's position and limit, reading
+         * them as big-endian longs (2 words at a time) through the buffer's absolute accessors, which the JIT compiles
+         * to plain (unaligned) loads for heap and direct buffers alike. The high and low 16-bit halves of the words are
+         * accumulated separately in 64-bit registers, whose carries are folded only when the checksum is retrieved.
+         * The buffer's position is advanced past the words summed.
+         *
+         * @param buf the buffer containing a whole number of 32-bit words between its position and limit.
+         */
+        private void addWords(ByteBuffer buf) {
+            ByteBuffer b = buf.order() == ByteOrder.BIG_ENDIAN ? buf : buf.duplicate().order(ByteOrder.BIG_ENDIAN);
+            int i = b.position();
+            final int end = b.limit();
+            long hi = 0, lo = 0;
+
+            // Two longs per iteration, with independent accumulators for better instruction-level parallelism.
+            long hi2 = 0, lo2 = 0;
+            for (; i + 2 * Long.BYTES <= end; i += 2 * Long.BYTES) {
+                long v = b.getLong(i);
+                long w = b.getLong(i + Long.BYTES);
+                hi += (v >>> SHIFT_6_BYTES) + ((v >>> SHIFT_2_BYTES) & MASK_2_BYTES);
+                lo += ((v >>> SHIFT_4_BYTES) & MASK_2_BYTES) + (v & MASK_2_BYTES);
+                hi2 += (w >>> SHIFT_6_BYTES) + ((w >>> SHIFT_2_BYTES) & MASK_2_BYTES);
+                lo2 += ((w >>> SHIFT_4_BYTES) & MASK_2_BYTES) + (w & MASK_2_BYTES);
+            }
+
+            for (; i < end; i += CHECKSUM_BLOCK_SIZE) {
+                int w = b.getInt(i);
+                hi += w >>> SHIFT_2_BYTES;
+                lo += w & MASK_2_BYTES;
+            }
+
+            h += hi + hi2;
+            l += lo + lo2;
+            buf.position(end);
+        }
+
+        private void addPartial(byte b) {
+            partial |= (b & MASK_BYTE) << SELECT_BYTE[partialBytes++];
+            if (partialBytes == CHECKSUM_BLOCK_SIZE) {
+                add(partial);
+                partial = 0;
+                partialBytes = 0;
+            }
+        }
+
+        /**
+         * Returns the checksum of the data accumulated so far. If the data ended with an incomplete 32-bit word, it
+         * is included as if padded with zeroes.
+         *
+         * @return the checksum as a 32-bit unsigned value.
+         */
+        public long getChecksum() {
+            long hi = (h + (partial >>> SHIFT_2_BYTES)) & MASK_4_BYTES; // as unsigned 32-bit integer
+            long lo = (l + (partial & MASK_2_BYTES)) & MASK_4_BYTES;
 
             for (;;) {
                 long hicarry = hi >>> SHIFT_2_BYTES;
@@ -139,28 +268,25 @@ public final class FitsCheckSum {
 
     }
 
-    private static class PipeWriter extends Thread {
-        private Exception exception;
-        private PipedOutputStream out;
-        private FitsElement data;
+    /**
+     * An output sink, which computes the checksum of the bytes written to it inline, as they are written, without
+     * storing them.
+     */
+    private static final class ChecksumSink extends OutputStream {
+        private final Checksum sum = new Checksum();
 
-        PipeWriter(FitsElement data, PipedInputStream in) throws IOException {
-            this.data = data;
-            out = new PipedOutputStream(in);
+        @Override
+        public void write(int b) {
+            sum.addPartial((byte) b);
         }
 
         @Override
-        public void run() {
-            exception = null;
-            try (FitsOutputStream fos = new FitsOutputStream(out)) {
-                data.write(fos);
-            } catch (Exception e) {
-                exception = e;
-            }
+        public void write(byte[] b, int off, int len) {
+            sum.update(b, off, len);
         }
 
-        public Exception getException() {
-            return exception;
+        long getChecksum() {
+            return sum.getChecksum();
         }
     }
 
@@ -214,54 +340,28 @@ public final class FitsCheckSum {
      * @see         #differenceOf(long, long)
      */
     public static long checksum(ByteBuffer data) {
-        Checksum sum = new Checksum(0);
         if (!(data.remaining() % CHECKSUM_BLOCK_SIZE == 0)) {
             throw new IllegalArgumentException("fits blocks must always be divisible by 4");
         }
         data.position(0);
-        data.order(ByteOrder.BIG_ENDIAN);
-        IntBuffer iData = data.asIntBuffer();
-        while (iData.hasRemaining()) {
-            sum.add(iData.get());
-        }
-        return sum.getChecksum();
-    }
-
-    private static long checksum(InputStream in) throws IOException {
         Checksum sum = new Checksum(0);
-        DataInputStream din = new DataInputStream(in);
-
-        for (;;) {
-            try {
-                sum.add(din.readInt());
-            } catch (EOFException e) {
-                break;
-            }
-        }
-
+        sum.update(data.duplicate());
         return sum.getChecksum();
     }
 
     private static long compute(final FitsElement data) throws FitsException {
-        try (PipedInputStream in = new PipedInputStream()) {
-            PipeWriter writer = new PipeWriter(data, in);
-            writer.start();
-
-            long sum = checksum(in);
-            in.close();
+        ChecksumSink sink = new ChecksumSink();
 
-            writer.join();
-            if (writer.getException() != null) {
-                throw writer.getException();
-            }
-
-            return sum;
+        try (FitsOutputStream out = new FitsOutputStream(sink)) {
+            data.write(out);
+            out.flush();
+        } catch (FitsException e) {
+            throw e;
         } catch (Exception e) {
-            if (e instanceof FitsException) {
-                throw (FitsException) e;
-            }
             throw new FitsException("Exception while checksumming FITS element: " + e.getMessage(), e);
         }
+
+        return sink.getChecksum();
     }
 
     /**
@@ -345,7 +445,9 @@ public final class FitsCheckSum {
 
     /**
      * Computes the checksum directly from a region of a random access file, by buffering moderately sized chunks from
-     * the file as necessary. The file may be very large, up to the full range of 64-bit addresses.
+     * the file as necessary. The file may be very large, up to the full range of 64-bit addresses. As of 1.21, large
+     * regions are split into chunks, which are checksummed in parallel (by {@link FitsFactory#threadPool()}) using
+     * positional reads, and the partial sums are then combined. The file pointer is not used or changed.
      *
      * @param  f           the random access file, from which to compute a checksum
      * @param  from        the starting position in the file, where to start computing the checksum from.
@@ -365,22 +467,54 @@ public final class FitsCheckSum {
             return 0L;
         }
 
-        int len = (int) Math.min(BUFFER_SIZE, size);
-        byte[] buf = new byte[len];
-        long oldpos = f.position();
-        f.position(from);
-        long sum = 0;
+        int n = (int) Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), size / MIN_PARALLEL_CHUNK));
+        if (n == 1) {
+            return checksumRegion(f, from, size);
+        }
+
+        // Split into chunks of whole 4-byte words, so the partial sums can be simply combined.
+        long chunk = (size / n + CHECKSUM_BLOCK_MASK) & ~(long) CHECKSUM_BLOCK_MASK;
+        ParallelTasks<Long> tasks = new ParallelTasks<>(FitsFactory.threadPool(), "computing checksum");
+
+        for (long start = from, end = from + size; start < end; start += chunk) {
+            final long pos = start;
+            final long len = Math.min(chunk, end - start);
+            tasks.add(() -> checksumRegion(f, pos, len));
+        }
+
+        long[] sums = new long[tasks.size()];
+
+        for (int k = 0; k < sums.length; k++) {
+            sums[k] = tasks.get(k);
+        }
+
+        return sumOf(sums);
+    }
+
+    /**
+     * Computes the checksum of a file region in the calling thread, using positional reads.
+     *
+     * @param  f           the random access file, from which to compute a checksum
+     * @param  from        the starting position in the file, where to start computing the checksum from.
+     * @param  size        the number of bytes in the file to include in the checksum calculation.
+     *
+     * @return             the checksum for the given range
+     *
+     * @throws IOException if there was a problem accessing the file during the computation.
+     */
+    private static long checksumRegion(RandomAccess f, long from, long size) throws IOException {
+        Checksum sum = new Checksum();
+        byte[] buf = new byte[(int) Math.min(BUFFER_SIZE, size)];
 
         while (size > 0) {
-            len = (int) Math.min(BUFFER_SIZE, size);
-            len = f.read(buf, 0, len);
-            sum = sumOf(sum, checksum(buf, 0, len));
+            int len = (int) Math.min(buf.length, size);
+            f.readFullyAt(from, buf, 0, len);
+            sum.update(buf, 0, len);
             from += len;
             size -= len;
         }
 
-        f.position(oldpos);
-        return sum;
+        return sum.getChecksum();
     }
 
     /**
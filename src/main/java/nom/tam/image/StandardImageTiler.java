@@ -35,8 +35,10 @@ import java.io.EOFException;
 
 import java.io.IOException;
 import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
+import nom.tam.util.ArrayDataInput;
 import nom.tam.util.ArrayDataOutput;
 import nom.tam.util.ArrayFuncs;
 import nom.tam.util.RandomAccess;
@@ -170,27 +172,34 @@ public abstract class StandardImageTiler implements ImageTiler {
         if (output instanceof ArrayDataOutput) {
             this.fillFileData((ArrayDataOutput) output, delta, segment, step);
         } else {
-            randomAccessFile.seek(fileOffset + delta);
-            int got = 0;
+            // Positional read, so we don't disturb the file pointer, and tiles may be read from the same file in
+            // parallel.
+            if (base == byte.class) {
+                randomAccessFile.readFullyAt(fileOffset + delta, (byte[]) output, outputOffset, segment);
+                return;
+            }
+
+            if (base != float.class && base != int.class && base != short.class && base != double.class
+                    && base != long.class) {
+                throw new IOException("Invalid type for tile array");
+            }
+
+            byte[] b = new byte[segment * ElementType.forClass(base).size()];
+            randomAccessFile.readFullyAt(fileOffset + delta, b, 0, b.length);
+
+            // FITS data are big-endian, as is the default for Java byte buffers
+            ByteBuffer buf = ByteBuffer.wrap(b);
 
             if (base == float.class) {
-                got = randomAccessFile.read((float[]) output, outputOffset, segment);
+                buf.asFloatBuffer().get((float[]) output, outputOffset, segment);
             } else if (base == int.class) {
-                got = randomAccessFile.read((int[]) output, outputOffset, segment);
+                buf.asIntBuffer().get((int[]) output, outputOffset, segment);
             } else if (base == short.class) {
-                got = randomAccessFile.read((short[]) output, outputOffset, segment);
+                buf.asShortBuffer().get((short[]) output, outputOffset, segment);
             } else if (base == double.class) {
-                got = randomAccessFile.read((double[]) output, outputOffset, segment);
-            } else if (base == byte.class) {
-                got = randomAccessFile.read((byte[]) output, outputOffset, segment);
-            } else if (base == long.class) {
-                got = randomAccessFile.read((long[]) output, outputOffset, segment);
+                buf.asDoubleBuffer().get((double[]) output, outputOffset, segment);
             } else {
-                throw new IOException("Invalid type for tile array");
-            }
-
-            if (got < 0) {
-                throw new EOFException();
+                buf.asLongBuffer().get((long[]) output, outputOffset, segment);
             }
         }
     }
@@ -229,31 +238,27 @@ public abstract class StandardImageTiler implements ImageTiler {
     protected void fillFileData(ArrayDataOutput output, long delta, int segment, int step) throws IOException {
         final int byteSize = ElementType.forClass(base).size();
 
-        // Subtract one from the step since when we read from a stream, an actual
-        // "step" only exists if it's greater
-        // than 1.
-        final int stepSize = (step - 1) * byteSize;
-        randomAccessFile.seek(fileOffset + delta);
-
-        // One value at a time
-        final byte[] buffer = new byte[byteSize];
-        long seekOffset = randomAccessFile.position();
-        int bytesRead = 0;
-
-        // This is the byte count that will be read.
-        final int expectedBytes = segment * byteSize;
-        while (bytesRead < expectedBytes) {
-            // Prepare for the next read by seeking to the next step
-            randomAccessFile.seek(seekOffset);
-            final int currReadByteCount = randomAccessFile.read(buffer, 0, buffer.length);
+        // Read the full span of the segment with positional reads, so we don't disturb the file pointer, and tiles may
+        // be read from the same file in parallel.
+        final byte[] buffer = new byte[segment * byteSize];
+        int got = 0;
+        while (got < buffer.length) {
+            int n = randomAccessFile.readAt(fileOffset + delta + got, buffer, got, buffer.length - got);
 
             // Stop if there is no more to read.
-            if (currReadByteCount < 0) {
+            if (n < 0) {
                 break;
             }
-            output.write(buffer, 0, currReadByteCount);
-            seekOffset = randomAccessFile.position() + stepSize;
-            bytesRead += currReadByteCount + stepSize;
+            got += n;
+        }
+
+        if (step == 1) {
+            output.write(buffer, 0, got);
+        } else {
+            // One value at a time
+            for (int i = 0; i < got; i += step * byteSize) {
+                output.write(buffer, i, Math.min(byteSize, got - i));
+            }
         }
 
         output.flush();
@@ -395,10 +400,6 @@ public abstract class StandardImageTiler implements ImageTiler {
         int segmentStep = steps[n - 1];
 
         System.arraycopy(corners, 0, posits, 0, n);
-        long currentOffset = 0;
-        if (data == null) {
-            currentOffset = randomAccessFile.getFilePointer();
-        }
 
         int outputOffset = 0;
 
@@ -456,9 +457,6 @@ public abstract class StandardImageTiler implements ImageTiler {
             }
 
         } while (incrementPosition(corners, posits, lengths, steps));
-        if (data == null) {
-            randomAccessFile.seek(currentOffset);
-        }
 
         if (isStreaming && hasNoOverlap) {
             throw new IOException("Sub-image not within image");
@@ -471,11 +469,12 @@ public abstract class StandardImageTiler implements ImageTiler {
         if (randomAccessFile == null) {
             throw new IOException("Attempt to read from null file");
         }
-        long currentOffset = randomAccessFile.getFilePointer();
         Object o = ArrayFuncs.newInstance(base, dims);
-        randomAccessFile.seek(fileOffset);
-        randomAccessFile.readImage(o);
-        randomAccessFile.seek(currentOffset);
+
+        // Read via an independent positional input, so we don't disturb the file pointer
+        try (ArrayDataInput in = randomAccessFile.inputAt(fileOffset)) {
+            in.readImage(o);
+        }
         return o;
     }
 
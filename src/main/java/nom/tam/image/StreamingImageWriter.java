@@ -0,0 +1,514 @@
+package nom.tam.image;
+
+/*-
+ * #%L
+ * nom.tam.fits
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ * 
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ * 
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import nom.tam.fits.FitsException;
+import nom.tam.fits.FitsUtil;
+import nom.tam.fits.Header;
+import nom.tam.fits.header.Bitpix;
+import nom.tam.fits.utilities.FitsCheckSum;
+import nom.tam.util.ArrayDataOutput;
+import nom.tam.util.RandomAccess;
+
+import static nom.tam.fits.header.Standard.NAXIS;
+import static nom.tam.fits.header.Standard.NAXISn;
+
+/**
+ * <p>
+ * Writes an image HDU to an output piece by piece, for producing images that are too large to hold in memory (such as
+ * 100+ GB mosaics), e.g. row by row, or plane by plane. The header is written when the writer is created, after which
+ * the image data may be supplied in arbitrary chunks of primitive arrays (of the type matching the header's
+ * <code>BITPIX</code>), or as raw big-endian bytes in a {@link ByteBuffer}. The writer keeps track of how many bytes are
+ * still owed against the image size declared in the header (by <code>BITPIX</code> and the <code>NAXIS</code>n
+ * values), and completes the last FITS block with padding when closed.
+ * </p>
+ * <p>
+ * The writer also keeps a running checksum of the data written. When writing to a random-accessible output, such as a
+ * {@link nom.tam.util.FitsFile}, it can also record the <code>DATASUM</code> and <code>CHECKSUM</code> keywords for the
+ * HDU without a second pass over the data: placeholder values are written with the header initially, which are then
+ * patched with the actual values when the writer is closed. For example:
+ * </p>
+ *
+ * <pre>
+ *   Header h = new Header();
+ *   h.setSimple(true);
+ *   h.setBitpix(Bitpix.FLOAT);
+ *   h.setNaxes(2);
+ *   h.setNaxis(1, 100000);
+ *   h.setNaxis(2, 100000);
+ *
+ *   try (FitsFile out = new FitsFile("mosaic.fits", "rw");
+ *           StreamingImageWriter image = new StreamingImageWriter(out, h, true)) {
+ *       float[] row = new float[100000];
+ *       for (int i = 0; i &lt; 100000; i++) {
+ *           // ... fill the row ...
+ *           image.write(row);
+ *       }
+ *   }
+ * </pre>
+ * <p>
+ * The writer does not close the underlying output, which remains positioned after the HDU (including padding), so
+ * further HDUs may be written after it.
+ * </p>
+ *
+ * @author Attila Kovacs
+ *
+ * @since  1.21
+ *
+ * @see    StreamingTileImageData
+ */
+public class StreamingImageWriter implements Closeable {
+
+    /** The size of the conversion buffer for primitive arrays */
+    private static final int BUFFER_SIZE = 0x10000;
+
+    private final ArrayDataOutput out;
+
+    private final Header header;
+
+    private final Bitpix bitpix;
+
+    private final boolean setChecksum;
+
+    private final long headerOffset;
+
+    private final long size;
+
+    private final FitsCheckSum.Checksum datasum = new FitsCheckSum.Checksum();
+
+    private final ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private long written;
+
+    private boolean isClosed;
+
+    /**
+     * Creates a new streaming image writer, and writes the image header to the output. The writer does not record
+     * checksums in the header.
+     *
+     * @param  out           the output, positioned where the HDU is to be written.
+     * @param  header        the header describing the image.
+     *
+     * @throws FitsException if the header does not describe a valid image, or could not be written.
+     * @throws IOException   if there was an I/O error writing to the output.
+     *
+     * @see                  #StreamingImageWriter(ArrayDataOutput, Header, boolean)
+     */
+    public StreamingImageWriter(ArrayDataOutput out, Header header) throws FitsException, IOException {
+        this(out, header, false);
+    }
+
+    /**
+     * Creates a new streaming image writer, and writes the image header to the output.
+     *
+     * @param  out                      the output, positioned where the HDU is to be written.
+     * @param  header                   the header describing the image.
+     * @param  setChecksum              whether to record the <code>DATASUM</code> and <code>CHECKSUM</code> keywords
+     *                                      in the header when the writer is closed. It requires an output that is
+     *                                      random-accessible, such as a {@link nom.tam.util.FitsFile}.
+     *
+     * @throws IllegalArgumentException if checksums were requested, but the output is not random-accessible.
+     * @throws FitsException            if the header does not describe a valid image, or could not be written.
+     * @throws IOException              if there was an I/O error writing to the output.
+     */
+    public StreamingImageWriter(ArrayDataOutput out, Header header, boolean setChecksum)
+            throws IllegalArgumentException, FitsException, IOException {
+        if (setChecksum && !(out instanceof RandomAccess)) {
+            throw new IllegalArgumentException("Cannot patch checksums into a non-random-accessible output");
+        }
+
+        this.out = out;
+        this.header = header;
+        this.setChecksum = setChecksum;
+
+        bitpix = Bitpix.fromHeader(header);
+
+        int naxis = header.getIntValue(NAXIS, 0);
+        long n = naxis > 0 ? 1 : 0;
+        for (int i = 1; i <= naxis; i++) {
+            int len = header.getIntValue(NAXISn.n(i), -1);
+            if (len < 0) {
+                throw new FitsException("Missing or invalid " + NAXISn.n(i).key() + " in image header");
+            }
+            n *= len;
+        }
+        size = n * bitpix.byteSize();
+
+        if (setChecksum) {
+            // Write placeholders, so the header will not change size when the actual values are set.
+            FitsCheckSum.setDatasum(header, 0L);
+        }
+
+        headerOffset = (out instanceof RandomAccess) ? ((RandomAccess) out).getFilePointer() : -1L;
+        header.write(out);
+    }
+
+    /**
+     * Returns the header of the image being written.
+     *
+     * @return the image header
+     */
+    public final Header getHeader() {
+        return header;
+    }
+
+    /**
+     * Returns the number of bytes of image data that are still owed against the image size declared by the header.
+     *
+     * @return the number of bytes still to be written before the image is complete.
+     */
+    public final long getRemaining() {
+        return size - written;
+    }
+
+    /**
+     * Returns the checksum of the image data written so far. Once all data has been written, it is the
+     * <code>DATASUM</code> of the HDU.
+     *
+     * @return the checksum of the data written so far, as a 32-bit unsigned value.
+     */
+    public final long getDatasum() {
+        return datasum.getChecksum();
+    }
+
+    private void checkType(Class<?> type) throws FitsException {
+        if (isClosed) {
+            throw new FitsException("Image writer was already closed");
+        }
+        if (type != null && type != bitpix.getPrimitiveType()) {
+            throw new FitsException("Cannot write " + type.getName() + " elements into a " + bitpix.getDescription()
+                    + " image (BITPIX = " + bitpix.getHeaderValue() + ")");
+        }
+    }
+
+    private void writeBytes(byte[] b, int from, int len) throws FitsException, IOException {
+        if (len > getRemaining()) {
+            throw new FitsException("Image data overflow: got " + len + " bytes, but only " + getRemaining()
+                    + " bytes remain in image");
+        }
+        out.write(b, from, len);
+        datasum.update(b, from, len);
+        written += len;
+    }
+
+    /**
+     * Writes the converted elements from the conversion buffer to the output.
+     */
+    private void flushBuffer(int len) throws FitsException, IOException {
+        writeBytes(buf.array(), 0, len);
+    }
+
+    private void checkLength(int count) throws FitsException {
+        if ((long) count * bitpix.byteSize() > getRemaining()) {
+            throw new FitsException("Image data overflow: got " + count + " elements, but only "
+                    + getRemaining() / bitpix.byteSize() + " remain in image");
+        }
+    }
+
+    /**
+     * Writes the next chunk of image data to the output, as big-endian raw bytes. The bytes remaining in the buffer
+     * are written, and the buffer's position is advanced to its limit. Since raw bytes are not checked for type,
+     * they can be used for images of any <code>BITPIX</code>.
+     *
+     * @param  data          the buffer containing the raw bytes of the next chunk of the image data.
+     *
+     * @throws FitsException if the writer was closed, or if the data would exceed the declared size of the image.
+     * @throws IOException   if there was an I/O error writing to the output.
+     */
+    public void write(ByteBuffer data) throws FitsException, IOException {
+        checkType(null);
+
+        if (data.hasArray()) {
+            writeBytes(data.array(), data.arrayOffset() + data.position(), data.remaining());
+            data.position(data.limit());
+            return;
+        }
+
+        if (data.remaining() > getRemaining()) {
+            throw new FitsException("Image data overflow: got " + data.remaining() + " bytes, but only "
+                    + getRemaining() + " bytes remain in image");
+        }
+
+        while (data.hasRemaining()) {
+            int n = Math.min(buf.capacity(), data.remaining());
+            data.get(buf.array(), 0, n);
+            flushBuffer(n);
+        }
+    }
+
+    /**
+     * Writes the next chunk of image data to the output, for images with <code>BITPIX</code> = 8.
+     *
+     * @param  data          the next chunk of image elements.
+     * @param  from          the index of the first element to write
+     * @param  count         the number of elements to write.
+     *
+     * @throws FitsException if the writer was closed, if the element type does not match the image's
+     *                           <code>BITPIX</code>, or if the data would exceed the declared size of the image.
+     * @throws IOException   if there was an I/O error writing to the output.
+     */
+    public void write(byte[] data, int from, int count) throws FitsException, IOException {
+        checkType(byte.class);
+        writeBytes(data, from, count);
+    }
+
+    /**
+     * Writes the next chunk of image data to the output, for images with <code>BITPIX</code> = 16.
+     *
+     * @param  data          the next chunk of image elements.
+     * @param  from          the index of the first element to write
+     * @param  count         the number of elements to write.
+     *
+     * @throws FitsException if the writer was closed, if the element type does not match the image's
+     *                           <code>BITPIX</code>, or if the data would exceed the declared size of the image.
+     * @throws IOException   if there was an I/O error writing to the output.
+     */
+    public void write(short[] data, int from, int count) throws FitsException, IOException {
+        checkType(short.class);
+        checkLength(count);
+        for (int to = from + count; from < to;) {
+            int n = Math.min(to - from, buf.capacity() / Short.BYTES);
+            buf.clear();
+            buf.asShortBuffer().put(data, from, n);
+            flushBuffer(n * Short.BYTES);
+            from += n;
+        }
+    }
+
+    /**
+     * Writes the next chunk of image data to the output, for images with <code>BITPIX</code> = 32.
+     *
+     * @param  data          the next chunk of image elements.
+     * @param  from          the index of the first element to write
+     * @param  count         the number of elements to write.
+     *
+     * @throws FitsException if the writer was closed, if the element type does not match the image's
+     *                           <code>BITPIX</code>, or if the data would exceed the declared size of the image.
+     * @throws IOException   if there was an I/O error writing to the output.
+     */
+    public void write(int[] data, int from, int count) throws FitsException, IOException {
+        checkType(int.class);
+        checkLength(count);
+        for (int to = from + count; from < to;) {
+            int n = Math.min(to - from, buf.capacity() / Integer.BYTES);
+            buf.clear();
+            buf.asIntBuffer().put(data, from, n);
+            flushBuffer(n * Integer.BYTES);
+            from += n;
+        }
+    }
+
+    /**
+     * Writes the next chunk of image data to the output, for images with <code>BITPIX</code> = 64.
+     *
+     * @param  data          the next chunk of image elements.
+     * @param  from          the index of the first element to write
+     * @param  count         the number of elements to write.
+     *
+     * @throws FitsException if the writer was closed, if the element type does not match the image's
+     *                           <code>BITPIX</code>, or if the data would exceed the declared size of the image.
+     * @throws IOException   if there was an I/O error writing to the output.
+     */
+    public void write(long[] data, int from, int count) throws FitsException, IOException {
+        checkType(long.class);
+        checkLength(count);
+        for (int to = from + count; from < to;) {
+            int n = Math.min(to - from, buf.capacity() / Long.BYTES);
+            buf.clear();
+            buf.asLongBuffer().put(data, from, n);
+            flushBuffer(n * Long.BYTES);
+            from += n;
+        }
+    }
+
+    /**
+     * Writes the next chunk of image data to the output, for images with <code>BITPIX</code> = -32.
+     *
+     * @param  data          the next chunk of image elements.
+     * @param  from          the index of the first element to write
+     * @param  count         the number of elements to write.
+     *
+     * @throws FitsException if the writer was closed, if the element type does not match the image's
+     *                           <code>BITPIX</code>, or if the data would exceed the declared size of the image.
+     * @throws IOException   if there was an I/O error writing to the output.
+     */
+    public void write(float[] data, int from, int count) throws FitsException, IOException {
+        checkType(float.class);
+        checkLength(count);
+        for (int to = from + count; from < to;) {
+            int n = Math.min(to - from, buf.capacity() / Float.BYTES);
+            buf.clear();
+            buf.asFloatBuffer().put(data, from, n);
+            flushBuffer(n * Float.BYTES);
+            from += n;
+        }
+    }
+
+    /**
+     * Writes the next chunk of image data to the output, for images with <code>BITPIX</code> = -64.
+     *
+     * @param  data          the next chunk of image elements.
+     * @param  from          the index of the first element to write
+     * @param  count         the number of elements to write.
+     *
+     * @throws FitsException if the writer was closed, if the element type does not match the image's
+     *                           <code>BITPIX</code>, or if the data would exceed the declared size of the image.
+     * @throws IOException   if there was an I/O error writing to the output.
+     */
+    public void write(double[] data, int from, int count) throws FitsException, IOException {
+        checkType(double.class);
+        checkLength(count);
+        for (int to = from + count; from < to;) {
+            int n = Math.min(to - from, buf.capacity() / Double.BYTES);
+            buf.clear();
+            buf.asDoubleBuffer().put(data, from, n);
+            flushBuffer(n * Double.BYTES);
+            from += n;
+        }
+    }
+
+    /**
+     * Writes the next chunk of image data to the output, for images with <code>BITPIX</code> = 8.
+     *
+     * @param  data          the next chunk of image elements.
+     *
+     * @throws FitsException if the writer was closed, if the element type does not match the image's
+     *                           <code>BITPIX</code>, or if the data would exceed the declared size of the image.
+     * @throws IOException   if there was an I/O error writing to the output.
+     */
+    public final void write(byte[] data) throws FitsException, IOException {
+        write(data, 0, data.length);
+    }
+
+    /**
+     * Writes the next chunk of image data to the output, for images with <code>BITPIX</code> = 16.
+     *
+     * @param  data          the next chunk of image elements.
+     *
+     * @throws FitsException if the writer was closed, if the element type does not match the image's
+     *                           <code>BITPIX</code>, or if the data would exceed the declared size of the image.
+     * @throws IOException   if there was an I/O error writing to the output.
+     */
+    public final void write(short[] data) throws FitsException, IOException {
+        write(data, 0, data.length);
+    }
+
+    /**
+     * Writes the next chunk of image data to the output, for images with <code>BITPIX</code> = 32.
+     *
+     * @param  data          the next chunk of image elements.
+     *
+     * @throws FitsException if the writer was closed, if the element type does not match the image's
+     *                           <code>BITPIX</code>, or if the data would exceed the declared size of the image.
+     * @throws IOException   if there was an I/O error writing to the output.
+     */
+    public final void write(int[] data) throws FitsException, IOException {
+        write(data, 0, data.length);
+    }
+
+    /**
+     * Writes the next chunk of image data to the output, for images with <code>BITPIX</code> = 64.
+     *
+     * @param  data          the next chunk of image elements.
+     *
+     * @throws FitsException if the writer was closed, if the element type does not match the image's
+     *                           <code>BITPIX</code>, or if the data would exceed the declared size of the image.
+     * @throws IOException   if there was an I/O error writing to the output.
+     */
+    public final void write(long[] data) throws FitsException, IOException {
+        write(data, 0, data.length);
+    }
+
+    /**
+     * Writes the next chunk of image data to the output, for images with <code>BITPIX</code> = -32.
+     *
+     * @param  data          the next chunk of image elements.
+     *
+     * @throws FitsException if the writer was closed, if the element type does not match the image's
+     *                           <code>BITPIX</code>, or if the data would exceed the declared size of the image.
+     * @throws IOException   if there was an I/O error writing to the output.
+     */
+    public final void write(float[] data) throws FitsException, IOException {
+        write(data, 0, data.length);
+    }
+
+    /**
+     * Writes the next chunk of image data to the output, for images with <code>BITPIX</code> = -64.
+     *
+     * @param  data          the next chunk of image elements.
+     *
+     * @throws FitsException if the writer was closed, if the element type does not match the image's
+     *                           <code>BITPIX</code>, or if the data would exceed the declared size of the image.
+     * @throws IOException   if there was an I/O error writing to the output.
+     */
+    public final void write(double[] data) throws FitsException, IOException {
+        write(data, 0, data.length);
+    }
+
+    /**
+     * Completes the image HDU by writing the padding after the data, and (if requested) patching the
+     * <code>DATASUM</code> and <code>CHECKSUM</code> values in the header. The output remains positioned after the
+     * padded HDU. Calling this method more than once has no effect.
+     *
+     * @throws FitsException if not all of the image data has been written yet, or if the header could not be updated.
+     * @throws IOException   if there was an I/O error writing to the output.
+     */
+    @Override
+    public void close() throws FitsException, IOException {
+        if (isClosed) {
+            return;
+        }
+
+        if (getRemaining() > 0) {
+            throw new FitsException("Incomplete image: " + getRemaining() + " bytes still missing");
+        }
+
+        isClosed = true;
+
+        out.write(new byte[FitsUtil.padding(size)]);
+
+        if (setChecksum) {
+            RandomAccess file = (RandomAccess) out;
+            long end = file.getFilePointer();
+            FitsCheckSum.setDatasum(header, getDatasum());
+            file.position(headerOffset);
+            header.write(out);
+            file.position(end);
+        }
+
+        out.flush();
+    }
+}
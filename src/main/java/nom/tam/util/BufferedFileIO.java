@@ -74,6 +74,15 @@ class BufferedFileIO implements InputReader, OutputWriter, Flushable, Closeable
     /** Whether the current position is beyond the current ennd-of-file */
     private boolean writeAhead;
 
+    /**
+     * Whether the underlying file is memory mapped, in which case bulk reads bypass our buffer, since copying through it
+     * would only add overhead.
+     */
+    private final boolean isMemoryMapped;
+
+    /** Whether the underlying file supports thread-safe positional reads natively */
+    private final boolean hasPositionalReads;
+
     /**
      * Instantiates a new buffered random access file with the specified IO mode and buffer size. This class offers up
      * to 2+ orders of magnitude superior performance over {@link RandomAccessFile} when repeatedly reading or writing
@@ -106,6 +115,8 @@ class BufferedFileIO implements InputReader, OutputWriter, Flushable, Closeable
         end = 0;
         isModified = false;
         writeAhead = false;
+        isMemoryMapped = f instanceof MappedFileIO;
+        hasPositionalReads = isMemoryMapped || f.getChannel() != null;
     }
 
     /**
@@ -399,8 +410,8 @@ class BufferedFileIO implements InputReader, OutputWriter, Flushable, Closeable
             return 0;
         }
 
-        if (len > 2 * buf.length) {
-            // Large direct read...
+        if (len > 2 * buf.length || (isMemoryMapped && offset >= end)) {
+            // Large direct read, or read straight from a memory map...
             matchBufferPos();
             int l = file.read(b, from, len);
             matchFilePos();
@@ -426,6 +437,183 @@ class BufferedFileIO implements InputReader, OutputWriter, Flushable, Closeable
         return got;
     }
 
+    /**
+     * Same as {@link #read()} but without acquiring a lock when the next byte is already in our buffer. For use by
+     * single-owner access only, when the caller guarantees that no other thread is accessing this file.
+     *
+     * @return             the next unsigned byte, or -1 if at the end of file.
+     *
+     * @throws IOException if there was an IO error
+     *
+     * @since              1.21
+     */
+    final int readUnsynchronized() throws IOException {
+        if (offset < end) {
+            return buf[offset++] & BYTE_MASK;
+        }
+        return read();
+    }
+
+    /**
+     * Same as {@link #read(byte[], int, int)} but without acquiring a lock when the requested bytes are all in our
+     * buffer already. For use by single-owner access only, when the caller guarantees that no other thread is
+     * accessing this file.
+     *
+     * @param  b           the destination array
+     * @param  from        the array index of the first byte to populate
+     * @param  len         the maximum number of bytes to read
+     *
+     * @return             the number of bytes actually read, or -1 if at the end of file.
+     *
+     * @throws IOException if there was an IO error
+     *
+     * @since              1.21
+     */
+    final int readUnsynchronized(byte[] b, int from, int len) throws IOException {
+        if (len > 0 && end - offset >= len) {
+            System.arraycopy(buf, offset, b, from, len);
+            offset += len;
+            return len;
+        }
+        return read(b, from, len);
+    }
+
+    /**
+     * Same as {@link #write(int)} but without acquiring a lock when the byte fits into our buffer. For use by
+     * single-owner access only, when the caller guarantees that no other thread is accessing this file.
+     *
+     * @param  b           the byte value to write (lower 8 bits are used).
+     *
+     * @throws IOException if there was an IO error
+     *
+     * @since              1.21
+     */
+    final void writeUnsynchronized(int b) throws IOException {
+        if (writeAhead || offset >= buf.length) {
+            write(b);
+            return;
+        }
+
+        isModified = true;
+        buf[offset++] = (byte) b;
+
+        if (offset > end) {
+            end = offset;
+        }
+    }
+
+    /**
+     * Same as {@link #write(byte[], int, int)} but without acquiring a lock when the bytes fit into our buffer. For use
+     * by single-owner access only, when the caller guarantees that no other thread is accessing this file.
+     *
+     * @param  b           the source array
+     * @param  from        the array index of the first byte to write
+     * @param  len         the number of bytes to write
+     *
+     * @throws IOException if there was an IO error
+     *
+     * @since              1.21
+     */
+    final void writeUnsynchronized(byte[] b, int from, int len) throws IOException {
+        if (writeAhead || len <= 0 || len > buf.length - offset) {
+            write(b, from, len);
+            return;
+        }
+
+        isModified = true;
+        System.arraycopy(b, from, buf, offset, len);
+        offset += len;
+
+        if (offset > end) {
+            end = offset;
+        }
+    }
+
+    /**
+     * Writes a region of another file at the current position, as a zero-copy channel-to-channel transfer, which
+     * bypasses both our buffer and the Java heap. Any pending modifications in our buffer are flushed first, and the
+     * buffer is discarded after the transfer, so subsequent reads and writes will see the transferred bytes.
+     *
+     * @param  src          the file channel from which to copy bytes. Its position is not used or changed.
+     * @param  from         the position in the source of the first byte to copy
+     * @param  len          the number of bytes to copy
+     *
+     * @return              <code>true</code> if the bytes were transferred, or else <code>false</code> if this file
+     *                          does not support channel transfers (it has no channel, or it is memory mapped), in
+     *                          which case nothing was written.
+     *
+     * @throws EOFException if the source ended before the requested number of bytes could be transferred.
+     * @throws IOException  if there was an IO error
+     *
+     * @since               1.21
+     */
+    public synchronized boolean transferFrom(FileChannel src, long from, long len) throws EOFException, IOException {
+        FileChannel dst = getChannel();
+        if (dst == null || isMemoryMapped) {
+            return false;
+        }
+
+        if (writeAhead) {
+            setLength(getFilePointer());
+        }
+
+        flush();
+
+        long pos = getFilePointer();
+        dst.position(pos);
+
+        for (long done = 0; done < len;) {
+            long n = src.transferTo(from + done, len - done, dst);
+            if (n <= 0) {
+                throw new EOFException("Source ended after " + done + " of " + len + " bytes");
+            }
+            done += n;
+        }
+
+        // The buffer may no longer reflect the file content, so start anew after the transferred bytes.
+        startOfBuf = pos + len;
+        offset = 0;
+        end = 0;
+        writeAhead = false;
+        matchBufferPos();
+
+        return true;
+    }
+
+    /**
+     * Reads bytes starting at the specified file position, without using or changing the current read/write position
+     * or the content of our buffer. Any pending modifications in the buffer are flushed to the file first, so the read
+     * returns the up-to-date content. Thereafter, the bytes are read directly from the underlying file, without holding
+     * a lock, whenever the file supports positional reads natively (as files with a channel or memory-mapped files do),
+     * so different threads may read from the same file concurrently.
+     *
+     * @param  pos         the file position from which to read
+     * @param  b           the destination array
+     * @param  from        the array index of the first byte to populate
+     * @param  len         the maximum number of bytes to read
+     *
+     * @return             the number of bytes actually read, which may be fewer than requested, or -1 if the position
+     *                         is at or beyond the end of file.
+     *
+     * @throws IOException if there was an IO error
+     *
+     * @since              1.21
+     */
+    public int readAt(long pos, byte[] b, int from, int len) throws IOException {
+        if (len <= 0) {
+            return 0;
+        }
+
+        synchronized (this) {
+            flush();
+            if (!hasPositionalReads) {
+                return file.readAt(pos, b, from, len);
+            }
+        }
+
+        return file.readAt(pos, b, from, len);
+    }
+
     /**
      * Reads bytes to completely fill the supplied buffer. If not enough bytes are avaialable in the file to fully fill
      * the buffer, an {@link EOFException} will be thrown.
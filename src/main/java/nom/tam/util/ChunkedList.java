@@ -0,0 +1,475 @@
+package nom.tam.util;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An ordered list, which stores its elements in a sequence of small chunks rather than in a single contiguous array.
+ * As such, inserting or removing elements at arbitrary positions need to shift only the elements within the affected
+ * chunk, and update the starting indices of the chunks that follow, making positional edits scale as
+ * <i>O</i>(&radic;<i>N</i>) rather than <i>O</i>(<i>N</i>) for lists with <i>N</i> elements. Elements are also indexed
+ * by identity, so the position of a given element can be determined by searching a single chunk only. Random access by
+ * index requires a binary search over the chunks, but sequential access, such as when iterating through the list, is
+ * amortized constant time.
+ * <p>
+ * It is used as the backing storage of {@link HashedList}, so that editing very large FITS headers (e.g. with tens of
+ * thousands of <code>HISTORY</code> or <code>COMMENT</code> cards) does not become quadratic.
+ * </p>
+ *
+ * @param  <E> the generic type of the elements in the list
+ *
+ * @author     Attila Kovacs
+ *
+ * @since      1.21
+ */
+final class ChunkedList<E> implements Iterable<E> {
+
+    /** The maximum number of elements stored in a single chunk */
+    static final int MAX_CHUNK_SIZE = 512;
+
+    /** The chunks containing the elements */
+    private final ArrayList<Chunk<E>> chunks = new ArrayList<>();
+
+    /** The chunk that holds each element, by element identity */
+    private final IdentityHashMap<E, Chunk<E>> owners = new IdentityHashMap<>();
+
+    /** The number of additional occurrences of element instances, which were added to the list more than once */
+    private final IdentityHashMap<E, Integer> aliases = new IdentityHashMap<>();
+
+    /** The total number of elements in the list */
+    private int size;
+
+    /** The index of the chunk last accessed, for speeding up sequential access */
+    private int lastChunk;
+
+    /**
+     * A contiguous segment of the list.
+     *
+     * @param <E> the generic type of the elements in the list
+     */
+    private static final class Chunk<E> {
+
+        /** The elements in this chunk */
+        private final Object[] items = new Object[MAX_CHUNK_SIZE];
+
+        /** The number of elements in this chunk */
+        private int count;
+
+        /** The list index of the first element in this chunk */
+        private int start;
+
+        @SuppressWarnings("unchecked")
+        private E get(int i) {
+            return (E) items[i];
+        }
+
+        private int indexOf(Object e) {
+            for (int i = 0; i < count; i++) {
+                if (items[i] == e) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void insert(int i, E e) {
+            System.arraycopy(items, i, items, i + 1, count - i);
+            items[i] = e;
+            count++;
+        }
+
+        private E remove(int i) {
+            E e = get(i);
+            System.arraycopy(items, i + 1, items, i, count - i - 1);
+            items[--count] = null;
+            return e;
+        }
+    }
+
+    /**
+     * Returns the number of elements in this list.
+     *
+     * @return the number of elements in this list.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Checks if this list has no elements.
+     *
+     * @return <code>true</code> if the list is empty, otherwise <code>false</code>.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the index of the chunk that contains the element at the specified list index.
+     *
+     * @param  index the list index of an element. It must be in the range of 0 to {@link #size()} - 1.
+     *
+     * @return       the index of the chunk that contains the element.
+     */
+    private int locate(int index) {
+        if (lastChunk < chunks.size()) {
+            Chunk<E> c = chunks.get(lastChunk);
+            if (index >= c.start && index < c.start + c.count) {
+                return lastChunk;
+            }
+        }
+
+        int lo = 0;
+        int hi = chunks.size() - 1;
+
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (chunks.get(mid).start <= index) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+
+        lastChunk = lo;
+        return lo;
+    }
+
+    /**
+     * Returns the element at the specified position in the list.
+     *
+     * @param  index                     the list index of the element.
+     *
+     * @return                           the element at the specified index.
+     *
+     * @throws IndexOutOfBoundsException if the index is outside of the list.
+     */
+    E get(int index) throws IndexOutOfBoundsException {
+        checkIndex(index);
+        Chunk<E> c = chunks.get(locate(index));
+        return c.get(index - c.start);
+    }
+
+    /**
+     * Returns the position of the specified element instance in the list.
+     *
+     * @param  e the element instance (not just an equal element).
+     *
+     * @return   the list index of the element, or -1 if the element instance is not contained in this list.
+     */
+    int indexOf(Object e) {
+        if (aliases.containsKey(e)) {
+            // The same instance occurs at multiple positions, so we need to find the first one the hard way.
+            Chunk<E> c = find(e);
+            return c.start + c.indexOf(e);
+        }
+
+        Chunk<E> c = owners.get(e);
+        return c == null ? -1 : c.start + c.indexOf(e);
+    }
+
+    /**
+     * Finds the first chunk that contains the specified element instance, by checking all chunks in order.
+     *
+     * @param  e the element instance
+     *
+     * @return   the first chunk that contains the element, or <code>null</code> if the element is not in the list.
+     */
+    private Chunk<E> find(Object e) {
+        for (Chunk<E> c : chunks) {
+            if (c.indexOf(e) >= 0) {
+                return c;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if the specified element instance is contained in this list.
+     *
+     * @param  e the element instance (not just an equal element).
+     *
+     * @return   <code>true</code> if the list contains the specified element instance, otherwise <code>false</code>.
+     */
+    boolean contains(Object e) {
+        return owners.containsKey(e);
+    }
+
+    /**
+     * Appends an element to the end of the list.
+     *
+     * @param e the new element
+     */
+    void add(E e) {
+        add(size, e);
+    }
+
+    /**
+     * Inserts an element at the specified position in the list, moving the element currently at that position, as well
+     * as all elements after it, one position down in the list.
+     *
+     * @param  index                     the list index at which to insert the element.
+     * @param  e                         the new element
+     *
+     * @throws IndexOutOfBoundsException if the index is outside of the range 0 to {@link #size()}, inclusive.
+     */
+    void add(int index, E e) throws IndexOutOfBoundsException {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        int k;
+
+        if (chunks.isEmpty()) {
+            k = 0;
+            chunks.add(new Chunk<>());
+        } else {
+            k = index == size ? chunks.size() - 1 : locate(index);
+        }
+
+        Chunk<E> c = chunks.get(k);
+
+        if (c.count == MAX_CHUNK_SIZE) {
+            split(k);
+            if (index > c.start + c.count) {
+                c = chunks.get(++k);
+            }
+        }
+
+        c.insert(index - c.start, e);
+
+        if (owners.put(e, c) != null) {
+            aliases.merge(e, 1, Integer::sum);
+        }
+
+        size++;
+        shiftStarts(k + 1, 1);
+    }
+
+    /**
+     * Removes the element at the specified position in the list, moving all elements after it one position up in the
+     * list.
+     *
+     * @param  index                     the list index of the element to remove.
+     *
+     * @return                           the element that was removed.
+     *
+     * @throws IndexOutOfBoundsException if the index is outside of the list.
+     */
+    E remove(int index) throws IndexOutOfBoundsException {
+        checkIndex(index);
+
+        int k = locate(index);
+        Chunk<E> c = chunks.get(k);
+        E e = c.remove(index - c.start);
+
+        Integer n = aliases.get(e);
+        if (n == null) {
+            owners.remove(e);
+        } else {
+            // The instance remains in the list at another position...
+            if (n > 1) {
+                aliases.put(e, n - 1);
+            } else {
+                aliases.remove(e);
+                owners.put(e, find(e));
+            }
+        }
+
+        size--;
+        shiftStarts(k + 1, -1);
+
+        if (c.count == 0) {
+            chunks.remove(k);
+        } else if (k + 1 < chunks.size() && c.count + chunks.get(k + 1).count <= MAX_CHUNK_SIZE / 2) {
+            merge(k);
+        }
+
+        return e;
+    }
+
+    /**
+     * Removes all elements from the list.
+     */
+    void clear() {
+        chunks.clear();
+        owners.clear();
+        aliases.clear();
+        size = 0;
+        lastChunk = 0;
+    }
+
+    /**
+     * Sorts the elements in this list using a stable sort.
+     *
+     * @param comp the comparator that defines the desired order of elements.
+     */
+    @SuppressWarnings("unchecked")
+    void sort(Comparator<? super E> comp) {
+        Object[] all = toArray();
+        Arrays.sort(all, (Comparator<Object>) comp);
+        clear();
+        for (Object e : all) {
+            add((E) e);
+        }
+    }
+
+    /**
+     * Returns an array containing all elements of this list, in order.
+     *
+     * @return a new array containing all elements of this list.
+     */
+    Object[] toArray() {
+        Object[] array = new Object[size];
+        for (Chunk<E> c : chunks) {
+            System.arraycopy(c.items, 0, array, c.start, c.count);
+        }
+        return array;
+    }
+
+    /**
+     * Returns an array containing all elements of this list, in order, with the semantics of
+     * {@link java.util.Collection#toArray(Object[])}.
+     *
+     * @param  <T>   the generic type of the array elements
+     * @param  array an array to populate, if it is large enough, or else whose type to use for the returned array.
+     *
+     * @return       an array containing all elements of this list.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T[] toArray(T[] array) {
+        if (array.length < size) {
+            array = (T[]) Arrays.copyOf(array, size, array.getClass());
+        }
+        System.arraycopy(toArray(), 0, array, 0, size);
+        if (array.length > size) {
+            array[size] = null;
+        }
+        return array;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            private int k;
+
+            private int i;
+
+            @Override
+            public boolean hasNext() {
+                while (k < chunks.size() && i >= chunks.get(k).count) {
+                    k++;
+                    i = 0;
+                }
+                return k < chunks.size();
+            }
+
+            @Override
+            public E next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return chunks.get(k).get(i++);
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    private void checkIndex(int index) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * Adjusts the starting indices of all chunks from the one specified.
+     *
+     * @param from  the index of the first chunk to adjust
+     * @param delta the change in the starting indices.
+     */
+    private void shiftStarts(int from, int delta) {
+        for (int k = from; k < chunks.size(); k++) {
+            chunks.get(k).start += delta;
+        }
+    }
+
+    /**
+     * Splits a chunk in half, moving its second half into a new chunk, which is inserted after it.
+     *
+     * @param k the index of the chunk to split.
+     */
+    private void split(int k) {
+        Chunk<E> c = chunks.get(k);
+        Chunk<E> next = new Chunk<>();
+
+        int n = c.count >>> 1;
+        next.count = c.count - n;
+        next.start = c.start + n;
+        System.arraycopy(c.items, n, next.items, 0, next.count);
+        Arrays.fill(c.items, n, c.count, null);
+        c.count = n;
+
+        for (int i = 0; i < next.count; i++) {
+            owners.put(next.get(i), next);
+        }
+
+        chunks.add(k + 1, next);
+    }
+
+    /**
+     * Merges a chunk with the one following it.
+     *
+     * @param k the index of the chunk to merge with the next one.
+     */
+    private void merge(int k) {
+        Chunk<E> c = chunks.get(k);
+        Chunk<E> next = chunks.remove(k + 1);
+
+        System.arraycopy(next.items, 0, c.items, c.count, next.count);
+
+        for (int i = 0; i < next.count; i++) {
+            owners.put(next.get(i), c);
+        }
+
+        c.count += next.count;
+    }
+}
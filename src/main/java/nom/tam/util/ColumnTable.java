@@ -34,6 +34,7 @@ package nom.tam.util;
 import java.io.EOFException;
 import java.io.IOException;
 import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 
@@ -62,6 +63,11 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
  */
 public class ColumnTable<T> implements DataTable, Cloneable {
 
+    /**
+     * (bytes) The size of the buffer in which we read batches of rows, before extracting the column data from them.
+     */
+    private static final int READ_BUFFER_SIZE = 0x10000;
+
     /** A list of columns contained in this table */
     private ArrayList<Column<?>> columns = new ArrayList<>();
 
@@ -782,9 +788,47 @@ public class ColumnTable<T> implements DataTable, Cloneable {
      * @see                 #write(ArrayDataOutput)
      */
     public void read(ArrayDataInput in) throws EOFException, IOException {
-        for (int row = 0; row < nrow; row++) {
+        read(in, 0, nrow);
+    }
+
+    /**
+     * Reads a range of consecutive rows of the table from the input, in row-major format. Different threads may read
+     * non-overlapping row ranges of the same table concurrently, from separate inputs.
+     *
+     * @param  in           The input to read from, positioned at the start of the first row to read.
+     * @param  rowStart     the zero-based index of the first row to read
+     * @param  rowEnd       the exclusive ending row index (not read)
+     *
+     * @throws EOFException is already at the end of file.
+     * @throws IOException  if the reading failed
+     *
+     * @see                 #read(ArrayDataInput)
+     *
+     * @since               1.21
+     */
+    public void read(ArrayDataInput in, int rowStart, int rowEnd) throws EOFException, IOException {
+        int rowBytes = 0;
+        for (Column<?> c : columns) {
+            rowBytes += c.elementBytes();
+        }
+
+        if (rowBytes == 0 || rowEnd <= rowStart) {
+            return;
+        }
+
+        // Read batches of rows at once, then extract each column from the batch in one go.
+        int batch = Math.max(1, READ_BUFFER_SIZE / rowBytes);
+        byte[] buf = new byte[Math.min(batch, rowEnd - rowStart) * rowBytes];
+        ByteBuffer b = ByteBuffer.wrap(buf);
+
+        for (int row = rowStart; row < rowEnd; row += batch) {
+            int n = Math.min(batch, rowEnd - row);
+            in.readFully(buf, 0, n * rowBytes);
+
+            int offset = 0;
             for (Column<?> c : columns) {
-                c.read(row, in);
+                c.read(row, n, b, offset, rowBytes);
+                offset += c.elementBytes();
             }
         }
     }
@@ -940,6 +984,27 @@ public class ColumnTable<T> implements DataTable, Cloneable {
         }
     }
 
+    /**
+     * Writes a range of rows of the table to an output, in row-major format.
+     *
+     * @param  out         the output stream to write to.
+     * @param  rowStart    first row to write
+     * @param  rowEnd      the exclusive ending row index (not witten)
+     *
+     * @throws IOException if the write operation failed
+     *
+     * @see                #write(ArrayDataOutput)
+     *
+     * @since              1.21
+     */
+    public void write(ArrayDataOutput out, int rowStart, int rowEnd) throws IOException {
+        for (int row = rowStart; row < rowEnd; row++) {
+            for (Column<?> c : columns) {
+                c.write(row, out);
+            }
+        }
+    }
+
     /**
      * Write a column of a table.
      *
@@ -1089,6 +1154,15 @@ public class ColumnTable<T> implements DataTable, Cloneable {
             return 1;
         }
 
+        /**
+         * Returns the number of bytes that each entry in this column occupies in its FITS binary representation.
+         * 
+         * @return the number of bytes per row for this column.
+         */
+        int elementBytes() {
+            return elementCount() * fitsType.size();
+        }
+
         /**
          * Returns the number of rows currently allocated in this column, which may exceed the number of entries
          * currently populated.
@@ -1142,6 +1216,18 @@ public class ColumnTable<T> implements DataTable, Cloneable {
          */
         abstract int read(int from, int n, ArrayDataInput in) throws EOFException, IOException;
 
+        /**
+         * Extracts a sequence of consecutive table entries from a buffer, which contains a batch of table rows in
+         * their FITS binary representation.
+         * 
+         * @param from   the zero-based row index of the first column entry to populate
+         * @param n      the number of consecutive rows to extract
+         * @param b      the buffer containing the rows
+         * @param offset the byte offset of this column's entry in the first row of the buffer
+         * @param stride the number of bytes per row in the buffer
+         */
+        abstract void read(int from, int n, ByteBuffer b, int offset, int stride);
+
         /**
          * Writes a sequence of consecutive table entries to an output
          * 
@@ -1300,6 +1386,13 @@ public class ColumnTable<T> implements DataTable, Cloneable {
             return -1;
         }
 
+        @Override
+        void read(int from, int n, ByteBuffer b, int offset, int stride) {
+            for (int i = from, pos = offset; i < from + n; i++, pos += stride) {
+                data[i] = b.get(pos);
+            }
+        }
+
         @Override
         void write(int from, int n, ArrayDataOutput out) throws IOException {
             out.write(data, from, n);
@@ -1350,6 +1443,13 @@ public class ColumnTable<T> implements DataTable, Cloneable {
             return in.read(data, from, n);
         }
 
+        @Override
+        void read(int from, int n, ByteBuffer b, int offset, int stride) {
+            for (int i = from, pos = offset; i < from + n; i++, pos += stride) {
+                data[i] = FitsDecoder.booleanFor(b.get(pos));
+            }
+        }
+
         @Override
         void write(int from, int n, ArrayDataOutput out) throws IOException {
             out.write(data, from, n);
@@ -1400,6 +1500,14 @@ public class ColumnTable<T> implements DataTable, Cloneable {
             return in.read(data, from, n);
         }
 
+        @Override
+        void read(int from, int n, ByteBuffer b, int offset, int stride) {
+            boolean isAscii = ElementType.CHAR.size() == 1;
+            for (int i = from, pos = offset; i < from + n; i++, pos += stride) {
+                data[i] = isAscii ? (char) (b.get(pos) & FitsIO.BYTE_MASK) : b.getChar(pos);
+            }
+        }
+
         @Override
         void write(int from, int n, ArrayDataOutput out) throws IOException {
             out.write(data, from, n);
@@ -1454,6 +1562,13 @@ public class ColumnTable<T> implements DataTable, Cloneable {
             return in.read(data, from, n);
         }
 
+        @Override
+        void read(int from, int n, ByteBuffer b, int offset, int stride) {
+            for (int i = from, pos = offset; i < from + n; i++, pos += stride) {
+                data[i] = b.getShort(pos);
+            }
+        }
+
         @Override
         void write(int from, int n, ArrayDataOutput out) throws IOException {
             out.write(data, from, n);
@@ -1503,6 +1618,13 @@ public class ColumnTable<T> implements DataTable, Cloneable {
             return in.read(data, from, n);
         }
 
+        @Override
+        void read(int from, int n, ByteBuffer b, int offset, int stride) {
+            for (int i = from, pos = offset; i < from + n; i++, pos += stride) {
+                data[i] = b.getInt(pos);
+            }
+        }
+
         @Override
         void write(int from, int n, ArrayDataOutput out) throws IOException {
             out.write(data, from, n);
@@ -1552,6 +1674,13 @@ public class ColumnTable<T> implements DataTable, Cloneable {
             return in.read(data, from, n);
         }
 
+        @Override
+        void read(int from, int n, ByteBuffer b, int offset, int stride) {
+            for (int i = from, pos = offset; i < from + n; i++, pos += stride) {
+                data[i] = b.getLong(pos);
+            }
+        }
+
         @Override
         void write(int from, int n, ArrayDataOutput out) throws IOException {
             out.write(data, from, n);
@@ -1601,6 +1730,13 @@ public class ColumnTable<T> implements DataTable, Cloneable {
             return in.read(data, from, n);
         }
 
+        @Override
+        void read(int from, int n, ByteBuffer b, int offset, int stride) {
+            for (int i = from, pos = offset; i < from + n; i++, pos += stride) {
+                data[i] = b.getFloat(pos);
+            }
+        }
+
         @Override
         void write(int from, int n, ArrayDataOutput out) throws IOException {
             out.write(data, from, n);
@@ -1650,6 +1786,13 @@ public class ColumnTable<T> implements DataTable, Cloneable {
             return in.read(data, from, n);
         }
 
+        @Override
+        void read(int from, int n, ByteBuffer b, int offset, int stride) {
+            for (int i = from, pos = offset; i < from + n; i++, pos += stride) {
+                data[i] = b.getDouble(pos);
+            }
+        }
+
         @Override
         void write(int from, int n, ArrayDataOutput out) throws IOException {
             out.write(data, from, n);
@@ -1722,6 +1865,63 @@ public class ColumnTable<T> implements DataTable, Cloneable {
             return n * size * getElementType().size();
         }
 
+        @Override
+        void read(int from, int n, ByteBuffer b, int offset, int stride) {
+            for (int i = from, pos = offset; i < from + n; i++, pos += stride) {
+                get(b, pos, data[i]);
+            }
+        }
+
+        /**
+         * Extracts a column entry from a buffer containing its FITS binary representation.
+         * 
+         * @param b     the buffer
+         * @param pos   the byte position of the entry in the buffer
+         * @param array the primitive array to populate.
+         */
+        private void get(ByteBuffer b, int pos, Object array) {
+            int step = getElementType().size();
+
+            if (type == byte.class) {
+                System.arraycopy(b.array(), pos, array, 0, size);
+            } else if (type == short.class) {
+                short[] e = (short[]) array;
+                for (int j = 0; j < size; j++, pos += step) {
+                    e[j] = b.getShort(pos);
+                }
+            } else if (type == int.class) {
+                int[] e = (int[]) array;
+                for (int j = 0; j < size; j++, pos += step) {
+                    e[j] = b.getInt(pos);
+                }
+            } else if (type == long.class) {
+                long[] e = (long[]) array;
+                for (int j = 0; j < size; j++, pos += step) {
+                    e[j] = b.getLong(pos);
+                }
+            } else if (type == float.class) {
+                float[] e = (float[]) array;
+                for (int j = 0; j < size; j++, pos += step) {
+                    e[j] = b.getFloat(pos);
+                }
+            } else if (type == double.class) {
+                double[] e = (double[]) array;
+                for (int j = 0; j < size; j++, pos += step) {
+                    e[j] = b.getDouble(pos);
+                }
+            } else if (type == boolean.class) {
+                boolean[] e = (boolean[]) array;
+                for (int j = 0; j < size; j++, pos += step) {
+                    e[j] = FitsDecoder.booleanFor(b.get(pos));
+                }
+            } else {
+                char[] e = (char[]) array;
+                for (int j = 0; j < size; j++, pos += step) {
+                    e[j] = step == 1 ? (char) (b.get(pos) & FitsIO.BYTE_MASK) : b.getChar(pos);
+                }
+            }
+        }
+
         @Override
         void write(int from, int n, ArrayDataOutput out) throws IOException {
             int to = from + n;
@@ -493,6 +493,25 @@ public class FitsDecoder extends InputDecoder {
 
     @Override
     public synchronized long readArray(Object o) throws IOException, IllegalArgumentException {
+        return decodeArray(o);
+    }
+
+    /**
+     * The unsynchronized implementation of {@link #readArray(Object)}, which single-owner subclasses may call
+     * directly.
+     *
+     * @param  o                        an array, to be populated
+     *
+     * @return                          the actual number of bytes read from the input, or -1 if already at the
+     *                                      end-of-file.
+     *
+     * @throws IllegalArgumentException if the argument is not an array or if it contains an element that is not
+     *                                      supported for decoding.
+     * @throws IOException              if there was an IO error reading from the input
+     *
+     * @since                           1.21
+     */
+    final long decodeArray(Object o) throws IOException, IllegalArgumentException {
         if (o == null) {
             return 0L;
         }
@@ -536,13 +555,20 @@ public class FitsDecoder extends InputDecoder {
             return read((Boolean[]) o, 0, length);
         }
 
+        if (o instanceof short[][] || o instanceof int[][] || o instanceof long[][] || o instanceof float[][]
+                || o instanceof double[][]) {
+            // Load all rows at once, so the rows may be converted back-to-back from the same buffer.
+            getInputBuffer().loadBytes(FitsEncoder.computeSize(o), 1);
+            return getImage(o);
+        }
+
         Object[] array = (Object[]) o;
         long count = 0L;
 
         // Process multidim arrays recursively.
         for (int i = 0; i < length; i++) {
             try {
-                count += readArray(array[i]);
+                count += decodeArray(array[i]);
             } catch (EOFException e) {
                 return eofCheck(e, count, -1L);
             }
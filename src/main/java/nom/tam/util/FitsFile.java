@@ -80,6 +80,11 @@ public class FitsFile extends ArrayDataFile implements FitsOutput, RandomAccess
      */
     private long marker;
 
+    /**
+     * Whether this file is accessed by a single thread only, using unsynchronized conversions
+     */
+    private boolean isSingleOwner;
+
     /**
      * Create a buffered file from a File descriptor
      *
@@ -179,6 +184,74 @@ public class FitsFile extends ArrayDataFile implements FitsOutput, RandomAccess
         return (FitsDecoder) super.getDecoder();
     }
 
+    /**
+     * Sets whether this file is to be accessed by a single thread only. Single-owner mode uses conversions and
+     * buffering that do not acquire locks for every element read or written, which can speed up element-wise access
+     * (such as reading individual table entries, or scalar values one by one) substantially. However, once enabled, it
+     * is up to the caller to ensure that the file is not accessed concurrently from other threads. The default is
+     * <code>false</code>, i.e. all access is synchronized.
+     *
+     * @param  value       <code>true</code> to enable single-owner (unsynchronized) access, or <code>false</code> to
+     *                         revert to the default thread-safe access.
+     *
+     * @throws IOException if pending output could not be written to the file before switching mode.
+     *
+     * @see                #isSingleOwner()
+     *
+     * @since              1.21
+     */
+    public synchronized void setSingleOwner(boolean value) throws IOException {
+        if (value == isSingleOwner) {
+            return;
+        }
+
+        getEncoder().flush();
+
+        if (value) {
+            setDecoder(new SingleOwnerDecoder(new InputReader() {
+                @Override
+                public int read() throws IOException {
+                    return readUnsynchronized();
+                }
+
+                @Override
+                public int read(byte[] b, int from, int length) throws IOException {
+                    return readUnsynchronized(b, from, length);
+                }
+            }));
+            setEncoder(new SingleOwnerEncoder(new OutputWriter() {
+                @Override
+                public void write(int b) throws IOException {
+                    writeUnsynchronized(b);
+                }
+
+                @Override
+                public void write(byte[] b, int from, int length) throws IOException {
+                    writeUnsynchronized(b, from, length);
+                }
+            }));
+        } else {
+            setDecoder(new FitsDecoder(this));
+            setEncoder(new FitsEncoder(this));
+        }
+
+        isSingleOwner = value;
+    }
+
+    /**
+     * Checks if this file is set for single-owner (unsynchronized) access.
+     *
+     * @return <code>true</code> if this file is set for access by a single thread only, or else <code>false</code>
+     *             (default).
+     *
+     * @see    #setSingleOwner(boolean)
+     *
+     * @since  1.21
+     */
+    public synchronized boolean isSingleOwner() {
+        return isSingleOwner;
+    }
+
     @Override
     public boolean isAtStart() {
         return getFilePointer() == 0;
@@ -95,6 +95,40 @@ public class FitsInputStream extends ArrayInputStream implements ArrayDataInput
         this(i, FitsIO.DEFAULT_BUFFER_SIZE);
     }
 
+    /**
+     * Sets whether this stream is to be read by a single thread only. Single-owner mode uses conversions that do not
+     * acquire locks for every element read, which can speed up element-wise reading (e.g. of scalar values one by one).
+     * However, once enabled, it is up to the caller to ensure that the stream is not accessed concurrently from other
+     * threads. The default is <code>false</code>, i.e. all conversions are synchronized.
+     *
+     * @param value <code>true</code> to enable single-owner (unsynchronized) conversions, or <code>false</code> to
+     *                  revert to the default thread-safe conversions.
+     *
+     * @see         #isSingleOwner()
+     * @see         FitsFile#setSingleOwner(boolean)
+     *
+     * @since       1.21
+     */
+    public synchronized void setSingleOwner(boolean value) {
+        if (value != isSingleOwner()) {
+            setDecoder(value ? new SingleOwnerDecoder(this) : new FitsDecoder(this));
+        }
+    }
+
+    /**
+     * Checks if this stream is set for single-owner (unsynchronized) conversions.
+     *
+     * @return <code>true</code> if this stream is set for reading by a single thread only, or else <code>false</code>
+     *             (default).
+     *
+     * @see    #setSingleOwner(boolean)
+     *
+     * @since  1.21
+     */
+    public synchronized boolean isSingleOwner() {
+        return getDecoder() instanceof SingleOwnerDecoder;
+    }
+
     @Override
     protected FitsDecoder getDecoder() {
         return (FitsDecoder) super.getDecoder();
@@ -60,7 +60,9 @@ import java.util.NoSuchElementException;
 import nom.tam.fits.header.FitsKey;
 
 /**
- * An ordered hash map implementation.
+ * An ordered hash map implementation. As of 1.21, the elements are stored in a {@link ChunkedList}, such that inserting
+ * or removing elements in the middle of very long lists (such as headers with many thousands of cards) remains
+ * efficient.
  *
  * @param <VALUE> value of the map
  */
@@ -173,7 +175,7 @@ public class HashedList<VALUE extends CursorValue<String>> implements Collection
     }
 
     /** An ordered list of the keys */
-    private final ArrayList<VALUE> ordered = new ArrayList<>();
+    private final ChunkedList<VALUE> ordered = new ChunkedList<>();
 
     /** The key value pairs */
     private final HashMap<String, VALUE> keyed = new HashMap<>();
@@ -264,6 +266,9 @@ public class HashedList<VALUE extends CursorValue<String>> implements Collection
 
     @Override
     public boolean contains(Object o) {
+        if (ordered.contains(o)) {
+            return true;
+        }
         for (VALUE entry : ordered) {
             if (o.equals(entry)) {
                 return true;
@@ -321,11 +326,20 @@ public class HashedList<VALUE extends CursorValue<String>> implements Collection
         // thrown instead of returning -1 (as is usual in indexOf methods) because
         // the method is used internally in situations where the entry must be
         // there.
-        for (int index = 0; index < ordered.size(); index++) {
-            String searchKey = entry.getKey();
-            if (searchKey.equals(ordered.get(index).getKey())) {
+        String searchKey = entry.getKey();
+        if (!FitsKey.isCommentStyleKey(searchKey)) {
+            // Keys are unique, so we can locate the entry itself...
+            int index = ordered.indexOf(entry);
+            if (index >= 0) {
+                return index;
+            }
+        }
+        int index = 0;
+        for (VALUE e : ordered) {
+            if (searchKey.equals(e.getKey())) {
                 return index;
             }
+            index++;
         }
         throw new NoSuchElementException("Internal error: " + entry + " should have been found in " + ordered);
     }
@@ -425,11 +439,17 @@ public class HashedList<VALUE extends CursorValue<String>> implements Collection
 
     @Override
     public boolean remove(Object o) {
-        for (int i = 0; i < ordered.size(); i++) {
-            VALUE entry = ordered.get(i);
+        int i = ordered.indexOf(o);
+        if (i >= 0) {
+            return internalRemove(i, ordered.get(i));
+        }
+
+        i = 0;
+        for (VALUE entry : ordered) {
             if (o.equals(entry)) {
                 return internalRemove(i, entry);
             }
+            i++;
         }
         return false;
     }
@@ -506,7 +526,7 @@ public class HashedList<VALUE extends CursorValue<String>> implements Collection
      * @param comp the comparator to use for the sorting
      */
     public void sort(final Comparator<String> comp) {
-        java.util.Collections.sort(ordered, new EntryComparator<VALUE>(comp));
+        ordered.sort(new EntryComparator<VALUE>(comp));
     }
 
     @Override
@@ -59,6 +59,13 @@ public abstract class InputDecoder {
     /** The buffer size for array translation */
     private static final int BUFFER_SIZE = 8 * FitsFactory.FITS_BLOCK_SIZE;
 
+    /**
+     * The maximum number of elements that are converted one by one, rather than in bulk via a typed view of the
+     * conversion buffer. Bulk conversions have a fixed cost per call, which is well worth paying for long runs of
+     * elements, but not for short ones.
+     */
+    private static final int ELEMENTWISE_LIMIT = 256;
+
     /** bit mask for 1 byte */
     private static final int BYTE_MASK = 0xFF;
 
@@ -252,7 +259,24 @@ public abstract class InputDecoder {
         }
     }
 
-    private long getImage(Object o) throws IOException, IllegalArgumentException {
+    /**
+     * Populates a numerical array of any dimension from data that has already been loaded (or is ready to be loaded)
+     * into the conversion buffer via {@link InputBuffer#loadBytes(long, int)}.
+     *
+     * @param  o                        An any-dimensional array containing only numerical types
+     *
+     * @return                          the number of bytes successfully read.
+     *
+     * @throws IllegalArgumentException if the argument is not an array or if it contains an element that is not
+     *                                      supported.
+     * @throws EOFException             if already at the end of file.
+     * @throws IOException              if there was an IO error
+     */
+    long getImage(Object o) throws IOException, IllegalArgumentException {
+        if (o == null) {
+            return 0L;
+        }
+
         int length = Array.getLength(o);
         if (length == 0) {
             return 0L;
@@ -482,7 +506,9 @@ public abstract class InputDecoder {
 
             int n = (int) Math.min(pending, data.length - remaining);
             n = in.read(data, remaining, n);
-            if (n < 0) {
+            if (n <= 0) {
+                // End of file, or nothing more was requested from the input. Keep what we had.
+                buffer.limit(remaining);
                 return false;
             }
             buffer.limit(remaining + n);
@@ -684,6 +710,13 @@ public abstract class InputDecoder {
                 dst[from] = (short) i;
                 return 1;
             }
+            if (n <= ELEMENTWISE_LIMIT && makeAvailable(n * Short.BYTES)) {
+                view = null;
+                for (int i = 0; i < n; i++) {
+                    dst[from + i] = buffer.getShort();
+                }
+                return n;
+            }
             return get(ElementType.SHORT, dst, from, n);
         }
 
@@ -709,6 +742,13 @@ public abstract class InputDecoder {
                 dst[from] = getInt();
                 return 1;
             }
+            if (n <= ELEMENTWISE_LIMIT && makeAvailable(n * Integer.BYTES)) {
+                view = null;
+                for (int i = 0; i < n; i++) {
+                    dst[from + i] = buffer.getInt();
+                }
+                return n;
+            }
             return get(ElementType.INT, dst, from, n);
         }
 
@@ -734,6 +774,13 @@ public abstract class InputDecoder {
                 dst[from] = getLong();
                 return 1;
             }
+            if (n <= ELEMENTWISE_LIMIT && makeAvailable(n * Long.BYTES)) {
+                view = null;
+                for (int i = 0; i < n; i++) {
+                    dst[from + i] = buffer.getLong();
+                }
+                return n;
+            }
             return get(ElementType.LONG, dst, from, n);
         }
 
@@ -759,6 +806,13 @@ public abstract class InputDecoder {
                 dst[from] = getFloat();
                 return 1;
             }
+            if (n <= ELEMENTWISE_LIMIT && makeAvailable(n * Float.BYTES)) {
+                view = null;
+                for (int i = 0; i < n; i++) {
+                    dst[from + i] = buffer.getFloat();
+                }
+                return n;
+            }
             return get(ElementType.FLOAT, dst, from, n);
         }
 
@@ -784,6 +838,13 @@ public abstract class InputDecoder {
                 dst[from] = getDouble();
                 return 1;
             }
+            if (n <= ELEMENTWISE_LIMIT && makeAvailable(n * Double.BYTES)) {
+                view = null;
+                for (int i = 0; i < n; i++) {
+                    dst[from + i] = buffer.getDouble();
+                }
+                return n;
+            }
             return get(ElementType.DOUBLE, dst, from, n);
         }
 
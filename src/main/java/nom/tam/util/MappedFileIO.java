@@ -0,0 +1,343 @@
+package nom.tam.util;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * File access through memory-mapped segments. Instead of reading the file into heap buffers via system calls, the file
+ * is mapped into memory (in segments of up to {@link #DEFAULT_SEGMENT_SIZE} bytes each, so files larger than 2 GB can
+ * be accessed also), and data is copied directly from the operating system's page cache to the destination when read.
+ * It can be used with {@link FitsFile#FitsFile(RandomAccessFileIO, int)} or with
+ * {@link nom.tam.fits.Fits#Fits(RandomAccessFileIO)}, e.g.:
+ * </p>
+ *
+ * <pre>
+ *   Fits fits = new Fits(new MappedFileIO(new File("huge.fits"), "r"));
+ * </pre>
+ * <p>
+ * Segments are mapped lazily, when first accessed, and remain mapped until the file is closed (and the mapped buffers
+ * are garbage collected). The class is optimized for reading. Writing is supported (for files opened in "rw" mode) but
+ * writing beyond the current end of file requires extending the file and re-mapping its last segment, which is costly
+ * if done in many small increments. Note, that truncating a file (via {@link #setLength(long)}) while another process or thread
+ * is still accessing the discarded part may result in undefined behavior, as is generally the case with memory-mapped
+ * files in Java.
+ * </p>
+ *
+ * @author Attila Kovacs
+ *
+ * @since  1.21
+ *
+ * @see    FitsFile
+ * @see    nom.tam.fits.Fits#Fits(RandomAccessFileIO)
+ */
+public class MappedFileIO implements RandomAccessFileIO {
+
+    /** The default maximum size of memory mapped segments (1 GB) */
+    public static final int DEFAULT_SEGMENT_SIZE = 0x40000000;
+
+    /** Bit mask for a single byte */
+    private static final int BYTE_MASK = 0xFF;
+
+    /** The underlying file */
+    private final RandomAccessFile file;
+
+    /** The mode in which segments are mapped */
+    private final FileChannel.MapMode mapMode;
+
+    /** The size of the memory mapped segments */
+    private final int segmentSize;
+
+    /** The segments that have been memory mapped so far (with null entries for segments not mapped yet) */
+    private MappedByteBuffer[] segments;
+
+    /** The current length of the file */
+    private long length;
+
+    /** The current read/write position */
+    private long pos;
+
+    /**
+     * Opens a file for memory mapped access with the default segment size.
+     *
+     * @param  file        the file
+     * @param  mode        the access mode, such as "r" or "rw" (see {@link RandomAccessFile} for more info).
+     *
+     * @throws IOException if the file could not be opened in the specified mode.
+     *
+     * @see                #MappedFileIO(File, String, int)
+     */
+    public MappedFileIO(File file, String mode) throws IOException {
+        this(file, mode, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens a file for memory mapped access using segments of the specified size.
+     *
+     * @param  file                     the file
+     * @param  mode                     the access mode, such as "r" or "rw" (see {@link RandomAccessFile} for more
+     *                                      info).
+     * @param  segmentSize              the maximum number of bytes to map in a single segment.
+     *
+     * @throws IllegalArgumentException if the segment size is not positive.
+     * @throws IOException              if the file could not be opened in the specified mode.
+     *
+     * @see                             #MappedFileIO(File, String)
+     */
+    public MappedFileIO(File file, String mode, int segmentSize) throws IllegalArgumentException, IOException {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("Invalid segment size: " + segmentSize);
+        }
+        this.file = new RandomAccessFile(file, mode);
+        this.segmentSize = segmentSize;
+        mapMode = mode.contains("w") ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+        length = this.file.length();
+        segments = new MappedByteBuffer[0];
+    }
+
+    /**
+     * Returns the maximum size of the memory mapped segments used by this instance.
+     *
+     * @return the maximum number of bytes mapped in a single segment.
+     */
+    public final int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * Returns the memory mapped segment by the given index, mapping it as necessary.
+     *
+     * @param  i           the segment index
+     *
+     * @return             the memory mapped segment.
+     *
+     * @throws IOException if the segment could not be mapped.
+     */
+    private synchronized ByteBuffer segment(int i) throws IOException {
+        if (i >= segments.length) {
+            segments = Arrays.copyOf(segments, i + 1);
+        }
+        if (segments[i] == null) {
+            long start = (long) i * segmentSize;
+            segments[i] = file.getChannel().map(mapMode, start, Math.min(segmentSize, length - start));
+        }
+        return segments[i].duplicate();
+    }
+
+    /**
+     * Discards the mappings of all segments starting at the specified file position, so they will be re-mapped when
+     * accessed next.
+     *
+     * @param from the file position from which to discard mappings.
+     */
+    private synchronized void discardSegments(long from) {
+        int i = (int) (from / segmentSize);
+        if (i < segments.length) {
+            segments = Arrays.copyOf(segments, i);
+        }
+    }
+
+    /**
+     * Transfers bytes between the file and a byte array, at the specified file position, without changing the current
+     * read/write position.
+     *
+     * @param  at          the file position
+     * @param  b           the byte array
+     * @param  from        the array index of the first byte to transfer
+     * @param  len         the number of bytes to transfer. It must not extend beyond the end of file.
+     * @param  isWrite     <code>true</code> to write the array content into the file, or <code>false</code> to read
+     *                         from the file into the array.
+     *
+     * @throws IOException if there was an error mapping a segment of the file.
+     */
+    private void transfer(long at, byte[] b, int from, int len, boolean isWrite) throws IOException {
+        while (len > 0) {
+            ByteBuffer s = segment((int) (at / segmentSize));
+            s.position((int) (at % segmentSize));
+            int n = Math.min(len, s.remaining());
+
+            if (isWrite) {
+                s.put(b, from, n);
+            } else {
+                s.get(b, from, n);
+            }
+
+            at += n;
+            from += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public synchronized int read() throws IOException {
+        if (pos >= length) {
+            return -1;
+        }
+        ByteBuffer s = segment((int) (pos / segmentSize));
+        return s.get((int) (pos++ % segmentSize)) & BYTE_MASK;
+    }
+
+    @Override
+    public synchronized int read(byte[] b, int from, int len) throws IOException {
+        if (len <= 0) {
+            return 0;
+        }
+        if (pos >= length) {
+            return -1;
+        }
+        int n = (int) Math.min(len, length - pos);
+        transfer(pos, b, from, n, false);
+        pos += n;
+        return n;
+    }
+
+    /**
+     * Reads bytes starting at the specified file position, without changing the current read/write position. The
+     * bytes are copied directly from the memory map, without locking, so it is safe (and efficient) to call
+     * concurrently from multiple threads.
+     */
+    @Override
+    public int readAt(long at, byte[] b, int from, int len) throws IOException {
+        if (len <= 0) {
+            return 0;
+        }
+        long size = length();
+        if (at >= size) {
+            return -1;
+        }
+        int n = (int) Math.min(len, size - at);
+        transfer(at, b, from, n, false);
+        return n;
+    }
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int from, int len) throws IOException {
+        if (len <= 0) {
+            return;
+        }
+        if (mapMode == FileChannel.MapMode.READ_ONLY) {
+            throw new IOException("File was opened in read-only mode");
+        }
+        if (pos + len > length) {
+            setLength(pos + len);
+        }
+        transfer(pos, b, from, len, true);
+        pos += len;
+    }
+
+    @Override
+    public synchronized long position() {
+        return pos;
+    }
+
+    @Override
+    public synchronized void position(long n) throws IOException {
+        if (n < 0) {
+            throw new IOException("Negative position: " + n);
+        }
+        pos = n;
+    }
+
+    @Override
+    public synchronized long length() {
+        return length;
+    }
+
+    @Override
+    public synchronized void setLength(long newLength) throws IOException {
+        file.setLength(newLength);
+        discardSegments(Math.min(length, newLength));
+        length = newLength;
+    }
+
+    @Override
+    public FileChannel getChannel() {
+        return file.getChannel();
+    }
+
+    @Override
+    public FileDescriptor getFD() throws IOException {
+        return file.getFD();
+    }
+
+    @Override
+    public synchronized String readUTF() throws IOException {
+        int hi = read();
+        int lo = read();
+        if ((hi | lo) < 0) {
+            throw new EOFException();
+        }
+
+        byte[] b = new byte[2 + (hi << FitsIO.BITS_OF_1_BYTE | lo)];
+        b[0] = (byte) hi;
+        b[1] = (byte) lo;
+
+        if (pos + b.length - 2 > length) {
+            throw new EOFException();
+        }
+        transfer(pos, b, 2, b.length - 2, false);
+        pos += b.length - 2;
+
+        return new DataInputStream(new ByteArrayInputStream(b)).readUTF();
+    }
+
+    @Override
+    public synchronized void writeUTF(String s) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new DataOutputStream(bytes).writeUTF(s);
+        write(bytes.toByteArray());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        segments = new MappedByteBuffer[0];
+        file.close();
+    }
+}
@@ -59,6 +59,13 @@ public abstract class OutputEncoder {
      */
     private static final int BUFFER_SIZE = FitsFactory.FITS_BLOCK_SIZE;
 
+    /**
+     * The maximum number of elements that are converted one by one, rather than in bulk via a typed view of the
+     * conversion buffer. Bulk conversions have a fixed cost per call, which is well worth paying for long runs of
+     * elements, but not for short ones.
+     */
+    private static final int ELEMENTWISE_LIMIT = 256;
+
     /**
      * The output to which to write encoded data (directly or from the conversion buffer)
      */
@@ -151,6 +158,18 @@ public abstract class OutputEncoder {
      * @throws IOException if there was an IO error writing the contents of this buffer to the output.
      */
     protected synchronized void flush() throws IOException {
+        flushBuffer();
+    }
+
+    /**
+     * Flushes the contents of the conversion buffer to the underlying output, without synchronization. It is the
+     * implementation of {@link #flush()}, which single-owner subclasses may call directly.
+     *
+     * @throws IOException if there was an IO error writing the contents of this buffer to the output.
+     *
+     * @since              1.21
+     */
+    final void flushBuffer() throws IOException {
         int n = buf.buffer.position();
         out.write(buf.data, 0, n);
         count += n;
@@ -446,6 +465,12 @@ public abstract class OutputEncoder {
         protected void put(short[] src, int start, int length) throws IOException {
             if (length == 1 && !isViewingAs(ElementType.SHORT.bufferClass())) {
                 putShort(src[start]);
+            } else if (length <= ELEMENTWISE_LIMIT) {
+                need(length * Short.BYTES);
+                view = null;
+                for (int i = 0; i < length; i++) {
+                    buffer.putShort(src[start + i]);
+                }
             } else {
                 put(ElementType.SHORT, src, start, length);
             }
@@ -465,6 +490,12 @@ public abstract class OutputEncoder {
         protected void put(int[] src, int start, int length) throws IOException {
             if (length == 1 && !isViewingAs(ElementType.INT.bufferClass())) {
                 putInt(src[start]);
+            } else if (length <= ELEMENTWISE_LIMIT) {
+                need(length * Integer.BYTES);
+                view = null;
+                for (int i = 0; i < length; i++) {
+                    buffer.putInt(src[start + i]);
+                }
             } else {
                 put(ElementType.INT, src, start, length);
             }
@@ -484,6 +515,12 @@ public abstract class OutputEncoder {
         protected void put(long[] src, int start, int length) throws IOException {
             if (length == 1 && !isViewingAs(ElementType.LONG.bufferClass())) {
                 putLong(src[start]);
+            } else if (length <= ELEMENTWISE_LIMIT) {
+                need(length * Long.BYTES);
+                view = null;
+                for (int i = 0; i < length; i++) {
+                    buffer.putLong(src[start + i]);
+                }
             } else {
                 put(ElementType.LONG, src, start, length);
             }
@@ -503,6 +540,12 @@ public abstract class OutputEncoder {
         protected void put(float[] src, int start, int length) throws IOException {
             if (length == 1 && !isViewingAs(ElementType.FLOAT.bufferClass())) {
                 putFloat(src[start]);
+            } else if (length <= ELEMENTWISE_LIMIT) {
+                need(length * Float.BYTES);
+                view = null;
+                for (int i = 0; i < length; i++) {
+                    buffer.putFloat(src[start + i]);
+                }
             } else {
                 put(ElementType.FLOAT, src, start, length);
             }
@@ -522,6 +565,12 @@ public abstract class OutputEncoder {
         protected void put(double[] src, int start, int length) throws IOException {
             if (length == 1 && !isViewingAs(ElementType.DOUBLE.bufferClass())) {
                 putDouble(src[start]);
+            } else if (length <= ELEMENTWISE_LIMIT) {
+                need(length * Double.BYTES);
+                view = null;
+                for (int i = 0; i < length; i++) {
+                    buffer.putDouble(src[start + i]);
+                }
             } else {
                 put(ElementType.DOUBLE, src, start, length);
             }
@@ -0,0 +1,142 @@
+package nom.tam.util;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A batch of independent tasks, which are executed in parallel by the workers of an executor, and whose results are
+ * collected in the order the tasks were added. The first task is left for the calling thread, and the rest are handed
+ * to the workers as they are added. When collecting the result of a task that no worker has started on yet, the calling
+ * thread runs the task itself. Thus, the tasks complete even if all workers are busy (e.g. with other batches that wait
+ * on their own tasks), and a batch of a single task is run by the calling thread alone.
+ *
+ * @param  <T> the generic type of the task results
+ *
+ * @author     Attila Kovacs
+ *
+ * @since      1.21
+ */
+public final class ParallelTasks<T> {
+
+    /** The executor that runs all but the first task */
+    private final Executor executor;
+
+    /** What the tasks do, for the messages of exceptions */
+    private final String what;
+
+    /** The tasks in the order they were added */
+    private final ArrayList<FutureTask<T>> tasks = new ArrayList<>();
+
+    /**
+     * Instantiates a new empty batch of parallel tasks.
+     *
+     * @param executor the executor that runs all but the first task
+     * @param what     a short description of what the tasks do (e.g. "parsing header"), which is used in the
+     *                     messages of exceptions.
+     */
+    public ParallelTasks(Executor executor, String what) {
+        this.executor = executor;
+        this.what = what;
+    }
+
+    /**
+     * Adds a new task to this batch. Unless it is the first task, it is handed to a worker right away.
+     *
+     * @param  call the task to add
+     *
+     * @return      the index of the task in this batch
+     *
+     * @see         #get(int)
+     */
+    public int add(Callable<T> call) {
+        FutureTask<T> task = new FutureTask<>(call);
+        tasks.add(task);
+        if (tasks.size() > 1) {
+            executor.execute(task);
+        }
+        return tasks.size() - 1;
+    }
+
+    /**
+     * Returns the number of tasks in this batch.
+     *
+     * @return the number of tasks added so far.
+     */
+    public int size() {
+        return tasks.size();
+    }
+
+    /**
+     * Returns the result of a task, running it in the calling thread if no worker has started on it yet, or else
+     * waiting for it to complete. Unchecked exceptions thrown by the task are rethrown as is.
+     *
+     * @param  k           the index of the task in this batch
+     *
+     * @return             the result of the task
+     *
+     * @throws IOException if the task threw an {@link IOException} or another checked exception (as its cause), or if
+     *                         the wait was interrupted.
+     *
+     * @see                #add(Callable)
+     */
+    public T get(int k) throws IOException {
+        FutureTask<T> task = tasks.get(k);
+
+        // Run it ourselves if no worker has started on it yet.
+        task.run();
+
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while " + what, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException("Error " + what, cause);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package nom.tam.util;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A sequential input stream view of a random accessible file, starting at a given file position. It maintains its own
+ * read position and uses only positional reads to access the file, so that it does not interfere with the file pointer
+ * of the underlying file, or with other such views of the same file.
+ *
+ * @author Attila Kovacs
+ *
+ * @since  1.21
+ *
+ * @see    RandomAccess#inputAt(long)
+ */
+final class PositionalInputStream extends InputStream {
+
+    /** Bit mask for a single byte */
+    private static final int BYTE_MASK = 0xFF;
+
+    /** The underlying random accessible file */
+    private final RandomAccess file;
+
+    /** The file position from which to read next */
+    private long pos;
+
+    /**
+     * Instantiates a new sequential input stream view of a file, starting at the specified position.
+     *
+     * @param file  the underlying random accessible file
+     * @param start the file position from which to start reading
+     */
+    PositionalInputStream(RandomAccess file, long start) {
+        this.file = file;
+        pos = start;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int n = read(b, 0, 1);
+        return n == 1 ? b[0] & BYTE_MASK : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int from, int len) throws IOException {
+        if (len <= 0) {
+            return 0;
+        }
+        int n = file.readAt(pos, b, from, len);
+        if (n > 0) {
+            pos += n;
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long k = Math.max(0, Math.min(n, file.length() - pos));
+        pos += k;
+        return k;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, file.length() - pos));
+    }
+
+    /**
+     * Closing the view does nothing, since the underlying file remains open.
+     */
+    @Override
+    public void close() {
+    }
+}
@@ -1,5 +1,6 @@
 package nom.tam.util;
 
+import java.io.EOFException;
 import java.io.IOException;
 
 /*
@@ -62,4 +63,92 @@ public interface RandomAccess extends ReadWriteAccess, ArrayDataInput {
         seek(pos);
     }
 
+    /**
+     * Reads bytes starting at the specified file position, without using or changing the current file pointer (like
+     * {@link java.nio.channels.FileChannel#read(java.nio.ByteBuffer, long)}). Implementations should make this method
+     * safe to call concurrently from multiple threads, so that different parts of the same file may be read in
+     * parallel. The default implementation temporarily moves the file pointer while holding a lock on this object, and
+     * so it is safe only against other positional reads.
+     * <p>
+     * <b>WARNING!</b> Implementations that read via a {@link java.nio.channels.FileChannel} (such as
+     * {@link FitsFile}) close the file for all threads if a thread is interrupted while it is reading. Do not interrupt
+     * threads (e.g. via {@link java.util.concurrent.Future#cancel(boolean)} with <code>true</code>) while they may be
+     * reading from a shared file.
+     * </p>
+     *
+     * @param  pos         the file position from which to read
+     * @param  b           the destination array
+     * @param  from        the array index of the first byte to populate
+     * @param  length      the maximum number of bytes to read
+     *
+     * @return             the number of bytes actually read, which may be fewer than requested, or -1 if the position
+     *                         is at or beyond the end of file.
+     *
+     * @throws IOException if there was an IO error.
+     *
+     * @see                #readFullyAt(long, byte[], int, int)
+     * @see                #inputAt(long)
+     *
+     * @since              1.21
+     */
+    default int readAt(long pos, byte[] b, int from, int length) throws IOException {
+        synchronized (this) {
+            long current = getFilePointer();
+            try {
+                seek(pos);
+                return read(b, from, length);
+            } finally {
+                seek(current);
+            }
+        }
+    }
+
+    /**
+     * Reads the requested number of bytes starting at the specified file position, without using or changing the
+     * current file pointer.
+     *
+     * @param  pos          the file position from which to read
+     * @param  b            the destination array
+     * @param  from         the array index of the first byte to populate
+     * @param  length       the number of bytes to read
+     *
+     * @throws EOFException if the end of file was reached before the requested number of bytes could be read.
+     * @throws IOException  if there was an IO error.
+     *
+     * @see                 #readAt(long, byte[], int, int)
+     *
+     * @since               1.21
+     */
+    default void readFullyAt(long pos, byte[] b, int from, int length) throws EOFException, IOException {
+        int got = 0;
+        while (got < length) {
+            int n = readAt(pos + got, b, from + got, length - got);
+            if (n < 0) {
+                throw new EOFException("Reached end-of-file after " + got + " of " + length + " bytes");
+            }
+            got += n;
+        }
+    }
+
+    /**
+     * Returns a new sequential input, which reads data starting from the specified position in this file. The
+     * returned input has its own read position, and uses only positional reads (see
+     * {@link #readAt(long, byte[], int, int)}) to access the file. Thus, it does not interfere with the file pointer of
+     * this file or with other inputs obtained this way, which makes it suitable for loading different parts of the
+     * same file concurrently.
+     * <p>
+     * <b>WARNING!</b> Since the returned input uses positional reads, interrupting a thread while it is reading from it
+     * may close the underlying file for all threads. See {@link #readAt(long, byte[], int, int)}.
+     * </p>
+     *
+     * @param  pos the file position from which the returned input will start reading
+     *
+     * @return     a new independent input that reads from this file starting at the specified position.
+     *
+     * @since      1.21
+     */
+    default ArrayDataInput inputAt(long pos) {
+        return new FitsInputStream(new PositionalInputStream(this, pos));
+    }
+
 }
@@ -35,6 +35,7 @@ import java.io.Closeable;
 import java.io.FileDescriptor;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 
 /**
@@ -75,6 +76,56 @@ public interface RandomAccessFileIO extends ReadWriteAccess, Closeable {
      */
     String readUTF() throws IOException;
 
+    /**
+     * <p>
+     * Reads bytes starting at the specified file position, without changing the current read/write position. The
+     * default implementation uses {@link FileChannel#read(ByteBuffer, long)} if the file has a channel, which is safe
+     * to call concurrently from multiple threads. Otherwise it temporarily repositions this input, while holding
+     * a lock on this object. Implementations that do not provide a file channel are encouraged to override this
+     * method with one that is thread safe.
+     * </p>
+     * <p>
+     * <b>WARNING!</b> File channels are interruptible: if a thread is interrupted (e.g. via
+     * {@link java.util.concurrent.Future#cancel(boolean)} with <code>true</code>) while it is reading from the channel,
+     * the channel and the file are closed, and become unusable for all other threads also. To limit the damage, threads
+     * that are already interrupted when calling this method read via the synchronized file pointer instead, which is
+     * not affected by interrupts. However, you should not interrupt threads while they may be reading from a shared
+     * file.
+     * </p>
+     *
+     * @param  pos         the file position from which to read
+     * @param  b           the destination array
+     * @param  from        the array index of the first byte to populate
+     * @param  length      the maximum number of bytes to read
+     *
+     * @return             the number of bytes actually read, which may be fewer than requested, or -1 if the position
+     *                         is at or beyond the end of file.
+     *
+     * @throws IOException if there was an IO error
+     *
+     * @see                #read(byte[], int, int)
+     *
+     * @since              1.21
+     */
+    default int readAt(long pos, byte[] b, int from, int length) throws IOException {
+        FileChannel channel = getChannel();
+
+        // An interrupted thread would close the channel for everyone, so it uses the file pointer instead.
+        if (channel != null && !Thread.currentThread().isInterrupted()) {
+            return channel.read(ByteBuffer.wrap(b, from, length), pos);
+        }
+
+        synchronized (this) {
+            long current = position();
+            try {
+                position(pos);
+                return read(b, from, length);
+            } finally {
+                position(current);
+            }
+        }
+    }
+
     /**
      * Obtain the current FileChannel instance. For instances that do not use File backed sources
      *
@@ -0,0 +1,166 @@
+package nom.tam.util;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.EOFException;
+import java.io.IOException;
+
+import nom.tam.fits.FitsFactory;
+
+/**
+ * A FITS decoder for inputs that are confined to a single thread. It is functionally identical to {@link FitsDecoder},
+ * except that its methods are not synchronized, which avoids the cost of acquiring a monitor (or several nested ones)
+ * for every decoded value. It must not be used by more than one thread at a time.
+ *
+ * @author Attila Kovacs
+ *
+ * @since  1.21
+ *
+ * @see    FitsFile#setSingleOwner(boolean)
+ * @see    FitsInputStream#setSingleOwner(boolean)
+ */
+@SuppressWarnings("deprecation")
+final class SingleOwnerDecoder extends FitsDecoder {
+
+    /** The input from which we read */
+    private InputReader reader;
+
+    /**
+     * Instantiates a new unsynchronized FITS decoder for the specified input.
+     *
+     * @param i the FITS input.
+     */
+    SingleOwnerDecoder(InputReader i) {
+        super(i);
+        reader = i;
+    }
+
+    @Override
+    protected void setInput(InputReader i) {
+        super.setInput(i);
+        reader = i;
+    }
+
+    @Override
+    protected int read() throws IOException {
+        return reader.read();
+    }
+
+    @Override
+    protected int read(byte[] b, int start, int length) throws IOException {
+        return reader.read(b, start, length);
+    }
+
+    @Override
+    protected boolean readBoolean() throws EOFException, IOException {
+        return booleanFor(readByte());
+    }
+
+    @Override
+    protected char readChar() throws EOFException, IOException {
+        int b = FitsFactory.isUseUnicodeChars() ? readUnsignedShort() : read();
+        if (b < 0) {
+            throw new EOFException();
+        }
+        return (char) b;
+    }
+
+    @Override
+    protected int readUnsignedByte() throws IOException {
+        return read();
+    }
+
+    @Override
+    protected int readUnsignedShort() throws IOException {
+        getInputBuffer().loadOne(Short.BYTES);
+        return getInputBuffer().getUnsignedShort();
+    }
+
+    @Override
+    protected int readInt() throws EOFException, IOException {
+        getInputBuffer().loadOne(Integer.BYTES);
+        return getInputBuffer().getInt();
+    }
+
+    @Override
+    protected long readLong() throws EOFException, IOException {
+        getInputBuffer().loadOne(Long.BYTES);
+        return getInputBuffer().getLong();
+    }
+
+    @Override
+    protected float readFloat() throws EOFException, IOException {
+        getInputBuffer().loadOne(Float.BYTES);
+        return getInputBuffer().getFloat();
+    }
+
+    @Override
+    protected double readDouble() throws EOFException, IOException {
+        getInputBuffer().loadOne(Double.BYTES);
+        return getInputBuffer().getDouble();
+    }
+
+    @Override
+    protected int read(short[] s, int start, int length) throws EOFException, IOException {
+        getInputBuffer().loadBytes(length, Short.BYTES);
+        return getInputBuffer().get(s, start, length) * Short.BYTES;
+    }
+
+    @Override
+    protected int read(int[] j, int start, int length) throws EOFException, IOException {
+        getInputBuffer().loadBytes(length, Integer.BYTES);
+        return getInputBuffer().get(j, start, length) * Integer.BYTES;
+    }
+
+    @Override
+    protected int read(long[] l, int start, int length) throws EOFException, IOException {
+        getInputBuffer().loadBytes(length, Long.BYTES);
+        return getInputBuffer().get(l, start, length) * Long.BYTES;
+    }
+
+    @Override
+    protected int read(float[] f, int start, int length) throws EOFException, IOException {
+        getInputBuffer().loadBytes(length, Float.BYTES);
+        return getInputBuffer().get(f, start, length) * Float.BYTES;
+    }
+
+    @Override
+    protected int read(double[] d, int start, int length) throws EOFException, IOException {
+        getInputBuffer().loadBytes(length, Double.BYTES);
+        return getInputBuffer().get(d, start, length) * Double.BYTES;
+    }
+
+    @Override
+    public long readArray(Object o) throws IOException, IllegalArgumentException {
+        return decodeArray(o);
+    }
+}
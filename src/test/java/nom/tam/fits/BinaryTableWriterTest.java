@@ -0,0 +1,263 @@
+package nom.tam.fits;
+
+/*-
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Test;
+
+import nom.tam.fits.BinaryTable.ColumnDesc;
+import nom.tam.fits.header.Standard;
+import nom.tam.util.ArrayDataOutput;
+import nom.tam.util.FitsFile;
+import nom.tam.util.FitsOutputStream;
+import nom.tam.util.TableException;
+
+public class BinaryTableWriterTest {
+
+    private static final int ROWS = 10000;
+
+    private final File file = new File("target/table-writer.fits");
+
+    @After
+    public void cleanup() {
+        file.delete();
+    }
+
+    private static BinaryTableWriter newWriter(ArrayDataOutput out) throws Exception {
+        return new BinaryTableWriter(out, ColumnDesc.createForScalars(int.class),
+                ColumnDesc.createForFixedArrays(double.class, 3), ColumnDesc.createForStrings(10),
+                ColumnDesc.createForVariableSize(float.class), ColumnDesc.createForVariableSize(boolean.class));
+    }
+
+    private static void writeRows(BinaryTableWriter w, int rows) throws Exception {
+        for (int i = 0; i < rows; i++) {
+            float[] vla = new float[i % 7];
+            for (int j = 0; j < vla.length; j++) {
+                vla[j] = i + j;
+            }
+            w.addRow(i, new double[] {i, -i, 0.5 * i}, "row " + i, vla, new boolean[] {i % 2 == 0});
+        }
+        assertEquals(rows, w.getNRows());
+    }
+
+    private void checkTable(int rows) throws Exception {
+        try (Fits fits = new Fits(file)) {
+            BinaryTableHDU hdu = (BinaryTableHDU) fits.getHDU(1);
+            Header h = hdu.getHeader();
+            BinaryTable tab = hdu.getData();
+
+            assertEquals(rows, h.getLongValue(Standard.NAXIS2));
+            assertEquals(rows, tab.getNRows());
+            assertEquals(5, tab.getNCols());
+            assertEquals((long) rows * h.getIntValue(Standard.NAXIS1), h.getLongValue(Standard.THEAP));
+
+            long heap = 0;
+            for (int i = 0; i < rows; i++) {
+                assertEquals(i, tab.get(i, 0));
+                assertArrayEquals(new double[] {i, -i, 0.5 * i}, (double[]) tab.get(i, 1), 0.0);
+                assertEquals("row " + i, tab.get(i, 2));
+
+                float[] vla = (float[]) tab.get(i, 3);
+                assertEquals(i % 7, vla.length);
+                for (int j = 0; j < vla.length; j++) {
+                    assertEquals(i + j, vla[j], 0.0F);
+                }
+
+                assertArrayEquals(new boolean[] {i % 2 == 0}, (boolean[]) tab.get(i, 4));
+                heap += 4 * vla.length + 1;
+            }
+
+            assertEquals(heap, h.getLongValue(Standard.PCOUNT));
+        }
+    }
+
+    @Test
+    public void testWriteToFitsFile() throws Exception {
+        try (FitsFile out = new FitsFile(file, "rw")) {
+            BasicHDU.getDummyHDU().write(out);
+            try (BinaryTableWriter w = newWriter(out)) {
+                writeRows(w, ROWS);
+            }
+        }
+        checkTable(ROWS);
+    }
+
+    @Test
+    public void testWriteToStream() throws Exception {
+        try (FitsOutputStream out = new FitsOutputStream(new FileOutputStream(file))) {
+            BasicHDU.getDummyHDU().write(out);
+            try (BinaryTableWriter w = newWriter(out)) {
+                writeRows(w, ROWS);
+            }
+
+            // Another HDU after the table
+            ImageHDU im = (ImageHDU) Fits.makeHDU(new int[] {1, 2, 3});
+            im.write(out);
+        }
+
+        checkTable(ROWS);
+
+        try (Fits fits = new Fits(file)) {
+            assertArrayEquals(new int[] {1, 2, 3}, (int[]) fits.getHDU(2).getKernel());
+        }
+    }
+
+    @Test
+    public void testEmptyTable() throws Exception {
+        try (FitsFile out = new FitsFile(file, "rw")) {
+            BasicHDU.getDummyHDU().write(out);
+            newWriter(out).close();
+        }
+
+        try (Fits fits = new Fits(file)) {
+            BinaryTableHDU hdu = (BinaryTableHDU) fits.getHDU(1);
+            assertEquals(0, hdu.getData().getNRows());
+            assertEquals(0, hdu.getHeader().getLongValue(Standard.PCOUNT));
+        }
+    }
+
+    @Test
+    public void testFixedColumnsOnly() throws Exception {
+        try (FitsOutputStream out = new FitsOutputStream(new FileOutputStream(file))) {
+            BasicHDU.getDummyHDU().write(out);
+            try (BinaryTableWriter w = new BinaryTableWriter(out, ColumnDesc.createForScalars(long.class))) {
+                w.addRows(new Object[][] {{1L}, {2L}, {3L}});
+            }
+        }
+
+        try (Fits fits = new Fits(file)) {
+            BinaryTableHDU hdu = (BinaryTableHDU) fits.getHDU(1);
+            assertFalse(hdu.getHeader().containsKey(Standard.THEAP));
+            assertEquals(3, hdu.getData().getNRows());
+            assertEquals(2L, hdu.getData().get(1, 0));
+        }
+    }
+
+    @Test
+    public void testCustomHeader() throws Exception {
+        try (FitsFile out = new FitsFile(file, "rw")) {
+            BasicHDU.getDummyHDU().write(out);
+            try (BinaryTableWriter w = newWriter(out)) {
+                w.getHeader().addValue("EXTNAME", "STREAMED", "streamed table");
+                writeRows(w, 3);
+            }
+        }
+
+        checkTable(3);
+
+        try (Fits fits = new Fits(file)) {
+            assertEquals("STREAMED", fits.getHDU(1).getHeader().getStringValue("EXTNAME"));
+        }
+    }
+
+    @Test
+    public void testHeaderGrownAfterRows() throws Exception {
+        boolean thrown = false;
+
+        try (FitsFile out = new FitsFile(file, "rw")) {
+            BasicHDU.getDummyHDU().write(out);
+            BinaryTableWriter w = newWriter(out);
+            writeRows(w, 3);
+
+            for (int i = 0; i < 40; i++) {
+                w.getHeader().addValue("KEY" + i, i, null);
+            }
+
+            try {
+                w.close();
+            } catch (IOException e) {
+                thrown = true;
+            }
+        }
+
+        assertTrue(thrown);
+    }
+
+    @Test
+    public void testInvalidRows() throws Exception {
+        try (FitsFile out = new FitsFile(file, "rw")) {
+            BasicHDU.getDummyHDU().write(out);
+            try (BinaryTableWriter w = newWriter(out)) {
+                writeRows(w, 2);
+
+                int errors = 0;
+                try {
+                    w.addRow(1, new double[3], "a");
+                } catch (TableException e) {
+                    errors++;
+                }
+                try {
+                    w.addRow(1, new double[2], "a", new float[0], new boolean[1]);
+                } catch (TableException e) {
+                    errors++;
+                }
+                try {
+                    w.addRow(1, new double[3], "a", null, new boolean[1]);
+                } catch (TableException e) {
+                    errors++;
+                }
+
+                assertEquals(3, errors);
+                assertEquals(2, w.getNRows());
+            }
+        }
+
+        // Nothing was written for the invalid rows
+        checkTable(2);
+    }
+
+    @Test(expected = FitsException.class)
+    public void testAddAfterClose() throws Exception {
+        try (FitsOutputStream out = new FitsOutputStream(new FileOutputStream(file))) {
+            BinaryTableWriter w = newWriter(out);
+            w.close();
+            w.addRow(1, new double[3], "a", new float[0], new boolean[1]);
+        }
+    }
+
+    @Test(expected = TableException.class)
+    public void testNoColumns() throws Exception {
+        try (FitsOutputStream out = new FitsOutputStream(new FileOutputStream(file))) {
+            new BinaryTableWriter(out);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package nom.tam.fits;
+
+/*-
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DataCacheTest {
+
+    private static final int N = 4;
+
+    private static final int IMAGE_ROWS = 50;
+
+    private static final int IMAGE_COLS = 60;
+
+    private static final long IMAGE_BYTES = IMAGE_ROWS * IMAGE_COLS * 4;
+
+    private File file;
+
+    @Before
+    public void setup() throws Exception {
+        file = new File("target/data-cache.fits");
+
+        try (Fits fits = new Fits()) {
+            for (int k = 0; k < N; k++) {
+                fits.addHDU(Fits.makeHDU(SampleData.createImage(k, IMAGE_ROWS, IMAGE_COLS)));
+            }
+            fits.write(file);
+        }
+    }
+
+    @After
+    public void cleanup() {
+        FitsFactory.setDataCache(null);
+        file.delete();
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed() throws Exception {
+        DataCache cache = new DataCache(2 * IMAGE_BYTES);
+        FitsFactory.setDataCache(cache);
+        assertEquals(cache, FitsFactory.getDataCache());
+        assertEquals(2 * IMAGE_BYTES, cache.getBudget());
+
+        try (Fits fits = new Fits(file)) {
+            fits.read();
+
+            fits.getHDU(0).getKernel();
+            fits.getHDU(1).getKernel();
+            assertEquals(2, cache.getMisses());
+            assertEquals(0, cache.getEvictions());
+            assertEquals(2 * IMAGE_BYTES, cache.getLoadedBytes());
+
+            // Make HDU 0 the most recently used.
+            fits.getHDU(0).getKernel();
+            assertEquals(1, cache.getHits());
+
+            // Loading HDU 2 will evict HDU 1
+            fits.getHDU(2).getKernel();
+            assertEquals(3, cache.getMisses());
+            assertEquals(1, cache.getEvictions());
+            assertEquals(2 * IMAGE_BYTES, cache.getLoadedBytes());
+
+            assertFalse(fits.getHDU(0).getData().isDeferred());
+            assertTrue(fits.getHDU(1).getData().isDeferred());
+            assertFalse(fits.getHDU(2).getData().isDeferred());
+
+            // HDU 1 is reloaded transparently
+            assertArrayEquals(SampleData.createImage(1, IMAGE_ROWS, IMAGE_COLS), (int[][]) fits.getHDU(1).getKernel());
+            assertEquals(4, cache.getMisses());
+            assertEquals(2, cache.getEvictions());
+            assertTrue(fits.getHDU(0).getData().isDeferred());
+        }
+
+        cache.resetStatistics();
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getMisses());
+        assertEquals(0, cache.getEvictions());
+    }
+
+    @Test
+    public void testModifiedNotEvicted() throws Exception {
+        DataCache cache = new DataCache(IMAGE_BYTES);
+        FitsFactory.setDataCache(cache);
+
+        try (Fits fits = new Fits(file)) {
+            fits.read();
+
+            ImageData data = (ImageData) fits.getHDU(0).getData();
+            data.getData();
+            data.setTile(new int[] {0, 0}, new int[] {1, 1}, new int[] {-1});
+
+            fits.getHDU(1).getKernel();
+            fits.getHDU(2).getKernel();
+
+            // HDU 0 is retained, since it has unsaved modifications
+            assertFalse(data.isDeferred());
+            assertEquals(-1, ((int[][]) data.getData())[0][0]);
+
+            // Once written back, it may be evicted.
+            data.rewriteModified();
+            fits.getHDU(3).getKernel();
+            assertTrue(data.isDeferred());
+            assertEquals(-1, ((int[][]) data.getData())[0][0]);
+        }
+    }
+
+    @Test
+    public void testDetachedNotTracked() throws Exception {
+        DataCache cache = new DataCache(0);
+        FitsFactory.setDataCache(cache);
+
+        try (Fits fits = new Fits(file)) {
+            fits.read();
+
+            Data data = fits.getHDU(0).getData();
+            data.detach();
+            assertEquals(0, cache.getLoadedBytes());
+
+            fits.getHDU(1).getKernel();
+            fits.getHDU(2).getKernel();
+            assertFalse(data.isDeferred());
+            assertArrayEquals(SampleData.createImage(0, IMAGE_ROWS, IMAGE_COLS), (int[][]) data.getData());
+        }
+    }
+
+    @Test
+    public void testTableEvicted() throws Exception {
+        File tabFile = new File("target/data-cache-table.fits");
+
+        try (Fits fits = new Fits()) {
+            fits.addHDU(BinaryTableHDU.wrap(BinaryTable.fromColumnMajor(new Object[] {new double[100], new int[100][3]})));
+            fits.addHDU(Fits.makeHDU(SampleData.createImage(0, IMAGE_ROWS, IMAGE_COLS)));
+            fits.write(tabFile);
+        }
+
+        FitsFactory.setDataCache(new DataCache(0));
+
+        try (Fits fits = new Fits(tabFile)) {
+            fits.read();
+
+            BinaryTable tab = (BinaryTable) fits.getHDU(1).getData();
+            tab.getData();
+            fits.getHDU(2).getKernel();
+            assertTrue(tab.isDeferred());
+
+            tab.getData();
+            assertTrue(fits.getHDU(2).getData().isDeferred());
+            tab.set(5, 0, 5.0);
+
+            // Modified rows are retained
+            fits.getHDU(2).getKernel();
+            assertFalse(tab.isDeferred());
+            assertEquals(5.0, tab.getDouble(5, 0), 0.0);
+        } finally {
+            tabFile.delete();
+        }
+    }
+
+    @Test
+    public void testPinnedNotEvicted() throws Exception {
+        FitsFactory.setDataCache(new DataCache(0));
+
+        try (Fits fits = new Fits(file)) {
+            fits.read();
+
+            Data data = fits.getHDU(0).getData();
+            data.pin();
+            data.getData();
+            fits.getHDU(1).getKernel();
+            assertFalse(data.isDeferred());
+
+            data.unpin();
+            fits.getHDU(2).getKernel();
+            assertTrue(data.isDeferred());
+        }
+    }
+
+    @Test
+    public void testConcurrentTables() throws Exception {
+        final int rows = 1000;
+        File tabFile = new File("target/data-cache-tables.fits");
+
+        try (Fits fits = new Fits()) {
+            for (int i = 0; i < 3; i++) {
+                fits.addHDU(BinaryTableHDU.wrap(SampleData.createMixedTable(rows)));
+            }
+            fits.write(tabFile);
+        }
+
+        // Every load evicts the other table
+        DataCache cache = new DataCache(1);
+        FitsFactory.setDataCache(cache);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+
+        try (Fits fits = new Fits(tabFile)) {
+            fits.read();
+
+            final BinaryTable[] tabs = {(BinaryTable) fits.getHDU(1).getData(), (BinaryTable) fits.getHDU(2).getData()};
+
+            List<Future<Void>> results = new ArrayList<>();
+            for (int t = 0; t < 2; t++) {
+                final int first = t;
+                results.add(pool.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        BinaryTable tab = tabs[(first + i) % 2];
+                        int row = i % rows;
+
+                        assertNotNull(tab.getData());
+                        assertEquals(rows, ((int[]) tab.getFlatColumns()[0]).length);
+                        assertEquals(rows, ((int[]) tab.getColumn(0)).length);
+                        assertEquals(rows, ((long[]) tab.getFlattenedColumn(5)).length);
+                        assertEquals(row, ((int[]) tab.getRawElement(row, 0))[0]);
+                        assertEquals(-3L * row, tab.getLong(row, 5));
+                        assertEquals("row " + row, tab.getString(row, 2));
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<Void> f : results) {
+                // Rethrows any assertion error or exception from the worker
+                f.get();
+            }
+
+            // Nothing is in use now, so loading the third table must evict
+            fits.getHDU(3).getKernel();
+            assertTrue(cache.getEvictions() > 0);
+            assertTrue(tabs[0].isDeferred() || tabs[1].isDeferred());
+        } finally {
+            pool.shutdown();
+            tabFile.delete();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeBudget() throws Exception {
+        new DataCache(-1);
+    }
+
+    @Test
+    public void testNoCache() throws Exception {
+        try (Fits fits = new Fits(file)) {
+            fits.read();
+            for (int k = 0; k < N; k++) {
+                fits.getHDU(k).getKernel();
+            }
+            for (int k = 0; k < N; k++) {
+                assertFalse(fits.getHDU(k).getData().isDeferred());
+            }
+        }
+    }
+}
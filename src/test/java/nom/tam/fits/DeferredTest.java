@@ -30,12 +30,23 @@ package nom.tam.fits;
  * OTHER DEALINGS IN THE SOFTWARE.
  * #L%
  */
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Test;
 
 import nom.tam.util.ArrayDataInput;
 import nom.tam.util.ArrayDataOutput;
+import nom.tam.util.FitsFile;
 
 public class DeferredTest {
 
@@ -79,6 +90,168 @@ public class DeferredTest {
         }.rewrite(); // No exception is good enough!
     }
 
+    @Test
+    public void concurrentDeferredLoading() throws Exception {
+        File file = new File("target/deferred-concurrent.fits");
+        int nHDU = 8;
+
+        try (Fits fits = new Fits()) {
+            for (int k = 0; k < nHDU; k++) {
+                int[][] im = new int[50][60];
+                for (int i = 0; i < im.length; i++) {
+                    for (int j = 0; j < im[i].length; j++) {
+                        im[i][j] = k * 10000 + i * 100 + j;
+                    }
+                }
+                fits.addHDU(Fits.makeHDU(im));
+            }
+            int[][] vla = new int[100][];
+            for (int i = 0; i < vla.length; i++) {
+                vla[i] = new int[i % 7 + 1];
+                vla[i][0] = i;
+            }
+            fits.addHDU(BinaryTableHDU.wrap(BinaryTable.fromColumnMajor(new Object[] {vla})));
+            fits.write(file);
+        }
+
+        ExecutorService exec = Executors.newFixedThreadPool(4);
+
+        try (FitsFile in = new FitsFile(file, "r"); Fits fits = new Fits(in)) {
+            fits.read();
+            long pos = in.getFilePointer();
+
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int n = 0; n < 3; n++) {
+                for (int k = 0; k < nHDU; k++) {
+                    final int hdu = k;
+                    results.add(exec.submit(() -> {
+                        ImageHDU image = (ImageHDU) fits.getHDU(hdu);
+                        int[] tile = (int[]) image.getTiler().getTile(new int[] {10, 20}, new int[] {2, 3});
+                        assertEquals(hdu * 10000 + 1020, tile[0]);
+                        assertEquals(hdu * 10000 + 1122, tile[5]);
+                        int[][] im = (int[][]) image.getKernel();
+                        return im[49][59] == hdu * 10000 + 4959;
+                    }));
+                }
+                results.add(exec.submit(() -> {
+                    BinaryTable tab = (BinaryTable) fits.getHDU(nHDU).getData();
+                    return ((int[]) tab.get(77, 0))[0] == 77;
+                }));
+            }
+
+            for (Future<Boolean> f : results) {
+                assertTrue(f.get());
+            }
+
+            // The file pointer of the shared input is not touched by deferred loading.
+            assertEquals(pos, in.getFilePointer());
+
+            BinaryTable tab = (BinaryTable) fits.getHDU(nHDU).getData();
+            assertArrayEquals(new int[] {33, 0, 0, 0, 0, 0}, (int[]) tab.get(33, 0));
+        } finally {
+            exec.shutdown();
+            file.delete();
+        }
+    }
+
+    private static File writePassthroughSource() throws Exception {
+        File file = new File("target/deferred-passthrough.fits");
+
+        try (Fits fits = new Fits()) {
+            for (int k = 0; k < 3; k++) {
+                short[][] im = new short[100 + k][77];
+                for (int i = 0; i < im.length; i++) {
+                    for (int j = 0; j < im[i].length; j++) {
+                        im[i][j] = (short) (k * 1000 + i + j);
+                    }
+                }
+                fits.addHDU(Fits.makeHDU(im));
+            }
+            int[][] vla = new int[100][];
+            for (int i = 0; i < vla.length; i++) {
+                vla[i] = new int[i % 7 + 1];
+                vla[i][0] = i;
+            }
+            fits.addHDU(BinaryTableHDU.wrap(BinaryTable.fromColumnMajor(new Object[] {vla})));
+            fits.write(file);
+        }
+
+        return file;
+    }
+
+    private static void checkPassthroughCopy(File file) throws Exception {
+        try (Fits fits = new Fits(file)) {
+            assertEquals(4, fits.read().length);
+            assertEquals("fixed", fits.getHDU(1).getHeader().getStringValue("EDITED"));
+            for (int k = 0; k < 3; k++) {
+                short[][] im = (short[][]) fits.getHDU(k).getKernel();
+                assertEquals(100 + k, im.length);
+                assertEquals(k * 1000 + 99 + 76, im[99][76]);
+            }
+            BinaryTable tab = (BinaryTable) fits.getHDU(3).getData();
+            assertArrayEquals(new int[] {33, 0, 0, 0, 0, 0}, (int[]) tab.get(33, 0));
+        }
+    }
+
+    @Test
+    public void writeDeferredPassthrough() throws Exception {
+        File file = writePassthroughSource();
+        File fileCopy = new File("target/deferred-passthrough-file.fits");
+        File streamCopy = new File("target/deferred-passthrough-stream.fits");
+
+        try (Fits fits = new Fits(file)) {
+            fits.read();
+            fits.getHDU(1).getHeader().addValue("EDITED", "fixed", "header-only edit");
+
+            try (FitsFile out = new FitsFile(fileCopy, "rw")) {
+                // Some pre-existing content to overwrite, to check that no stale buffer is used after transfers
+                out.write(new byte[100000]);
+                out.seek(0);
+                fits.write(out);
+            }
+            fits.write(streamCopy);
+
+            // Data was copied without loading
+            for (int k = 0; k < 4; k++) {
+                assertTrue(fits.getHDU(k).getData().isDeferred());
+            }
+        }
+
+        checkPassthroughCopy(fileCopy);
+        checkPassthroughCopy(streamCopy);
+
+        assertEquals(file.length(), fileCopy.length());
+        assertEquals(fileCopy.length(), streamCopy.length());
+
+        file.delete();
+        fileCopy.delete();
+        streamCopy.delete();
+    }
+
+    @Test
+    public void writeDeferredTableWithModifiedHeap() throws Exception {
+        File file = writePassthroughSource();
+        File copy = new File("target/deferred-passthrough-heap.fits");
+
+        try (Fits fits = new Fits(file)) {
+            fits.read();
+            BinaryTable tab = (BinaryTable) fits.getHDU(3).getData();
+            tab.set(5, 0, new int[] {-1, -2, -3});
+            assertTrue(tab.isDeferred());
+            assertFalse(tab.isPassthrough());
+            fits.write(copy);
+        }
+
+        try (Fits fits = new Fits(copy)) {
+            BinaryTable tab = (BinaryTable) fits.getHDU(3).getData();
+            assertArrayEquals(new int[] {-1, -2, -3}, (int[]) tab.get(5, 0));
+            assertArrayEquals(new int[] {6, 0, 0, 0, 0, 0, 0}, (int[]) tab.get(6, 0));
+        }
+
+        file.delete();
+        copy.delete();
+    }
+
     class DefaultData extends Data {
         @Override
         protected void fillHeader(Header head) throws FitsException {
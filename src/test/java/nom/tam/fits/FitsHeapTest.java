@@ -175,4 +175,11 @@ public class FitsHeapTest {
 
     }
 
+    @Test
+    public void testSortByOffset() throws Exception {
+        long[] off = {40L, 0L, 1L << 40, 40L, 8L, 0L};
+        Assert.assertArrayEquals(new int[] {1, 5, 4, 0, 3, 2}, FitsHeap.sortByOffset(off));
+        Assert.assertEquals(0, FitsHeap.sortByOffset(new long[0]).length);
+    }
+
 }
@@ -1,6 +1,9 @@
 package nom.tam.fits;
 
+import java.io.File;
 import java.text.ParsePosition;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 
 /*-
  * #%L
@@ -36,6 +39,7 @@ import java.text.ParsePosition;
 import org.junit.Assert;
 import org.junit.Test;
 
+import nom.tam.util.FitsFile;
 import nom.tam.util.FitsIO;
 
 @SuppressWarnings("javadoc")
@@ -237,4 +241,34 @@ public class FitsUtilTest {
     public void testMaxStringLengthNonString() throws Exception {
         Assert.assertEquals(0, FitsUtil.maxStringLength(1.0));
     }
+
+    @Test
+    public void testMoveOverlappingBlocks() throws Exception {
+        File file = new File("target/fitsutil-move.bin");
+        int len = 20 * 1024 * 1024 + 17; // Several chunks, plus some
+        int gap = 1024 * 1024 + 3;
+        byte[] data = new byte[len];
+        new Random(1).nextBytes(data);
+
+        try (FitsFile f = new FitsFile(file, "rw")) {
+            f.write(data);
+
+            AtomicLong done = new AtomicLong();
+            Assert.assertEquals(len, FitsUtil.move(f, 0, gap, len, (n, total) -> done.set(n)));
+            Assert.assertEquals(len, done.get());
+            Assert.assertEquals(len + gap, f.length());
+
+            byte[] b = new byte[len];
+            f.readFullyAt(gap, b, 0, len);
+            Assert.assertArrayEquals(data, b);
+
+            Assert.assertEquals(len, FitsUtil.move(f, gap, 0, len, null));
+            f.readFullyAt(0, b, 0, len);
+            Assert.assertArrayEquals(data, b);
+
+            Assert.assertEquals(0, FitsUtil.move(f, 0, 0, len, null));
+        } finally {
+            file.delete();
+        }
+    }
 }
@@ -33,8 +33,10 @@ package nom.tam.fits;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import java.io.File;
 import java.io.FileOutputStream;
@@ -48,6 +50,7 @@ import nom.tam.util.FitsOutputStream;
 
 import static nom.tam.fits.header.Standard.EXTNAME;
 import static nom.tam.fits.header.Standard.EXTVER;
+import static nom.tam.fits.header.Standard.OBJECT;
 
 public class GetHDUByNameTest {
 
@@ -227,4 +230,119 @@ public class GetHDUByNameTest {
         }
     }
 
+    @Test
+    public void testGetHDUByNameAfterInsertDelete() throws Exception {
+        try (Fits fits = new Fits(new File(extensionFile))) {
+            fits.read();
+
+            assertEquals(1, fits.getHDU("EXTB").getHeader().getIntValue(EXTVER));
+            BasicHDU<?> b2 = fits.getHDU("EXTB", 2);
+            assertNotNull(b2);
+
+            BasicHDU<?> b3 = makeExtension("EXTB", 3);
+            fits.insertHDU(b3, 1);
+            assertSame(b3, fits.getHDU("EXTB"));
+            assertSame(b3, fits.getHDU("EXTB", 3));
+            assertSame(b2, fits.getHDU("EXTB", 2));
+
+            fits.deleteHDU(1);
+            assertEquals(1, fits.getHDU("EXTB").getHeader().getIntValue(EXTVER));
+            assertNull(fits.getHDU("EXTB", 3));
+            assertSame(b2, fits.getHDU("EXTB", 2));
+
+            BasicHDU<?> d1 = makeExtension("EXTD", 1);
+            fits.addHDU(d1);
+            assertSame(d1, fits.getHDU("EXTD"));
+            assertSame(d1, fits.getHDU("EXTD", 1));
+        }
+    }
+
+    @Test
+    public void testGetHDUByNameAfterRename() throws Exception {
+        try (Fits fits = new Fits(new File(extensionFile))) {
+            BasicHDU<?> c = fits.getHDU("EXTC");
+            assertNotNull(c);
+            assertNull(fits.getHDU("EXTD"));
+
+            c.getHeader().addValue(EXTNAME, "EXTD");
+            assertNull(fits.getHDU("EXTC"));
+            assertSame(c, fits.getHDU("EXTD"));
+
+            c.getHeader().addValue(EXTVER, 5);
+            assertSame(c, fits.getHDU("EXTD", 5));
+            assertSame(c, fits.getHDU("EXTD"));
+        }
+    }
+
+    @Test
+    public void testGetHDUByNameFirstMatchAfterRename() throws Exception {
+        try (Fits fits = new Fits(new File(extensionFile))) {
+            fits.read();
+
+            BasicHDU<?> a = fits.getHDU(1);
+            BasicHDU<?> c = fits.getHDU("EXTC");
+            assertSame(c, fits.getHDU(6));
+
+            // An earlier HDU renamed to the same name must take precedence
+            a.getHeader().addValue(EXTNAME, "EXTC");
+            assertSame(a, fits.getHDU("EXTC"));
+            assertSame(fits.getHDU(2), fits.getHDU("EXTA"));
+
+            // Change the name back via the header card itself
+            a.getHeader().findCard(EXTNAME).setValue("EXTA");
+            assertSame(c, fits.getHDU("EXTC"));
+            assertSame(a, fits.getHDU("EXTA"));
+        }
+    }
+
+    @Test
+    public void testGetHDUByNameAfterDeleteVersion() throws Exception {
+        try (Fits fits = new Fits(new File(extensionFile))) {
+            BasicHDU<?> b1 = fits.getHDU("EXTB", 1);
+            assertNotNull(b1);
+
+            b1.getHeader().deleteKey(EXTVER);
+            assertNull(fits.getHDU("EXTB", 1));
+            assertNull(fits.getHDU("EXTB", 1));
+            assertSame(b1, fits.getHDU("EXTB"));
+
+            b1.getHeader().replaceKey(EXTNAME, OBJECT);
+            assertEquals(2, fits.getHDU("EXTB").getHeader().getIntValue(EXTVER));
+        }
+    }
+
+    @Test
+    public void testNameModCountPerHeader() throws Exception {
+        Header a = makeExtension("EXTA", 1).getHeader();
+        Header b = makeExtension("EXTB", 1).getHeader();
+
+        long n = a.getNameModCount();
+        assertEquals(n, a.getNameModCount());
+
+        // Changes to the name of another header do not affect this one
+        b.addValue(EXTNAME, "EXTC");
+        b.findCard(EXTVER).setValue(2);
+        assertEquals(n, a.getNameModCount());
+
+        a.findCard(EXTVER).setValue(2);
+        assertNotEquals(n, a.getNameModCount());
+
+        n = a.getNameModCount();
+        a.addValue(EXTNAME, "EXTA");
+        assertNotEquals(n, a.getNameModCount());
+
+        n = a.getNameModCount();
+        a.deleteKey(EXTVER);
+        assertNotEquals(n, a.getNameModCount());
+    }
+
+    @Test
+    public void testGetCompleteHeaderByName() throws Exception {
+        try (Fits fits = new Fits(new File(extensionFile))) {
+            for (int i = 0; i < 3; i++) {
+                assertEquals(2, fits.getCompleteHeader("EXTB", 2).getIntValue(EXTVER));
+                assertEquals("EXTC", fits.getCompleteHeader("EXTC").getStringValue(EXTNAME));
+            }
+        }
+    }
 }
@@ -0,0 +1,244 @@
+package nom.tam.fits;
+
+/*-
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import nom.tam.util.FitsFile;
+import nom.tam.util.RandomAccess;
+
+import static nom.tam.fits.header.Standard.EXTNAME;
+import static nom.tam.fits.header.Standard.EXTVER;
+
+public class HDUIndexTest {
+
+    private final File file = new File("target/hduIndexTest.fits");
+
+    @Before
+    public void writeTestFits() throws Exception {
+        try (Fits fits = new Fits()) {
+            fits.addHDU(Fits.makeHDU(new float[10][7]));
+            for (int i = 1; i <= 10; i++) {
+                BasicHDU<?> hdu = (i % 2 == 0) ? Fits.makeHDU(new int[i][3]) :
+                        BinaryTableHDU.wrap(BinaryTable.fromColumnMajor(new Object[] {new double[i], new int[i][2]}));
+                hdu.addValue(EXTNAME, i < 5 ? "SCI" : "ERR's");
+                hdu.addValue(EXTVER, i);
+                fits.addHDU(hdu);
+            }
+            fits.write(file);
+        }
+    }
+
+    @After
+    public void cleanup() {
+        file.delete();
+        HDUIndex.getSidecar(file).delete();
+    }
+
+    @Test
+    public void testScan() throws Exception {
+        HDUIndex index = HDUIndex.scan(file);
+        assertEquals(file.length(), index.getFileLength());
+        assertEquals(file.lastModified(), index.getLastModified());
+        assertEquals(11, index.size());
+
+        try (Fits fits = new Fits(file)) {
+            BasicHDU<?>[] hdus = fits.read();
+            assertEquals(hdus.length, index.size());
+
+            for (int i = 0; i < hdus.length; i++) {
+                HDUIndex.Entry e = index.get(i);
+                Header h = hdus[i].getHeader();
+                assertEquals(i, e.getIndex());
+                assertEquals(h.getFileOffset(), e.getHeaderOffset());
+                assertEquals(hdus[i].getData().getFileOffset(), e.getDataOffset());
+                assertEquals(hdus[i].getSize(), e.getEndOffset() - e.getHeaderOffset());
+                assertEquals(h.getStringValue(EXTNAME), e.getExtName());
+                assertEquals(h.getIntValue(EXTVER, 0), e.getExtVer());
+                assertEquals(i, index.indexAt(e.getHeaderOffset()));
+            }
+        }
+
+        assertNull(index.get(0).getXtension());
+        assertEquals("BINTABLE", index.get(1).getXtension());
+        assertEquals("IMAGE", index.get(2).getXtension());
+        assertEquals(-1, index.indexAt(1L));
+
+        assertEquals(1, index.indexOf("SCI"));
+        assertEquals(3, index.indexOf("SCI", 3));
+        assertEquals(5, index.indexOf("ERR's"));
+        assertEquals(-1, index.indexOf("SCI", 5));
+        assertEquals(-1, index.indexOf("NONE"));
+    }
+
+    @Test
+    public void testIndexedFits() throws Exception {
+        try (Fits fits = new Fits(file)) {
+            HDUIndex index = fits.indexHDUs();
+            assertSame(index, fits.getHDUIndex());
+
+            BasicHDU<?> hdu = fits.getHDU(7);
+            assertEquals(7, hdu.getHeader().getIntValue(EXTVER));
+            assertEquals(0, fits.getNumberOfHDUs());
+            assertSame(hdu, fits.getHDU(7));
+
+            assertEquals(3, fits.getHDU("SCI", 3).getHeader().getIntValue(EXTVER));
+            assertEquals(5, fits.getHDU("ERR's").getHeader().getIntValue(EXTVER));
+            assertNull(fits.getHDU("SCI", 5));
+            assertNull(fits.getHDU("NONE"));
+            assertNull(fits.getHDU(11));
+
+            // Data for HDUs read via the index are accessible as usual
+            int[][] data = (int[][]) fits.getHDU(8).getKernel();
+            assertEquals(8, data.length);
+
+            // Sequential reading returns the same HDUs
+            fits.skipHDU();
+            assertNotNull(fits.readHDU());
+            assertEquals(1, fits.getNumberOfHDUs());
+            assertEquals(2, fits.getHDU(1).getHeader().getIntValue(EXTVER));
+
+            BasicHDU<?>[] hdus = fits.read();
+            assertEquals(10, hdus.length);
+            assertSame(hdu, hdus[6]);
+            assertEquals(10, hdus[9].getHeader().getIntValue(EXTVER));
+        }
+    }
+
+    @Test
+    public void testSidecar() throws Exception {
+        File sidecar = HDUIndex.getSidecar(file);
+        assertTrue(sidecar.getName().endsWith(HDUIndex.SIDECAR_EXTENSION));
+
+        HDUIndex index = HDUIndex.forFile(file, true);
+        assertTrue(sidecar.exists());
+        assertTrue(index.isValidFor(file));
+
+        HDUIndex loaded = HDUIndex.load(sidecar, file);
+        assertNotNull(loaded);
+        assertEquals(index.size(), loaded.size());
+        for (int i = 0; i < index.size(); i++) {
+            assertEquals(index.get(i).getHeaderOffset(), loaded.get(i).getHeaderOffset());
+            assertEquals(index.get(i).getDataSize(), loaded.get(i).getDataSize());
+            assertEquals(index.get(i).getXtension(), loaded.get(i).getXtension());
+            assertEquals(index.get(i).getExtName(), loaded.get(i).getExtName());
+            assertEquals(index.get(i).getExtVer(), loaded.get(i).getExtVer());
+        }
+
+        try (Fits fits = new Fits(file)) {
+            fits.setHDUIndex(HDUIndex.forFile(file, true));
+            assertEquals(4, fits.getHDU("SCI", 4).getHeader().getIntValue(EXTVER));
+        }
+
+        // Stale after the file is modified
+        assertTrue(file.setLastModified(index.getLastModified() - 10000L));
+        assertNull(HDUIndex.load(sidecar, file));
+
+        // Updated again
+        assertEquals(11, HDUIndex.forFile(file, true).size());
+        assertNotNull(HDUIndex.load(sidecar, file));
+    }
+
+    @Test
+    public void testNoSidecar() throws Exception {
+        assertNull(HDUIndex.load(HDUIndex.getSidecar(file), file));
+        assertEquals(11, HDUIndex.forFile(file, false).size());
+        assertNull(HDUIndex.load(HDUIndex.getSidecar(file), file));
+    }
+
+    @Test
+    public void testInvalidSidecar() throws Exception {
+        File sidecar = HDUIndex.getSidecar(file);
+        try (FileOutputStream out = new FileOutputStream(sidecar)) {
+            out.write(new byte[] {0, 5, 'h', 'e', 'l', 'l', 'o'});
+        }
+        assertNull(HDUIndex.load(sidecar, file));
+    }
+
+    @Test
+    public void testTrailingJunk() throws Exception {
+        try (RandomAccessFile f = new RandomAccessFile(file, "rw")) {
+            f.seek(f.length());
+            f.write(new byte[FitsFactory.FITS_BLOCK_SIZE]);
+        }
+        assertEquals(11, HDUIndex.scan(file).size());
+    }
+
+    @Test(expected = FitsException.class)
+    public void testNotFits() throws Exception {
+        try (RandomAccessFile f = new RandomAccessFile(file, "rw")) {
+            f.write("SIMPLX".getBytes());
+        }
+        HDUIndex.scan(file);
+    }
+
+    @Test(expected = FitsException.class)
+    public void testIndexLengthMismatch() throws Exception {
+        HDUIndex index = HDUIndex.scan(file);
+        try (RandomAccessFile f = new RandomAccessFile(file, "rw")) {
+            f.setLength(f.length() + FitsFactory.FITS_BLOCK_SIZE);
+        }
+        try (Fits fits = new Fits(file)) {
+            fits.setHDUIndex(index);
+        }
+    }
+
+    @Test(expected = FitsException.class)
+    public void testIndexStream() throws Exception {
+        try (Fits fits = new Fits(new java.io.FileInputStream(file))) {
+            fits.indexHDUs();
+        }
+    }
+
+    @Test
+    public void testScanRandomAccess() throws Exception {
+        try (FitsFile in = new FitsFile(file, "r")) {
+            in.seek(100);
+            HDUIndex index = HDUIndex.scan((RandomAccess) in);
+            assertEquals(11, index.size());
+            assertEquals(0L, index.getLastModified());
+            assertEquals(100, in.getFilePointer());
+        }
+    }
+}
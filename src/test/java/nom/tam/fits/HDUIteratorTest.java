@@ -0,0 +1,185 @@
+package nom.tam.fits;
+
+/*-
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import nom.tam.util.FitsOutputStream;
+
+import static nom.tam.fits.header.Standard.EXTNAME;
+
+public class HDUIteratorTest {
+
+    private static final int N = 5;
+
+    private final String fileName = "target/testHDUIterator.fits";
+
+    @Before
+    public void writeTestFits() throws Exception {
+        try (Fits fits = new Fits()) {
+            fits.addHDU(Fits.makeHDU(new int[][] {{0}}));
+
+            for (int i = 1; i < N; i++) {
+                BasicHDU<?> hdu = (i % 2 == 0) ? Fits.makeHDU(new int[][] {{i, i + 1}, {i + 2, i + 3}}) :
+                        BinaryTableHDU.wrap(BinaryTable.fromColumnMajor(new Object[] {new double[] {i, -i}}));
+                hdu.getHeader().addValue(EXTNAME, "EXT" + i);
+                fits.addHDU(hdu);
+            }
+
+            try (FitsOutputStream out = new FitsOutputStream(new FileOutputStream(fileName))) {
+                fits.write(out);
+            }
+        }
+    }
+
+    @After
+    public void after() {
+        new File(fileName).delete();
+    }
+
+    @Test
+    public void testStreamFullData() throws Exception {
+        try (Fits fits = new Fits(new FileInputStream(fileName))) {
+            Iterator<BasicHDU<?>> it = fits.hduIterator(false);
+
+            for (int i = 0; i < N; i++) {
+                assertTrue(it.hasNext());
+                BasicHDU<?> hdu = it.next();
+                if (i == 0) {
+                    continue;
+                }
+                assertEquals("EXT" + i, hdu.getHeader().getStringValue(EXTNAME));
+                if (i % 2 == 0) {
+                    assertArrayEquals(new int[] {i + 2, i + 3}, ((int[][]) hdu.getKernel())[1]);
+                } else {
+                    assertEquals(-i, ((BinaryTableHDU) hdu).getData().getDouble(1, 0), 1e-12);
+                }
+            }
+
+            assertFalse(it.hasNext());
+            assertFalse(it.hasNext());
+
+            // HDUs are not retained
+            assertEquals(0, fits.getNumberOfHDUs());
+            assertNull(fits.readHDU());
+        }
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testNextPastEnd() throws Exception {
+        try (Fits fits = new Fits(new FileInputStream(fileName))) {
+            Iterator<BasicHDU<?>> it = fits.hduIterator(true);
+            while (it.hasNext()) {
+                it.next();
+            }
+            it.next();
+        }
+    }
+
+    @Test
+    public void testStreamSkipData() throws Exception {
+        try (Fits fits = new Fits(new FileInputStream(fileName))) {
+            List<String> names = fits.hduStream(true).skip(1).map(hdu -> {
+                // Data was skipped...
+                assertNull(hdu.getData().getData());
+                return hdu.getHeader().getStringValue(EXTNAME);
+            }).collect(Collectors.toList());
+
+            assertEquals(N - 1, names.size());
+            assertEquals("EXT1", names.get(0));
+            assertEquals("EXT" + (N - 1), names.get(N - 2));
+            assertEquals(0, fits.getNumberOfHDUs());
+        }
+    }
+
+    @Test
+    public void testFileSkipDataDeferred() throws Exception {
+        try (Fits fits = new Fits(new File(fileName))) {
+            Iterator<BasicHDU<?>> it = fits.hduIterator(true);
+            it.next();
+            it.next();
+
+            BasicHDU<?> hdu = it.next();
+            assertEquals("EXT2", hdu.getHeader().getStringValue(EXTNAME));
+            assertTrue(hdu.getData().isDeferred());
+
+            // Data can still be loaded from the file on demand
+            assertArrayEquals(new int[] {4, 5}, ((int[][]) hdu.getKernel())[1]);
+
+            assertEquals(0, fits.getNumberOfHDUs());
+        }
+    }
+
+    @Test
+    public void testMixedWithReadHDU() throws Exception {
+        try (Fits fits = new Fits(new FileInputStream(fileName))) {
+            assertNotNull(fits.readHDU());
+
+            Iterator<BasicHDU<?>> it = fits.hduIterator(true);
+            assertEquals("EXT1", it.next().getHeader().getStringValue(EXTNAME));
+
+            // The iterator has not read ahead, so reading continues with the next HDU.
+            BasicHDU<?> hdu = fits.readHDU();
+            assertEquals("EXT2", hdu.getHeader().getStringValue(EXTNAME));
+            assertArrayEquals(new int[] {2, 3}, ((int[][]) hdu.getKernel())[0]);
+
+            assertEquals(2, fits.getNumberOfHDUs());
+            assertEquals(N - 3, fits.hduStream(false).count());
+        }
+    }
+
+    @Test
+    public void testIndexedFile() throws Exception {
+        try (Fits fits = new Fits(new File(fileName))) {
+            fits.indexHDUs();
+            assertEquals(N, fits.hduStream(true).count());
+            assertEquals(0, fits.getNumberOfHDUs());
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package nom.tam.fits;
+
+/*-
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import nom.tam.util.AsciiFuncs;
+import nom.tam.util.Cursor;
+import nom.tam.util.FitsInputStream;
+import nom.tam.util.FitsOutputStream;
+
+public class HeaderBlockReaderTest {
+
+    @Before
+    public void setUp() {
+        FitsFactory.setDefaults();
+    }
+
+    @After
+    public void tearDown() {
+        FitsFactory.setDefaults();
+    }
+
+    private static byte[] toBytes(String... records) {
+        byte[] b = new byte[records.length * HeaderCard.FITS_HEADER_CARD_SIZE];
+        Arrays.fill(b, (byte) ' ');
+        for (int i = 0; i < records.length; i++) {
+            byte[] r = AsciiFuncs.getBytes(records[i]);
+            System.arraycopy(r, 0, b, i * HeaderCard.FITS_HEADER_CARD_SIZE, r.length);
+        }
+        return b;
+    }
+
+    private static byte[] largeHeader(int n) throws Exception {
+        Header h = new Header();
+        h.addValue("SIMPLE", true, null);
+        h.addValue("BITPIX", 8, null);
+        h.addValue("NAXIS", 0, null);
+        for (int i = 0; i < n; i++) {
+            switch (i % 5) {
+            case 0:
+                h.insertHistory("Processing step " + i);
+                break;
+            case 1:
+                h.addValue("KEY" + i, i * 0.5, "a decimal value");
+                break;
+            case 2:
+                // A long string value, which is continued in CONTINUE records
+                h.addValue("LSTR" + i, "This is a rather long string value, which does not fit into a single header "
+                        + "record, and so it will be continued in multiple CONTINUE records. #" + i, "long one");
+                break;
+            case 3:
+                h.addValue("HIERARCH.TEST.KEY" + i, "v" + i, null);
+                break;
+            default:
+                h.insertBlankCard();
+                h.addValue("BOOL" + i, i % 2 == 0, "a logical");
+            }
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (FitsOutputStream out = new FitsOutputStream(bytes)) {
+            h.write(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void assertSameHeader(Header expected, Header h) {
+        assertEquals(expected.getNumberOfCards(), h.getNumberOfCards());
+        assertEquals(expected.getNumberOfPhysicalCards(), h.getNumberOfPhysicalCards());
+
+        Cursor<String, HeaderCard> ie = expected.iterator();
+        Cursor<String, HeaderCard> ih = h.iterator();
+
+        while (ie.hasNext()) {
+            HeaderCard e = ie.next();
+            HeaderCard c = ih.next();
+            assertEquals(e.getKey(), c.getKey());
+            assertEquals(e.getKey(), e.getValue(), c.getValue());
+            assertEquals(e.getKey(), e.getComment(), c.getComment());
+            assertEquals(e.getKey(), e.valueType(), c.valueType());
+        }
+    }
+
+    @Test
+    public void testMultiBlockHeader() throws Exception {
+        byte[] b = largeHeader(200);
+        assertTrue(b.length > 5 * FitsFactory.FITS_BLOCK_SIZE);
+
+        Header h = new Header(new FitsInputStream(new ByteArrayInputStream(b)));
+        assertEquals(b.length, h.getSize());
+        assertEquals(3.0, h.getDoubleValue("KEY6"), 1e-12);
+        assertTrue(h.getStringValue("LSTR7").endsWith("#7"));
+        assertEquals("v198", h.getStringValue("HIERARCH.TEST.KEY198"));
+        assertTrue(h.getBooleanValue("BOOL4"));
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+        byte[] b = largeHeader(5000);
+
+        Header serial = new Header(new FitsInputStream(new ByteArrayInputStream(b)));
+
+        FitsFactory.setParallelHeaderReadThreshold(100);
+        assertEquals(100, FitsFactory.getParallelHeaderReadThreshold());
+        Header parallel = new Header(new FitsInputStream(new ByteArrayInputStream(b)));
+
+        assertSameHeader(serial, parallel);
+    }
+
+    @Test
+    public void testParallelSettings() throws Exception {
+        byte[] b = largeHeader(2000);
+
+        FitsFactory.useThreadLocalSettings(true);
+        try {
+            FitsFactory.setUseHierarch(false);
+            Header serial = new Header(new FitsInputStream(new ByteArrayInputStream(b)));
+            assertNull(serial.findCard("HIERARCH.TEST.KEY3"));
+
+            FitsFactory.setParallelHeaderReadThreshold(10);
+            Header parallel = new Header(new FitsInputStream(new ByteArrayInputStream(b)));
+            assertNull(parallel.findCard("HIERARCH.TEST.KEY3"));
+
+            assertSameHeader(serial, parallel);
+        } finally {
+            FitsFactory.useThreadLocalSettings(false);
+        }
+    }
+
+    @Test
+    public void testParallelThresholdSettings() throws Exception {
+        FitsFactory.useThreadLocalSettings(true);
+        try {
+            FitsFactory.setParallelHeaderReadThreshold(10);
+            assertEquals(10, FitsFactory.getParallelHeaderReadThreshold());
+        } finally {
+            FitsFactory.useThreadLocalSettings(false);
+        }
+        assertEquals(0, FitsFactory.getParallelHeaderReadThreshold());
+
+        FitsFactory.setParallelHeaderReadThreshold(10);
+        FitsFactory.setDefaults();
+        assertEquals(0, FitsFactory.getParallelHeaderReadThreshold());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeParallelThreshold() throws Exception {
+        FitsFactory.setParallelHeaderReadThreshold(-1);
+    }
+
+    @Test
+    public void testParallelLongStrn() throws Exception {
+        byte[] b = toBytes("SIMPLE  =                    T", "BITPIX  =                    8",
+                "NAXIS   =                    0", "LSTR1   = 'abc&'", "CONTINUE  'def'", "LONGSTRN= 'OGIP 1.0'",
+                "LSTR2   = 'abc&'", "CONTINUE  'def'", "END");
+
+        FitsFactory.setLongStringsEnabled(false);
+        FitsFactory.setParallelHeaderReadThreshold(1);
+        Header h = new Header(new FitsInputStream(new ByteArrayInputStream(b)));
+
+        assertEquals("abc&", h.getStringValue("LSTR1"));
+        assertEquals("abcdef", h.getStringValue("LSTR2"));
+    }
+
+    @Test
+    public void testConsecutiveHeaders() throws Exception {
+        byte[] b1 = largeHeader(50);
+        byte[] b2 = largeHeader(10);
+        byte[] b = Arrays.copyOf(b1, b1.length + b2.length);
+        System.arraycopy(b2, 0, b, b1.length, b2.length);
+
+        FitsInputStream in = new FitsInputStream(new ByteArrayInputStream(b));
+        Header h1 = new Header(in);
+        Header h2 = new Header(in);
+        assertNotNull(h1.findCard("KEY46"));
+        assertNotNull(h2.findCard("KEY6"));
+        assertNull(h2.findCard("KEY46"));
+    }
+
+    @Test
+    public void testEndVariants() throws Exception {
+        byte[] b = toBytes("SIMPLE  =                    T", "BITPIX  =                    8",
+                "NAXIS   =                    0", " end", "NEXT    =                    1");
+
+        HeaderBlockReader r = new HeaderBlockReader(new FitsInputStream(new ByteArrayInputStream(b)));
+        assertTrue(r.readAll());
+        assertEquals(4, r.getRemainingRecords());
+        assertFalse(r.isPadded());
+        assertFalse(r.containsKey("NEXT"));
+        assertTrue(r.containsKey("NAXIS"));
+
+        Header h = new Header(new FitsInputStream(new ByteArrayInputStream(b)));
+        assertEquals(4, h.getNumberOfCards());
+        assertFalse(h.containsKey("NEXT"));
+    }
+
+    @Test
+    public void testRecords() throws Exception {
+        byte[] b = toBytes("SIMPLE  =                    T", "BITPIX  =                    8");
+        HeaderBlockReader r = new HeaderBlockReader(new FitsInputStream(new ByteArrayInputStream(b)));
+
+        assertTrue(r.nextRecord().startsWith("SIMPLE"));
+        assertEquals('S', r.lastRawRecord()[0]);
+        assertEquals(1, r.getRecordsRead());
+
+        r.pushBack();
+        assertEquals(0, r.getRecordsRead());
+        assertTrue(r.nextRecord().startsWith("SIMPLE"));
+        assertTrue(r.nextRecord().startsWith("BITPIX"));
+        assertFalse(r.readAll());
+
+        try {
+            r.nextRecord();
+            throw new AssertionError("Expected EOFException");
+        } catch (EOFException e) {
+            // Expected
+        }
+    }
+
+    @Test(expected = TruncatedFileException.class)
+    public void testTruncatedRecord() throws Exception {
+        byte[] b = Arrays.copyOf(toBytes("SIMPLE  =                    T", "BITPIX  =                    8"), 120);
+        HeaderBlockReader r = new HeaderBlockReader(new FitsInputStream(new ByteArrayInputStream(b)));
+        r.nextRecord();
+        r.nextRecord();
+    }
+
+    @Test
+    public void testLazyParallel() throws Exception {
+        byte[] b = largeHeader(2000);
+
+        Header serial = new Header(new FitsInputStream(new ByteArrayInputStream(b)));
+
+        FitsFactory.setLazyHeaderCards(true);
+        FitsFactory.setParallelHeaderReadThreshold(10);
+        Header lazy = new Header(new FitsInputStream(new ByteArrayInputStream(b)));
+
+        assertSameHeader(serial, lazy);
+        assertNotNull(lazy.findCard("KEY1").getRawImage());
+    }
+}
@@ -0,0 +1,195 @@
+package nom.tam.fits;
+
+/*-
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import nom.tam.util.FitsFile;
+
+public class HeapFileRegionTest {
+
+    private static final int OFFSET = 1000;
+
+    private static final int SIZE = 3 * HeapFileRegion.PAGE_SIZE + 100;
+
+    private File file;
+
+    @Before
+    public void setup() throws Exception {
+        file = new File("target/heap-region.bin");
+        try (FitsFile f = new FitsFile(file, "rw")) {
+            f.setLength(0);
+            byte[] b = new byte[OFFSET + SIZE + OFFSET];
+            for (int i = 0; i < SIZE; i++) {
+                b[OFFSET + i] = (byte) i;
+            }
+            f.write(b);
+        }
+    }
+
+    @After
+    public void cleanup() {
+        file.delete();
+    }
+
+    private byte[] readFile(int from, int len) throws Exception {
+        byte[] b = new byte[len];
+        try (FitsFile f = new FitsFile(file, "r")) {
+            f.seek(from);
+            f.readFully(b);
+        }
+        return b;
+    }
+
+    @Test
+    public void testReadRegion() throws Exception {
+        try (FitsFile f = new FitsFile(file, "r")) {
+            FitsHeap heap = new FitsHeap(f, OFFSET, SIZE);
+            assertTrue(heap.isFileBacked());
+            assertEquals(SIZE, heap.getSize());
+
+            // Spans a page boundary
+            byte[] b = new byte[200];
+            heap.getData(HeapFileRegion.PAGE_SIZE - 100L, b);
+            for (int i = 0; i < b.length; i++) {
+                assertEquals((byte) (HeapFileRegion.PAGE_SIZE - 100 + i), b[i]);
+            }
+
+            // Back to the start
+            heap.getData(0L, b);
+            assertEquals(0, b[0]);
+            assertEquals((byte) 199, b[b.length - 1]);
+        }
+    }
+
+    @Test
+    public void testCopyOnWrite() throws Exception {
+        try (FitsFile f = new FitsFile(file, "r")) {
+            FitsHeap heap = new FitsHeap(f, OFFSET, SIZE);
+            byte[] mod = {-1, -2, -3, -4};
+            heap.putData(mod, HeapFileRegion.PAGE_SIZE - 2L);
+
+            byte[] b = new byte[mod.length];
+            heap.getData(HeapFileRegion.PAGE_SIZE - 2L, b);
+            assertArrayEquals(mod, b);
+
+            FitsHeap copy = heap.copy();
+            copy.putData(new byte[] {1}, 0L);
+            heap.getData(0L, b);
+            assertEquals(0, b[0]);
+        }
+
+        // The file itself is untouched
+        byte[] b = readFile(OFFSET + HeapFileRegion.PAGE_SIZE - 2, 4);
+        assertEquals((byte) (HeapFileRegion.PAGE_SIZE - 2), b[0]);
+    }
+
+    @Test
+    public void testWriteAtSameRegion() throws Exception {
+        byte[] mod = {-1, -2, -3, -4};
+
+        try (FitsFile f = new FitsFile(file, "rw")) {
+            FitsHeap heap = new FitsHeap(f, OFFSET, SIZE);
+            heap.putData(mod, 2L * HeapFileRegion.PAGE_SIZE + 10);
+            assertEquals(2, heap.putData(new byte[] {9, 9}));
+            assertEquals(SIZE + 2, heap.getSize());
+
+            heap.writeAt(f, OFFSET);
+
+            byte[] b = new byte[mod.length];
+            heap.getData(2L * HeapFileRegion.PAGE_SIZE + 10, b);
+            assertArrayEquals(mod, b);
+        }
+
+        byte[] b = readFile(OFFSET + 2 * HeapFileRegion.PAGE_SIZE + 10, mod.length);
+        assertArrayEquals(mod, b);
+
+        b = readFile(OFFSET + SIZE, 2);
+        assertArrayEquals(new byte[] {9, 9}, b);
+
+        // Unmodified parts are intact
+        b = readFile(OFFSET, 2);
+        assertArrayEquals(new byte[] {0, 1}, b);
+    }
+
+    @Test
+    public void testLargeTableHeap() throws Exception {
+        File fits = new File("target/heap-region-table.fits");
+        int rows = (int) (FitsHeap.getMaxMemorySize() >>> 20) + 2;
+        byte[][] vla = new byte[rows][];
+        for (int i = 0; i < rows; i++) {
+            // Different lengths, so the column is stored on the heap
+            vla[i] = new byte[0x100000 - i];
+            vla[i][0] = (byte) i;
+            vla[i][vla[i].length - 1] = (byte) -i;
+        }
+
+        try {
+            try (Fits f = new Fits()) {
+                f.addHDU(BinaryTableHDU.wrap(BinaryTable.fromColumnMajor(new Object[] {vla})));
+                f.write(fits);
+            }
+            vla = null;
+
+            try (Fits f = new Fits(fits)) {
+                BinaryTable tab = (BinaryTable) f.getHDU(1).getData();
+                byte[] row = (byte[]) tab.get(rows - 1, 0);
+                assertEquals((byte) (rows - 1), row[0]);
+                assertEquals((byte) (1 - rows), row[row.length - 1]);
+                assertTrue(tab.getDescriptor(0).isVariableSize());
+                assertTrue(tab.getParameterSize() > FitsHeap.getMaxMemorySize());
+                assertTrue(tab.isDeferred());
+
+                tab.set(3, 0, new byte[] {7, 7, 7});
+                f.getHDU(1).rewrite();
+            }
+
+            try (Fits f = new Fits(fits)) {
+                BinaryTable tab = (BinaryTable) f.getHDU(1).getData();
+                assertArrayEquals(new byte[] {7, 7, 7}, (byte[]) tab.get(3, 0));
+                assertEquals(4, ((byte[]) tab.get(4, 0))[0]);
+                assertEquals(0x100000 - 5, ((byte[]) tab.get(5, 0)).length);
+            }
+        } finally {
+            fits.delete();
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package nom.tam.fits;
+
+/*-
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import nom.tam.util.FitsFile;
+
+import static nom.tam.fits.header.Standard.EXTNAME;
+
+public class InPlaceEditTest {
+
+    private static final int N = 4;
+
+    private File file;
+
+    /** Images of different sizes, so the HDUs have different sizes also */
+    private static int[][] image(int k) {
+        return SampleData.createImage(k, 20 + k, 30);
+    }
+
+    private static ImageHDU imageHDU(int k) throws Exception {
+        ImageHDU hdu = (ImageHDU) Fits.makeHDU(image(k));
+        hdu.getHeader().addValue(EXTNAME, "HDU" + k);
+        return hdu;
+    }
+
+    @Before
+    public void setup() throws Exception {
+        file = new File("target/inplace-edit.fits");
+
+        try (Fits fits = new Fits()) {
+            for (int k = 0; k < N; k++) {
+                fits.addHDU(imageHDU(k));
+            }
+            int[][] vla = SampleData.createVariableColumn(50, 5);
+            BinaryTableHDU tab = BinaryTableHDU.wrap(BinaryTable.fromColumnMajor(new Object[] {vla}));
+            tab.getHeader().addValue(EXTNAME, "TABLE");
+            fits.addHDU(tab);
+            fits.write(file);
+        }
+    }
+
+    @After
+    public void cleanup() {
+        file.delete();
+    }
+
+    /** Checks the content of the file against the expected sequence of image indices, with -1 for the table */
+    private void check(Fits fits, int... layout) throws Exception {
+        assertEquals(layout.length, fits.getNumberOfHDUs());
+
+        for (int i = 0; i < layout.length; i++) {
+            int k = layout[i];
+
+            if (k < 0) {
+                BinaryTable tab = (BinaryTable) fits.getHDU(i).getData();
+                assertArrayEquals(new int[] {33, 0, 0, 0}, (int[]) tab.get(33, 0));
+                continue;
+            }
+
+            ImageHDU hdu = (ImageHDU) fits.getHDU(i);
+            assertEquals("HDU" + k, hdu.getHeader().getStringValue(EXTNAME));
+            if (hdu.getTiler() != null) {
+                int[] tile = (int[]) hdu.getTiler().getTile(new int[] {3, 4}, new int[] {1, 2});
+                assertEquals(k * 10000 + 304, tile[0]);
+            }
+            assertArrayEquals(image(k), (int[][]) hdu.getKernel());
+        }
+    }
+
+    /** Checks the content both in the edited Fits object, and after re-reading the file */
+    private void checkAll(Fits fits, int... images) throws Exception {
+        check(fits, images);
+
+        try (Fits in = new Fits(file)) {
+            in.verifyIntegrity();
+            check(in, images);
+        }
+
+        // The file has the size expected for the HDUs in it
+        try (Fits in = new Fits(new FileInputStream(file))) {
+            long size = 0;
+            for (BasicHDU<?> hdu : in.read()) {
+                size += hdu.getSize();
+            }
+            assertEquals(size, file.length());
+        }
+    }
+
+    @Test
+    public void appendInPlace() throws Exception {
+        try (Fits fits = new Fits(new FitsFile(file, "rw"))) {
+            ImageHDU hdu = imageHDU(N);
+            long cost = fits.appendHDUInPlace(hdu, null);
+            assertEquals(hdu.getSize(), cost);
+            checkAll(fits, 0, 1, 2, 3, -1, 4);
+        }
+
+        try (Fits fits = new Fits(file)) {
+            assertArrayEquals(image(N), (int[][]) fits.getHDU(N + 1).getKernel());
+        }
+    }
+
+    @Test
+    public void insertInPlace() throws Exception {
+        AtomicLong moved = new AtomicLong();
+
+        try (Fits fits = new Fits(new FitsFile(file, "rw"))) {
+            fits.read();
+            long tail = file.length() - fits.getHDU(2).getFileOffset();
+
+            ImageHDU hdu = imageHDU(7);
+            long cost = fits.insertHDUInPlace(hdu, 2, (done, total) -> {
+                assertEquals(tail, total);
+                moved.set(done);
+            });
+
+            assertEquals(tail, moved.get());
+            assertEquals(tail + hdu.getSize(), cost);
+            checkAll(fits, 0, 1, 7, 2, 3, -1);
+
+            // The inserted HDU can be re-written in place
+            assertTrue(hdu.rewriteable());
+            hdu.getHeader().addValue("EDITED", true, "");
+            hdu.rewrite();
+        }
+
+        try (Fits fits = new Fits(file)) {
+            assertTrue(fits.getHDU(2).getHeader().getBooleanValue("EDITED"));
+        }
+    }
+
+    @Test
+    public void deleteInPlace() throws Exception {
+        long length = file.length();
+
+        try (Fits fits = new Fits(new FitsFile(file, "rw"))) {
+            long size = fits.getHDU(1).getSize();
+            long tail = length - fits.getHDU(2).getFileOffset();
+
+            assertEquals(tail, fits.deleteHDUInPlace(1, null));
+            assertEquals(length - size, file.length());
+            checkAll(fits, 0, 2, 3, -1);
+        }
+    }
+
+    @Test
+    public void growHeaderInPlace() throws Exception {
+        try (Fits fits = new Fits(new FitsFile(file, "rw"))) {
+            Header h = fits.getHDU(1).getHeader();
+            long size = h.getMinimumSize();
+            for (int i = 0; i < 100; i++) {
+                h.addValue("KEY" + i, i, "some integer value");
+            }
+
+            long tail = file.length() - h.getFileOffset() - size;
+            long cost = fits.rewriteHeaderInPlace(1, null);
+            long grown = h.getSize();
+            assertTrue(grown > size);
+            assertEquals(tail + grown, cost);
+            checkAll(fits, 0, 1, 2, 3, -1);
+        }
+
+        try (Fits fits = new Fits(file)) {
+            assertEquals(99, fits.getHDU(1).getHeader().getIntValue("KEY99"));
+        }
+    }
+
+    @Test
+    public void rewriteHeaderInPlaceSameSize() throws Exception {
+        long length = file.length();
+
+        try (Fits fits = new Fits(new FitsFile(file, "rw"))) {
+            Header h = fits.getHDU(2).getHeader();
+            long size = h.getMinimumSize();
+            h.addValue("EDITED", true, "");
+            assertEquals(size, fits.rewriteHeaderInPlace(2, null));
+            checkAll(fits, 0, 1, 2, 3, -1);
+        }
+
+        assertEquals(length, file.length());
+    }
+
+    @Test
+    public void deletePrimaryInPlace() throws Exception {
+        try (Fits fits = new Fits(new FitsFile(file, "rw"))) {
+            Assert.assertThrows(FitsException.class, () -> fits.deleteHDUInPlace(0, null));
+            Assert.assertThrows(FitsException.class, () -> fits.insertHDUInPlace(imageHDU(9), 0, null));
+        }
+    }
+
+    @Test
+    public void editStreamInPlace() throws Exception {
+        try (Fits fits = new Fits(new FileInputStream(file))) {
+            Assert.assertThrows(FitsException.class, () -> fits.appendHDUInPlace(imageHDU(9), null));
+        }
+    }
+
+    @Test
+    public void editModifiedInPlace() throws Exception {
+        try (Fits fits = new Fits(new FitsFile(file, "rw"))) {
+            fits.read();
+            fits.deleteHDU(1);
+            Assert.assertThrows(FitsException.class, () -> fits.deleteHDUInPlace(1, null));
+        }
+    }
+
+    /** Checks the entries of the variable-length column in the table */
+    private static void checkHeap(BinaryTable tab, int[][] vla) throws Exception {
+        for (int i = 0; i < vla.length; i++) {
+            assertArrayEquals(vla[i], (int[]) tab.get(i, 0));
+        }
+    }
+
+    @Test
+    public void editWithHeapInFile() throws Exception {
+        int[][] vla = SampleData.createVariableColumn(50, 5);
+        long maxMemorySize = FitsHeap.getMaxMemorySize();
+
+        // Access even the smallest heaps in the file
+        FitsHeap.setMaxMemorySize(0);
+
+        try (Fits fits = new Fits(new FitsFile(file, "rw"))) {
+            fits.read();
+            BinaryTable tab = (BinaryTable) fits.getHDU(N).getData();
+
+            // Access the heap before the table is moved in the file
+            checkHeap(tab, vla);
+            fits.insertHDUInPlace(imageHDU(7), 2, null);
+
+            // Modify the heap after the table was moved
+            vla[7] = new int[vla[7].length];
+            Arrays.fill(vla[7], -7);
+            tab.set(7, 0, vla[7]);
+            checkHeap(tab, vla);
+
+            fits.deleteHDUInPlace(1, null);
+            checkHeap(tab, vla);
+
+            int n = fits.getNumberOfHDUs() - 1;
+            for (int i = 0; i < 100; i++) {
+                fits.getHDU(n).getHeader().addValue("KEY" + i, i, "some integer value");
+            }
+            fits.rewriteHeaderInPlace(n, null);
+            checkHeap(tab, vla);
+
+            tab.rewrite();
+        } finally {
+            FitsHeap.setMaxMemorySize(maxMemorySize);
+        }
+
+        try (Fits fits = new Fits(file)) {
+            fits.verifyIntegrity();
+            check(fits, 0, 7, 2, 3, -1);
+            checkHeap((BinaryTable) fits.getHDU(N).getData(), vla);
+        }
+    }
+}
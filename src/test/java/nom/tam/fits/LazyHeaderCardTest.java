@@ -0,0 +1,307 @@
+package nom.tam.fits;
+
+/*-
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import nom.tam.fits.header.Standard;
+import nom.tam.util.AsciiFuncs;
+import nom.tam.util.Cursor;
+import nom.tam.util.FitsInputStream;
+import nom.tam.util.FitsOutputStream;
+
+public class LazyHeaderCardTest {
+
+    private static final String[] RECORDS = {"SIMPLE  =                    T", //
+            "BITPIX  =  16   / non-standard alignment", //
+            "NAXIS   = 0", //
+            "EXTEND  =                    T / may have extensions", //
+            "OBJECT  = 'M31 ''core'''   /   quoted quotes", //
+            "RA      =    10.68470833333333 / [deg]", //
+            "FLAG    =                    F", //
+            "CPLX    = (1.0, -2.5E3)", //
+            "COMMENT   A comment card", //
+            "HISTORY with a non-ASCII byte: ~", //
+            "", //
+            "LOWER   =                  -12 / after blank", //
+            "UNDEF   =", //
+            "END"};
+
+    @Before
+    public void setUp() {
+        FitsFactory.setDefaults();
+    }
+
+    @After
+    public void tearDown() {
+        FitsFactory.setDefaults();
+    }
+
+    private static byte[] makeHeader(String... records) {
+        int n = FitsUtil.addPadding(records.length * HeaderCard.FITS_HEADER_CARD_SIZE);
+        byte[] b = new byte[n];
+        Arrays.fill(b, (byte) ' ');
+        for (int i = 0; i < records.length; i++) {
+            byte[] r = AsciiFuncs.getBytes(records[i]);
+            System.arraycopy(r, 0, b, i * HeaderCard.FITS_HEADER_CARD_SIZE, r.length);
+        }
+        return b;
+    }
+
+    private static Header readHeader(byte[] b) throws Exception {
+        Header h = new Header();
+        try (FitsInputStream in = new FitsInputStream(new ByteArrayInputStream(b))) {
+            h.read(in);
+        }
+        return h;
+    }
+
+    private static byte[] writeHeader(Header h) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (FitsOutputStream out = new FitsOutputStream(bytes)) {
+            h.write(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] withNonAscii(byte[] b) {
+        // Replace the '~' in the HISTORY record with a non-ASCII byte
+        for (int i = 0; i < b.length; i++) {
+            if (b[i] == '~') {
+                b[i] = (byte) 0xE9;
+            }
+        }
+        return b;
+    }
+
+    @Test
+    public void testLazyMatchesEager() throws Exception {
+        byte[] b = makeHeader(RECORDS);
+
+        Header eager = readHeader(b);
+        FitsFactory.setLazyHeaderCards(true);
+        assertTrue(FitsFactory.isLazyHeaderCards());
+        Header lazy = readHeader(b);
+
+        assertEquals(eager.getNumberOfCards(), lazy.getNumberOfCards());
+
+        Cursor<String, HeaderCard> ie = eager.iterator();
+        Cursor<String, HeaderCard> il = lazy.iterator();
+
+        while (ie.hasNext()) {
+            HeaderCard e = ie.next();
+            HeaderCard l = il.next();
+
+            assertNull(e.getRawImage());
+            if (!e.isBlank()) {
+                // (Header re-creates the blank cards it skips when reading)
+                assertNotNull(e.getKey(), l.getRawImage());
+            }
+
+            assertEquals(e.getKey(), l.getKey());
+            assertEquals(e.getKey(), e.valueType(), l.valueType());
+            assertEquals(e.getKey(), e.getValue(), l.getValue());
+            assertEquals(e.getKey(), e.getComment(), l.getComment());
+            assertEquals(e.getKey(), e.isBlank(), l.isBlank());
+            assertEquals(e.getKey(), e.isKeyValuePair(), l.isKeyValuePair());
+            assertEquals(e.getKey(), e.isCommentStyleCard(), l.isCommentStyleCard());
+            assertEquals(e.getKey(), e.cardSize(), l.cardSize());
+        }
+
+        assertEquals(16, lazy.getIntValue(Standard.BITPIX));
+        assertEquals("M31 'core'", lazy.getStringValue(Standard.OBJECT));
+        assertEquals(10.68470833333333, lazy.getDoubleValue("RA"), 1e-12);
+        assertFalse(lazy.getBooleanValue("FLAG", true));
+        assertEquals(-12, lazy.getIntValue("LOWER"));
+    }
+
+    @Test
+    public void testKeyOnlyUntilAccessed() throws Exception {
+        FitsFactory.setLazyHeaderCards(true);
+        HeaderCard c = HeaderCard.create("OBJECT  = 'M31'   / the object");
+        assertNotNull(c.getRawImage());
+        assertEquals("OBJECT", c.getKey());
+
+        // Settings changes after reading do not affect how the card is interpreted later...
+        FitsFactory.setLazyHeaderCards(false);
+        assertEquals("M31", c.getValue());
+        assertEquals("the object", c.getComment());
+        assertTrue(c.isStringValue());
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        byte[] b = withNonAscii(makeHeader(RECORDS));
+
+        FitsFactory.setLazyHeaderCards(true);
+        Header h = readHeader(b);
+
+        // Access some (but not all) values
+        assertEquals(0, h.getIntValue(Standard.NAXIS));
+        assertTrue(h.getBooleanValue(Standard.EXTEND));
+
+        assertArrayEquals(b, writeHeader(h));
+    }
+
+    @Test
+    public void testEagerReformats() throws Exception {
+        byte[] b = makeHeader(RECORDS);
+        Header h = readHeader(b);
+        assertFalse(Arrays.equals(b, writeHeader(h)));
+    }
+
+    @Test
+    public void testModified() throws Exception {
+        byte[] b = makeHeader(RECORDS);
+
+        FitsFactory.setLazyHeaderCards(true);
+        Header h = readHeader(b);
+
+        HeaderCard c = h.findCard("RA");
+        assertNotNull(c.getRawImage());
+        c.setComment("updated");
+        assertNull(c.getRawImage());
+        assertEquals("10.68470833333333", c.getValue());
+        assertEquals("updated", c.getComment());
+
+        c = h.findCard("LOWER");
+        c.setValue(5);
+        assertNull(c.getRawImage());
+        assertEquals("5", c.getValue());
+        assertEquals(Integer.class, c.valueType());
+
+        c = h.findCard("FLAG");
+        c.changeKey("FLAG2");
+        assertNull(c.getRawImage());
+        assertEquals("F", c.getValue());
+
+        byte[] out = writeHeader(h);
+        Header h2 = readHeader(out);
+        assertEquals("updated", h2.findCard("RA").getComment());
+        assertEquals(5, h2.getIntValue("LOWER"));
+        assertFalse(h2.getBooleanValue("FLAG2", true));
+
+        // The unmodified cards are still identical
+        for (int i = 0; i < 2; i++) {
+            assertArrayEquals(Arrays.copyOfRange(b, i * HeaderCard.FITS_HEADER_CARD_SIZE,
+                    (i + 1) * HeaderCard.FITS_HEADER_CARD_SIZE),
+                    Arrays.copyOfRange(out, i * HeaderCard.FITS_HEADER_CARD_SIZE,
+                            (i + 1) * HeaderCard.FITS_HEADER_CARD_SIZE));
+        }
+    }
+
+    @Test
+    public void testCopy() throws Exception {
+        FitsFactory.setLazyHeaderCards(true);
+        HeaderCard c = HeaderCard.create("RA      =    10.68470833333333 / [deg]");
+        HeaderCard copy = c.copy();
+        copy.setValue(1.5);
+        assertEquals("10.68470833333333", c.getValue());
+        assertNotNull(c.getRawImage());
+        assertEquals("1.5", copy.getValue());
+    }
+
+    @Test
+    public void testHierarchIsEager() throws Exception {
+        FitsFactory.setUseHierarch(true);
+        FitsFactory.setLazyHeaderCards(true);
+        HeaderCard c = HeaderCard.create("HIERARCH ESO DET NAME = 'abc'");
+        assertNull(c.getRawImage());
+        assertEquals("HIERARCH.ESO.DET.NAME", c.getKey());
+        assertEquals("abc", c.getValue());
+    }
+
+    @Test
+    public void testLongStringIsEager() throws Exception {
+        FitsFactory.setLazyHeaderCards(true);
+        Header h = readHeader(makeHeader("SIMPLE  =                    T", "BITPIX  =                    8",
+                "NAXIS   =                    0", "LONG    = 'part one&'", "CONTINUE  'part two'", "AMP     = '&'",
+                "END"));
+        assertEquals("part onepart two", h.getStringValue("LONG"));
+        assertNull(h.findCard("LONG").getRawImage());
+        assertEquals("&", h.getStringValue("AMP"));
+
+        // Without long strings, '&' is just a character
+        FitsFactory.setLongStringsEnabled(false);
+        HeaderCard c = HeaderCard.create("AMP     = '&'");
+        assertNotNull(c.getRawImage());
+        assertEquals("&", c.getValue());
+    }
+
+    @Test(expected = UnclosedQuoteException.class)
+    public void testDeferredUnclosedQuote() throws Exception {
+        FitsFactory.setAllowHeaderRepairs(false);
+        FitsFactory.setLazyHeaderCards(true);
+        HeaderCard c = HeaderCard.create("OBJECT  = 'M31");
+        assertEquals("OBJECT", c.getKey());
+
+        // Repairs now allowed, but the card was read when they weren't.
+        FitsFactory.setAllowHeaderRepairs(true);
+        c.getValue();
+    }
+
+    @Test
+    public void testLazyFits() throws Exception {
+        File file = new File("target/lazyHeaderCards.fits");
+
+        try (Fits fits = new Fits()) {
+            BasicHDU<?> hdu = Fits.makeHDU(new float[5][3]);
+            hdu.addValue("TESTKEY", 12.5, "a comment");
+            fits.addHDU(hdu);
+            fits.write(file);
+        }
+
+        FitsFactory.setLazyHeaderCards(true);
+        try (Fits fits = new Fits(file)) {
+            BasicHDU<?> hdu = fits.readHDU();
+            assertArrayEquals(new int[] {5, 3}, hdu.getAxes());
+            assertEquals(12.5, hdu.getHeader().getDoubleValue("TESTKEY"), 1e-12);
+            assertEquals(5, ((float[][]) hdu.getKernel()).length);
+        } finally {
+            file.delete();
+        }
+    }
+}
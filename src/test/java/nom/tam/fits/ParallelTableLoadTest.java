@@ -0,0 +1,152 @@
+package nom.tam.fits;
+
+/*-
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelTableLoadTest {
+
+    private static final int ROWS = 50000;
+
+    private File file;
+
+    private BinaryTable memTable;
+
+    @Before
+    public void setup() throws Exception {
+        file = new File("target/parallel-load.fits");
+        memTable = SampleData.createMixedTable(ROWS);
+        SampleData.write(memTable, file);
+    }
+
+    @After
+    public void cleanup() {
+        file.delete();
+    }
+
+    private void checkTable(BinaryTable tab) throws Exception {
+        assertEquals(memTable.getNRows(), tab.getNRows());
+        assertEquals(memTable.getNCols(), tab.getNCols());
+
+        for (int i = 0; i < ROWS; i++) {
+            for (int col = 0; col < tab.getNCols(); col++) {
+                Object expected = memTable.getElement(i, col);
+                Object got = tab.getElement(i, col);
+                assertTrue("[" + i + ", " + col + "]",
+                        Arrays.deepEquals(new Object[] {expected}, new Object[] {got}));
+            }
+        }
+    }
+
+    @Test
+    public void testParallelLoad() throws Exception {
+        try (Fits fits = new Fits(file)) {
+            BinaryTable tab = (BinaryTable) fits.getHDU(1).getData();
+            assertTrue(tab.isDeferred());
+
+            tab.setParallelLoad(4, null);
+            tab.getData();
+
+            assertFalse(tab.isDeferred());
+            checkTable(tab);
+        }
+    }
+
+    @Test
+    public void testParallelLoadWithExecutor() throws Exception {
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(2);
+
+        try (Fits fits = new Fits(file)) {
+            BinaryTable tab = (BinaryTable) fits.getHDU(1).getData();
+            tab.setParallelLoad(3, executor);
+            tab.getData();
+
+            // Row ranges beyond the first, plus the heap, are submitted to the executor.
+            assertEquals(3, executor.getTaskCount());
+            checkTable(tab);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSequentialLoad() throws Exception {
+        try (Fits fits = new Fits(file)) {
+            BinaryTable tab = (BinaryTable) fits.getHDU(1).getData();
+            tab.setParallelLoad(4, null);
+            tab.setParallelLoad(1, null);
+            tab.getData();
+            checkTable(tab);
+        }
+    }
+
+    @Test
+    public void testParallelLoadSmallTable() throws Exception {
+        // Too small to split, but the heap is still loaded concurrently
+        File small = new File("target/parallel-load-small.fits");
+
+        try (Fits fits = new Fits()) {
+            fits.addHDU(BinaryTableHDU.wrap(BinaryTable.fromColumnMajor(new Object[] {new int[] {1, 2, 3},
+                    new float[][] {{1.0F}, {2.0F, 3.0F}, {}}})));
+            fits.write(small);
+        }
+
+        try (Fits fits = new Fits(small)) {
+            BinaryTable tab = (BinaryTable) fits.getHDU(1).getData();
+            tab.setParallelLoad(8, null);
+            tab.getData();
+
+            assertEquals(2, tab.get(1, 0));
+            assertEquals(2, ((float[]) tab.get(1, 1)).length);
+            assertEquals(3.0F, ((float[]) tab.get(1, 1))[1], 0.0F);
+        } finally {
+            small.delete();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWorkers() throws Exception {
+        new BinaryTable().setParallelLoad(0, null);
+    }
+}
@@ -0,0 +1,277 @@
+package nom.tam.fits;
+
+/*-
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PartialRewriteTest {
+
+    private static final int ROWS = 40;
+
+    private static final int COLS = 30;
+
+    private File file;
+
+    @Before
+    public void setup() throws Exception {
+        file = new File("target/partial-rewrite.fits");
+
+        double[] x = new double[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            x[i] = i;
+        }
+        int[][] vla = SampleData.createVariableColumn(ROWS, 3);
+
+        try (Fits fits = new Fits()) {
+            fits.addHDU(Fits.makeHDU(SampleData.createImage(0, ROWS, COLS)));
+            fits.addHDU(BinaryTableHDU.wrap(BinaryTable.fromColumnMajor(new Object[] {x, vla})));
+            fits.write(file);
+        }
+    }
+
+    @After
+    public void cleanup() {
+        file.delete();
+    }
+
+    private int[][] readImage() throws Exception {
+        try (Fits fits = new Fits(file)) {
+            return (int[][]) fits.getHDU(0).getKernel();
+        }
+    }
+
+    @Test
+    public void testModifiedRangesMerge() {
+        ModifiedRanges r = new ModifiedRanges();
+        assertTrue(r.isEmpty());
+
+        r.add(10, 20);
+        r.add(30, 40);
+        r.add(5, 5);
+        r.add(20, 25);
+        r.add(35, 50);
+        r.add(60, 61);
+        assertEquals(3, r.getRanges().size());
+
+        r.add(0, 100);
+        List<long[]> list = r.getRanges();
+        assertEquals(1, list.size());
+        assertArrayEquals(new long[] {0, 100}, list.get(0));
+
+        ModifiedRanges copy = r.copy();
+        r.clear();
+        assertTrue(r.isEmpty());
+        assertFalse(copy.isEmpty());
+    }
+
+    @Test
+    public void testRewriteModifiedImageTile() throws Exception {
+        try (Fits fits = new Fits(file)) {
+            ImageData data = (ImageData) fits.getHDU(0).getData();
+            data.getData();
+            assertFalse(data.isDeferred());
+
+            data.setTile(new int[] {5, 10}, new int[] {3, 4}, new int[] {-1, -2, -3, -4, -5, -6, -7, -8, -9, -10, -11, -12});
+            assertEquals(-1, ((int[][]) data.getData())[5][10]);
+
+            // 3 rows of 4 ints each
+            assertEquals(3 * 4 * 4, data.rewriteModified());
+            assertEquals(0, data.rewriteModified());
+        }
+
+        int[][] im = readImage();
+        for (int i = 0; i < ROWS; i++) {
+            for (int j = 0; j < COLS; j++) {
+                if (i >= 5 && i < 8 && j >= 10 && j < 14) {
+                    assertEquals(-(4 * (i - 5) + j - 10 + 1), im[i][j]);
+                } else {
+                    assertEquals(i * 100 + j, im[i][j]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRewriteMarkedImageRows() throws Exception {
+        try (Fits fits = new Fits(file)) {
+            ImageData data = (ImageData) fits.getHDU(0).getData();
+            int[][] im = (int[][]) data.getData();
+
+            im[2][0] = -1;
+            im[3][COLS - 1] = -2;
+            im[10][5] = -3; // Not marked, so should not be written
+
+            // Two full adjacent rows are written in one go
+            data.markModified(new int[] {2, 0}, new int[] {2, COLS});
+            assertEquals(2 * COLS * 4, data.rewriteModified());
+        }
+
+        int[][] im = readImage();
+        assertEquals(-1, im[2][0]);
+        assertEquals(-2, im[3][COLS - 1]);
+        assertEquals(1005, im[10][5]);
+    }
+
+    @Test
+    public void testSetDeferredImageTile() throws Exception {
+        try (Fits fits = new Fits(file)) {
+            ImageData data = (ImageData) fits.getHDU(0).getData();
+            assertTrue(data.isDeferred());
+
+            data.setTile(new int[] {ROWS - 1, COLS - 2}, new int[] {1, 2}, new int[] {-1, -2});
+            assertTrue(data.isDeferred());
+            assertEquals(0, data.rewriteModified());
+
+            assertArrayEquals(new int[] {-1, -2},
+                    (int[]) data.getTiler().getTile(new int[] {ROWS - 1, COLS - 2}, new int[] {1, 2}));
+        }
+
+        int[][] im = readImage();
+        assertEquals(-1, im[ROWS - 1][COLS - 2]);
+        assertEquals(-2, im[ROWS - 1][COLS - 1]);
+        assertEquals((ROWS - 2) * 100 + COLS - 1, im[ROWS - 2][COLS - 1]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetTileOutside() throws Exception {
+        try (Fits fits = new Fits(file)) {
+            ImageData data = (ImageData) fits.getHDU(0).getData();
+            data.setTile(new int[] {ROWS - 1, 0}, new int[] {2, 1}, new int[2]);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetTileWrongType() throws Exception {
+        try (Fits fits = new Fits(file)) {
+            ImageData data = (ImageData) fits.getHDU(0).getData();
+            data.setTile(new int[] {0, 0}, new int[] {1, 2}, new double[2]);
+        }
+    }
+
+    @Test
+    public void testRewriteModifiedTableRows() throws Exception {
+        int rowBytes;
+
+        try (Fits fits = new Fits(file)) {
+            BinaryTableHDU hdu = (BinaryTableHDU) fits.getHDU(1);
+            BinaryTable tab = hdu.getData();
+            tab.getData();
+            assertFalse(tab.isDeferred());
+            rowBytes = tab.getRowBytes();
+
+            tab.set(3, 0, -3.0);
+            tab.set(4, 0, -4.0);
+            tab.setRow(20, new Object[] {-20.0, new int[] {-20}});
+
+            // 3 rows in 2 ranges, and the VLA data fit in place on the heap
+            assertEquals(3 * rowBytes + tab.getParameterSize(), tab.rewriteModified());
+            assertEquals(0, tab.rewriteModified());
+        }
+
+        try (Fits fits = new Fits(file)) {
+            BinaryTable tab = ((BinaryTableHDU) fits.getHDU(1)).getData();
+            assertEquals(-3.0, tab.getDouble(3, 0), 0.0);
+            assertEquals(-4.0, tab.getDouble(4, 0), 0.0);
+            assertEquals(5.0, tab.getDouble(5, 0), 0.0);
+            assertEquals(-20.0, tab.getDouble(20, 0), 0.0);
+            assertArrayEquals(new int[] {-20}, (int[]) tab.get(20, 1));
+            assertArrayEquals(new int[] {21}, (int[]) tab.get(21, 1));
+        }
+    }
+
+    @Test
+    public void testSetDeferredTableRow() throws Exception {
+        try (Fits fits = new Fits(file)) {
+            BinaryTable tab = ((BinaryTableHDU) fits.getHDU(1)).getData();
+            assertTrue(tab.isDeferred());
+
+            tab.setRow(7, new Object[] {-7.0, new int[] {-7, -8}});
+
+            // The row was written directly to the file, so the table is still deferred...
+            assertTrue(tab.isDeferred());
+
+            // Only the VLA heap needs writing
+            assertEquals(tab.getParameterSize(), tab.rewriteModified());
+        }
+
+        try (Fits fits = new Fits(file)) {
+            BinaryTable tab = ((BinaryTableHDU) fits.getHDU(1)).getData();
+            assertEquals(-7.0, tab.getDouble(7, 0), 0.0);
+            assertArrayEquals(new int[] {-7, -8}, (int[]) tab.get(7, 1));
+            assertEquals(8.0, tab.getDouble(8, 0), 0.0);
+        }
+    }
+
+    @Test
+    public void testRewriteDeferredTableHeap() throws Exception {
+        try (Fits fits = new Fits(file)) {
+            BinaryTable tab = ((BinaryTableHDU) fits.getHDU(1)).getData();
+            tab.set(8, 1, new int[] {-8, -9, -10});
+            assertTrue(tab.isDeferred());
+            fits.getHDU(1).rewrite();
+        }
+
+        try (Fits fits = new Fits(file)) {
+            BinaryTable tab = ((BinaryTableHDU) fits.getHDU(1)).getData();
+            assertArrayEquals(new int[] {-8, -9, -10}, (int[]) tab.get(8, 1));
+        }
+    }
+
+    @Test
+    public void testRewriteModifiedTableLayoutChange() throws Exception {
+        try (Fits fits = new Fits(file)) {
+            BinaryTable tab = ((BinaryTableHDU) fits.getHDU(1)).getData();
+            tab.deleteRows(0, 1);
+            tab.addRow(new Object[] {-1.0, new int[] {-1}});
+
+            // The rows have moved, so the whole table is written.
+            assertEquals(tab.getTrueSize(), tab.rewriteModified());
+        }
+
+        try (Fits fits = new Fits(file)) {
+            BinaryTable tab = ((BinaryTableHDU) fits.getHDU(1)).getData();
+            assertEquals(1.0, tab.getDouble(0, 0), 0.0);
+            assertEquals(-1.0, tab.getDouble(ROWS - 1, 0), 0.0);
+        }
+    }
+}
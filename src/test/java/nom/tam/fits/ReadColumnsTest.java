@@ -0,0 +1,147 @@
+package nom.tam.fits;
+
+/*-
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import nom.tam.util.TableException;
+
+public class ReadColumnsTest {
+
+    private static final int ROWS = 30000;
+
+    private File file;
+
+    private BinaryTable memTable;
+
+    @Before
+    public void setup() throws Exception {
+        file = new File("target/read-columns.fits");
+        memTable = SampleData.createMixedTable(ROWS);
+        SampleData.write(memTable, file);
+    }
+
+    @After
+    public void cleanup() {
+        file.delete();
+    }
+
+    private void checkColumns(BinaryTable tab, int[] cols, int from, int to) throws Exception {
+        Object[] data = tab.readColumns(cols, from, to);
+        assertEquals(cols.length, data.length);
+
+        for (int k = 0; k < cols.length; k++) {
+            int col = cols[k];
+            for (int i = from; i < to; i++) {
+                Object expected = memTable.getElement(i, col);
+                if (data[k] instanceof Object[]) {
+                    Object e = ((Object[]) data[k])[i - from];
+                    if (expected instanceof String) {
+                        assertEquals(expected, e);
+                    } else if (expected instanceof double[]) {
+                        assertArrayEquals((double[]) expected, (double[]) e, 0.0);
+                    } else {
+                        assertArrayEquals((short[]) expected, (short[]) e);
+                    }
+                } else if (data[k] instanceof int[]) {
+                    assertEquals(((int[]) expected)[0], ((int[]) data[k])[i - from]);
+                } else if (data[k] instanceof long[]) {
+                    assertEquals(((long[]) expected)[0], ((long[]) data[k])[i - from]);
+                } else {
+                    assertEquals(((boolean[]) expected)[0], ((boolean[]) data[k])[i - from]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testInMemory() throws Exception {
+        checkColumns(memTable, new int[] {5, 0, 4, 2}, 0, ROWS);
+        checkColumns(memTable, new int[] {1, 3}, 100, 200);
+    }
+
+    @Test
+    public void testDeferred() throws Exception {
+        try (Fits fits = new Fits(file)) {
+            BinaryTable tab = (BinaryTable) fits.getHDU(1).getData();
+            assertTrue(tab.isDeferred());
+
+            checkColumns(tab, new int[] {5, 0, 4, 2}, 0, ROWS);
+            checkColumns(tab, new int[] {1, 3}, 17, 29999);
+            checkColumns(tab, new int[] {0, 1, 2, 3, 4, 5}, ROWS - 1, ROWS);
+            assertTrue(tab.isDeferred());
+        }
+    }
+
+    @Test
+    public void testRepeatedColumn() throws Exception {
+        try (Fits fits = new Fits(file)) {
+            BinaryTable tab = (BinaryTable) fits.getHDU(1).getData();
+            Object[] data = tab.readColumns(new int[] {4, 0, 4}, 10, 20);
+            assertSame(data[0], data[2]);
+            assertEquals(10, ((int[]) data[1]).length);
+        }
+    }
+
+    @Test
+    public void testEmptyRange() throws Exception {
+        Object[] data = memTable.readColumns(new int[] {0, 4}, 5, 5);
+        assertEquals(0, ((int[]) data[0]).length);
+        assertNull(data[1]);
+    }
+
+    @Test(expected = TableException.class)
+    public void testInvalidColumn() throws Exception {
+        memTable.readColumns(new int[] {0, memTable.getNCols()}, 0, 1);
+    }
+
+    @Test(expected = TableException.class)
+    public void testInvalidRange() throws Exception {
+        memTable.readColumns(new int[] {0}, 0, ROWS + 1);
+    }
+
+    @Test(expected = TableException.class)
+    public void testReversedRange() throws Exception {
+        memTable.readColumns(new int[] {0}, 10, 9);
+    }
+}
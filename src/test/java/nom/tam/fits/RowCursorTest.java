@@ -0,0 +1,158 @@
+package nom.tam.fits;
+
+/*-
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import nom.tam.util.Quantizer;
+
+public class RowCursorTest {
+
+    private static final int ROWS = 50000;
+
+    private File file;
+
+    private BinaryTable memTable;
+
+    @Before
+    public void setup() throws Exception {
+        file = new File("target/row-cursor.fits");
+
+        memTable = SampleData.createMixedTable(ROWS);
+        memTable.getDescriptor(0).setQuantizer(new Quantizer(2.0, 0.5, null));
+        memTable.getDescriptor(6).setQuantizer(new Quantizer(0.5, 1.0, -999L));
+        SampleData.write(memTable, file);
+    }
+
+    @After
+    public void cleanup() {
+        file.delete();
+    }
+
+    private void checkCursor(BinaryTable tab) throws Exception {
+        RowCursor cursor = tab.rowCursor();
+        assertEquals(-1, cursor.getRow());
+
+        byte[] buf = new byte[20];
+        int n = 0;
+
+        while (cursor.advance()) {
+            int row = cursor.getRow();
+            assertEquals(row, n++);
+
+            assertEquals(memTable.getDouble(row, 0), cursor.getDouble(0), 1e-12);
+            assertEquals(memTable.getLong(row, 0), cursor.getLong(0));
+            assertEquals(memTable.getLong(row, 3), cursor.getLong(3));
+            assertEquals(memTable.getDouble(row, 3), cursor.getDouble(3), 0.0);
+            assertEquals(memTable.getLong(row, 5), cursor.getLong(5));
+            assertEquals(memTable.getDouble(row, 6), cursor.getDouble(6), 1e-12);
+            assertEquals(memTable.getLong(row, 6), cursor.getLong(6));
+            assertEquals(memTable.getLong(row, 7), cursor.getInt(7));
+            assertEquals(memTable.getLong(row, 8), cursor.getLong(8));
+            assertEquals(memTable.getDouble(row, 9), cursor.getFloat(9), 1e-6);
+
+            int len = cursor.getBytes(2, buf);
+            assertEquals(memTable.getString(row, 2), new String(buf, 0, len, "US-ASCII"));
+        }
+
+        assertEquals(ROWS, n);
+        assertEquals(ROWS, cursor.getRow());
+        assertFalse(cursor.advance());
+    }
+
+    @Test
+    public void testInMemory() throws Exception {
+        checkCursor(memTable);
+    }
+
+    @Test
+    public void testDeferred() throws Exception {
+        try (Fits fits = new Fits(file)) {
+            BinaryTable tab = (BinaryTable) fits.getHDU(1).getData();
+            assertTrue(tab.isDeferred());
+            checkCursor(tab);
+            assertTrue(tab.isDeferred());
+        }
+    }
+
+    @Test
+    public void testLoaded() throws Exception {
+        try (Fits fits = new Fits(file)) {
+            BinaryTable tab = (BinaryTable) fits.getHDU(1).getData();
+            tab.getData();
+            checkCursor(tab);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testBeforeFirstRow() throws Exception {
+        memTable.rowCursor().getDouble(0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNaNToLong() throws Exception {
+        BinaryTable tab = BinaryTable.fromColumnMajor(new Object[] {new double[] {Double.NaN}});
+        RowCursor cursor = tab.rowCursor();
+        cursor.advance();
+        cursor.getLong(0);
+    }
+
+    @Test(expected = ClassCastException.class)
+    public void testArrayColumn() throws Exception {
+        RowCursor cursor = memTable.rowCursor();
+        cursor.advance();
+        cursor.getDouble(1);
+    }
+
+    @Test(expected = ClassCastException.class)
+    public void testStringAsNumber() throws Exception {
+        RowCursor cursor = memTable.rowCursor();
+        cursor.advance();
+        cursor.getDouble(2);
+    }
+
+    @Test(expected = ClassCastException.class)
+    public void testNumberAsBytes() throws Exception {
+        RowCursor cursor = memTable.rowCursor();
+        cursor.advance();
+        cursor.getBytes(0, new byte[4]);
+    }
+}
@@ -0,0 +1,142 @@
+package nom.tam.fits;
+
+/*-
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.File;
+
+// @formatter:off (keeps the Javadoc at the repo's 120 columns)
+/**
+ * Sample tables and images shared by the table and image tests.
+ */
+final class SampleData {
+
+    private SampleData() {
+    }
+
+    /**
+     * Creates a table with columns of many types, with values that depend on the row index. The columns are an
+     * <code>int</code>, a <code>double[3]</code>, a string, a logical, a variable-length <code>short</code>, a
+     * <code>long</code>, a <code>double</code> (NaN in every 10th row), a <code>short</code>, a <code>byte</code>, and
+     * a <code>float</code> column.
+     *
+     * @param  rows      the number of rows
+     *
+     * @return           the new table in memory
+     *
+     * @throws Exception if the table could not be created
+     */
+    static BinaryTable createMixedTable(int rows) throws Exception {
+        int[] ints = new int[rows];
+        double[][] arrays = new double[rows][3];
+        String[] strings = new String[rows];
+        boolean[] flags = new boolean[rows];
+        short[][] vla = new short[rows][];
+        long[] longs = new long[rows];
+        double[] doubles = new double[rows];
+        short[] shorts = new short[rows];
+        byte[] bytes = new byte[rows];
+        float[] floats = new float[rows];
+
+        for (int i = 0; i < rows; i++) {
+            ints[i] = i;
+            arrays[i][0] = -i;
+            arrays[i][2] = i * 0.5;
+            strings[i] = "row " + i;
+            flags[i] = (i % 3) == 0;
+            vla[i] = new short[i % 5];
+            for (int j = 0; j < vla[i].length; j++) {
+                vla[i][j] = (short) (i + j);
+            }
+            longs[i] = -3L * i;
+            doubles[i] = (i % 10 == 0) ? Double.NaN : 1.5 * i;
+            shorts[i] = (short) i;
+            bytes[i] = (byte) i;
+            floats[i] = 0.25F * i;
+        }
+
+        return BinaryTable.fromColumnMajor(
+                new Object[] {ints, arrays, strings, flags, vla, longs, doubles, shorts, bytes, floats});
+    }
+
+    /**
+     * Creates a variable-length <code>int</code> column, in which the first element of each entry is the row index.
+     *
+     * @param  rows   the number of rows
+     * @param  period the number of distinct entry lengths (1 to <code>period</code>), which repeat periodically.
+     *
+     * @return        the column data, with an array of 1 to <code>period</code> elements in each row.
+     */
+    static int[][] createVariableColumn(int rows, int period) {
+        int[][] vla = new int[rows][];
+        for (int i = 0; i < rows; i++) {
+            vla[i] = new int[i % period + 1];
+            vla[i][0] = i;
+        }
+        return vla;
+    }
+
+    /**
+     * Creates an image whose pixel values encode the image index, and the pixel position, as
+     * <code>k * 10000 + i * 100 + j</code>.
+     *
+     * @param  k    the image index
+     * @param  rows the number of image rows
+     * @param  cols the number of image columns
+     *
+     * @return      the new image
+     */
+    static int[][] createImage(int k, int rows, int cols) {
+        int[][] im = new int[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                im[i][j] = k * 10000 + i * 100 + j;
+            }
+        }
+        return im;
+    }
+
+    /**
+     * Writes a table as the first extension of a new FITS file.
+     *
+     * @param  tab       the table
+     * @param  file      the file to write
+     *
+     * @throws Exception if the file could not be written
+     */
+    static void write(BinaryTable tab, File file) throws Exception {
+        try (Fits fits = new Fits()) {
+            fits.addHDU(BinaryTableHDU.wrap(tab));
+            fits.write(file);
+        }
+    }
+}
+// @formatter:on
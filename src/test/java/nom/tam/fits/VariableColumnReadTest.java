@@ -0,0 +1,152 @@
+package nom.tam.fits;
+
+/*-
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import nom.tam.util.FitsFile;
+
+public class VariableColumnReadTest {
+
+    private static final int ROWS = 300;
+
+    private File file;
+
+    private int[][] ints;
+
+    private double[][] doubles;
+
+    @Before
+    public void setup() throws Exception {
+        file = new File("target/vla-column.fits");
+
+        // Large enough to need several heap blocks
+        ints = new int[ROWS][];
+        doubles = new double[ROWS][];
+        for (int i = 0; i < ROWS; i++) {
+            ints[i] = new int[(i * 37) % 5000];
+            for (int j = 0; j < ints[i].length; j++) {
+                ints[i][j] = i + j;
+            }
+            doubles[i] = new double[i % 7];
+            for (int j = 0; j < doubles[i].length; j++) {
+                doubles[i][j] = -i - j;
+            }
+        }
+
+        SampleData.write(BinaryTable.fromColumnMajor(new Object[] {ints, doubles}), file);
+    }
+
+    @After
+    public void cleanup() {
+        file.delete();
+    }
+
+    private void checkColumns(BinaryTable tab) throws Exception {
+        Object[] col = (Object[]) tab.getColumn(0);
+        assertEquals(ROWS, col.length);
+        for (int i = 0; i < ROWS; i++) {
+            assertArrayEquals("row " + i, ints[i], (int[]) col[i]);
+        }
+
+        col = (Object[]) tab.getColumn(1);
+        for (int i = 0; i < ROWS; i++) {
+            assertArrayEquals("row " + i, doubles[i], (double[]) col[i], 0.0);
+        }
+    }
+
+    @Test
+    public void testInMemory() throws Exception {
+        checkColumns(BinaryTable.fromColumnMajor(new Object[] {ints, doubles}));
+    }
+
+    @Test
+    public void testFromFile() throws Exception {
+        try (Fits fits = new Fits(file)) {
+            checkColumns((BinaryTable) fits.getHDU(1).getData());
+        }
+    }
+
+    @Test
+    public void testSharedEntries() throws Exception {
+        int rowLen = 0;
+        long offset = 0;
+
+        try (Fits fits = new Fits(file)) {
+            BinaryTable tab = (BinaryTable) fits.getHDU(1).getData();
+            rowLen = tab.getRowBytes();
+            offset = tab.getFileOffset();
+        }
+
+        // Point row 2 at the same heap data as row 5, and row 3 inside row 5's data.
+        try (FitsFile f = new FitsFile(file, "rw")) {
+            f.seek(offset + 5L * rowLen);
+            int len = f.readInt();
+            int off = f.readInt();
+
+            f.seek(offset + 2L * rowLen);
+            f.writeInt(len);
+            f.writeInt(off);
+
+            f.seek(offset + 3L * rowLen);
+            f.writeInt(len - 1);
+            f.writeInt(off + Integer.BYTES);
+        }
+
+        try (Fits fits = new Fits(file)) {
+            Object[] col = (Object[]) ((BinaryTable) fits.getHDU(1).getData()).getColumn(0);
+            assertArrayEquals(ints[5], (int[]) col[2]);
+            assertArrayEquals(ints[5], (int[]) col[5]);
+            assertNotSame(col[2], col[5]);
+            assertEquals(ints[5].length - 1, ((int[]) col[3]).length);
+            assertEquals(ints[5][1], ((int[]) col[3])[0]);
+            assertArrayEquals(ints[4], (int[]) col[4]);
+        }
+    }
+
+    @Test
+    public void testEmptyTable() throws Exception {
+        BinaryTable tab = new BinaryTable();
+        tab.addColumn(BinaryTable.ColumnDesc.createForVariableSize(int.class));
+        assertNull(tab.getColumn(0));
+    }
+}
@@ -9,10 +9,14 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
 import java.util.Arrays;
+import java.util.Random;
 
+import org.junit.Assert;
 import org.junit.Ignore;
 import org.junit.Test;
 
@@ -487,4 +491,162 @@ public class ChecksumTest {
         assertEquals(sum, fits.calcDatasum(0));
         fits.close();
     }
+
+    @Test
+    public void testParallelRegionChecksum() throws Exception {
+        // Large enough to be split across several threads
+        double[][] im = new double[3000][1000];
+
+        for (int i = 0; i < im.length; i++) {
+            for (int j = 0; j < im[i].length; j++) {
+                im[i][j] = i * j + 0.5;
+            }
+        }
+
+        ImageHDU hdu = (ImageHDU) FitsFactory.hduFactory(im);
+        long sum = hdu.getData().calcChecksum();
+
+        File file = new File("target/checksumParallelTest.fits");
+
+        try (Fits fits = new Fits()) {
+            fits.addHDU(hdu);
+            fits.addHDU(FitsFactory.hduFactory(new int[10][10]));
+            fits.setChecksum();
+            fits.write(file);
+        }
+
+        try (FitsFile f = new FitsFile(file, "r")) {
+            f.seek(FitsFactory.FITS_BLOCK_SIZE);
+            assertEquals(sum, FitsCheckSum.checksum(f, FitsFactory.FITS_BLOCK_SIZE, hdu.getData().getSize()));
+            // File pointer is untouched
+            assertEquals(FitsFactory.FITS_BLOCK_SIZE, f.position());
+        }
+
+        try (Fits fits = new Fits(file)) {
+            fits.verifyIntegrity();
+            assertEquals(sum, fits.calcDatasum(0));
+        }
+    }
+
+    @Test
+    public void testParallelVerifyReportsFirstFailedHDU() throws Exception {
+        File file = new File("target/checksumParallelFail.fits");
+
+        try (Fits fits = new Fits()) {
+            for (int k = 0; k < 4; k++) {
+                fits.addHDU(FitsFactory.hduFactory(new int[100][100]));
+            }
+            fits.setChecksum();
+            fits.write(file);
+        }
+
+        long offset = 0;
+        try (Fits fits = new Fits(file)) {
+            fits.read();
+            offset = fits.getHDU(2).getData().getFileOffset();
+        }
+
+        try (RandomAccessFile rf = new RandomAccessFile(file, "rw")) {
+            rf.seek(offset);
+            rf.write(1);
+        }
+
+        try (Fits fits = new Fits(file)) {
+            fits.verifyIntegrity();
+            Assert.fail("Corruption not detected");
+        } catch (FitsIntegrityException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("HDU[2]"));
+        }
+    }
+
+    @Test
+    public void testVerifyReportsFailureBeforeReadError() throws Exception {
+        File file = new File("target/checksumReadError.fits");
+
+        try (Fits fits = new Fits()) {
+            for (int k = 0; k < 4; k++) {
+                fits.addHDU(FitsFactory.hduFactory(new int[100][100]));
+            }
+            fits.setChecksum();
+            fits.write(file);
+        }
+
+        long offset = 0;
+        long end = 0;
+        try (Fits fits = new Fits(file)) {
+            fits.read();
+            offset = fits.getHDU(1).getData().getFileOffset();
+            end = fits.getHDU(3).getHeader().getFileOffset() + 100;
+        }
+
+        try (RandomAccessFile rf = new RandomAccessFile(file, "rw")) {
+            rf.seek(offset);
+            rf.write(1);
+            // Truncate in the middle of the last header
+            rf.setLength(end);
+        }
+
+        try (Fits fits = new Fits(file)) {
+            fits.verifyIntegrity();
+            Assert.fail("Corruption not detected");
+        } catch (FitsIntegrityException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("HDU[1]"));
+        }
+    }
+
+    /** Reference checksum, built byte by byte */
+    private static long referenceChecksum(byte[] b, int from, int len) {
+        long hi = 0, lo = 0;
+        for (int i = 0; i < len; i++) {
+            int v = (b[from + i] & 0xff) << (24 - 8 * (i & 3));
+            hi += v >>> 16;
+            lo += v & 0xffff;
+        }
+        for (;;) {
+            long hicarry = hi >>> 16;
+            long locarry = lo >>> 16;
+            if ((hicarry | locarry) == 0) {
+                break;
+            }
+            hi = (hi & 0xffff) + locarry;
+            lo = (lo & 0xffff) + hicarry;
+        }
+        return (hi << 16) | lo;
+    }
+
+    @Test
+    public void testWordKernelUnalignedPieces() throws Exception {
+        byte[] b = new byte[1003];
+        new Random(1).nextBytes(b);
+
+        for (int from = 0; from < 9; from++) {
+            for (int len : new int[] {0, 1, 3, 4, 7, 8, 15, 16, 17, 31, 33, 500, b.length - from}) {
+                long expected = referenceChecksum(b, from, len);
+
+                FitsCheckSum.Checksum sum = new FitsCheckSum.Checksum();
+                sum.update(b, from, len);
+                assertEquals("array " + from + ":" + len, expected, sum.getChecksum());
+
+                // Same, in two pieces, splitting words
+                sum = new FitsCheckSum.Checksum();
+                int half = len / 2 + 1;
+                if (half <= len) {
+                    sum.update(b, from, half);
+                    sum.update(b, from + half, len - half);
+                    assertEquals("split " + from + ":" + len, expected, sum.getChecksum());
+                }
+
+                // Direct, little-endian ordered buffer
+                ByteBuffer direct = ByteBuffer.allocateDirect(b.length)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                direct.put(b);
+                direct.position(from);
+                direct.limit(from + len);
+                sum = new FitsCheckSum.Checksum();
+                sum.update(direct);
+                assertEquals("direct " + from + ":" + len, expected, sum.getChecksum());
+                assertEquals(from + len, direct.position());
+            }
+        }
+    }
 }
@@ -0,0 +1,242 @@
+package nom.tam.image;
+
+/*-
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import nom.tam.fits.BasicHDU;
+import nom.tam.fits.Fits;
+import nom.tam.fits.FitsException;
+import nom.tam.fits.Header;
+import nom.tam.fits.ImageHDU;
+import nom.tam.fits.header.Bitpix;
+import nom.tam.fits.utilities.FitsCheckSum;
+import nom.tam.util.FitsFile;
+import nom.tam.util.FitsInputStream;
+import nom.tam.util.FitsOutputStream;
+
+import static nom.tam.fits.header.Checksum.CHECKSUM;
+import static nom.tam.fits.header.Checksum.DATASUM;
+
+public class StreamingImageWriterTest {
+
+    private static final String FILE_NAME = "target/streamingImage.fits";
+
+    @After
+    public void cleanup() {
+        new File(FILE_NAME).delete();
+    }
+
+    private static Header imageHeader(Bitpix bitpix, int... dims) throws Exception {
+        Header h = new Header();
+        h.setSimple(true);
+        h.setBitpix(bitpix);
+        h.setNaxes(dims.length);
+        for (int i = 0; i < dims.length; i++) {
+            h.setNaxis(i + 1, dims[dims.length - 1 - i]);
+        }
+        return h;
+    }
+
+    @Test
+    public void testFloatRowsWithChecksum() throws Exception {
+        float[][] image = new float[37][23];
+        Random random = new Random(42);
+        for (float[] row : image) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] = random.nextFloat();
+            }
+        }
+
+        try (FitsFile out = new FitsFile(FILE_NAME, "rw")) {
+            try (StreamingImageWriter w = new StreamingImageWriter(out, imageHeader(Bitpix.FLOAT, 37, 23), true)) {
+                for (float[] row : image) {
+                    w.write(row);
+                }
+                Assert.assertEquals(0, w.getRemaining());
+            }
+
+            // Another HDU can be written after it
+            Assert.assertEquals(0, out.getFilePointer() % 2880);
+        }
+
+        Assert.assertEquals(0, new File(FILE_NAME).length() % 2880);
+
+        try (Fits fits = new Fits(FILE_NAME)) {
+            ImageHDU hdu = (ImageHDU) fits.readHDU();
+            Assert.assertArrayEquals(image, (float[][]) hdu.getKernel());
+            Assert.assertTrue(hdu.getHeader().containsKey(DATASUM));
+            Assert.assertTrue(hdu.getHeader().containsKey(CHECKSUM));
+            Assert.assertEquals(FitsCheckSum.checksum(hdu.getData()), hdu.getStoredDatasum());
+            fits.verifyIntegrity();
+        }
+    }
+
+    @Test
+    public void testShortPlanesToStream() throws Exception {
+        short[][][] cube = new short[3][5][7];
+        for (int k = 0; k < 3; k++) {
+            for (int j = 0; j < 5; j++) {
+                for (int i = 0; i < 7; i++) {
+                    cube[k][j][i] = (short) (k * 1000 + j * 10 + i);
+                }
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        long datasum;
+
+        try (FitsOutputStream out = new FitsOutputStream(bytes)) {
+            StreamingImageWriter w = new StreamingImageWriter(out, imageHeader(Bitpix.SHORT, 3, 5, 7));
+            for (short[][] plane : cube) {
+                short[] flat = new short[35];
+                for (int j = 0; j < 5; j++) {
+                    System.arraycopy(plane[j], 0, flat, 7 * j, 7);
+                }
+                // Write in uneven pieces, so words are split across calls
+                w.write(flat, 0, 3);
+                w.write(flat, 3, 32);
+            }
+            w.close();
+            w.close(); // no-op
+            datasum = w.getDatasum();
+        }
+
+        Assert.assertEquals(0, bytes.size() % 2880);
+
+        try (Fits fits = new Fits(new FitsInputStream(new ByteArrayInputStream(bytes.toByteArray())))) {
+            BasicHDU<?> hdu = fits.readHDU();
+            Assert.assertArrayEquals(cube, (short[][][]) hdu.getKernel());
+            Assert.assertFalse(hdu.getHeader().containsKey(DATASUM));
+            Assert.assertEquals(FitsCheckSum.checksum(hdu.getData()), datasum);
+        }
+    }
+
+    @Test
+    public void testRawBytes() throws Exception {
+        int[] data = new int[101];
+        ByteBuffer b = ByteBuffer.allocate(4 * data.length);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = i * i - 50;
+            b.putInt(data[i]);
+        }
+        b.flip();
+
+        try (FitsFile out = new FitsFile(FILE_NAME, "rw")) {
+            try (StreamingImageWriter w = new StreamingImageWriter(out, imageHeader(Bitpix.INTEGER, 101), true)) {
+                ByteBuffer first = b.duplicate();
+                first.limit(7);
+                w.write(first);
+                Assert.assertFalse(first.hasRemaining());
+
+                b.position(7);
+                ByteBuffer rest = ByteBuffer.allocateDirect(b.remaining());
+                rest.put(b);
+                rest.flip();
+                w.write(rest);
+            }
+        }
+
+        try (Fits fits = new Fits(FILE_NAME)) {
+            BasicHDU<?> hdu = fits.readHDU();
+            Assert.assertArrayEquals(data, (int[]) hdu.getKernel());
+            fits.verifyIntegrity();
+        }
+    }
+
+    @Test
+    public void testOverflow() throws Exception {
+        try (FitsOutputStream out = new FitsOutputStream(new ByteArrayOutputStream())) {
+            StreamingImageWriter w = new StreamingImageWriter(out, imageHeader(Bitpix.DOUBLE, 2, 2));
+            w.write(new double[3]);
+            Assert.assertEquals(8, w.getRemaining());
+            Assert.assertThrows(FitsException.class, () -> w.write(new double[2]));
+            w.write(new double[1]);
+            w.close();
+            Assert.assertThrows(FitsException.class, () -> w.write(new double[1]));
+        }
+    }
+
+    @Test
+    public void testIncomplete() throws Exception {
+        try (FitsOutputStream out = new FitsOutputStream(new ByteArrayOutputStream())) {
+            StreamingImageWriter w = new StreamingImageWriter(out, imageHeader(Bitpix.LONG, 2, 2));
+            w.write(new long[3]);
+            Assert.assertThrows(FitsException.class, () -> w.close());
+        }
+    }
+
+    @Test
+    public void testTypeMismatch() throws Exception {
+        try (FitsOutputStream out = new FitsOutputStream(new ByteArrayOutputStream())) {
+            StreamingImageWriter w = new StreamingImageWriter(out, imageHeader(Bitpix.BYTE, 2, 2));
+            Assert.assertThrows(FitsException.class, () -> w.write(new float[1]));
+            w.write(new byte[4]);
+            w.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testChecksumNeedsRandomAccess() throws Exception {
+        try (FitsOutputStream out = new FitsOutputStream(new ByteArrayOutputStream())) {
+            new StreamingImageWriter(out, imageHeader(Bitpix.BYTE, 2, 2), true);
+        }
+    }
+
+    @Test
+    public void testChecksumAccumulator() throws Exception {
+        byte[] b = new byte[1001];
+        new Random(1).nextBytes(b);
+
+        FitsCheckSum.Checksum sum = new FitsCheckSum.Checksum();
+        sum.update(b, 0, 1);
+        sum.update(b, 1, 6);
+        sum.update(ByteBuffer.wrap(b, 7, 994));
+
+        byte[] padded = new byte[1004];
+        System.arraycopy(b, 0, padded, 0, b.length);
+        Assert.assertEquals(FitsCheckSum.checksum(padded), sum.getChecksum());
+
+        // Continuing from a prior sum
+        FitsCheckSum.Checksum cont = new FitsCheckSum.Checksum(FitsCheckSum.checksum(padded));
+        cont.update(padded, 0, padded.length);
+        Assert.assertEquals(FitsCheckSum.sumOf(sum.getChecksum(), sum.getChecksum()), cont.getChecksum());
+    }
+}
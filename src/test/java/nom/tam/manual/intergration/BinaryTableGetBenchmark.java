@@ -0,0 +1,170 @@
+package nom.tam.manual.intergration;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+
+import nom.tam.fits.BinaryTable;
+import nom.tam.fits.BinaryTableHDU;
+import nom.tam.fits.Fits;
+import nom.tam.util.FitsFile;
+
+/**
+ * Element-wise access to binary tables, both deferred (read from file element by element) and in memory, and
+ * scalar reads from a FitsFile, in shared (synchronized) and single-owner mode.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BinaryTableGetBenchmark {
+
+    private static final int ROWS = 10000;
+
+    @Param({"false", "true"})
+    public boolean singleOwner;
+
+    private File file;
+
+    private Fits fits;
+
+    private FitsFile in;
+
+    private BinaryTable deferred;
+
+    private BinaryTable loaded;
+
+    private int row;
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        Main.main(args);
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        file = File.createTempFile("bench-table", ".fits");
+
+        int[] ints = new int[ROWS];
+        double[] dbls = new double[ROWS];
+        float[][] vecs = new float[ROWS][4];
+        int[][] vla = new int[ROWS][];
+
+        for (int i = 0; i < ROWS; i++) {
+            ints[i] = i;
+            dbls[i] = Math.sqrt(i);
+            vecs[i][i % 4] = i;
+            vla[i] = new int[i % 5 + 1];
+        }
+
+        try (Fits f = new Fits()) {
+            f.addHDU(BinaryTableHDU.wrap(BinaryTable.fromColumnMajor(new Object[] {ints, dbls, vecs, vla})));
+            f.write(file);
+        }
+
+        in = new FitsFile(file, "r");
+        in.setSingleOwner(singleOwner);
+        fits = new Fits(in);
+        deferred = (BinaryTable) fits.getHDU(1).getData();
+
+        try (Fits f = new Fits(file)) {
+            loaded = (BinaryTable) f.getHDU(1).getData();
+            loaded.getData();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() throws Exception {
+        fits.close();
+        file.delete();
+    }
+
+    private int nextRow() {
+        row = (row + 1) % ROWS;
+        return row;
+    }
+
+    @Benchmark
+    public Object getDeferredInt() throws Exception {
+        return deferred.get(nextRow(), 0);
+    }
+
+    @Benchmark
+    public Object getDeferredDouble() throws Exception {
+        return deferred.get(nextRow(), 1);
+    }
+
+    @Benchmark
+    public Object getDeferredVector() throws Exception {
+        return deferred.get(nextRow(), 2);
+    }
+
+    @Benchmark
+    public Object getVariableLength() throws Exception {
+        return loaded.get(nextRow(), 3);
+    }
+
+    @Benchmark
+    public Object getLoadedDouble() throws Exception {
+        return loaded.get(nextRow(), 1);
+    }
+
+    @Benchmark
+    public long readInts() throws Exception {
+        // Sequential scalar reads through the FitsFile buffer and decoder
+        in.seek(0);
+        long sum = 0;
+        for (int i = 0; i < ROWS; i++) {
+            sum += in.readInt();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,136 @@
+package nom.tam.manual.intergration;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+
+import nom.tam.fits.utilities.FitsCheckSum;
+
+/**
+ * Raw checksumming throughput of heap, direct and memory-mapped buffers. Each invocation sums {@link #MB} megabytes,
+ * and counts as that many operations, so the score is in MB/s. The <code>array</code> benchmark sums the heap buffer's
+ * backing array via {@link FitsCheckSum.Checksum#update(byte[], int, int)}, starting at an odd offset, so the words
+ * are not aligned to memory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChecksumKernelBenchmark {
+
+    /** Megabytes summed per invocation */
+    private static final int MB = 64;
+
+    /** The kind of buffer to checksum */
+    @Param({"heap", "direct", "mapped"})
+    public String kind;
+
+    private File file;
+
+    private ByteBuffer buf;
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        Main.main(args);
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        byte[] data = new byte[MB << 20];
+        new Random(1).nextBytes(data);
+
+        if ("heap".equals(kind)) {
+            buf = ByteBuffer.wrap(data);
+        } else if ("direct".equals(kind)) {
+            buf = ByteBuffer.allocateDirect(data.length);
+            buf.put(data);
+        } else {
+            file = File.createTempFile("checksum", ".bin");
+            try (RandomAccessFile f = new RandomAccessFile(file, "rw")) {
+                f.write(data);
+                buf = f.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, data.length);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() {
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MB)
+    public long buffer() {
+        FitsCheckSum.Checksum sum = new FitsCheckSum.Checksum();
+        ByteBuffer b = buf.duplicate();
+        b.position(0);
+        sum.update(b);
+        return sum.getChecksum();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MB)
+    public long array() {
+        if (!buf.hasArray()) {
+            return 0;
+        }
+        FitsCheckSum.Checksum sum = new FitsCheckSum.Checksum();
+        sum.update(buf.array(), 1, buf.capacity() - 1);
+        return sum.getChecksum();
+    }
+}
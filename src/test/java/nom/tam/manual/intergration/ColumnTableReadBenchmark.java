@@ -0,0 +1,130 @@
+package nom.tam.manual.intergration;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+
+import nom.tam.util.ColumnTable;
+import nom.tam.util.FitsInputStream;
+import nom.tam.util.FitsOutputStream;
+
+/**
+ * Reading the main table of binary tables from a stream, comparing the batched row-to-column transpose of
+ * {@link ColumnTable#read(nom.tam.util.ArrayDataInput)} against reading the table entry by entry, for both narrow
+ * and wide tables.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColumnTableReadBenchmark {
+
+    private static final int ROWS = 20000;
+
+    private static final Class<?>[] TYPES = {byte.class, short.class, int.class, long.class, float.class, double.class};
+
+    @Param({"narrow", "wide"})
+    public String shape;
+
+    private ColumnTable<?> table;
+
+    private byte[] bytes;
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        Main.main(args);
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        int nCols = "wide".equals(shape) ? 100 : 3;
+
+        Object[] cols = new Object[nCols];
+        int[] sizes = new int[nCols];
+
+        for (int c = 0; c < nCols; c++) {
+            sizes[c] = (c % 7 == 6) ? 4 : 1;
+            cols[c] = Array.newInstance(TYPES[c % TYPES.length], ROWS * sizes[c]);
+        }
+
+        table = new ColumnTable<>(cols, sizes);
+
+        ByteArrayOutputStream bo = new ByteArrayOutputStream();
+        try (FitsOutputStream out = new FitsOutputStream(bo)) {
+            table.write(out);
+        }
+        bytes = bo.toByteArray();
+    }
+
+    @Benchmark
+    public ColumnTable<?> readBatched() throws Exception {
+        try (FitsInputStream in = new FitsInputStream(new ByteArrayInputStream(bytes))) {
+            table.read(in);
+        }
+        return table;
+    }
+
+    @Benchmark
+    public ColumnTable<?> readEntryByEntry() throws Exception {
+        // The former approach: one decoder call per table entry, alternating between columns.
+        int nCols = table.getNCols();
+        try (FitsInputStream in = new FitsInputStream(new ByteArrayInputStream(bytes))) {
+            for (int row = 0; row < ROWS; row++) {
+                for (int col = 0; col < nCols; col++) {
+                    table.read(in, row, row + 1, col);
+                }
+            }
+        }
+        return table;
+    }
+}
@@ -0,0 +1,140 @@
+package nom.tam.manual.intergration;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+
+import nom.tam.fits.Header;
+import nom.tam.fits.HeaderCard;
+import nom.tam.util.Cursor;
+
+/**
+ * Editing of large headers, with many <code>HISTORY</code> cards interspersed with keyed cards. Each benchmark
+ * operation makes a batch of edits in the middle of the header, and then undoes them, so that the header remains the
+ * same size throughout.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeaderEditBenchmark {
+
+    /** Number of edits per benchmark operation */
+    private static final int EDITS = 100;
+
+    @Param({"1000", "50000"})
+    public int cards;
+
+    private Header header;
+
+    private HeaderCard[] comments;
+
+    private String[] keys;
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        Main.main(args);
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        header = new Header();
+        header.addValue("SIMPLE", true, null);
+        header.addValue("BITPIX", -32, null);
+        header.addValue("NAXIS", 0, null);
+
+        for (int i = 0; i < cards; i++) {
+            if (i % 10 == 0) {
+                header.addValue("KEY" + i, i, "some keyed value");
+            } else {
+                header.insertHistory("Processing step " + i + " completed");
+            }
+        }
+
+        comments = new HeaderCard[EDITS];
+        keys = new String[EDITS];
+
+        for (int i = 0; i < EDITS; i++) {
+            comments[i] = HeaderCard.createCommentCard("inserted comment " + i);
+            keys[i] = "KEY" + 10 * (cards / 20 + i);
+        }
+    }
+
+    /**
+     * Inserts comment cards in the middle of the header through a cursor, and then removes them again.
+     *
+     * @return the header size
+     */
+    @Benchmark
+    public int cursorInsertRemove() {
+        Cursor<String, HeaderCard> c = header.iterator(header.getNumberOfCards() / 2);
+        for (HeaderCard card : comments) {
+            c.add(card);
+        }
+        for (int i = 0; i < EDITS; i++) {
+            c.remove();
+        }
+        return header.getNumberOfCards();
+    }
+
+    /**
+     * Locates keyed cards in the middle of the header, deletes them, then inserts them back into the same place.
+     *
+     * @return the header size
+     */
+    @Benchmark
+    public int deleteReinsert() {
+        for (String key : keys) {
+            HeaderCard card = header.findCard(key);
+            header.deleteKey(key);
+            header.addLine(card);
+        }
+        return header.getNumberOfCards();
+    }
+}
@@ -0,0 +1,132 @@
+package nom.tam.manual.intergration;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+
+import nom.tam.fits.FitsFactory;
+import nom.tam.fits.Header;
+import nom.tam.util.FitsInputStream;
+import nom.tam.util.FitsOutputStream;
+
+/**
+ * Reading (parsing) of headers with a typical mix of cards, with the cards parsed sequentially, in parallel, or lazily.
+ * The score is the time to read an entire header (from memory), and to get the values of a few keywords from it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeaderReadBenchmark {
+
+    @Param({"100", "20000"})
+    public int cards;
+
+    @Param({"serial", "parallel", "lazy"})
+    public String mode;
+
+    private byte[] bytes;
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        Main.main(args);
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Header h = new Header();
+        h.addValue("SIMPLE", true, null);
+        h.addValue("BITPIX", -32, null);
+        h.addValue("NAXIS", 2, null);
+        h.addValue("NAXIS1", 1024, null);
+        h.addValue("NAXIS2", 1024, null);
+
+        for (int i = 0; i < cards; i++) {
+            switch (i % 4) {
+            case 0:
+                h.insertHistory("Processing step " + i + " completed");
+                break;
+            case 1:
+                h.addValue("D" + i, i * 1.234567, "some decimal value");
+                break;
+            case 2:
+                h.addValue("S" + i, "string value " + i, "some string value");
+                break;
+            default:
+                h.addValue("I" + i, i, "some integer value");
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (FitsOutputStream o = new FitsOutputStream(out)) {
+            h.write(o);
+        }
+        bytes = out.toByteArray();
+
+        FitsFactory.setParallelHeaderReadThreshold("parallel".equals(mode) ? 1000 : 0);
+        FitsFactory.setLazyHeaderCards("lazy".equals(mode));
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() {
+        FitsFactory.setParallelHeaderReadThreshold(0);
+        FitsFactory.setDefaults();
+    }
+
+    @Benchmark
+    public int read() throws Exception {
+        try (FitsInputStream in = new FitsInputStream(new ByteArrayInputStream(bytes))) {
+            Header h = new Header(in);
+            return h.getIntValue("NAXIS1") + h.getIntValue("NAXIS2") + h.getIntValue("BITPIX");
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package nom.tam.manual.intergration;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+
+import nom.tam.util.FitsFile;
+import nom.tam.util.FitsInputStream;
+import nom.tam.util.FitsOutputStream;
+
+/**
+ * Decoding of large 2D <code>float</code> and <code>double</code> images from a file and from a stream. The score is
+ * the time to decode a whole image, so the decode rate is the image size ({@link #SIZE}<sup>2</sup> times 4 or 8
+ * bytes) divided by the score.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImageArrayReadBenchmark {
+
+    private static final int SIZE = 1024;
+
+    @Param({"64", "1024"})
+    public int width;
+
+    private File file;
+
+    private FitsFile in;
+
+    private byte[] floatBytes;
+
+    private byte[] doubleBytes;
+
+    private float[][] floats;
+
+    private double[][] doubles;
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        Main.main(args);
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        int rows = SIZE * SIZE / width;
+        floats = new float[rows][width];
+        doubles = new double[rows][width];
+
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < width; j++) {
+                floats[i][j] = i - j;
+                doubles[i][j] = i * j;
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (FitsOutputStream out = new FitsOutputStream(bytes)) {
+            out.writeArray(floats);
+        }
+        floatBytes = bytes.toByteArray();
+
+        bytes = new ByteArrayOutputStream();
+        try (FitsOutputStream out = new FitsOutputStream(bytes)) {
+            out.writeArray(doubles);
+        }
+        doubleBytes = bytes.toByteArray();
+
+        file = File.createTempFile("bench-image", ".bin");
+        try (FitsFile f = new FitsFile(file, "rw")) {
+            f.writeArray(floats);
+            f.writeArray(doubles);
+        }
+
+        in = new FitsFile(file, "r");
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() throws Exception {
+        in.close();
+        file.delete();
+    }
+
+    @Benchmark
+    public float[][] fileFloats() throws Exception {
+        in.seek(0);
+        in.readArrayFully(floats);
+        return floats;
+    }
+
+    @Benchmark
+    public double[][] fileDoubles() throws Exception {
+        in.seek(floatBytes.length);
+        in.readArrayFully(doubles);
+        return doubles;
+    }
+
+    @Benchmark
+    public float[][] fileImageFloats() throws Exception {
+        in.seek(0);
+        in.readImage(floats);
+        return floats;
+    }
+
+    @Benchmark
+    public double[][] fileImageDoubles() throws Exception {
+        in.seek(floatBytes.length);
+        in.readImage(doubles);
+        return doubles;
+    }
+
+    @Benchmark
+    public float[][] streamFloats() throws Exception {
+        try (FitsInputStream s = new FitsInputStream(new ByteArrayInputStream(floatBytes))) {
+            s.readArrayFully(floats);
+        }
+        return floats;
+    }
+
+    @Benchmark
+    public double[][] streamDoubles() throws Exception {
+        try (FitsInputStream s = new FitsInputStream(new ByteArrayInputStream(doubleBytes))) {
+            s.readArrayFully(doubles);
+        }
+        return doubles;
+    }
+}
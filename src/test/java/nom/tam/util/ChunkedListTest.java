@@ -0,0 +1,251 @@
+package nom.tam.util;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 2004 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import nom.tam.util.HashedListTest.TestCursorValue;
+
+public class ChunkedListTest {
+
+    private static void assertSame(List<?> expected, ChunkedList<?> list) {
+        Assert.assertEquals(expected.size(), list.size());
+        Assert.assertArrayEquals(expected.toArray(), list.toArray());
+
+        for (int i = 0; i < expected.size(); i += 7) {
+            Assert.assertSame(expected.get(i), list.get(i));
+        }
+
+        Iterator<?> it = list.iterator();
+        for (Object e : expected) {
+            Assert.assertSame(e, it.next());
+        }
+        Assert.assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void testRandomEdits() {
+        Random random = new Random(1234);
+        ChunkedList<Integer> list = new ChunkedList<>();
+        List<Integer> expected = new ArrayList<>();
+
+        for (int n = 0; n < 20000; n++) {
+            Integer e = new Integer(n); // distinct instances...
+            int i = random.nextInt(expected.size() + 1);
+            list.add(i, e);
+            expected.add(i, e);
+        }
+        assertSame(expected, list);
+
+        for (int n = 0; n < 15000; n++) {
+            int i = random.nextInt(expected.size());
+            Assert.assertSame(expected.remove(i), list.remove(i));
+        }
+        assertSame(expected, list);
+
+        for (int i = 0; i < expected.size(); i += 11) {
+            Assert.assertEquals(i, list.indexOf(expected.get(i)));
+            Assert.assertTrue(list.contains(expected.get(i)));
+        }
+
+        Assert.assertEquals(-1, list.indexOf(new Integer(-1)));
+        Assert.assertFalse(list.contains(new Integer(-1)));
+    }
+
+    @Test
+    public void testSequential() {
+        ChunkedList<Integer> list = new ChunkedList<>();
+        List<Integer> expected = new ArrayList<>();
+
+        for (int n = 0; n < 3 * ChunkedList.MAX_CHUNK_SIZE; n++) {
+            Integer e = n;
+            list.add(e);
+            expected.add(e);
+        }
+        assertSame(expected, list);
+
+        while (!expected.isEmpty()) {
+            Assert.assertEquals(expected.remove(0), list.remove(0));
+        }
+        Assert.assertTrue(list.isEmpty());
+        Assert.assertEquals("[]", list.toString());
+
+        list.add(0, 1);
+        Assert.assertEquals("[1]", list.toString());
+    }
+
+    @Test
+    public void testAliases() {
+        ChunkedList<String> list = new ChunkedList<>();
+        String a = "a";
+        String b = "b";
+
+        list.add(a);
+        list.add(b);
+        list.add(a);
+
+        Assert.assertEquals(0, list.indexOf(a));
+        Assert.assertEquals(1, list.indexOf(b));
+
+        list.remove(0);
+        Assert.assertEquals(1, list.indexOf(a));
+        Assert.assertTrue(list.contains(a));
+
+        list.remove(1);
+        Assert.assertEquals(-1, list.indexOf(a));
+        Assert.assertFalse(list.contains(a));
+        Assert.assertEquals(0, list.indexOf(b));
+
+        list.clear();
+        Assert.assertEquals(0, list.size());
+        Assert.assertEquals(-1, list.indexOf(b));
+    }
+
+    @Test
+    public void testAliasesAcrossChunks() {
+        ChunkedList<Object> list = new ChunkedList<>();
+        Object x = new Object();
+
+        list.add(x);
+        for (int i = 0; i < 2000; i++) {
+            list.add(new Object());
+        }
+        list.add(x);
+        list.add(x);
+
+        Assert.assertEquals(0, list.indexOf(x));
+
+        list.remove(0);
+        Assert.assertEquals(2000, list.indexOf(x));
+
+        list.remove(2001);
+        Assert.assertEquals(2000, list.indexOf(x));
+
+        // Insertions before it must be accounted for
+        list.add(0, new Object());
+        Assert.assertEquals(2001, list.indexOf(x));
+
+        list.remove(2001);
+        Assert.assertEquals(-1, list.indexOf(x));
+        Assert.assertFalse(list.contains(x));
+    }
+
+    @Test
+    public void testSortAndArrays() {
+        ChunkedList<Integer> list = new ChunkedList<>();
+        for (int n = 0; n < 2000; n++) {
+            list.add((n * 7919) % 2000);
+        }
+
+        list.sort(Comparator.naturalOrder());
+        for (int n = 0; n < 2000; n++) {
+            Assert.assertEquals(n, list.get(n).intValue());
+            Assert.assertEquals(n, list.indexOf(list.get(n)));
+        }
+
+        Integer[] small = list.toArray(new Integer[0]);
+        Assert.assertEquals(2000, small.length);
+
+        Integer[] big = list.toArray(new Integer[2002]);
+        Assert.assertEquals(1999, big[1999].intValue());
+        Assert.assertNull(big[2000]);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOutOfBounds() {
+        ChunkedList<Integer> list = new ChunkedList<>();
+        list.add(1);
+        list.get(1);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testAddOutOfBounds() {
+        new ChunkedList<Integer>().add(1, 1);
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testIteratorPastEnd() {
+        new ChunkedList<Integer>().iterator().next();
+    }
+
+    @Test
+    public void testLargeHashedListCursor() {
+        HashedList<TestCursorValue> h = new HashedList<>();
+        List<TestCursorValue> expected = new ArrayList<>();
+
+        for (int n = 0; n < 5000; n++) {
+            TestCursorValue v = new TestCursorValue("", "H" + n);
+            h.add(v);
+            expected.add(v);
+        }
+
+        // Insert keyed entries in the middle through the cursor
+        Cursor<String, TestCursorValue> c = h.iterator(2500);
+        for (int n = 0; n < 2000; n++) {
+            TestCursorValue v = new TestCursorValue("KEY" + n, "K" + n);
+            c.add(v);
+            expected.add(2500 + n, v);
+        }
+
+        Assert.assertEquals(expected.size(), h.size());
+        Assert.assertSame(expected.get(4500), c.next());
+        Assert.assertSame(expected.get(4500), c.prev());
+        Assert.assertSame(expected.get(4499), c.prev());
+
+        // Remove a keyed entry
+        Assert.assertTrue(h.removeKey("KEY10"));
+        expected.remove(2510);
+        Assert.assertFalse(h.containsKey("KEY10"));
+
+        c = h.iterator("");
+        Assert.assertSame(expected.get(0), c.next());
+
+        // Remove an unkeyed entry by reference
+        Assert.assertTrue(h.remove(expected.get(100)));
+        expected.remove(100);
+
+        for (int i = 0; i < expected.size(); i += 13) {
+            Assert.assertSame(expected.get(i), h.get(i));
+        }
+
+        c = h.iterator("KEY501");
+        Assert.assertSame(expected.get(2999), c.next());
+    }
+}
@@ -1,5 +1,7 @@
 package nom.tam.util;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 
 /*-
@@ -35,6 +37,7 @@ import java.io.EOFException;
 
 import java.lang.reflect.Array;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import org.junit.After;
 import org.junit.Assert;
@@ -114,6 +117,62 @@ public class ColumnTableTest {
         checkReadWrite(new double[] {1, 2, 3});
     }
 
+    @Test
+    public void testReadMixedRowBatches() throws Exception {
+        // Enough rows to span multiple read batches, with mixed scalar and array columns.
+        int nRows = 5000;
+
+        Object[] cols = {new byte[nRows], new boolean[nRows], new char[nRows], new short[nRows], new int[nRows],
+                new long[nRows], new float[nRows], new double[nRows], new int[3 * nRows], new double[2 * nRows],
+                new byte[5 * nRows], new boolean[2 * nRows]};
+        int[] sizes = {1, 1, 1, 1, 1, 1, 1, 1, 3, 2, 5, 2};
+
+        for (int c = 0; c < cols.length; c++) {
+            for (int i = 0; i < Array.getLength(cols[c]); i++) {
+                if (cols[c] instanceof boolean[]) {
+                    Array.setBoolean(cols[c], i, (i % 3) == 0);
+                } else if (cols[c] instanceof char[]) {
+                    Array.setChar(cols[c], i, (char) ('A' + (i % 26)));
+                } else {
+                    Array.setByte(cols[c], i, (byte) (i + c));
+                }
+            }
+        }
+
+        ColumnTable<?> tab = new ColumnTable<>(cols, sizes);
+
+        ByteArrayOutputStream bo = new ByteArrayOutputStream();
+        FitsOutputStream out = new FitsOutputStream(bo);
+        tab.write(out);
+        out.flush();
+
+        Object[] empty = new Object[cols.length];
+        for (int c = 0; c < cols.length; c++) {
+            empty[c] = Array.newInstance(cols[c].getClass().getComponentType(), Array.getLength(cols[c]));
+        }
+        ColumnTable<?> back = new ColumnTable<>(empty, sizes);
+
+        FitsInputStream in = new FitsInputStream(new ByteArrayInputStream(bo.toByteArray()));
+        back.read(in);
+        in.close();
+
+        for (int c = 0; c < cols.length; c++) {
+            Assert.assertTrue("col " + c, Arrays.deepEquals(new Object[] {cols[c]}, new Object[] {back.getColumn(c)}));
+        }
+
+        // Truncated input
+        byte[] truncated = Arrays.copyOf(bo.toByteArray(), bo.size() - 1);
+        in = new FitsInputStream(new ByteArrayInputStream(truncated));
+        boolean thrown = false;
+        try {
+            back.read(in);
+        } catch (EOFException e) {
+            thrown = true;
+        }
+        in.close();
+        Assert.assertTrue(thrown);
+    }
+
     @Test(expected = TableException.class)
     public void checkAddWrongSizeColumn() throws Exception {
         ColumnTable<?> tab = new ColumnTable<>();
@@ -449,6 +449,31 @@ public class FitsDecoderTest {
         // No exception
     }
 
+    @Test
+    public void testReadNarrowRows() throws Exception {
+        ByteBuffer b = ByteBuffer.allocate(4000 * Float.BYTES + 3);
+        for (int i = 0; i < 4000; i++) {
+            b.putFloat(i);
+        }
+
+        FitsDecoder e = new FitsDecoder(InputReader.from(new ByteArrayInputStream(b.array())));
+        float[][] f = new float[1000][3];
+        assertEquals(3000 * Float.BYTES, e.readArray(f));
+        assertEquals(2999.0F, f[999][2], 0.0F);
+
+        double[][] d = new double[300][2];
+        d[299][1] = Double.NaN;
+        // 1000 floats, +3 bytes make 500 doubles, and 3 extra bytes, which are not a complete double
+        assertEquals(500 * Double.BYTES, e.readArray(d));
+        assertTrue(Double.isNaN(d[299][1]));
+    }
+
+    @Test(expected = EOFException.class)
+    public void testReadRowsAtEOF() throws Exception {
+        FitsDecoder e = new FitsDecoder(new EOFExceptionInputReader());
+        e.readArray(new int[10][10]);
+    }
+
     private static class EOFExceptionInputReader implements InputReader {
         @Override
         public int read(byte[] b, int off, int len) throws IOException {
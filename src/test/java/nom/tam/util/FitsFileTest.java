@@ -1,6 +1,9 @@
 package nom.tam.util;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /*
  * #%L
@@ -33,6 +36,7 @@ import static org.junit.Assert.assertEquals;
  * #L%
  */
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 
@@ -92,4 +96,102 @@ public class FitsFileTest {
             assertEquals("Wrong position", 12L, f.position());
         }
     }
+
+    @Test
+    public void testReadAt() throws Exception {
+        try (FitsFile f = new FitsFile("fftest.bin", "rw", 100)) {
+            f.setLength(0);
+            for (int i = 0; i < 500; i++) {
+                f.writeInt(i);
+            }
+            f.seek(8);
+
+            // Unflushed data must be visible to positional reads
+            byte[] b = new byte[8];
+            f.readFullyAt(1992, b, 0, b.length);
+            assertArrayEquals(new byte[] {0, 0, 1, (byte) 242, 0, 0, 1, (byte) 243}, b);
+            assertEquals(-1, f.readAt(2000, b, 0, b.length));
+            assertEquals(0, f.readAt(0, b, 0, 0));
+            assertEquals(8, f.getFilePointer());
+
+            ArrayDataInput in = f.inputAt(400);
+            assertEquals(100, in.readInt());
+            in.skipAllBytes(4);
+            assertEquals(102, in.readInt());
+            assertEquals(8, f.getFilePointer());
+            assertEquals(2, f.readInt());
+        }
+    }
+
+    @Test
+    public void testReadAtInterrupted() throws Exception {
+        try (FitsFile f = new FitsFile("fftest.bin", "rw", 100)) {
+            f.setLength(0);
+            for (int i = 0; i < 500; i++) {
+                f.writeInt(i);
+            }
+            f.flush();
+
+            byte[] b = new byte[4];
+            Thread.currentThread().interrupt();
+            try {
+                f.readFullyAt(400, b, 0, b.length);
+            } finally {
+                // Clears the interrupt
+                assertTrue(Thread.interrupted());
+            }
+            assertArrayEquals(new byte[] {0, 0, 0, 100}, b);
+
+            // The file must remain usable
+            f.readFullyAt(404, b, 0, b.length);
+            assertArrayEquals(new byte[] {0, 0, 0, 101}, b);
+            f.seek(8);
+            assertEquals(2, f.readInt());
+        }
+    }
+
+    @Test(expected = EOFException.class)
+    public void testReadFullyAtEOF() throws Exception {
+        try (FitsFile f = new FitsFile("fftest.bin", "rw", 100)) {
+            f.setLength(10);
+            f.readFullyAt(5, new byte[10], 0, 10);
+        }
+    }
+
+    @Test
+    public void testSingleOwner() throws Exception {
+        try (FitsFile f = new FitsFile("fftest.bin", "rw", 100)) {
+            f.setLength(0);
+            assertFalse(f.isSingleOwner());
+
+            f.writeInt(-1);
+            f.setSingleOwner(true);
+            assertTrue(f.isSingleOwner());
+
+            for (int i = 0; i < 100; i++) {
+                f.writeInt(i);
+                f.writeDouble(i + 0.5);
+                f.writeByte(i);
+            }
+            f.writeArray(new short[][] {{1, 2}, {3, 4}});
+            f.writeBoolean(true);
+
+            f.seek(0);
+            assertEquals(-1, f.readInt());
+            for (int i = 0; i < 100; i++) {
+                assertEquals(i, f.readInt());
+                assertEquals(i + 0.5, f.readDouble(), 1e-12);
+                assertEquals(i, f.readUnsignedByte());
+            }
+
+            short[][] s = new short[2][2];
+            f.readArrayFully(s);
+            assertArrayEquals(new short[] {3, 4}, s[1]);
+
+            f.setSingleOwner(false);
+            assertFalse(f.isSingleOwner());
+            assertTrue(f.readBoolean());
+            assertEquals(-1, f.read());
+        }
+    }
 }
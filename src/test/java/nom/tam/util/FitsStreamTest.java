@@ -32,6 +32,8 @@ package nom.tam.util;
  */
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -63,4 +65,29 @@ public class FitsStreamTest {
         assertEquals("standalone", b[0].booleanValue(), i.readBoolean());
     }
 
+    @Test
+    public void testSingleOwnerInput() throws Exception {
+        ByteArrayOutputStream bo = new ByteArrayOutputStream(100);
+
+        FitsOutputStream o = new FitsOutputStream(bo);
+        o.writeInt(1);
+        o.writeLong(2L);
+        o.write(new float[] {3.0F, 4.0F});
+        o.flush();
+
+        FitsInputStream i = new FitsInputStream(new ByteArrayInputStream(bo.toByteArray()));
+        assertFalse(i.isSingleOwner());
+        i.setSingleOwner(true);
+        assertTrue(i.isSingleOwner());
+
+        assertEquals(1, i.readInt());
+        assertEquals(2L, i.readLong());
+
+        float[] f = new float[2];
+        i.readArrayFully(f);
+        assertEquals(4.0F, f[1], 1e-6);
+
+        i.setSingleOwner(false);
+        assertFalse(i.isSingleOwner());
+    }
 }
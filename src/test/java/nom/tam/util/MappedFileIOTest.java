@@ -0,0 +1,205 @@
+package nom.tam.util;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Test;
+
+import nom.tam.fits.BinaryTable;
+import nom.tam.fits.BinaryTableHDU;
+import nom.tam.fits.Fits;
+import nom.tam.fits.ImageHDU;
+import nom.tam.image.StandardImageTiler;
+
+public class MappedFileIOTest {
+
+    private String fileName = "target/mappedtest.bin";
+
+    private File getFile() {
+        return new File(fileName);
+    }
+
+    @After
+    public void cleanup() {
+        getFile().delete();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSegmentSize() throws Exception {
+        new MappedFileIO(getFile(), "rw", 0);
+    }
+
+    @Test
+    public void testWriteReadAcrossSegments() throws Exception {
+        byte[] data = new byte[1000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+
+        try (MappedFileIO f = new MappedFileIO(getFile(), "rw", 64)) {
+            assertEquals(64, f.getSegmentSize());
+            f.write(data, 0, 500);
+            f.write(data, 500, 500);
+            assertEquals(data.length, f.length());
+            assertEquals(data.length, f.position());
+
+            byte[] b = new byte[data.length];
+            f.position(0);
+            assertEquals(data.length, f.read(b, 0, b.length));
+            assertArrayEquals(data, b);
+
+            f.position(63);
+            assertEquals(63, f.read());
+            assertEquals(64, f.read());
+
+            f.position(999);
+            assertEquals(data[999] & 0xFF, f.read());
+            assertEquals(-1, f.read());
+            assertEquals(-1, f.read(b, 0, 1));
+            assertEquals(0, f.read(b, 0, 0));
+        }
+
+        try (MappedFileIO f = new MappedFileIO(getFile(), "r", 100)) {
+            byte[] b = new byte[data.length + 10];
+            assertEquals(data.length, f.read(b, 0, b.length));
+            for (int i = 0; i < data.length; i++) {
+                assertEquals(data[i], b[i]);
+            }
+            assertNotNull(f.getFD());
+            assertNotNull(f.getChannel());
+        }
+    }
+
+    @Test
+    public void testSetLength() throws Exception {
+        try (MappedFileIO f = new MappedFileIO(getFile(), "rw", 16)) {
+            f.write(new byte[100]);
+            f.setLength(30);
+            assertEquals(30, f.length());
+
+            f.position(20);
+            f.write(new byte[] {1, 2, 3});
+            f.setLength(40);
+            f.position(20);
+            assertEquals(1, f.read());
+            assertEquals(2, f.read());
+            assertEquals(3, f.read());
+            f.position(39);
+            assertEquals(0, f.read());
+            assertEquals(-1, f.read());
+        }
+    }
+
+    @Test
+    public void testUTF() throws Exception {
+        try (MappedFileIO f = new MappedFileIO(getFile(), "rw", 5)) {
+            f.writeUTF("Hello world!");
+            f.write('a');
+            f.position(0);
+            assertEquals("Hello world!", f.readUTF());
+            assertEquals('a', f.read());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testWriteReadOnly() throws Exception {
+        try (MappedFileIO f = new MappedFileIO(getFile(), "rw")) {
+            f.write(new byte[10]);
+        }
+        try (MappedFileIO f = new MappedFileIO(getFile(), "r")) {
+            f.write(1);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testNegativePosition() throws Exception {
+        try (MappedFileIO f = new MappedFileIO(getFile(), "rw")) {
+            f.position(-1);
+        }
+    }
+
+    @Test
+    public void testFitsMapped() throws Exception {
+        float[][] im = new float[100][100];
+        for (int i = 0; i < im.length; i++) {
+            for (int j = 0; j < im[i].length; j++) {
+                im[i][j] = i + 0.01F * j;
+            }
+        }
+
+        int[] ints = new int[200];
+        double[] dbls = new double[200];
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = i;
+            dbls[i] = Math.sqrt(i);
+        }
+
+        try (Fits fits = new Fits()) {
+            fits.addHDU(Fits.makeHDU(im));
+            fits.addHDU(BinaryTableHDU.wrap(BinaryTable.fromColumnMajor(new Object[] {ints, dbls})));
+            fits.write(getFile());
+        }
+
+        // Use a segment size that is not aligned to FITS blocks, so we cross segment boundaries.
+        try (Fits fits = new Fits(new MappedFileIO(getFile(), "r", 1000))) {
+            ImageHDU image = (ImageHDU) fits.getHDU(0);
+            BinaryTableHDU table = (BinaryTableHDU) fits.getHDU(1);
+
+            StandardImageTiler tiler = image.getTiler();
+            float[] tile = (float[]) tiler.getTile(new int[] {10, 20}, new int[] {30, 40});
+            for (int i = 0; i < 30; i++) {
+                for (int j = 0; j < 40; j++) {
+                    assertEquals(im[i + 10][j + 20], tile[i * 40 + j], 1e-6);
+                }
+            }
+
+            assertEquals(123, ((int[]) table.getData().getElement(123, 0))[0]);
+            assertEquals(Math.sqrt(77), ((double[]) table.getData().getElement(77, 1))[0], 1e-12);
+
+            float[][] im2 = (float[][]) image.getKernel();
+            for (int i = 0; i < im.length; i++) {
+                assertArrayEquals(im[i], im2[i], 1e-6F);
+            }
+
+            BinaryTable tab = table.getData();
+            tab.getData();
+            assertArrayEquals(dbls, (double[]) tab.getColumn(1), 1e-12);
+        }
+    }
+}
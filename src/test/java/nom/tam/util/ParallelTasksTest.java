@@ -0,0 +1,115 @@
+package nom.tam.util;
+
+/*
+ * #%L
+ * nom.tam FITS library
+ * %%
+ * Copyright (C) 1996 - 2024 nom-tam-fits
+ * %%
+ * This is free and unencumbered software released into the public domain.
+ *
+ * Anyone is free to copy, modify, publish, use, compile, sell, or
+ * distribute this software, either in source code form or as a compiled
+ * binary, for any purpose, commercial or non-commercial, and by any
+ * means.
+ *
+ * In jurisdictions that recognize copyright laws, the author or authors
+ * of this software dedicate any and all copyright interest in the
+ * software to the public domain. We make this dedication for the benefit
+ * of the public at large and to the detriment of our heirs and
+ * successors. We intend this dedication to be an overt act of
+ * relinquishment in perpetuity of all present and future rights to this
+ * software under copyright law.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+
+import org.junit.Test;
+
+public class ParallelTasksTest {
+
+    @Test
+    public void testResultsInOrder() throws Exception {
+        ParallelTasks<Integer> tasks = new ParallelTasks<>(Runnable::run, "testing");
+        for (int i = 0; i < 10; i++) {
+            final int k = i;
+            assertEquals(i, tasks.add(() -> k * k));
+        }
+
+        assertEquals(10, tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(i * i, (int) tasks.get(i));
+        }
+    }
+
+    @Test
+    public void testRunByCaller() throws Exception {
+        // An executor that never runs anything, like a saturated pool
+        Executor idle = task -> {
+        };
+
+        ParallelTasks<Thread> tasks = new ParallelTasks<>(idle, "testing");
+        tasks.add(Thread::currentThread);
+        tasks.add(Thread::currentThread);
+
+        assertSame(Thread.currentThread(), tasks.get(0));
+        assertSame(Thread.currentThread(), tasks.get(1));
+    }
+
+    @Test
+    public void testIOException() throws Exception {
+        IOException e = new IOException("test");
+        ParallelTasks<Void> tasks = new ParallelTasks<>(Runnable::run, "testing");
+        tasks.add(() -> {
+            throw e;
+        });
+
+        try {
+            tasks.get(0);
+            fail("Expected IOException");
+        } catch (IOException x) {
+            assertSame(e, x);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRuntimeException() throws Exception {
+        ParallelTasks<Void> tasks = new ParallelTasks<>(Runnable::run, "testing");
+        tasks.add(() -> {
+            throw new IllegalStateException();
+        });
+        tasks.get(0);
+    }
+
+    @Test
+    public void testCheckedException() throws Exception {
+        Exception e = new Exception("test");
+        ParallelTasks<Void> tasks = new ParallelTasks<>(Runnable::run, "testing");
+        tasks.add(() -> {
+            throw e;
+        });
+
+        try {
+            tasks.get(0);
+            fail("Expected IOException");
+        } catch (IOException x) {
+            assertSame(e, x.getCause());
+            assertTrue(x.getMessage().contains("testing"));
+        }
+    }
+}